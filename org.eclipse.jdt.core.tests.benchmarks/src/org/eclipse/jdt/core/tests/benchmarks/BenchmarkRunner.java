@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line, but defaults to the settings used to compare
+ * releases: throughput and sampled latency modes, allocation rate measured by the GC profiler, and
+ * results written as JSON into <code>jmh-result.json</code>.
+ * <p>
+ * For instance, <code>java -jar target/benchmarks.jar Scanner -p corpus=/path/to/sources</code>.
+ * </p>
+ */
+public class BenchmarkRunner {
+
+	public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+	CommandLineOptions commandLine = new CommandLineOptions(args);
+	if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers()) {
+		org.openjdk.jmh.Main.main(args);
+		return;
+	}
+	ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+	if (commandLine.getBenchModes().isEmpty())
+		options.mode(Mode.Throughput).mode(Mode.SampleTime);
+	if (commandLine.getProfilers().isEmpty())
+		options.addProfiler(GCProfiler.class);
+	if (!commandLine.getResultFormat().hasValue())
+		options.resultFormat(ResultFormatType.JSON);
+	if (!commandLine.getResult().hasValue())
+		options.result(DEFAULT_RESULT_FILE);
+	new Runner(options.build()).run();
+}
+}
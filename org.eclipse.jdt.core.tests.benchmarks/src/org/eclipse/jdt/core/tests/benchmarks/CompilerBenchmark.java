@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.benchmarks;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.internal.compiler.ClassFile;
+import org.eclipse.jdt.internal.compiler.CompilationResult;
+import org.eclipse.jdt.internal.compiler.Compiler;
+import org.eclipse.jdt.internal.compiler.DefaultErrorHandlingPolicies;
+import org.eclipse.jdt.internal.compiler.ICompilerRequestor;
+import org.eclipse.jdt.internal.compiler.batch.FileSystem;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compiles the whole corpus against the libraries of the running VM with {@link Compiler#compile},
+ * generating the class files in memory, like the batch compiler with <code>-d none</code>.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CompilerBenchmark {
+
+	@Param(Corpus.DEFAULT_FOLDER)
+	public String corpus;
+
+	/**
+	 * Number of compiler shards, ignored by the releases which compile on a single thread.
+	 * The scores of the runs with several shards give the speedup against the single thread path.
+	 */
+	@Param({"1", "2", "4"})
+	public String parallelism;
+
+	Corpus sources;
+	CompilerOptions options;
+
+	static class Requestor implements ICompilerRequestor {
+		int classFiles, problems;
+
+		public void acceptResult(CompilationResult result) {
+			ClassFile[] files = result.getClassFiles();
+			this.classFiles += files.length;
+			if (result.hasProblems())
+				this.problems += result.getAllProblems().length;
+		}
+	}
+
+@Setup
+public void setUp() throws IOException {
+	this.sources = Corpus.load(this.corpus);
+	Map<String, String> settings = Corpus.compilerOptions();
+	settings.put("org.eclipse.jdt.core.compiler.parallelism", this.parallelism);
+	this.options = new CompilerOptions(settings);
+}
+
+@Benchmark
+public int compile() {
+	FileSystem environment = this.sources.newNameEnvironment(true);
+	try {
+		Requestor requestor = new Requestor();
+		Compiler compiler = new Compiler(
+			environment,
+			DefaultErrorHandlingPolicies.proceedWithAllProblems(),
+			this.options,
+			requestor,
+			new DefaultProblemFactory(Locale.getDefault()));
+		compiler.compile(this.sources.compilationUnits());
+		return requestor.classFiles;
+	} finally {
+		environment.cleanup();
+	}
+}
+}
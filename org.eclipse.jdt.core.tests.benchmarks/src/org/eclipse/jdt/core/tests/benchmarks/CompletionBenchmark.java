@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.benchmarks;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.internal.codeassist.complete.CompletionNodeFound;
+import org.eclipse.jdt.internal.codeassist.complete.CompletionParser;
+import org.eclipse.jdt.internal.codeassist.complete.InvalidCursorLocation;
+import org.eclipse.jdt.internal.codeassist.impl.AssistParser;
+import org.eclipse.jdt.internal.codeassist.impl.Engine;
+import org.eclipse.jdt.internal.compiler.CompilationResult;
+import org.eclipse.jdt.internal.compiler.DefaultErrorHandlingPolicies;
+import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
+import org.eclipse.jdt.internal.compiler.batch.FileSystem;
+import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
+import org.eclipse.jdt.internal.compiler.lookup.LookupEnvironment;
+import org.eclipse.jdt.internal.compiler.problem.AbortCompilation;
+import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
+import org.eclipse.jdt.internal.compiler.problem.ProblemReporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Completes after the last <code>this.</code> of every unit of the corpus which has one.
+ * <p>
+ * <code>CompletionEngine.complete</code> needs a Java project to search the proposals in, hence a running
+ * workspace. This benchmark runs the part of it which does not: the completion parser locates the completion
+ * node, the unit is resolved against the corpus and the libraries until the node is found.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CompletionBenchmark {
+
+	static final String COMPLETION_PREFIX = "this.";
+
+	@Param(Corpus.DEFAULT_FOLDER)
+	public String corpus;
+
+	Corpus sources;
+	int[] cursors;
+
+	/*
+	 * Mirrors CompletionEngine#complete(ICompilationUnit, int, int, ITypeRoot) up to the search of the proposals.
+	 */
+	static class CompletionNodeLocator extends Engine {
+		CompletionParser parser;
+
+		CompletionNodeLocator(Map<String, String> settings, FileSystem environment) {
+			super(settings);
+			ProblemReporter problemReporter = new ProblemReporter(
+				DefaultErrorHandlingPolicies.proceedWithAllProblems(),
+				this.compilerOptions,
+				new DefaultProblemFactory(Locale.getDefault()));
+			this.lookupEnvironment = new LookupEnvironment(this, this.compilerOptions, problemReporter, environment);
+			this.parser = new CompletionParser(problemReporter, false);
+		}
+		public AssistParser getParser() {
+			return this.parser;
+		}
+		boolean complete(ICompilationUnit sourceUnit, int completionPosition) {
+			try {
+				CompilationResult result = new CompilationResult(sourceUnit, 1, 1, this.compilerOptions.maxProblemsPerUnit);
+				CompilationUnitDeclaration parsedUnit = this.parser.dietParse(sourceUnit, result, completionPosition);
+				if (parsedUnit == null || parsedUnit.types == null)
+					return false;
+				this.lookupEnvironment.buildTypeBindings(parsedUnit, null /*no access restriction*/);
+				if ((this.unitScope = parsedUnit.scope) == null)
+					return false;
+				this.lookupEnvironment.completeTypeBindings(parsedUnit, true);
+				parsedUnit.scope.faultInTypes();
+				parseBlockStatements(parsedUnit, completionPosition);
+				parsedUnit.resolve();
+				return false;
+			} catch (CompletionNodeFound e) {
+				return e.astNode != null;
+			} catch (InvalidCursorLocation e) { // e.g. in a comment
+				return false;
+			} catch (AbortCompilation e) {
+				return false;
+			} finally {
+				this.lookupEnvironment.reset();
+				this.unitScope = null;
+			}
+		}
+	}
+
+@Setup
+public void setUp() throws IOException {
+	this.sources = Corpus.load(this.corpus);
+	char[][] contents = this.sources.contents;
+	this.cursors = new int[contents.length];
+	for (int i = 0; i < contents.length; i++) {
+		int index = new String(contents[i]).lastIndexOf(COMPLETION_PREFIX);
+		this.cursors[i] = index == -1 ? -1 : index + COMPLETION_PREFIX.length() - 1; // on the dot
+	}
+}
+
+@Benchmark
+public int complete() {
+	FileSystem environment = this.sources.newNameEnvironment(false);
+	try {
+		CompletionNodeLocator locator = new CompletionNodeLocator(Corpus.compilerOptions(), environment);
+		ICompilationUnit[] units = this.sources.compilationUnits();
+		int found = 0;
+		for (int i = 0, length = units.length; i < length; i++)
+			if (this.cursors[i] != -1 && locator.complete(units[i], this.cursors[i]))
+				found++;
+		return found;
+	} finally {
+		environment.cleanup();
+	}
+}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.internal.compiler.batch.CompilationUnit;
+import org.eclipse.jdt.internal.compiler.batch.FileSystem;
+import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.util.Util;
+
+/**
+ * The Java sources all the benchmarks work on.
+ * <p>
+ * By default, this is the <code>compiler</code> source folder of the org.eclipse.jdt.core project
+ * next to this one, which compiles against the JRE alone. Results can only be compared between runs
+ * using the same corpus, so comparing releases requires to pin it with <code>-p corpus=&lt;folder&gt;</code>.
+ * </p>
+ */
+public class Corpus {
+
+	public static final String DEFAULT_FOLDER = "../org.eclipse.jdt.core/compiler";
+	public static final String ENCODING = "UTF-8";
+
+	private static Corpus Last;
+
+	public final File folder;
+	public final String[] fileNames; // sorted, absolute
+	public final String[] relativePaths; // relative to the corpus folder, with '/' separators
+	public final char[][] contents;
+
+/**
+ * Answers the corpus found in the given folder. The last one is cached since all the benchmarks of a fork use the same.
+ */
+public static synchronized Corpus load(String folderName) throws IOException {
+	File folder = new File(folderName).getCanonicalFile();
+	if (Last == null || !Last.folder.equals(folder)) {
+		if (!folder.isDirectory())
+			throw new IOException("Corpus folder not found: " + folder + " (use -p corpus=<folder>)");
+		Last = new Corpus(folder);
+	}
+	return Last;
+}
+
+private Corpus(File folder) throws IOException {
+	this.folder = folder;
+	List<String> paths = new ArrayList<String>();
+	collectJavaFiles(folder, "", paths);
+	String[] sortedPaths = paths.toArray(new String[paths.size()]);
+	Arrays.sort(sortedPaths);
+	int length = sortedPaths.length;
+	this.relativePaths = sortedPaths;
+	this.fileNames = new String[length];
+	this.contents = new char[length][];
+	for (int i = 0; i < length; i++) {
+		File file = new File(folder, sortedPaths[i]);
+		this.fileNames[i] = file.getPath();
+		this.contents[i] = Util.getFileCharContent(file, ENCODING);
+	}
+}
+
+private static void collectJavaFiles(File folder, String prefix, List<String> paths) {
+	File[] files = folder.listFiles();
+	if (files == null) return;
+	for (int i = 0; i < files.length; i++) {
+		String path = prefix + files[i].getName();
+		if (files[i].isDirectory())
+			collectJavaFiles(files[i], path + '/', paths);
+		else if (path.endsWith(".java"))
+			paths.add(path);
+	}
+}
+
+/**
+ * Answers new compilation units for the files of the corpus, since the compiler releases the units it processed.
+ */
+public ICompilationUnit[] compilationUnits() {
+	int length = this.contents.length;
+	ICompilationUnit[] units = new ICompilationUnit[length];
+	for (int i = 0; i < length; i++)
+		units[i] = new CompilationUnit(this.contents[i], this.fileNames[i], ENCODING);
+	return units;
+}
+
+public int lineCount() {
+	int lines = 0;
+	for (int i = 0, length = this.contents.length; i < length; i++) {
+		char[] source = this.contents[i];
+		for (int j = 0, sourceLength = source.length; j < sourceLength; j++)
+			if (source[j] == '\n') lines++;
+	}
+	return lines;
+}
+
+/**
+ * Answers a name environment on the libraries of the running VM and the sources of the corpus.
+ * The libraries are those of a Java 7 or 8 VM, since the compiler cannot read more recent ones.
+ * When the whole corpus gets compiled, its units must not be answered from the sources again.
+ */
+public FileSystem newNameEnvironment(boolean compilingCorpus) {
+	List<String> classpath = new ArrayList<String>();
+	for (String library : Util.collectFilesNames())
+		if (new File(library).exists())
+			classpath.add(library);
+	classpath.add(this.folder.getPath());
+	return new FileSystem(classpath.toArray(new String[classpath.size()]), compilingCorpus ? this.fileNames : null, ENCODING);
+}
+
+/**
+ * Answers the compiler options used by all the benchmarks: the defaults, at the level of the corpus.
+ */
+@SuppressWarnings("unchecked")
+public static Map<String, String> compilerOptions() {
+	Map<String, String> options = new HashMap<String, String>(new CompilerOptions().getMap());
+	options.put(CompilerOptions.OPTION_Compliance, CompilerOptions.VERSION_1_7);
+	options.put(CompilerOptions.OPTION_Source, CompilerOptions.VERSION_1_7);
+	options.put(CompilerOptions.OPTION_TargetPlatform, CompilerOptions.VERSION_1_7);
+	options.put(CompilerOptions.OPTION_TaskTags, "");
+	return options;
+}
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.benchmarks;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.core.formatter.CodeFormatter;
+import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
+import org.eclipse.jdt.internal.formatter.DefaultCodeFormatter;
+import org.eclipse.text.edits.TextEdit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Formats every unit of the corpus with {@link DefaultCodeFormatter#format(int, String, int, int, int, String)},
+ * using the Eclipse built-in profile.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FormatterBenchmark {
+
+	@Param(Corpus.DEFAULT_FOLDER)
+	public String corpus;
+
+	String[] sources;
+	Map<String, String> options;
+
+@Setup
+@SuppressWarnings("unchecked")
+public void setUp() throws IOException {
+	char[][] contents = Corpus.load(this.corpus).contents;
+	this.sources = new String[contents.length];
+	for (int i = 0; i < contents.length; i++)
+		this.sources[i] = new String(contents[i]);
+	this.options = DefaultCodeFormatterConstants.getEclipseDefaultSettings();
+	this.options.putAll(Corpus.compilerOptions());
+}
+
+@Benchmark
+public int format() {
+	DefaultCodeFormatter formatter = new DefaultCodeFormatter(this.options);
+	int edits = 0;
+	for (int i = 0, length = this.sources.length; i < length; i++) {
+		String source = this.sources[i];
+		TextEdit edit = formatter.format(CodeFormatter.K_COMPILATION_UNIT, source, 0, source.length(), 0, "\n");
+		if (edit != null)
+			edits += edit.getChildrenSize();
+	}
+	return edits;
+}
+}
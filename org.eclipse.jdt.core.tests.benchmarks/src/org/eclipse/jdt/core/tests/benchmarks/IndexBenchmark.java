@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.core.search.SearchDocument;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.internal.compiler.SourceElementParser;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
+import org.eclipse.jdt.internal.core.index.DiskIndex;
+import org.eclipse.jdt.internal.core.index.EntryResult;
+import org.eclipse.jdt.internal.core.index.FileIndexLocation;
+import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.search.indexing.IIndexConstants;
+import org.eclipse.jdt.internal.core.search.indexing.IndexingParser;
+import org.eclipse.jdt.internal.core.search.indexing.SourceIndexer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Queries an index of the corpus saved on disk, so that {@link Index#query(char[][], char[], int)} answers
+ * from {@link DiskIndex}. The index is built by the source indexer, as for the sources of a project.
+ * Like successive searches, successive queries reuse the table of the category the disk index read last.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IndexBenchmark {
+
+	static final String CONTAINER_PATH = "/corpus";
+
+	@Param(Corpus.DEFAULT_FOLDER)
+	public String corpus;
+
+	File indexFile;
+	Index index;
+
+	static class CorpusDocument extends SearchDocument {
+		char[] contents;
+
+		CorpusDocument(String documentPath, char[] contents) {
+			super(documentPath, null);
+			this.contents = contents;
+		}
+		public byte[] getByteContents() {
+			return null;
+		}
+		public char[] getCharContents() {
+			return this.contents;
+		}
+		public String getEncoding() {
+			return Corpus.ENCODING;
+		}
+	}
+
+@Setup
+public void setUp() throws IOException {
+	Corpus sources = Corpus.load(this.corpus);
+	this.indexFile = File.createTempFile("benchmark", ".index");
+	Index newIndex = new Index(new FileIndexLocation(this.indexFile), CONTAINER_PATH, false);
+	SourceElementParser parser = new IndexingParser(
+		null /*set by the indexer*/,
+		new DefaultProblemFactory(Locale.getDefault()),
+		new CompilerOptions(Corpus.compilerOptions()),
+		true /*index local declarations*/,
+		true /*optimize string literals*/,
+		false /*no source javadoc parser*/);
+	parser.reportOnlyOneSyntaxError = true;
+	parser.javadocParser.checkDocComment = true;
+	parser.javadocParser.reportProblems = false;
+	for (int i = 0, length = sources.contents.length; i < length; i++) {
+		SearchDocument document = new CorpusDocument(CONTAINER_PATH + '/' + sources.relativePaths[i], sources.contents[i]);
+		document.setIndex(newIndex);
+		document.setParser(parser);
+		new SourceIndexer(document).indexDocument();
+	}
+	newIndex.save();
+	this.index = new Index(new FileIndexLocation(this.indexFile), CONTAINER_PATH, true /*reuse the saved file*/);
+}
+
+@TearDown
+public void tearDown() {
+	this.indexFile.delete();
+}
+
+private int query(char[] category, String key, int matchRule) throws IOException {
+	EntryResult[] results = this.index.query(new char[][] {category}, key.toCharArray(), matchRule);
+	int documents = 0;
+	if (results != null)
+		for (int i = 0, length = results.length; i < length; i++)
+			documents += results[i].getDocumentNames(this.index).length;
+	return documents;
+}
+
+@Benchmark
+public int exactMatch() throws IOException {
+	return query(IIndexConstants.REF, "CharOperation", SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+}
+
+@Benchmark
+public int prefixMatch() throws IOException {
+	return query(IIndexConstants.METHOD_DECL, "resolve", SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE);
+}
+
+@Benchmark
+public int patternMatch() throws IOException {
+	return query(IIndexConstants.TYPE_DECL, "*binding/*", SearchPattern.R_PATTERN_MATCH);
+}
+}
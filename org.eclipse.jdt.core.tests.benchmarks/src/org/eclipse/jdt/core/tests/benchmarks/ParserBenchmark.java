@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.benchmarks;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.internal.compiler.CompilationResult;
+import org.eclipse.jdt.internal.compiler.DefaultErrorHandlingPolicies;
+import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
+import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.parser.Parser;
+import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
+import org.eclipse.jdt.internal.compiler.problem.ProblemReporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses the whole corpus, method bodies included, with {@link Parser#parse(ICompilationUnit, CompilationResult)}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParserBenchmark {
+
+	@Param(Corpus.DEFAULT_FOLDER)
+	public String corpus;
+
+	Corpus sources;
+	CompilerOptions options;
+
+@Setup
+public void setUp() throws IOException {
+	this.sources = Corpus.load(this.corpus);
+	this.options = new CompilerOptions(Corpus.compilerOptions());
+}
+
+@Benchmark
+public int parse() {
+	ProblemReporter problemReporter = new ProblemReporter(
+		DefaultErrorHandlingPolicies.proceedWithAllProblems(),
+		this.options,
+		new DefaultProblemFactory(Locale.getDefault()));
+	Parser parser = new Parser(problemReporter, this.options.parseLiteralExpressionsAsConstants);
+	ICompilationUnit[] units = this.sources.compilationUnits();
+	int types = 0;
+	for (int i = 0, length = units.length; i < length; i++) {
+		CompilationResult result = new CompilationResult(units[i], i, length, this.options.maxProblemsPerUnit);
+		CompilationUnitDeclaration unit = parser.parse(units[i], result);
+		if (unit.types != null)
+			types += unit.types.length;
+	}
+	return types;
+}
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.core.compiler.InvalidInputException;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
+import org.eclipse.jdt.internal.compiler.parser.Scanner;
+import org.eclipse.jdt.internal.compiler.parser.TerminalTokens;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tokenizes the whole corpus with {@link Scanner#getNextToken()}, the way the parser does.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScannerBenchmark {
+
+	@Param(Corpus.DEFAULT_FOLDER)
+	public String corpus;
+
+	char[][] contents;
+
+@Setup
+public void setUp() throws IOException {
+	this.contents = Corpus.load(this.corpus).contents;
+}
+
+@Benchmark
+public int getNextToken() throws InvalidInputException {
+	Scanner scanner = new Scanner(
+		false /*comment*/,
+		false /*whitespace*/,
+		false /*nls*/,
+		ClassFileConstants.JDK1_7 /*sourceLevel*/,
+		null /*taskTags*/,
+		null /*taskPriorities*/,
+		true /*taskCaseSensitive*/);
+	int tokens = 0;
+	for (int i = 0, length = this.contents.length; i < length; i++) {
+		scanner.setSource(this.contents[i]);
+		while (scanner.getNextToken() != TerminalTokens.TokenNameEOF)
+			tokens++;
+	}
+	return tokens;
+}
+}
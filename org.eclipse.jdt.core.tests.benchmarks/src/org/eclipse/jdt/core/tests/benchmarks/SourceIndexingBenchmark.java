@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.benchmarks;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.internal.compiler.SourceElementParser;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
+import org.eclipse.jdt.internal.core.search.indexing.IndexingParser;
+import org.eclipse.jdt.internal.core.search.indexing.SourceIndexer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Indexes the whole corpus with the {@link SourceIndexer}, either with the source element parser or from the
+ * tokens of the sources ({@link SourceIndexer#STREAMING}). The index entries are only counted, so that the
+ * benchmark measures the indexer and not the memory index.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SourceIndexingBenchmark {
+
+	@Param(Corpus.DEFAULT_FOLDER)
+	public String corpus;
+
+	@Param({"parser", "streaming"})
+	public String mode;
+
+	CountingDocument[] documents;
+
+	static class CountingDocument extends IndexBenchmark.CorpusDocument {
+		int entries;
+
+		CountingDocument(String documentPath, char[] contents) {
+			super(documentPath, contents);
+		}
+		public void addIndexEntry(char[] category, char[] key) {
+			this.entries++;
+		}
+		public void requireIndexingResolvedDocument() {
+			// the resolved document needs a workspace
+		}
+	}
+
+@Setup
+public void setUp() throws IOException {
+	Corpus sources = Corpus.load(this.corpus);
+	SourceElementParser parser = new IndexingParser(
+		null /*set by the indexer*/,
+		new DefaultProblemFactory(Locale.getDefault()),
+		new CompilerOptions(Corpus.compilerOptions()),
+		true /*index local declarations*/,
+		true /*optimize string literals*/,
+		false /*no source javadoc parser*/);
+	parser.reportOnlyOneSyntaxError = true;
+	parser.javadocParser.checkDocComment = true;
+	parser.javadocParser.reportProblems = false;
+	int length = sources.contents.length;
+	this.documents = new CountingDocument[length];
+	for (int i = 0; i < length; i++) {
+		this.documents[i] = new CountingDocument(IndexBenchmark.CONTAINER_PATH + '/' + sources.relativePaths[i], sources.contents[i]);
+		this.documents[i].setParser(parser);
+	}
+	SourceIndexer.STREAMING = "streaming".equals(this.mode);
+}
+
+@TearDown
+public void tearDown() {
+	SourceIndexer.STREAMING = Boolean.getBoolean(SourceIndexer.STREAMING_PROPERTY);
+}
+
+@Benchmark
+public int index() {
+	int entries = 0;
+	for (int i = 0, length = this.documents.length; i < length; i++) {
+		CountingDocument document = this.documents[i];
+		document.entries = 0;
+		new SourceIndexer(document).indexDocument();
+		entries += document.entries;
+	}
+	return entries;
+}
+}
@@ -634,4 +634,65 @@ public class BasicBuildTests extends BuilderTests {
 				"Problem : The type java.lang.Object cannot be resolved. It is indirectly referenced from required .class files [ resource : </Project/src/X.java> range : <0,1> category : <10> severity : <2>]"
 			);
 	}
+
+	// unchanged markers are kept instead of being deleted and created again by an incremental build
+	public void testUnchangedMarkers() throws CoreException {
+		IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+
+		// remove old package fragment root so that names don't collide
+		env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+
+		IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+		IPath pathToA = env.addClass(root, "p", "A", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p; \n"+ //$NON-NLS-1$
+			"//TODO first\n"+ //$NON-NLS-1$
+			"public class A {\n"+ //$NON-NLS-1$
+			"	public void foo() {\n"+ //$NON-NLS-1$
+			"	}\n"+ //$NON-NLS-1$
+			"}"); //$NON-NLS-1$
+
+		fullBuild(projectPath);
+		IMarker[] markers = env.getTaskMarkersFor(pathToA);
+		assertEquals("Wrong size", 1, markers.length);
+		long id = findMarker(markers, "TODO first").getId(); //$NON-NLS-1$
+
+		env.addClass(root, "p", "A", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p; \n"+ //$NON-NLS-1$
+			"//TODO first\n"+ //$NON-NLS-1$
+			"public class A {\n"+ //$NON-NLS-1$
+			"	public void foo() {\n"+ //$NON-NLS-1$
+			"		//TODO second\n"+ //$NON-NLS-1$
+			"	}\n"+ //$NON-NLS-1$
+			"}"); //$NON-NLS-1$
+
+		incrementalBuild(projectPath);
+		markers = env.getTaskMarkersFor(pathToA);
+		assertEquals("Wrong size", 2, markers.length);
+		assertEquals("Marker was recreated", id, findMarker(markers, "TODO first").getId()); //$NON-NLS-1$
+		assertTrue("Marker was not created", findMarker(markers, "TODO second").getId() != id); //$NON-NLS-1$
+
+		env.addClass(root, "p", "A", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p; \n"+ //$NON-NLS-1$
+			"//TODO changed\n"+ //$NON-NLS-1$
+			"public class A {\n"+ //$NON-NLS-1$
+			"	public void foo() {\n"+ //$NON-NLS-1$
+			"	}\n"+ //$NON-NLS-1$
+			"}"); //$NON-NLS-1$
+
+		incrementalBuild(projectPath);
+		markers = env.getTaskMarkersFor(pathToA);
+		assertEquals("Wrong size", 1, markers.length);
+		assertEquals("Wrong message", "TODO changed", markers[0].getAttribute(IMarker.MESSAGE));
+	}
+
+	private IMarker findMarker(IMarker[] markers, String message) throws CoreException {
+		for (int i = 0; i < markers.length; i++)
+			if (message.equals(markers[i].getAttribute(IMarker.MESSAGE)))
+				return markers[i];
+		fail("Missing marker: " + message); //$NON-NLS-1$
+		return null;
+	}
 }
@@ -10,10 +10,19 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.builder;
 
+import java.io.File;
+import java.util.ArrayList;
+
 import junit.framework.*;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.tests.util.Util;
+import org.eclipse.jdt.internal.compiler.impl.UnitStats;
+import org.eclipse.jdt.internal.core.builder.AbstractImageBuilder;
+import org.eclipse.jdt.internal.core.builder.BuildCache;
+import org.eclipse.jdt.internal.core.builder.BuildNotifier;
+import org.eclipse.jdt.internal.core.builder.BuildStats;
+import org.eclipse.jdt.internal.core.builder.IBuildStatsListener;
 
 /**
  * Basic efficiency tests of the image builder.
@@ -408,4 +417,336 @@ public class EfficiencyTests extends BuilderTests {
 		expectingCompiledClasses(new String[]{"p1.X", "p2.Y","p2.Z"}); //$NON-NLS-1$ //$NON-NLS-2$
 		expectingCompilingOrder(new String[]{"p2.Z", "p2.Y", "p1.X" }); //$NON-NLS-1$ //$NON-NLS-2$
 	}
+
+	// the dependents of a type are not recompiled when only its private members change
+	public void testPrivateMemberChanges() throws JavaModelException {
+
+		IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+		fullBuild(projectPath);
+
+		// remove old package fragment root so that names don't collide
+		env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+
+		IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+		env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	public static final int MAX = 1;\n" + //$NON-NLS-1$
+			"	private int count;\n" + //$NON-NLS-1$
+			"	public void foo() {}\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p2;\n"+ //$NON-NLS-1$
+			"import p1.*;\n"+ //$NON-NLS-1$
+			"public class Y extends X {\n"+ //$NON-NLS-1$
+			"	int max = MAX;\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		fullBuild(projectPath);
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	public static final int MAX = 1;\n" + //$NON-NLS-1$
+			"	private long count;\n" + //$NON-NLS-1$
+			"	private void bar(String s) {}\n" + //$NON-NLS-1$
+			"	public void foo() { bar(null); }\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		incrementalBuild(projectPath);
+		expectingCompiledClasses(new String[]{"p1.X"}); //$NON-NLS-1$
+
+		env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+			"package p1;\n"+ //$NON-NLS-1$
+			"public class X {\n"+ //$NON-NLS-1$
+			"	public static final int MAX = 2;\n" + //$NON-NLS-1$
+			"	private long count;\n" + //$NON-NLS-1$
+			"	private void bar(String s) {}\n" + //$NON-NLS-1$
+			"	public void foo() { bar(null); }\n" + //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		incrementalBuild(projectPath);
+		expectingCompiledClasses(new String[]{"p1.X", "p2.Y"}); //$NON-NLS-1$ //$NON-NLS-2$
+		expectingCompilingOrder(new String[]{"p1.X", "p2.Y" }); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	// only the units using the changed members of a type, or extending it, are recompiled
+	public void testMemberChanges() throws JavaModelException {
+		boolean recordMemberReferences = AbstractImageBuilder.RecordMemberReferences;
+		AbstractImageBuilder.RecordMemberReferences = true; // off by default
+		try {
+			IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+			env.addExternalJars(projectPath, Util.getJavaClassLibs());
+			fullBuild(projectPath);
+
+			// remove old package fragment root so that names don't collide
+			env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+
+			IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+			env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+			env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p1;\n"+ //$NON-NLS-1$
+				"public class X {\n"+ //$NON-NLS-1$
+				"	public int count;\n" + //$NON-NLS-1$
+				"	public void foo(long l) {}\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p2;\n"+ //$NON-NLS-1$
+				"public class Y {\n"+ //$NON-NLS-1$
+				"	void bar(p1.X x) { x.foo(1); }\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			env.addClass(root, "p2", "Z", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p2;\n"+ //$NON-NLS-1$
+				"public class Z {\n"+ //$NON-NLS-1$
+				"	int bar(p1.X x) { return x.count; }\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			env.addClass(root, "p2", "W", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p2;\n"+ //$NON-NLS-1$
+				"public class W extends p1.X {\n"+ //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			fullBuild(projectPath);
+			expectingNoProblems();
+
+			env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p1;\n"+ //$NON-NLS-1$
+				"public class X {\n"+ //$NON-NLS-1$
+				"	public int count;\n" + //$NON-NLS-1$
+				"	public void foo(long l) {}\n" + //$NON-NLS-1$
+				"	public void foo(int i) {}\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			incrementalBuild(projectPath);
+			expectingCompiledClasses(new String[]{"p1.X", "p2.W", "p2.Y"}); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+			env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p1;\n"+ //$NON-NLS-1$
+				"public class X {\n"+ //$NON-NLS-1$
+				"	public long count;\n" + //$NON-NLS-1$
+				"	public void foo(long l) {}\n" + //$NON-NLS-1$
+				"	public void foo(int i) {}\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			incrementalBuild(projectPath);
+			expectingCompiledClasses(new String[]{"p1.X", "p2.W", "p2.Z"}); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			expectingOnlyProblemsFor(new IPath[] {root.append("p2/Z.java")}); //$NON-NLS-1$
+		} finally {
+			AbstractImageBuilder.RecordMemberReferences = recordMemberReferences;
+		}
+	}
+
+	public void testBuildCache() throws JavaModelException {
+		String cacheLocation = BuildCache.CacheLocation;
+		File cacheFolder = new File(Util.getOutputDirectory(), "buildCache"); //$NON-NLS-1$
+		BuildCache.CacheLocation = cacheFolder.getAbsolutePath();
+		try {
+			IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+			env.addExternalJars(projectPath, Util.getJavaClassLibs());
+			fullBuild(projectPath);
+
+			// remove old package fragment root so that names don't collide
+			env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+
+			IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+			env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+			env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p1;\n"+ //$NON-NLS-1$
+				"public class X {\n"+ //$NON-NLS-1$
+				"	public void foo() {}\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p2;\n"+ //$NON-NLS-1$
+				"public class Y {\n"+ //$NON-NLS-1$
+				"	void bar(p1.X x) { x.foo(); }\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			fullBuild(projectPath);
+			expectingNoProblems();
+
+			env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p2;\n"+ //$NON-NLS-1$
+				"public class Y {\n"+ //$NON-NLS-1$
+				"	void bar(p1.X x) { x.foo(); x.foo(); }\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			incrementalBuild(projectPath);
+			expectingCompiledClasses(new String[]{"p2.Y"}); //$NON-NLS-1$
+
+			// the result of the previous contents is reused
+			env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p2;\n"+ //$NON-NLS-1$
+				"public class Y {\n"+ //$NON-NLS-1$
+				"	void bar(p1.X x) { x.foo(); }\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			incrementalBuild(projectPath);
+			expectingCompiledClasses(new String[0]);
+			expectingNoProblems();
+
+			// Y is recompiled against the new X even though its cached result was reused
+			env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p1;\n"+ //$NON-NLS-1$
+				"public class X {\n"+ //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+			env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p2;\n"+ //$NON-NLS-1$
+				"public class Y {\n"+ //$NON-NLS-1$
+				"	void bar(p1.X x) { x.foo(); x.foo(); }\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			incrementalBuild(projectPath);
+			expectingCompiledClasses(new String[]{"p1.X", "p2.Y"}); //$NON-NLS-1$ //$NON-NLS-2$
+			expectingOnlyProblemsFor(new IPath[] {root.append("p2/Y.java")}); //$NON-NLS-1$
+		} finally {
+			BuildCache.CacheLocation = cacheLocation;
+			Util.delete(cacheFolder);
+		}
+	}
+
+	// a cached result is not reused once a member type it depends on changed
+	public void testBuildCacheMemberType() throws JavaModelException {
+		String cacheLocation = BuildCache.CacheLocation;
+		File cacheFolder = new File(Util.getOutputDirectory(), "buildCache"); //$NON-NLS-1$
+		BuildCache.CacheLocation = cacheFolder.getAbsolutePath();
+		try {
+			IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+			env.addExternalJars(projectPath, Util.getJavaClassLibs());
+			fullBuild(projectPath);
+
+			// remove old package fragment root so that names don't collide
+			env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+
+			IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+			env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+			env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p1;\n"+ //$NON-NLS-1$
+				"public class X {\n"+ //$NON-NLS-1$
+				"	public static class M {\n"+ //$NON-NLS-1$
+				"		public void foo() {}\n" + //$NON-NLS-1$
+				"	}\n"+ //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p2;\n"+ //$NON-NLS-1$
+				"public class Y {\n"+ //$NON-NLS-1$
+				"	void bar(p1.X.M m) { m.foo(); }\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			fullBuild(projectPath);
+			expectingNoProblems();
+
+			env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p2;\n"+ //$NON-NLS-1$
+				"public class Y {\n"+ //$NON-NLS-1$
+				"	void bar(p1.X.M m) { m.foo(); m.foo(); }\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			incrementalBuild(projectPath);
+			expectingCompiledClasses(new String[]{"p2.Y"}); //$NON-NLS-1$
+
+			// only the member type changes, the result cached for the first contents of Y must not be reused
+			env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p1;\n"+ //$NON-NLS-1$
+				"public class X {\n"+ //$NON-NLS-1$
+				"	public static class M {\n"+ //$NON-NLS-1$
+				"	}\n"+ //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+			env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p2;\n"+ //$NON-NLS-1$
+				"public class Y {\n"+ //$NON-NLS-1$
+				"	void bar(p1.X.M m) { m.foo(); }\n" + //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			incrementalBuild(projectPath);
+			expectingCompiledClasses(new String[]{"p1.X", "p1.X$M", "p2.Y"}); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			expectingOnlyProblemsFor(new IPath[] {root.append("p2/Y.java")}); //$NON-NLS-1$
+		} finally {
+			BuildCache.CacheLocation = cacheLocation;
+			Util.delete(cacheFolder);
+		}
+	}
+
+	public void testBuildStatsListener() throws JavaModelException {
+		final ArrayList compiledUnits = new ArrayList();
+		final ArrayList builds = new ArrayList();
+		IBuildStatsListener listener = new IBuildStatsListener() {
+			public void unitCompiled(BuildStats build, String typeLocator, UnitStats stats) {
+				compiledUnits.add(typeLocator);
+			}
+			public void buildFinished(BuildStats build) {
+				builds.add(build);
+			}
+		};
+		BuildNotifier.addStatsListener(listener);
+		try {
+			IPath projectPath = env.addProject("Project"); //$NON-NLS-1$
+			env.addExternalJars(projectPath, Util.getJavaClassLibs());
+
+			// remove old package fragment root so that names don't collide
+			env.removePackageFragmentRoot(projectPath, ""); //$NON-NLS-1$
+
+			IPath root = env.addPackageFragmentRoot(projectPath, "src"); //$NON-NLS-1$
+			env.setOutputFolder(projectPath, "bin"); //$NON-NLS-1$
+
+			env.addClass(root, "p1", "X", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p1;\n"+ //$NON-NLS-1$
+				"public class X {\n"+ //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			env.addClass(root, "p2", "Y", //$NON-NLS-1$ //$NON-NLS-2$
+				"package p2;\n"+ //$NON-NLS-1$
+				"public class Y extends p1.X {\n"+ //$NON-NLS-1$
+				"}\n" //$NON-NLS-1$
+				);
+
+			builds.clear();
+			fullBuild(projectPath);
+			expectingNoProblems();
+
+			assertEquals("Wrong number of builds", 1, builds.size()); //$NON-NLS-1$
+			BuildStats build = (BuildStats) builds.get(0);
+			assertEquals("Wrong project", "Project", build.projectName); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("Wrong number of units", 2, build.unitCount); //$NON-NLS-1$
+			assertTrue("Missing unit", compiledUnits.contains("src/p1/X.java")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertTrue("Missing unit", compiledUnits.contains("src/p2/Y.java")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("Wrong slowest units", 2, build.getSlowestTypeLocators().length); //$NON-NLS-1$
+			UnitStats[] slowest = build.getSlowestUnits();
+			assertTrue("Not sorted", slowest[0].totalTime() >= slowest[1].totalTime()); //$NON-NLS-1$
+		} finally {
+			BuildNotifier.removeStatsListener(listener);
+		}
+	}
 }
@@ -10,6 +10,11 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.builder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Hashtable;
 
 import junit.framework.Test;
@@ -23,7 +28,11 @@ import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.core.tests.util.Util;
+import org.eclipse.jdt.internal.core.JavaModelManager;
+import org.eclipse.jdt.internal.core.builder.JavaBuilder;
+import org.eclipse.jdt.internal.core.builder.State;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class IncrementalTests extends BuilderTests {
@@ -36,6 +45,100 @@ public class IncrementalTests extends BuilderTests {
 		return buildTestSuite(IncrementalTests.class);
 	}
 
+	/*
+	 * Ensures that a saved build state can be read back and written again, whether its reference collections
+	 * were decoded or not, and that an incremental build can start from it
+	 */
+	public void testIncrementalBuildFromSavedState() throws IOException, JavaModelException {
+		IPath projectPath = env.addProject("Project");
+		env.addExternalJars(projectPath, Util.getJavaClassLibs());
+
+		// remove old package fragment root so that names don't collide
+		env.removePackageFragmentRoot(projectPath, "");
+
+		IPath root = env.addPackageFragmentRoot(projectPath, "src");
+		env.setOutputFolder(projectPath, "bin");
+
+		env.addClass(root, "p", "X",
+			"package p;\n"+
+			"public class X {\n"+
+			"}");
+		env.addClass(root, "p", "Y",
+			"package p;\n"+
+			"public class Y {\n"+
+			"	X x;\n"+
+			"}");
+		env.addClass(root, "p", "C",
+			"package p;\n"+
+			"public class C {}\n"+
+			"class CC {}");
+		env.addClass(root, "q", "Z",
+			"package q;\n"+
+			"public class Z {}");
+
+		fullBuild(projectPath);
+		expectingNoProblems();
+
+		IProject project = env.getProject(projectPath);
+		JavaModelManager manager = JavaModelManager.getJavaModelManager();
+
+		// the references of a state which was read and never decoded are written back as they were read
+		State state = readState(project, writeState(manager.getLastBuiltState(project, null)));
+		state = readState(project, writeState(state));
+		expectingDefinedTypeNames(state);
+		manager.setLastBuiltState(project, state);
+
+		env.addClass(root, "p", "X",
+			"package p;\n"+
+			"public class X {\n"+
+			"	public void foo() {}\n"+
+			"}");
+		incrementalBuild(projectPath);
+		expectingNoProblems();
+		expectingCompiledClasses(new String[] {"p.X", "p.Y"});
+
+		// the references of a state which was read then decoded are encoded again
+		state = readState(project, writeState(manager.getLastBuiltState(project, null)));
+		state.getReferences();
+		state = readState(project, writeState(state));
+		expectingDefinedTypeNames(state);
+		manager.setLastBuiltState(project, state);
+
+		env.addClass(root, "p", "X",
+			"package p;\n"+
+			"public class X {\n"+
+			"	public void foo() {}\n"+
+			"	public void bar() {}\n"+
+			"}");
+		incrementalBuild(projectPath);
+		expectingNoProblems();
+		expectingCompiledClasses(new String[] {"p.X", "p.Y"});
+	}
+
+	private void expectingDefinedTypeNames(State state) {
+		char[][] typeNames = state.getDefinedTypeNamesFor("src/p/C.java");
+		assertEquals("Unexpected type names", "C,CC", typeNames == null ? null : new String(CharOperation.concatWith(typeNames, ',')));
+		assertNull("Unexpected type names", state.getDefinedTypeNamesFor("src/p/X.java"));
+		assertNull("Unexpected type names", state.getDefinedTypeNamesFor("src/q/Z.java"));
+	}
+
+	private byte[] writeState(Object state) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		JavaBuilder.writeState(state, out);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private State readState(IProject project, byte[] bytes) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		try {
+			return JavaBuilder.readState(project, in);
+		} finally {
+			in.close();
+		}
+	}
+
 	/*
 	 * Ensures that the source range for a duplicate secondary type error is correct
 	 * (regression test for https://bugs.eclipse.org/bugs/show_bug.cgi?id=77283)
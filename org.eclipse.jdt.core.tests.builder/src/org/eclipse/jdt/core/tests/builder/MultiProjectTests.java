@@ -18,10 +18,12 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.IAccessRule;
+import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.compiler.CategorizedProblem;
 import org.eclipse.jdt.core.tests.util.Util;
+import org.eclipse.jdt.internal.core.builder.ParallelBuild;
 import org.eclipse.test.OrderedTestSuite;
 
 import junit.framework.Test;
@@ -92,6 +94,89 @@ public class MultiProjectTests extends BuilderTests {
 		expectingCompiledClasses(new String[]{"A", "B"}); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
+	public void testParallelFullBuild() throws CoreException {
+		IPath project1Path = env.addProject("Project1"); //$NON-NLS-1$
+		env.addExternalJars(project1Path, Util.getJavaClassLibs());
+		IPath root1 = env.getPackageFragmentRootPath(project1Path, ""); //$NON-NLS-1$
+		env.addClass(root1, "", "A", //$NON-NLS-1$ //$NON-NLS-2$
+			"public class A {\n"+ //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		IPath project2Path = env.addProject("Project2"); //$NON-NLS-1$
+		env.addExternalJars(project2Path, Util.getJavaClassLibs());
+		env.addRequiredProject(project2Path, project1Path);
+		IPath root2 = env.getPackageFragmentRootPath(project2Path, ""); //$NON-NLS-1$
+		env.addClass(root2, "", "B", //$NON-NLS-1$ //$NON-NLS-2$
+			"public class B extends A {\n"+ //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		IPath project3Path = env.addProject("Project3"); //$NON-NLS-1$
+		env.addExternalJars(project3Path, Util.getJavaClassLibs());
+		IPath root3 = env.getPackageFragmentRootPath(project3Path, ""); //$NON-NLS-1$
+		env.addClass(root3, "", "C", //$NON-NLS-1$ //$NON-NLS-2$
+			"public class C {\n"+ //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		IPath project4Path = env.addProject("Project4"); //$NON-NLS-1$
+		env.addExternalJars(project4Path, Util.getJavaClassLibs());
+		env.addRequiredProject(project4Path, project2Path);
+		env.addRequiredProject(project4Path, project3Path);
+		IPath root4 = env.getPackageFragmentRootPath(project4Path, ""); //$NON-NLS-1$
+		env.addClass(root4, "", "D", //$NON-NLS-1$ //$NON-NLS-2$
+			"public class D extends B {\n"+ //$NON-NLS-1$
+			"   C c;\n"+ //$NON-NLS-1$
+			"}\n" //$NON-NLS-1$
+			);
+
+		fullBuild();
+		expectingNoProblems();
+
+		// dependents are given first, they must still be built after their prerequisites
+		IJavaProject[] projects = new IJavaProject[] {
+			env.getJavaProject(project4Path),
+			env.getJavaProject(project2Path),
+			env.getJavaProject(project3Path),
+			env.getJavaProject(project1Path)
+		};
+		int parallelism = ParallelBuild.PARALLELISM;
+		try {
+			ParallelBuild.PARALLELISM = 2;
+			this.debugRequestor.clearResult();
+			this.debugRequestor.activate();
+			JavaCore.fullBuild(projects, null);
+		} finally {
+			this.debugRequestor.deactivate();
+			ParallelBuild.PARALLELISM = parallelism;
+		}
+		expectingNoProblems();
+		expectingCompiledClasses(new String[]{"A", "B", "C", "D"}); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		// A and C can be compiled in any order, but always before the types which need them
+		expectingCompiledBefore("A", "B"); //$NON-NLS-1$ //$NON-NLS-2$
+		expectingCompiledBefore("B", "D"); //$NON-NLS-1$ //$NON-NLS-2$
+		expectingCompiledBefore("C", "D"); //$NON-NLS-1$ //$NON-NLS-2$
+		expectingPresenceOf(env.getOutputLocation(project4Path).append("D.class")); //$NON-NLS-1$
+
+		// the next workspace build has nothing left to compile
+		incrementalBuild();
+		expectingCompiledClasses(new String[0]);
+	}
+
+	private void expectingCompiledBefore(String prerequisite, String dependent) {
+		String[] compiled = this.debugRequestor.getCompiledClasses();
+		int prerequisiteIndex = -1, dependentIndex = -1;
+		for (int i = 0; i < compiled.length; i++) {
+			if (compiled[i].equals(prerequisite))
+				prerequisiteIndex = i;
+			else if (compiled[i].equals(dependent))
+				dependentIndex = i;
+		}
+		assertTrue(prerequisite + " should be compiled before " + dependent, //$NON-NLS-1$
+			prerequisiteIndex >= 0 && dependentIndex > prerequisiteIndex);
+	}
+
 	// 14103 - avoid recompiling unaffected sources in dependent projects
 	public void testCompileOnlyStructuralDependent() throws JavaModelException {
 		//----------------------------
@@ -1707,6 +1707,8 @@ public void test012(){
         "    -noExit            do not call System.exit(n) at end of compilation (n==0\n" +
         "                       if no error)\n" +
         "    -repeat <n>        repeat compilation process <n> times for perf analysis\n" +
+        "    -parallelism <n>   resolve, analyze and generate the units on <n> threads\n" +
+        "                       (1 by default)\n" +
         "    -inlineJSR         inline JSR bytecode (implicit if target >= 1.5)\n" +
         "    -enableJavadoc     consider references in javadoc\n" +
         "    -parameters        generate method parameters attribute (for target >= 1.8)\n" +
@@ -14385,4 +14387,61 @@ public void test439750() {
 			"1 problem (1 warning)\n",
 			true);
 }
+// units are resolved, analyzed and generated on two shards, problems are reported once, in unit order
+public void testParallelism() {
+	String[] testFiles = new String[200];
+	StringBuffer commandLine = new StringBuffer();
+	for (int i = 0; i < 100; i++) {
+		testFiles[2 * i] = "p/X" + i + ".java";
+		testFiles[2 * i + 1] =
+			"package p;\n" +
+			"public class X" + i + " {\n" +
+			"	X" + ((i + 1) % 100) + " next() {\n" +
+			(i % 40 == 2 ? "		int unused = 0;\n" : "") +
+			"		return new X" + ((i + 1) % 100) + "();\n" +
+			"	}\n" +
+			"}\n";
+		commandLine.append('"').append(OUTPUT_DIR).append(File.separator).append("p").append(File.separator).append("X").append(i).append(".java\" ");
+	}
+	this.runConformTest(
+		testFiles,
+		commandLine + "-1.5 -warn:unused -parallelism 2 -d \"" + OUTPUT_DIR + File.separator + "bin\"",
+		"",
+		"----------\n" +
+		"1. WARNING in ---OUTPUT_DIR_PLACEHOLDER---/p/X2.java (at line 4)\n" +
+		"	int unused = 0;\n" +
+		"	    ^^^^^^\n" +
+		"The value of the local variable unused is not used\n" +
+		"----------\n" +
+		"----------\n" +
+		"2. WARNING in ---OUTPUT_DIR_PLACEHOLDER---/p/X42.java (at line 4)\n" +
+		"	int unused = 0;\n" +
+		"	    ^^^^^^\n" +
+		"The value of the local variable unused is not used\n" +
+		"----------\n" +
+		"----------\n" +
+		"3. WARNING in ---OUTPUT_DIR_PLACEHOLDER---/p/X82.java (at line 4)\n" +
+		"	int unused = 0;\n" +
+		"	    ^^^^^^\n" +
+		"The value of the local variable unused is not used\n" +
+		"----------\n" +
+		"3 problems (3 warnings)\n",
+		true);
+	for (int i = 0; i < 100; i++) {
+		assertTrue("Missing class file for X" + i,
+			new File(OUTPUT_DIR + File.separator + "bin" + File.separator + "p" + File.separator + "X" + i + ".class").exists());
+	}
+}
+public void testParallelism_invalid() {
+	this.runNegativeTest(
+		new String[] {
+			"X.java",
+			"public class X {}\n"
+		},
+		"\"" + OUTPUT_DIR +  File.separator + "X.java\""
+		+ " -1.5 -parallelism 0 -d none",
+		"",
+		"parallelism must be a positive integer: 0\n",
+		true);
+}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,7 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.zip.ZipFile;
 
 import junit.framework.Test;
 
@@ -21,7 +22,13 @@ import org.eclipse.jdt.core.ToolFactory;
 import org.eclipse.jdt.core.tests.util.Util;
 import org.eclipse.jdt.core.util.ClassFileBytesDisassembler;
 import org.eclipse.jdt.core.util.IClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.BinaryTypeCache;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.env.IBinaryAnnotation;
+import org.eclipse.jdt.internal.compiler.env.IBinaryField;
+import org.eclipse.jdt.internal.compiler.env.IBinaryMethod;
+import org.eclipse.jdt.internal.compiler.lookup.TagBits;
 
 @SuppressWarnings({ "rawtypes" })
 public class ClassFileReaderTest_1_5 extends AbstractRegressionTest {
@@ -520,4 +527,171 @@ public class ClassFileReaderTest_1_5 extends AbstractRegressionTest {
 			"  public abstract char test2() default \'\\u0000\';";
 		checkClassFile("", "MonAnnotation", source, expectedOutput, ClassFileBytesDisassembler.DETAILED | ClassFileBytesDisassembler.COMPACT);
 	}
+	/*
+	 * Class files read through a BinaryTypeCache are decoded once per jar time stamp, and evicted when over budget
+	 */
+	public void testBinaryTypeCache() throws Exception {
+		String jarPath = OUTPUT_DIR + File.separator + "cache.jar";
+		Util.createJar(
+			new String[] {
+				"p/X.java",
+				"package p;\n" +
+				"public class X<T> {\n" +
+				"	public T foo(java.util.List<? extends T> list) { return list.get(0); }\n" +
+				"}\n",
+				"p/Y.java",
+				"package p;\n" +
+				"public class Y extends X<String> {}\n"
+			},
+			jarPath,
+			"1.5");
+		ZipFile zipFile = new ZipFile(jarPath);
+		try {
+			long xSize = BinaryTypeCache.footprint(ClassFileReader.read(zipFile, "p/X.class", true));
+			long ySize = BinaryTypeCache.footprint(ClassFileReader.read(zipFile, "p/Y.class", true));
+			assertTrue("Should count the decoded members", xSize > ySize);
+			BinaryTypeCache cache = new BinaryTypeCache(Math.max(xSize, ySize) + Math.min(xSize, ySize) / 2);
+			ClassFileReader x = cache.read(zipFile, 1L, "p/X.class");
+			assertEquals("p/X", new String(x.getName()));
+			assertEquals("<T:Ljava/lang/Object;>Ljava/lang/Object;", new String(x.getGenericSignature()));
+			assertSame("Should reuse the decoded type", x, cache.read(zipFile, 1L, "p/X.class"));
+			assertNotSame("Should decode again once the jar changed", x, cache.read(zipFile, 2L, "p/X.class"));
+			assertNull("Should not find a missing entry", cache.read(zipFile, 1L, "p/Z.class"));
+			ClassFileReader y = cache.read(zipFile, 1L, "p/Y.class");
+			assertEquals("p/X", new String(y.getSuperclassName()));
+			assertEquals("Should only keep the most recently used type", 1, cache.size());
+			assertSame("Should reuse the decoded type", y, cache.read(zipFile, 1L, "p/Y.class"));
+		} finally {
+			zipFile.close();
+			Util.delete(jarPath);
+		}
+	}
+	/*
+	 * Comparing a shared reader with a class file declaring its members in another order does not reorder
+	 * the members of the shared reader
+	 */
+	public void testBinaryTypeCacheStructuralChanges() throws Exception {
+		String jarPath = OUTPUT_DIR + File.separator + "cache.jar";
+		String reorderedJarPath = OUTPUT_DIR + File.separator + "reordered.jar";
+		Util.createJar(
+			new String[] {
+				"p/X.java",
+				"package p;\n" +
+				"public class X {\n" +
+				"	int b;\n" +
+				"	int a;\n" +
+				"	void foo() {}\n" +
+				"	void bar() {}\n" +
+				"}\n"
+			},
+			jarPath,
+			"1.5");
+		Util.createJar(
+			new String[] {
+				"p/X.java",
+				"package p;\n" +
+				"public class X {\n" +
+				"	int a;\n" +
+				"	int b;\n" +
+				"	void bar() {}\n" +
+				"	void foo() {}\n" +
+				"}\n"
+			},
+			reorderedJarPath,
+			"1.5");
+		ZipFile zipFile = new ZipFile(jarPath);
+		ZipFile reorderedZipFile = new ZipFile(reorderedJarPath);
+		try {
+			BinaryTypeCache cache = new BinaryTypeCache(1024 * 1024);
+			ClassFileReader x = cache.read(zipFile, 1L, "p/X.class");
+			String fields = toString(x.getFields());
+			String methods = toString(x.getMethods());
+			assertEquals("b I\na I", fields);
+			assertEquals("<init>()V\nfoo()V\nbar()V", methods);
+			byte[] bytes = org.eclipse.jdt.internal.compiler.util.Util.getZipEntryByteContent(reorderedZipFile.getEntry("p/X.class"), reorderedZipFile);
+			assertFalse("Should not have structural changes", x.hasStructuralChanges(bytes, true, true));
+			assertFalse("Should not have structural changes", x.hasStructuralChanges(bytes, true, false));
+			assertEquals("Should keep the order of the fields", fields, toString(x.getFields()));
+			assertEquals("Should keep the order of the methods", methods, toString(x.getMethods()));
+		} finally {
+			zipFile.close();
+			reorderedZipFile.close();
+			Util.delete(jarPath);
+			Util.delete(reorderedJarPath);
+		}
+	}
+
+	public void testLazyDecoding() throws Exception {
+		String jarPath = OUTPUT_DIR + File.separator + "lazy.jar";
+		Util.createJar(
+			new String[] {
+				"p/A.java",
+				"package p;\n" +
+				"@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+				"public @interface A {\n" +
+				"	String value() default \"a\";\n" +
+				"}\n",
+				"p/X.java",
+				"package p;\n" +
+				"@Deprecated @A(\"x\")\n" +
+				"public class X<T> extends java.util.ArrayList<T> implements Runnable {\n" +
+				"	public static final int I = 1;\n" +
+				"	@A T t;\n" +
+				"	public class M {}\n" +
+				"	public void run() {}\n" +
+				"	public T foo(java.util.List<? extends T> list) { return list.get(0); }\n" +
+				"}\n"
+			},
+			jarPath,
+			"1.5");
+		ZipFile zipFile = new ZipFile(jarPath);
+		try {
+			String[] entryNames = { "p/A.class", "p/X.class", "p/X$M.class" };
+			for (int i = 0; i < entryNames.length; i++) {
+				byte[] bytes = org.eclipse.jdt.internal.compiler.util.Util.getZipEntryByteContent(zipFile.getEntry(entryNames[i]), zipFile);
+				ClassFileReader eager = new ClassFileReader(bytes, entryNames[i].toCharArray());
+				ClassFileReader lazy = new ClassFileReader(bytes, entryNames[i].toCharArray(), false, true);
+				assertEquals(new String(eager.getName()), new String(lazy.getName()));
+				assertEquals(new String(eager.getSuperclassName()), new String(lazy.getSuperclassName()));
+				assertEquals(eager.getModifiers(), lazy.getModifiers());
+				assertEquals(eager.getMemberTypes() == null, lazy.getMemberTypes() == null);
+				assertEquals(toString(eager.getMethods()), toString(lazy.getMethods()));
+				assertEquals(toString(eager.getFields()), toString(lazy.getFields()));
+				assertEquals(eager.getTagBits(), lazy.getTagBits());
+				assertEquals(toString(eager.getAnnotations()), toString(lazy.getAnnotations()));
+				assertFalse(lazy.hasStructuralChanges(bytes));
+				assertEquals(eager.getAbiHash(), new ClassFileReader(bytes, entryNames[i].toCharArray(), false, true).getAbiHash());
+				char[][] changes = new ClassFileReader(bytes, entryNames[i].toCharArray(), false, true).getAbiMemberChanges(eager);
+				assertTrue("Should not find member changes", changes == null || changes.length == 0);
+			}
+			ClassFileReader x = new ClassFileReader(
+				org.eclipse.jdt.internal.compiler.util.Util.getZipEntryByteContent(zipFile.getEntry("p/X.class"), zipFile),
+				"p/X.class".toCharArray(),
+				false,
+				true);
+			assertTrue("Should be deprecated", (x.getTagBits() & TagBits.AnnotationDeprecated) != 0);
+			assertEquals("Lp/A;", toString(x.getAnnotations()));
+			assertEquals("I I\nt Ljava/lang/Object;", toString(x.getFields()));
+		} finally {
+			zipFile.close();
+			Util.delete(jarPath);
+		}
+	}
+	private static String toString(Object[] infos) {
+		if (infos == null) return "";
+		StringBuffer buffer = new StringBuffer();
+		for (int i = 0; i < infos.length; i++) {
+			if (i > 0) buffer.append('\n');
+			if (infos[i] instanceof IBinaryField) {
+				IBinaryField field = (IBinaryField) infos[i];
+				buffer.append(field.getName()).append(' ').append(field.getTypeName());
+			} else if (infos[i] instanceof IBinaryMethod) {
+				IBinaryMethod method = (IBinaryMethod) infos[i];
+				buffer.append(method.getSelector()).append(method.getMethodDescriptor());
+			} else {
+				buffer.append(((IBinaryAnnotation) infos[i]).getTypeName());
+			}
+		}
+		return buffer.toString();
+	}
 }
@@ -10,7 +10,10 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.model;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URL;
 
@@ -30,9 +33,17 @@ import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.index.*;
 import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.tests.util.Util;
 import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.UserLibraryClasspathContainer;
+import org.eclipse.jdt.internal.core.index.DiskIndex;
+import org.eclipse.jdt.internal.core.index.EntryResult;
+import org.eclipse.jdt.internal.core.index.FileIndexLocation;
+import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.search.indexing.AddJarFileToIndex;
+import org.eclipse.jdt.internal.core.search.indexing.DefaultJavaIndexer;
+import org.eclipse.jdt.internal.core.search.indexing.IndexManager;
 import org.osgi.service.prefs.BackingStoreException;
 
 public class JavaIndexTests extends AbstractJavaSearchTests  {
@@ -126,6 +137,396 @@ public class JavaIndexTests extends AbstractJavaSearchTests  {
 		}
 	}
 	
+	// Test that search works fine when the index file is read through a memory mapping
+	public void testUseMappedIndex() throws CoreException, IOException {
+		String indexFilePath = getExternalResourcePath("Test.index");
+		String jarFilePath = getExternalResourcePath("Test.jar");
+		boolean useMappedFiles = DiskIndex.USE_MAPPED_FILES;
+		try {
+			DiskIndex.USE_MAPPED_FILES = true;
+			createJar(new String[] {
+					"pkg/Test.java",
+					"package pkg;\n" +
+					"public class Test {\n" +
+					"  protected Test(int i) {}\n" +
+					"}",
+					"pkg/X.java",
+					"package pkg;\n" +
+					"public class X extends Test {\n" +
+					"  X() { super(0); }\n" +
+					"}"}, jarFilePath);
+			JavaIndexer.generateIndexForJar(jarFilePath, indexFilePath);
+			
+			IJavaProject p = createJavaProject("P");
+			Path libPath = new Path(jarFilePath);
+			IClasspathAttribute attribute = JavaCore.newClasspathAttribute(IClasspathAttribute.INDEX_LOCATION_ATTRIBUTE_NAME, "file:///"+indexFilePath);
+			IClasspathEntry entry = JavaCore.newLibraryEntry(libPath, null, null, null, new IClasspathAttribute[]{attribute}, false);
+			setClasspath(p, new IClasspathEntry[] {entry});
+			waitUntilIndexesReady();
+			
+			search("Test", TYPE, DECLARATIONS, EXACT_RULE, SearchEngine.createJavaSearchScope(new IJavaElement[]{p}));
+			assertSearchResults(getExternalPath() + "Test.jar pkg.Test");
+			
+			this.resultCollector = new JavaSearchResultCollector();
+			search("T*", TYPE, DECLARATIONS, SearchPattern.R_PATTERN_MATCH, SearchEngine.createJavaSearchScope(new IJavaElement[]{p}));
+			assertSearchResults(getExternalPath() + "Test.jar pkg.Test");
+		} finally {
+			DiskIndex.USE_MAPPED_FILES = useMappedFiles;
+			deleteProject("P");
+			new File(indexFilePath).delete();
+			new File(jarFilePath).delete();
+		}
+	}
+	
+	// Test that small changes are saved in segments, which are read back and folded into the index file
+	public void testSaveIndexInSegments() throws IOException {
+		String indexFilePath = getExternalResourcePath("Test.index");
+		File indexFile = new File(indexFilePath);
+		char[][] categories = new char[][] {"ref".toCharArray()};
+		try {
+			Index index = new Index(new FileIndexLocation(indexFile), "/P", false);
+			for (int i = 0; i < 100; i++)
+				index.addIndexEntry(categories[0], ("Ref" + i).toCharArray(), "X" + i + ".java");
+			index.save();
+			assertFalse("Unexpected segment", new File(indexFilePath + Index.SEGMENT_EXT + 1).exists());
+
+			index.remove("X1.java");
+			index.remove("X2.java");
+			index.addIndexEntry(categories[0], "Ref0".toCharArray(), "X2.java");
+			index.save();
+			long modified = indexFile.lastModified();
+			assertTrue("Missing segment", new File(indexFilePath + Index.SEGMENT_EXT + 1).exists());
+
+			index = new Index(new FileIndexLocation(indexFile), "/P", true);
+			assertNull("Deleted document", index.query(categories, "Ref1".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE));
+			assertNull("Changed document", index.query(categories, "Ref2".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE));
+			String[] documentNames = index.query(categories, "Ref0".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE)[0].getDocumentNames(index);
+			org.eclipse.jdt.internal.core.util.Util.sort(documentNames);
+			assertStringsEqual("Unexpected documents", "X0.java\nX2.java\n", documentNames);
+			assertEquals("Unexpected documents", 99, index.queryDocumentNames(null).length);
+			assertEquals("Index file was rewritten", modified, indexFile.lastModified());
+
+			for (int i = 3; i < 30; i++)
+				index.remove("X" + i + ".java");
+			index.save();
+			assertFalse("Segments were not folded", new File(indexFilePath + Index.SEGMENT_EXT + 1).exists());
+			assertEquals("Unexpected documents", 72, index.queryDocumentNames(null).length);
+			assertNull("Deleted document", index.query(categories, "Ref1".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE));
+		} finally {
+			indexFile.delete();
+			new File(indexFilePath + Index.SEGMENT_EXT + 1).delete();
+		}
+	}
+
+	// Test that a document without index entries stays indexed in a segment and once the segments are folded
+	public void testFoldSegmentsKeepsEmptyDocuments() throws IOException {
+		String indexFilePath = getExternalResourcePath("Test.index");
+		File indexFile = new File(indexFilePath);
+		char[][] categories = new char[][] {"ref".toCharArray()};
+		try {
+			Index index = new Index(new FileIndexLocation(indexFile), "/P", false);
+			for (int i = 0; i < 100; i++)
+				index.addIndexEntry(categories[0], ("Ref" + i).toCharArray(), "X" + i + ".java");
+			index.save();
+
+			index.remove("Empty.java");
+			index.addDocument("Empty.java");
+			index.save();
+			assertTrue("Missing segment", new File(indexFilePath + Index.SEGMENT_EXT + 1).exists());
+			assertEquals("Unexpected documents in segment", 1, index.queryDocumentNames("Empty").length);
+
+			index = new Index(new FileIndexLocation(indexFile), "/P", true);
+			for (int i = 0; i < 30; i++)
+				index.remove("X" + i + ".java");
+			index.save();
+			assertFalse("Segments were not folded", new File(indexFilePath + Index.SEGMENT_EXT + 1).exists());
+			assertEquals("Unexpected documents once folded", 1, index.queryDocumentNames("Empty").length);
+			assertEquals("Unexpected documents", 71, index.queryDocumentNames(null).length);
+		} finally {
+			indexFile.delete();
+			new File(indexFilePath + Index.SEGMENT_EXT + 1).delete();
+		}
+	}
+
+	// Test that the segments of a corrupt index file are deleted, so that they are not read against the recreated index
+	public void testCorruptIndexDeletesSegments() throws IOException {
+		String indexFilePath = getExternalResourcePath("Test.index");
+		File indexFile = new File(indexFilePath);
+		char[][] categories = new char[][] {"ref".toCharArray()};
+		try {
+			Index index = new Index(new FileIndexLocation(indexFile), "/P", false);
+			for (int i = 0; i < 100; i++)
+				index.addIndexEntry(categories[0], ("Ref" + i).toCharArray(), "X" + i + ".java");
+			index.save();
+			index.remove("X1.java");
+			index.save();
+			assertTrue("Missing segment", new File(indexFilePath + Index.SEGMENT_EXT + 1).exists());
+
+			DataOutputStream stream = new DataOutputStream(new FileOutputStream(indexFile));
+			try {
+				stream.writeUTF("NOT AN INDEX"); // unknown signature
+			} finally {
+				stream.close();
+			}
+			try {
+				new Index(new FileIndexLocation(indexFile), "/P", true);
+				fail("Corrupt index file should not be read");
+			} catch (IOException e) {
+				// expected
+			}
+			assertFalse("Segment of the corrupt index file was kept", new File(indexFilePath + Index.SEGMENT_EXT + 1).exists());
+
+			index = new Index(new FileIndexLocation(indexFile), "/P", false);
+			index.addIndexEntry(categories[0], "Ref1".toCharArray(), "X1.java");
+			index.save();
+			index = new Index(new FileIndexLocation(indexFile), "/P", true);
+			assertEquals("Unexpected documents", 1, index.queryDocumentNames(null).length);
+		} finally {
+			indexFile.delete();
+			new File(indexFilePath + Index.SEGMENT_EXT + 1).delete();
+		}
+	}
+
+	// Test that document numbers written as variable-byte deltas are read back, around the 1, 2 and 3 byte boundaries
+	public void testVariableByteDocumentNumbers() throws IOException {
+		String indexFilePath = getExternalResourcePath("Test.index");
+		File indexFile = new File(indexFilePath);
+		char[][] categories = new char[][] {"ref".toCharArray()};
+		// deltas of 0, 1, 127 (1 byte), 128 and 16383 (2 bytes), 16384 (3 bytes) and a large gap
+		int[] sparse = new int[] {0, 1, 128, 256, 16639, 33023, 49999};
+		int documentCount = 50000;
+		boolean useMappedFiles = DiskIndex.USE_MAPPED_FILES;
+		try {
+			Index index = new Index(new FileIndexLocation(indexFile), "/P", false);
+			for (int i = 0; i < documentCount; i++)
+				index.addIndexEntry(categories[0], "all".toCharArray(), documentName(i));
+			for (int i = 0; i < sparse.length; i++)
+				index.addIndexEntry(categories[0], "sparse".toCharArray(), documentName(sparse[i]));
+			index.addIndexEntry(categories[0], "last".toCharArray(), documentName(documentCount - 1));
+			index.save();
+
+			StringBuffer expected = new StringBuffer();
+			for (int i = 0; i < sparse.length; i++)
+				expected.append(documentName(sparse[i])).append('\n');
+			for (int mapped = 0; mapped < 2; mapped++) {
+				DiskIndex.USE_MAPPED_FILES = mapped == 1 && File.separatorChar == '/';
+				index = new Index(new FileIndexLocation(indexFile), "/P", true);
+				index.startQuery();
+				try {
+					String[] documentNames = index.query(categories, "sparse".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE)[0].getDocumentNames(index);
+					org.eclipse.jdt.internal.core.util.Util.sort(documentNames);
+					assertStringsEqual("Unexpected sparse documents", expected.toString(), documentNames);
+					documentNames = index.query(categories, "all".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE)[0].getDocumentNames(index);
+					assertEquals("Unexpected number of documents", documentCount, documentNames.length);
+					org.eclipse.jdt.internal.core.util.Util.sort(documentNames);
+					for (int i = 0; i < documentCount; i++)
+						assertEquals("Unexpected document", documentName(i), documentNames[i]);
+					documentNames = index.query(categories, "last".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE)[0].getDocumentNames(index);
+					assertStringsEqual("Unexpected last document", documentName(documentCount - 1) + "\n", documentNames);
+				} finally {
+					index.stopQuery();
+				}
+			}
+		} finally {
+			DiskIndex.USE_MAPPED_FILES = useMappedFiles;
+			indexFile.delete();
+		}
+	}
+	private String documentName(int documentNumber) {
+		String number = Integer.toString(documentNumber);
+		while (number.length() < 6)
+			number = '0' + number;
+		return "X" + number + ".java";
+	}
+
+	// Test that an index written in the 1.127 format, with fixed size document numbers and unsorted words, can still be read
+	public void testReadIndexVersion127() throws IOException {
+		String indexFilePath = getExternalResourcePath("Test.index");
+		File indexFile = new File(indexFilePath);
+		char[][] categories = new char[][] {"ref".toCharArray()};
+		int documentCount = 300; // more than 127 documents: numbers are written on 2 bytes
+		String[] documentNames = new String[documentCount];
+		for (int i = 0; i < documentCount; i++)
+			documentNames[i] = documentName(i);
+		int[] all = new int[documentCount]; // written before the table since it has more than 256 elements
+		for (int i = 0; i < documentCount; i++)
+			all[i] = i;
+		boolean useMappedFiles = DiskIndex.USE_MAPPED_FILES;
+		try {
+			writeIndexVersion127(
+				indexFile,
+				documentNames,
+				categories[0],
+				new String[] {"single", "few", "fewer", "all"},
+				new int[][] {{299}, {3, 130, 257}, {0, 200}, all});
+			for (int mapped = 0; mapped < 2; mapped++) {
+				DiskIndex.USE_MAPPED_FILES = mapped == 1 && File.separatorChar == '/';
+				Index index = new Index(new FileIndexLocation(indexFile), "/P", true);
+				index.startQuery();
+				try {
+					assertEquals("Unexpected documents", documentCount, index.queryDocumentNames(null).length);
+					assertEquals("Unexpected words", "few,fewer", queryWords(index, categories, "few", SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE));
+					String[] names = index.query(categories, "single".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE)[0].getDocumentNames(index);
+					assertStringsEqual("Unexpected single document", "X000299.java\n", names);
+					names = index.query(categories, "few".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE)[0].getDocumentNames(index);
+					org.eclipse.jdt.internal.core.util.Util.sort(names);
+					assertStringsEqual("Unexpected few documents", "X000003.java\nX000130.java\nX000257.java\n", names);
+					names = index.query(categories, "all".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE)[0].getDocumentNames(index);
+					assertEquals("Unexpected number of documents", documentCount, names.length);
+				} finally {
+					index.stopQuery();
+				}
+			}
+
+			// saving changes rewrites the index in the current format
+			Index index = new Index(new FileIndexLocation(indexFile), "/P", true);
+			for (int i = 0; i < 200; i++)
+				index.remove(documentName(i));
+			index.save();
+			index = new Index(new FileIndexLocation(indexFile), "/P", true);
+			String[] names = index.query(categories, "few".toCharArray(), SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE)[0].getDocumentNames(index);
+			assertStringsEqual("Unexpected documents once saved", "X000257.java\n", names);
+			assertEquals("Unexpected number of documents once saved", 100, index.queryDocumentNames(null).length);
+		} finally {
+			DiskIndex.USE_MAPPED_FILES = useMappedFiles;
+			indexFile.delete();
+		}
+	}
+	/*
+	 * Writes an index file in the 1.127 format: document numbers written on 1, 2 or 4 bytes depending on
+	 * the number of documents, and the words of the category table in no particular order.
+	 */
+	private void writeIndexVersion127(File indexFile, String[] sortedDocumentNames, char[] category, String[] words, int[][] documentNumbers) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeUTF("INDEX VERSION 1.127");
+		out.writeInt(-1); // offset to the header, set once known
+		int size = sortedDocumentNames.length;
+		int referenceSize = size <= 0x7F ? 1 : (size <= 0x7FFF ? 2 : 4);
+		int numberOfChunks = (size + 99) / 100;
+		int[] chunkOffsets = new int[numberOfChunks];
+		for (int i = 0; i < numberOfChunks; i++) {
+			chunkOffsets[i] = out.size();
+			out.writeUTF(sortedDocumentNames[i * 100]);
+			for (int j = i * 100 + 1; j < size && j < (i + 1) * 100; j++) {
+				out.writeByte(0); // no common prefix
+				out.writeByte(0); // no common suffix
+				out.writeUTF(sortedDocumentNames[j]);
+			}
+		}
+		int startOfCategoryTables = out.size() + 1;
+		int[] largeArrayOffsets = new int[words.length];
+		for (int i = 0; i < words.length; i++) {
+			if (documentNumbers[i].length >= 256) {
+				largeArrayOffsets[i] = out.size();
+				writeDocumentNumbers127(out, documentNumbers[i], referenceSize);
+			}
+		}
+		int categoryOffset = out.size();
+		out.writeInt(words.length);
+		for (int i = 0; i < words.length; i++) {
+			out.writeUTF(words[i]);
+			if (documentNumbers[i].length == 1) {
+				out.writeInt(-documentNumbers[i][0]);
+			} else if (documentNumbers[i].length < 256) {
+				writeDocumentNumbers127(out, documentNumbers[i], referenceSize);
+			} else {
+				out.writeInt(256);
+				out.writeInt(largeArrayOffsets[i]);
+			}
+		}
+		int headerOffset = out.size();
+		out.writeInt(numberOfChunks);
+		out.writeByte(size - (numberOfChunks - 1) * 100); // size of the last chunk
+		out.writeByte(referenceSize);
+		out.writeByte('/');
+		for (int i = 0; i < numberOfChunks; i++)
+			out.writeInt(chunkOffsets[i]);
+		out.writeInt(startOfCategoryTables);
+		out.writeInt(1);
+		out.writeUTF(new String(category));
+		out.writeInt(categoryOffset);
+		out.close();
+
+		byte[] contents = bytes.toByteArray();
+		int headerOffsetPosition = 2 + "INDEX VERSION 1.127".length();
+		contents[headerOffsetPosition] = (byte) (headerOffset >>> 24);
+		contents[headerOffsetPosition + 1] = (byte) (headerOffset >>> 16);
+		contents[headerOffsetPosition + 2] = (byte) (headerOffset >>> 8);
+		contents[headerOffsetPosition + 3] = (byte) headerOffset;
+		FileOutputStream stream = new FileOutputStream(indexFile);
+		try {
+			stream.write(contents);
+		} finally {
+			stream.close();
+		}
+	}
+	private void writeDocumentNumbers127(DataOutputStream out, int[] documentNumbers, int referenceSize) throws IOException {
+		out.writeInt(documentNumbers.length);
+		for (int i = 0; i < documentNumbers.length; i++) {
+			switch (referenceSize) {
+				case 1 :
+					out.writeByte(documentNumbers[i]);
+					break;
+				case 2 :
+					out.writeShort(documentNumbers[i]);
+					break;
+				default :
+					out.writeInt(documentNumbers[i]);
+			}
+		}
+	}
+
+	// Test that prefix, pattern and camel case queries find the same words in a saved index as in memory
+	public void testQueryIndexWords() throws IOException {
+		String indexFilePath = getExternalResourcePath("Test.index");
+		File indexFile = new File(indexFilePath);
+		char[][] categories = new char[][] {"ref".toCharArray()};
+		String[] words = new String[] {"HashMap", "Hashtable", "hashCode", "HashSet/java.util", "Hash", "Has", "NullPointerException", "nullness", "Zip"};
+		String[] keys = new String[] {"Hash", "hash", "Hash*", "hash*", "*Map", "H?sh*", "NPE", "NuPoEx", "HM", "Z", "Zip", "zip"};
+		int[] matchRules = new int[] {
+			SearchPattern.R_EXACT_MATCH,
+			SearchPattern.R_PREFIX_MATCH,
+			SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE,
+			SearchPattern.R_PATTERN_MATCH,
+			SearchPattern.R_PATTERN_MATCH | SearchPattern.R_CASE_SENSITIVE,
+			SearchPattern.R_CAMELCASE_MATCH,
+			SearchPattern.R_CAMELCASE_MATCH | SearchPattern.R_CASE_SENSITIVE
+		};
+		try {
+			Index index = new Index(new FileIndexLocation(indexFile), "/P", false);
+			for (int i = 0; i < words.length; i++)
+				index.addIndexEntry(categories[0], words[i].toCharArray(), "X" + i + ".java");
+			String[] expected = new String[keys.length * matchRules.length];
+			for (int i = 0; i < keys.length; i++)
+				for (int j = 0; j < matchRules.length; j++)
+					expected[i * matchRules.length + j] = queryWords(index, categories, keys[i], matchRules[j]);
+			index.save();
+			for (int i = 0; i < keys.length; i++)
+				for (int j = 0; j < matchRules.length; j++)
+					assertEquals("Unexpected words for " + keys[i] + " with rule " + matchRules[j],
+						expected[i * matchRules.length + j], queryWords(index, categories, keys[i], matchRules[j]));
+			assertEquals("Unexpected words", "Hash,HashMap,HashSet/java.util,Hashtable,hashCode", queryWords(index, categories, "hash", SearchPattern.R_PREFIX_MATCH));
+			assertEquals("Unexpected words", "NullPointerException", queryWords(index, categories, "NPE", SearchPattern.R_CAMELCASE_MATCH));
+		} finally {
+			indexFile.delete();
+		}
+	}
+	private String queryWords(Index index, char[][] categories, String key, int matchRule) throws IOException {
+		EntryResult[] results = index.query(categories, key.toCharArray(), matchRule);
+		if (results == null) return "";
+		String[] words = new String[results.length];
+		for (int i = 0; i < results.length; i++)
+			words[i] = new String(results[i].getWord());
+		org.eclipse.jdt.internal.core.util.Util.sort(words);
+		StringBuffer buffer = new StringBuffer();
+		for (int i = 0; i < words.length; i++) {
+			if (i > 0) buffer.append(',');
+			buffer.append(words[i]);
+		}
+		return buffer.toString();
+	}
+
 	// Test that the same index file is used even after restarting
 	public void testUseIndexAfterRestart() throws IOException, CoreException {
 		String indexFilePath = getExternalResourcePath("Test.index");
@@ -251,6 +652,38 @@ public class JavaIndexTests extends AbstractJavaSearchTests  {
 		}
 	}
 
+	// Test that the class files of a jar indexed on several threads are found by a search
+	public void testIndexJarConcurrently() throws CoreException, IOException {
+		String jarFilePath = getExternalResourcePath("Test.jar");
+		int indexingThreads = AddJarFileToIndex.INDEXING_THREADS;
+		try {
+			String[] pathsAndContents = new String[40];
+			for (int i = 0; i < 20; i++) {
+				pathsAndContents[i * 2] = "pkg/Test" + i + ".java";
+				pathsAndContents[i * 2 + 1] =
+					"package pkg;\n" +
+					"public class Test" + i + " {\n" +
+					"  protected Test" + i + "(int i) {}\n" +
+					"}";
+			}
+			createJar(pathsAndContents, jarFilePath);
+			AddJarFileToIndex.INDEXING_THREADS = 4;
+			IJavaProject p = createJavaProject("P");
+			setClasspath(p, new IClasspathEntry[] {JavaCore.newLibraryEntry(new Path(jarFilePath), null, null)});
+			waitUntilIndexesReady();
+			search("Test0", TYPE, DECLARATIONS, EXACT_RULE, SearchEngine.createJavaSearchScope(new IJavaElement[]{p}));
+			assertSearchResults(getExternalPath() + "Test.jar pkg.Test0");
+
+			this.resultCollector = new JavaSearchResultCollector();
+			search("Test19", TYPE, DECLARATIONS, EXACT_RULE, SearchEngine.createJavaSearchScope(new IJavaElement[]{p}));
+			assertSearchResults(getExternalPath() + "Test.jar pkg.Test19");
+		} finally {
+			AddJarFileToIndex.INDEXING_THREADS = indexingThreads;
+			deleteProject("P");
+			new File(jarFilePath).delete();
+		}
+	}
+
 	// test a non-existent index
 	public void testNonExistentIndex() throws CoreException, IOException {
 		String indexFilePath = getExternalResourcePath("Test.index");
@@ -863,4 +1296,87 @@ public class JavaIndexTests extends AbstractJavaSearchTests  {
 			deleteProject("ForIndex");
 		}
 	}
+
+	// Test that the index of a shared index bundle is used for a library with the same content
+	public void testSharedIndexBundle() throws CoreException, IOException {
+		String bundlePath = getExternalResourcePath("SharedIndexes");
+		String jarFilePath = getExternalResourcePath("Test.jar");
+		String sharedIndexesFolder = IndexManager.SHARED_INDEXES_FOLDER;
+		try {
+			createJar(new String[] {
+					"pkg/Test.java",
+					"package pkg;\n" +
+					"public class Test {\n" +
+					"  protected Test(int i) {}\n" +
+					"}"}, jarFilePath);
+			JavaIndexer.generateIndexBundle(new String[] {jarFilePath}, bundlePath);
+			File bundleIndexFile = new File(bundlePath, DefaultJavaIndexer.getBundleIndexFileName(new File(jarFilePath)));
+			assertTrue("Index not generated in the bundle", bundleIndexFile.exists());
+			long modified = bundleIndexFile.lastModified();
+
+			// an up to date index is not generated again
+			JavaIndexer.generateIndexBundle(new String[] {jarFilePath}, bundlePath);
+			assertEquals(modified, bundleIndexFile.lastModified());
+			assertEquals(1, new File(bundlePath).list().length);
+
+			IndexManager.SHARED_INDEXES_FOLDER = bundlePath;
+			IJavaProject p = createJavaProject("P");
+			Path libPath = new Path(jarFilePath);
+			JavaModelManager.getIndexManager().removeIndex(libPath); // a valid index left by a previous test would be kept
+			setClasspath(p, new IClasspathEntry[] {JavaCore.newLibraryEntry(libPath, null, null)});
+			waitUntilIndexesReady();
+
+			// Test that the index of the bundle is really used
+			File indexFile = JavaModelManager.getIndexManager().getIndex(libPath, false, false).getIndexFile();
+			assertEquals("Shared index file is not being used", bundleIndexFile.getPath(), indexFile.getPath());
+
+			search("Test", TYPE, DECLARATIONS, EXACT_RULE, SearchEngine.createJavaSearchScope(new IJavaElement[]{p}));
+			assertSearchResults(getExternalPath() + "Test.jar pkg.Test");
+
+			// Ensure that the shared index file is not modified
+			assertEquals(modified, bundleIndexFile.lastModified());
+		} finally {
+			IndexManager.SHARED_INDEXES_FOLDER = sharedIndexesFolder;
+			deleteProject("P");
+			Util.delete(new File(bundlePath));
+			new File(jarFilePath).delete();
+		}
+	}
+
+	// Test that a library which already has a valid index keeps it, without looking for it in the shared index bundle
+	public void testSharedIndexBundleAfterLocalIndex() throws CoreException, IOException {
+		String bundlePath = getExternalResourcePath("SharedIndexes");
+		String jarFilePath = getExternalResourcePath("Shared.jar");
+		String sharedIndexesFolder = IndexManager.SHARED_INDEXES_FOLDER;
+		try {
+			createJar(new String[] {
+					"pkg/Shared.java",
+					"package pkg;\n" +
+					"public class Shared {\n" +
+					"}"}, jarFilePath);
+			IndexManager.SHARED_INDEXES_FOLDER = null;
+			IJavaProject p = createJavaProject("P");
+			Path libPath = new Path(jarFilePath);
+			setClasspath(p, new IClasspathEntry[] {JavaCore.newLibraryEntry(libPath, null, null)});
+			waitUntilIndexesReady();
+			IndexManager indexManager = JavaModelManager.getIndexManager();
+			File localIndexFile = indexManager.getIndex(libPath, false, false).getIndexFile();
+
+			JavaIndexer.generateIndexBundle(new String[] {jarFilePath}, bundlePath);
+			IndexManager.SHARED_INDEXES_FOLDER = bundlePath;
+			indexManager.indexLibrary(libPath, p.getProject(), null);
+			waitUntilIndexesReady();
+
+			File indexFile = indexManager.getIndex(libPath, false, false).getIndexFile();
+			assertEquals("Local index file is not being used", localIndexFile.getPath(), indexFile.getPath());
+
+			search("Shared", TYPE, DECLARATIONS, EXACT_RULE, SearchEngine.createJavaSearchScope(new IJavaElement[]{p}));
+			assertSearchResults(getExternalPath() + "Shared.jar pkg.Shared");
+		} finally {
+			IndexManager.SHARED_INDEXES_FOLDER = sharedIndexesFolder;
+			deleteProject("P");
+			Util.delete(new File(bundlePath));
+			new File(jarFilePath).delete();
+		}
+	}
 }
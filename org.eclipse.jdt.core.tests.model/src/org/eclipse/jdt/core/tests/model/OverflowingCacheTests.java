@@ -22,6 +22,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.*;
 import org.eclipse.jdt.internal.core.*;
+import org.eclipse.jdt.internal.core.util.LRUCache;
 import org.eclipse.jdt.internal.core.util.MementoTokenizer;
 
 import junit.framework.Test;
@@ -643,6 +644,55 @@ public class OverflowingCacheTests extends ModifyingResourceTests {
 		}
 	}
 
+	/**
+	 * Creates an empty ElementCache of size 500, inserts 1000 elements
+	 * and ensures that the hits, misses and evictions are counted.
+	 */
+	public void testElementCacheStats() {
+		int spaceLimit = 500;
+		int entryCount = 1000;
+
+		OverflowingLRUCache cache = new ElementCache(spaceLimit);
+		OverflowingTestOpenable[] openables = new OverflowingTestOpenable[entryCount];
+		for(int i = 0; i < entryCount; i++) {
+			openables[i] = new OverflowingTestOpenable(new OverflowingTestBuffer(false, null), cache);
+			cache.put(openables[i], Integer.toString(i));
+		}
+		for(int i = 0; i < entryCount; i++) {
+			cache.get(openables[i]);
+		}
+
+		LRUCache.Stats stats = cache.new Stats();
+		assertEquals("wrong eviction count", 666, stats.getEvictionCount());
+		assertEquals("wrong hit count", 334, stats.getHitCount());
+		assertEquals("wrong miss count", 666, stats.getMissCount());
+	}
+
+	/**
+	 * Creates an empty ElementCache of size 100, inserts 10 infos which take
+	 * 40 units of space each and ensures that only the last 2 infos are left.
+	 */
+	public void testElementCacheFootprint() {
+		int spaceLimit = 100;
+		int entryCount = 10;
+
+		OverflowingLRUCache cache = new ElementCache(spaceLimit);
+		OverflowingTestOpenable[] openables = new OverflowingTestOpenable[entryCount];
+		for(int i = 0; i < entryCount; i++) {
+			openables[i] = new OverflowingTestOpenable(new OverflowingTestBuffer(false, null), cache);
+			cache.put(openables[i], new OpenableElementInfo() {
+				public int getCacheFootprint() {
+					return 40;
+				}
+			});
+		}
+
+		assertEquals("current space incorrect ", 80, cache.getCurrentSpace());
+		assertEquals("Hashtable wrong size", 2, cache.getEntryTable().size());
+		assertNotNull("entry should be present", cache.peek(openables[entryCount - 1]));
+		assertNull("entry should not be present", cache.peek(openables[0]));
+	}
+
 	/**
 	 * Creates an empty ElementCache of size 500, inserts 1000 elements.
 	 * Nine of every ten entries cannot be removed - there are 1000 entries,
@@ -12,6 +12,9 @@ package org.eclipse.jdt.core.tests.model;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.StringTokenizer;
+import java.util.TreeSet;
 import java.util.Vector;
 
 import org.eclipse.core.resources.IProject;
@@ -23,12 +26,19 @@ import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.core.search.*;
 import org.eclipse.jdt.core.tests.model.Semaphore.TimeOutException;
 import org.eclipse.jdt.core.tests.util.Util;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.core.JavaElement;
 import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.LocalVariable;
 import org.eclipse.jdt.internal.core.search.BasicSearchEngine;
+import org.eclipse.jdt.internal.core.search.PatternSearchJob;
+import org.eclipse.jdt.internal.core.search.matching.MatchLocator;
 import org.eclipse.jdt.internal.core.search.indexing.IndexManager;
+import org.eclipse.jdt.internal.core.search.indexing.SourceIndexer;
+import org.eclipse.jdt.internal.core.search.indexing.SourceIndexerRequestor;
+import org.eclipse.jdt.internal.core.search.indexing.StreamingIndexer;
 import org.eclipse.jdt.internal.core.search.processing.IJob;
+import org.eclipse.jdt.internal.core.search.processing.JobManager;
 
 import junit.framework.Test;
 
@@ -115,6 +125,26 @@ public class SearchTests extends ModifyingResourceTests implements IJavaSearchCo
 			return this.results.size();
 		}
 	}
+	static class RecordingDocument extends SearchDocument {
+		String contents;
+		TreeSet entries = new TreeSet();
+		RecordingDocument(String path, String contents) {
+			super(path, SearchEngine.getDefaultSearchParticipant());
+			this.contents = contents;
+		}
+		public void addIndexEntry(char[] category, char[] key) {
+			this.entries.add(new String(category) + ' ' + new String(key));
+		}
+		public byte[] getByteContents() {
+			return this.contents.getBytes();
+		}
+		public char[] getCharContents() {
+			return this.contents.toCharArray();
+		}
+		public String getEncoding() {
+			return null;
+		}
+	}
 	static class WaitingJob implements IJob {
 		private static final int MAX_WAIT = 30000; // wait 30s max
 		private Semaphore startingSem = new Semaphore();
@@ -460,6 +490,207 @@ public void testConcurrentJob() throws CoreException, InterruptedException, IOEx
  		job.resume();
  	}
  }
+/*
+ * Ensures that querying the indexes concurrently finds the same types as a sequential search.
+ */
+public void testParallelIndexQuery() throws CoreException {
+	int parallelism = PatternSearchJob.PARALLELISM;
+	try {
+		createJavaProject("P1", new String[] {""}, "bin");
+		createFile(
+			"/P1/X.java",
+			"public class X {}"
+		);
+		createJavaProject("P2", new String[] {""}, "bin");
+		createFile(
+			"/P2/Y.java",
+			"public class Y {}"
+		);
+		PatternSearchJob.PARALLELISM = 4;
+		assertAllTypes(
+			"Unexpected types with a concurrent query",
+			null, // workspace search
+			"X\n" +
+			"Y\n" +
+			"java.io.Serializable\n" +
+			"java.lang.Class\n" +
+			"java.lang.CloneNotSupportedException\n" +
+			"java.lang.Error\n" +
+			"java.lang.Exception\n" +
+			"java.lang.IllegalMonitorStateException\n" +
+			"java.lang.InterruptedException\n" +
+			"java.lang.Object\n" +
+			"java.lang.RuntimeException\n" +
+			"java.lang.String\n" +
+			"java.lang.Throwable\n" +
+			"x.y.Foo\n" +
+			"x.y.I"
+		);
+	} finally {
+		PatternSearchJob.PARALLELISM = parallelism;
+		deleteProjects(new String[] {"P1", "P2"});
+	}
+}
+/*
+ * Ensures that or and and patterns, which keep their query state in the pattern, find the same matches
+ * over several indexes when a concurrent query is enabled as with a sequential one.
+ */
+public void testParallelIndexQueryCompositePatterns() throws CoreException {
+	int parallelism = PatternSearchJob.PARALLELISM;
+	try {
+		for (int i = 1; i <= 3; i++) {
+			createJavaProject("P" + i, new String[] {""}, new String[] {"JCL_LIB"}, "bin");
+			createFile(
+				"/P" + i + "/X" + i + ".java",
+				"public class X" + i + " {\n" +
+				"  public void foo() {}\n" +
+				"  public void bar() {}\n" +
+				"}"
+			);
+			createFile(
+				"/P" + i + "/Y" + i + ".java",
+				"public class Y" + i + " {\n" +
+				"  void both(X" + i + " x) { x.foo(); x.bar(); }\n" +
+				"  void one(X" + i + " x) { x.foo(); }\n" +
+				"}"
+			);
+		}
+		IJavaSearchScope scope = SearchEngine.createWorkspaceScope();
+		SearchPattern orPattern = SearchPattern.createOrPattern(
+			SearchPattern.createPattern("X*", TYPE, DECLARATIONS, SearchPattern.R_PATTERN_MATCH | SearchPattern.R_CASE_SENSITIVE),
+			SearchPattern.createPattern("Y*", TYPE, DECLARATIONS, SearchPattern.R_PATTERN_MATCH | SearchPattern.R_CASE_SENSITIVE));
+		SearchPattern andPattern = SearchPattern.createAndPattern(
+			SearchPattern.createPattern("foo", METHOD, REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE),
+			SearchPattern.createPattern("bar", METHOD, REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE));
+		String sequentialOrMatches = search(orPattern, scope);
+		String sequentialAndMatches = search(andPattern, scope);
+		PatternSearchJob.PARALLELISM = 4;
+		assertEquals("Unexpected or pattern matches with a concurrent query", sequentialOrMatches, search(orPattern, scope));
+		assertEquals("Unexpected and pattern matches with a concurrent query", sequentialAndMatches, search(andPattern, scope));
+		assertEquals("Unexpected number of or pattern matches", 6, new StringTokenizer(sequentialOrMatches, "\n").countTokens());
+	} finally {
+		PatternSearchJob.PARALLELISM = parallelism;
+		deleteProjects(new String[] {"P1", "P2", "P3"});
+	}
+}
+/*
+ * Ensures that locating the matches of a project with several workers reports the same matches
+ * in the same order as a sequential search.
+ */
+public void testParallelLocateMatches() throws CoreException {
+	int parallelism = MatchLocator.PARALLELISM;
+	try {
+		IJavaProject project = createJavaProject("P1", new String[] {""}, new String[] {"JCL_LIB"}, "bin");
+		createFile(
+			"/P1/X.java",
+			"public class X {\n" +
+			"  public void foo() {}\n" +
+			"}"
+		);
+		for (int i = 0; i < 150; i++) {
+			createFile(
+				"/P1/Y" + i + ".java",
+				"public class Y" + i + " {\n" +
+				"  void bar(X x) { x.foo(); }\n" +
+				"}"
+			);
+		}
+		IMethod method = getCompilationUnit("/P1/X.java").getType("X").getMethod("foo", new String[0]);
+		IJavaSearchScope scope = SearchEngine.createJavaSearchScope(new IJavaElement[] {project});
+		String sequentialMatches = searchReferences(method, scope);
+		MatchLocator.PARALLELISM = 3;
+		String parallelMatches = searchReferences(method, scope);
+		assertEquals("Unexpected matches with several workers", sequentialMatches, parallelMatches);
+		assertEquals("Unexpected number of matches", 150, new StringTokenizer(parallelMatches, "\n").countTokens());
+	} finally {
+		MatchLocator.PARALLELISM = parallelism;
+		deleteProject("P1");
+	}
+}
+private String searchReferences(IJavaElement element, IJavaSearchScope scope) throws CoreException {
+	return search(SearchPattern.createPattern(element, REFERENCES), scope);
+}
+private String search(SearchPattern pattern, IJavaSearchScope scope) throws CoreException {
+	final StringBuffer buffer = new StringBuffer();
+	new SearchEngine().search(
+		pattern,
+		new SearchParticipant[] {SearchEngine.getDefaultSearchParticipant()},
+		scope,
+		new SearchRequestor() {
+			public void acceptSearchMatch(SearchMatch match) {
+				buffer.append(match.getResource().getFullPath());
+				buffer.append(' ');
+				buffer.append(match.getOffset());
+				buffer.append('\n');
+			}
+		},
+		null);
+	return buffer.toString();
+}
+/*
+ * Ensures that a job manager with several workers runs the jobs with the same key in order,
+ * and that waiting until ready waits for all of them.
+ */
+public void testParallelIndexing() {
+	class KeyedJob implements IJob {
+		String key;
+		int number;
+		StringBuffer log;
+		KeyedJob(String key, int number, StringBuffer log) {
+			this.key = key;
+			this.number = number;
+			this.log = log;
+		}
+		public boolean belongsTo(String jobFamily) {
+			return this.key.equals(jobFamily);
+		}
+		public void cancel() {
+		}
+		public void ensureReadyToRun() {
+		}
+		public boolean execute(IProgressMonitor progress) {
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				// ignore
+			}
+			synchronized (this.log) {
+				this.log.append(this.key).append(this.number).append('\n');
+			}
+			return true;
+		}
+		public String getJobFamily() {
+			return this.key;
+		}
+	}
+	int workers = JobManager.WORKERS;
+	JobManager manager = new JobManager() {
+		public String processName() {
+			return "SearchTests.ParallelIndexing";
+		}
+		protected Object getJobKey(IJob job) {
+			return ((KeyedJob) job).key;
+		}
+	};
+	try {
+		JobManager.WORKERS = 4;
+		manager.reset();
+		StringBuffer log = new StringBuffer();
+		for (int i = 0; i < 3; i++) {
+			manager.request(new KeyedJob("a", i, log));
+			manager.request(new KeyedJob("b", i, log));
+		}
+		manager.performConcurrentJob(new KeyedJob("c", 0, new StringBuffer()), IJob.WaitUntilReady, null);
+		assertEquals("Unexpected awaiting jobs", 0, manager.awaitingJobsCount());
+		assertEquals("Unexpected completed jobs", 6, manager.completedJobsCount());
+		String order = log.toString();
+		assertTrue("Unexpected order of a: " + order, order.indexOf("a0") < order.indexOf("a1") && order.indexOf("a1") < order.indexOf("a2"));
+		assertTrue("Unexpected order of b: " + order, order.indexOf("b0") < order.indexOf("b1") && order.indexOf("b1") < order.indexOf("b2"));
+	} finally {
+		JobManager.WORKERS = workers;
+		manager.shutdown();
+	}
+}
  /*
   * Ensures that types are found if the project is a lib folder
   * (regression test for bug 83822 Classes at root of project not found in Open Type dialog)
@@ -1209,4 +1440,245 @@ public void testSearchPatternValidMatchRule47() {
 		SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH,
 		SearchPattern.R_EXACT_MATCH);
 }
+/*
+ * Ensures that the sources indexed from their tokens are found as when indexed by the parser.
+ */
+public void testStreamingSourceIndexer() throws CoreException {
+	boolean streaming = SourceIndexer.STREAMING;
+	try {
+		SourceIndexer.STREAMING = true;
+		IJavaProject project = createJavaProject("P1", new String[] {""}, new String[] {"JCL_LIB"}, "bin");
+		createFile(
+			"/P1/X.java",
+			"/** @deprecated */\n" +
+			"public class X<T extends Comparable<T>> {\n" +
+			"  public X(int i) {}\n" +
+			"  public void foo(T t) {}\n" +
+			"  static class Member {}\n" +
+			"}\n" +
+			"class Secondary {}"
+		);
+		createFile(
+			"/P1/Y.java",
+			"public class Y extends X<String> {\n" +
+			"  Y() {\n" +
+			"    super(0);\n" +
+			"    new Runnable() {\n" +
+			"      public void run() { foo(null); }\n" +
+			"    };\n" +
+			"  }\n" +
+			"}"
+		);
+		assertAllTypes(
+			"Unexpected types in P1",
+			project,
+			"Secondary\n" +
+			"X\n" +
+			"X$Member\n" +
+			"Y"
+		);
+		IType type = getCompilationUnit("/P1/X.java").getType("X");
+		IJavaSearchScope scope = SearchEngine.createJavaSearchScope(new IJavaElement[] {project});
+		assertEquals(
+			"Unexpected constructor references",
+			"/P1/Y.java 47\n",
+			searchReferences(type.getMethod("X", new String[] {"I"}), scope));
+		assertEquals(
+			"Unexpected method references",
+			"/P1/Y.java 104\n",
+			searchReferences(type.getMethod("foo", new String[] {"QT;"}), scope));
+	} finally {
+		SourceIndexer.STREAMING = streaming;
+		deleteProject("P1");
+	}
+}
+/*
+ * Ensures that the streaming indexer reports the same declarations as the parser on a varied corpus,
+ * and that no reference found by the parser is missing (it may report more, e.g. from syntax errors).
+ */
+public void testStreamingSourceIndexerCorpus() throws CoreException {
+	String[] corpus = new String[] {
+			"/P1/p/G.java",
+				"package p;\n" +
+				"import java.util.*;\n" +
+				"public class G<T extends Comparable<? super T>, U> extends AbstractList<T> implements RandomAccess, java.io.Serializable {\n" +
+				"\tList<Map<String, U>> maps = new ArrayList<Map<String, U>>();\n" +
+				"\tMap.Entry<String, ? extends Number>[] entries;\n" +
+				"\t<V extends T> V identity(V v) { return v; }\n" +
+				"\tpublic T get(int index) { return null; }\n" +
+				"\tpublic int size() { return this.maps.size(); }\n" +
+				"\tstatic <K> K[] array(K... keys) { return keys; }\n" +
+				"\tG() { this(null); }\n" +
+				"\tG(U u) { super(); maps.add(Collections.<String, U>emptyMap()); }\n" +
+				"}\n",
+			"/P1/p/E.java",
+				"package p;\n" +
+				"public enum E implements Runnable {\n" +
+				"\tA(1) {\n" +
+				"\t\tpublic void run() { System.out.println(value()); }\n" +
+				"\t},\n" +
+				"\tB(2) {\n" +
+				"\t\tpublic void run() { A.run(); }\n" +
+				"\t},\n" +
+				"\tC;\n" +
+				"\tprivate final int value;\n" +
+				"\tE() { this(0); }\n" +
+				"\tE(int value) { this.value = value; }\n" +
+				"\tpublic int value() { return this.value; }\n" +
+				"\tpublic void run() {}\n" +
+				"\tstatic E first() { return values()[0]; }\n" +
+				"}\n",
+			"/P1/p/Ann.java",
+				"package p;\n" +
+				"import java.lang.annotation.*;\n" +
+				"@Retention(RetentionPolicy.RUNTIME)\n" +
+				"@Target({ElementType.TYPE, ElementType.METHOD, ElementType.PARAMETER})\n" +
+				"public @interface Ann {\n" +
+				"\tString value() default \"x\";\n" +
+				"\tint[] numbers() default {1, 2};\n" +
+				"\tClass<?> type() default Object.class;\n" +
+				"\tElementType kind() default ElementType.TYPE;\n" +
+				"}\n" +
+				"@Ann(value = \"y\", numbers = {3}, type = String.class)\n" +
+				"@Deprecated\n" +
+				"class Annotated {\n" +
+				"\t@SuppressWarnings(\"unchecked\")\n" +
+				"\t@Ann\n" +
+				"\tvoid annotated(@Ann(\"p\") int parameter) {}\n" +
+				"\t@Ann(kind = ElementType.FIELD) Object field;\n" +
+				"}\n",
+			"/P1/p/N.java",
+				"package p;\n" +
+				"public class N {\n" +
+				"\tclass Inner {\n" +
+				"\t\tclass Deeper extends Inner {}\n" +
+				"\t\tint inner() { return outer; }\n" +
+				"\t}\n" +
+				"\tstatic class StaticNested implements Comparable<StaticNested> {\n" +
+				"\t\tpublic int compareTo(StaticNested o) { return 0; }\n" +
+				"\t}\n" +
+				"\tinterface Callback { void call(String s); }\n" +
+				"\tint outer;\n" +
+				"\tvoid local() {\n" +
+				"\t\tclass Local extends Thread {\n" +
+				"\t\t\tpublic void run() { outer++; }\n" +
+				"\t\t}\n" +
+				"\t\tnew Local().start();\n" +
+				"\t\tObject o = new Object() {\n" +
+				"\t\t\tpublic String toString() { return \"anonymous\" + hashCode(); }\n" +
+				"\t\t};\n" +
+				"\t\tCallback c = new Callback() {\n" +
+				"\t\t\tpublic void call(String s) { new N().new Inner().inner(); }\n" +
+				"\t\t};\n" +
+				"\t\tc.call(o.toString());\n" +
+				"\t}\n" +
+				"\tstatic { new StaticNested(); }\n" +
+				"\t{ outer = 1; }\n" +
+				"}\n",
+			"/P1/p/J.java",
+				"package p;\n" +
+				"/**\n" +
+				" * A class with javadoc references.\n" +
+				" * @see java.util.List#add(Object)\n" +
+				" * @see N.Inner\n" +
+				" * {@link N#local()}\n" +
+				" * @deprecated use {@linkplain G#size() the size}\n" +
+				" */\n" +
+				"public class J {\n" +
+				"\t/**\n" +
+				"\t * @param x the value, see {@link #other(String, int[])}\n" +
+				"\t * @return the same value\n" +
+				"\t * @throws IllegalStateException never\n" +
+				"\t * @exception java.io.IOException never either\n" +
+				"\t */\n" +
+				"\tint foo(int x) throws java.io.IOException { return x; }\n" +
+				"\t/** {@value #CONSTANT} */\n" +
+				"\tstatic final String CONSTANT = \"c\";\n" +
+				"\tvoid other(String s, int[] values) {}\n" +
+				"}\n",
+			"/P1/p/S.java",
+				"package p;\n" +
+				"public class S {\n" +
+				"\tint before;\n" +
+				"\tvoid broken() {\n" +
+				"\t\tint x = ;\n" +
+				"\t\tfoo(;\n" +
+				"\t}\n" +
+				"\tvoid after(String s) { before = s.length(); }\n" +
+				"\tint field = compute(;\n" +
+				"\tclass Member {}\n" +
+				"}\n",
+			"/P1/p/S2.java",
+				"package p;\n" +
+				"public class S2 extends {\n" +
+				"\tvoid unclosed() {\n" +
+				"\t\tif (true) {\n" +
+				"\t}\n" +
+				"\tString name;\n" +
+				"\tS2(int i) {}\n",
+			"/P1/p/S3.java",
+				"package p;\n" +
+				"public class S3 {\n" +
+				"\tvoid m() { int x = ; return }\n" +
+				"\tint = 3;\n" +
+				"\tvoid n(String s) { s.length(); }\n" +
+				"\tpublic public void twice() {}\n" +
+				"}\n"
+	};
+	boolean streaming = SourceIndexer.STREAMING;
+	try {
+		createJavaProject("P1", new String[] {""}, new String[] {"JCL18_LIB"}, "bin", "1.8");
+		createFolder("/P1/p");
+		for (int i = 0; i < corpus.length; i += 2) {
+			createFile(corpus[i], corpus[i+1]);
+			SourceIndexer.STREAMING = false;
+			TreeSet parserEntries = indexEntries(corpus[i], corpus[i+1]);
+			SourceIndexer.STREAMING = true;
+			TreeSet streamingEntries = indexEntries(corpus[i], corpus[i+1]);
+			assertEquals(
+				"Unexpected declarations in " + corpus[i],
+				declarationEntries(parserEntries),
+				declarationEntries(streamingEntries));
+			TreeSet missingEntries = new TreeSet(parserEntries);
+			missingEntries.removeAll(streamingEntries);
+			assertEquals("Missing entries in " + corpus[i], "", toString(missingEntries));
+		}
+		// the well-formed sources must be indexed from their tokens, not given back to the parser
+		for (int i = 0; i < corpus.length; i += 2) {
+			String mainTypeName = new Path(corpus[i]).removeFileExtension().lastSegment();
+			boolean wellFormed = !mainTypeName.startsWith("S");
+			StreamingIndexer indexer = new StreamingIndexer(
+				new SourceIndexerRequestor(new SourceIndexer(new RecordingDocument(corpus[i], corpus[i+1]))),
+				corpus[i+1].toCharArray(),
+				mainTypeName.toCharArray(),
+				ClassFileConstants.JDK1_8,
+				ClassFileConstants.JDK1_8);
+			assertEquals("Unexpected streaming of " + corpus[i], wellFormed, indexer.index());
+		}
+	} finally {
+		SourceIndexer.STREAMING = streaming;
+		deleteProject("P1");
+	}
+}
+private TreeSet indexEntries(String path, String contents) {
+	RecordingDocument document = new RecordingDocument(path, contents);
+	new SourceIndexer(document).indexDocument();
+	return document.entries;
+}
+private String declarationEntries(TreeSet entries) {
+	TreeSet declarations = new TreeSet();
+	for (Iterator iterator = entries.iterator(); iterator.hasNext();) {
+		String entry = (String) iterator.next();
+		if (entry.startsWith("typeDecl ") || entry.startsWith("methodDecl ") || entry.startsWith("constructorDecl ")
+				|| entry.startsWith("fieldDecl ") || entry.startsWith("superRef "))
+			declarations.add(entry);
+	}
+	return toString(declarations);
+}
+private String toString(TreeSet entries) {
+	StringBuffer buffer = new StringBuffer();
+	for (Iterator iterator = entries.iterator(); iterator.hasNext();)
+		buffer.append(iterator.next()).append('\n');
+	return buffer.toString();
+}
 }
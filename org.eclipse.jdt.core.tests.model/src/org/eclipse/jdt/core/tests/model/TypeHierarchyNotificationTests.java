@@ -21,6 +21,7 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.*;
+import org.eclipse.jdt.internal.core.hierarchy.TypeHierarchy;
 
 public class TypeHierarchyNotificationTests extends ModifyingResourceTests implements ITypeHierarchyChangedListener {
 	/**
@@ -1471,6 +1472,175 @@ public void testBug316654_c() throws CoreException {
 		h.removeTypeHierarchyChangedListener(this);
 	}
 }
+/**
+ * Ensures that a hierarchy refreshed after changes to the super types of its subtypes
+ * (and of types that become subtypes) contains the new subtypes only.
+ */
+public void testIncrementalRefresh() throws CoreException {
+	try {
+		createJavaProject("P", new String[] {"src"}, new String[] {"JCL_LIB"}, "bin");
+		createFolder("/P/src/p");
+		createFile("/P/src/p/X.java", "package p;\npublic class X {}");
+		createFile("/P/src/p/Y.java", "package p;\npublic class Y extends X {}");
+		createFile("/P/src/p/Z.java", "package p;\npublic class Z extends Y {}");
+		createFile("/P/src/p/W.java", "package p;\npublic class W {}");
+		createFile("/P/src/p/V.java", "package p;\npublic class V extends W {}");
+		IType type = getCompilationUnit("/P/src/p/X.java").getType("X");
+		ITypeHierarchy h = type.newTypeHierarchy(null);
+		h.addTypeHierarchyChangedListener(this);
+		try {
+			ICompilationUnit copy = getCompilationUnit("/P/src/p/Y.java").getWorkingCopy(null);
+			copy.getBuffer().setContents("package p;\npublic class Y {}");
+			copy.commitWorkingCopy(true, null);
+			copy.discardWorkingCopy();
+			assertOneChange(h);
+
+			copy = getCompilationUnit("/P/src/p/W.java").getWorkingCopy(null);
+			copy.getBuffer().setContents("package p;\npublic class W extends X {}");
+			copy.commitWorkingCopy(true, null);
+			copy.discardWorkingCopy();
+			createFile("/P/src/p/U.java", "package p;\npublic class U extends V {}");
+			assertOneChange(h);
+
+			h.refresh(null);
+			assertHierarchyEquals(
+				"Focus: X [in X.java [in p [in src [in P]]]]\n" +
+				"Super types:\n" +
+				"  Object [in Object.class [in java.lang [in "+ getExternalJCLPathString() + "]]]\n" +
+				"Sub types:\n" +
+				"  W [in W.java [in p [in src [in P]]]]\n" +
+				"    V [in V.java [in p [in src [in P]]]]\n" +
+				"      U [in U.java [in p [in src [in P]]]]\n",
+				h);
+			assertTrue("Hierarchy should be patched", ((TypeHierarchy) h).patchedOnRefresh);
+		} finally {
+			h.removeTypeHierarchyChangedListener(this);
+		}
+	} finally {
+		deleteProject("P");
+	}
+}
+/**
+ * Ensures that a hierarchy is computed again when its focus type changes.
+ */
+public void testIncrementalRefreshFocusTypeChange() throws CoreException {
+	try {
+		createJavaProject("P", new String[] {"src"}, new String[] {"JCL_LIB"}, "bin");
+		createFolder("/P/src/p");
+		createFile("/P/src/p/X.java", "package p;\npublic class X {}");
+		createFile("/P/src/p/Y.java", "package p;\npublic class Y extends X {}");
+		createFile("/P/src/p/W.java", "package p;\npublic class W {}");
+		IType type = getCompilationUnit("/P/src/p/X.java").getType("X");
+		ITypeHierarchy h = type.newTypeHierarchy(null);
+		h.addTypeHierarchyChangedListener(this);
+		try {
+			ICompilationUnit copy = getCompilationUnit("/P/src/p/X.java").getWorkingCopy(null);
+			copy.getBuffer().setContents("package p;\npublic class X extends W {}");
+			copy.commitWorkingCopy(true, null);
+			copy.discardWorkingCopy();
+			assertOneChange(h);
+
+			h.refresh(null);
+			assertHierarchyEquals(
+				"Focus: X [in X.java [in p [in src [in P]]]]\n" +
+				"Super types:\n" +
+				"  W [in W.java [in p [in src [in P]]]]\n" +
+				"    Object [in Object.class [in java.lang [in "+ getExternalJCLPathString() + "]]]\n" +
+				"Sub types:\n" +
+				"  Y [in Y.java [in p [in src [in P]]]]\n",
+				h);
+			assertFalse("Hierarchy should be computed again", ((TypeHierarchy) h).patchedOnRefresh);
+		} finally {
+			h.removeTypeHierarchyChangedListener(this);
+		}
+	} finally {
+		deleteProject("P");
+	}
+}
+/**
+ * Ensures that a hierarchy is computed again when a super type of its focus type changes.
+ */
+public void testIncrementalRefreshSupertypeChange() throws CoreException {
+	try {
+		createJavaProject("P", new String[] {"src"}, new String[] {"JCL_LIB"}, "bin");
+		createFolder("/P/src/p");
+		createFile("/P/src/p/X.java", "package p;\npublic class X {}");
+		createFile("/P/src/p/Y.java", "package p;\npublic class Y extends X {}");
+		createFile("/P/src/p/Z.java", "package p;\npublic class Z extends Y {}");
+		createFile("/P/src/p/W.java", "package p;\npublic class W {}");
+		IType type = getCompilationUnit("/P/src/p/Y.java").getType("Y");
+		ITypeHierarchy h = type.newTypeHierarchy(null);
+		h.addTypeHierarchyChangedListener(this);
+		try {
+			ICompilationUnit copy = getCompilationUnit("/P/src/p/X.java").getWorkingCopy(null);
+			copy.getBuffer().setContents("package p;\npublic class X extends W {}");
+			copy.commitWorkingCopy(true, null);
+			copy.discardWorkingCopy();
+			assertOneChange(h);
+
+			h.refresh(null);
+			assertHierarchyEquals(
+				"Focus: Y [in Y.java [in p [in src [in P]]]]\n" +
+				"Super types:\n" +
+				"  X [in X.java [in p [in src [in P]]]]\n" +
+				"    W [in W.java [in p [in src [in P]]]]\n" +
+				"      Object [in Object.class [in java.lang [in "+ getExternalJCLPathString() + "]]]\n" +
+				"Sub types:\n" +
+				"  Z [in Z.java [in p [in src [in P]]]]\n",
+				h);
+			assertFalse("Hierarchy should be computed again", ((TypeHierarchy) h).patchedOnRefresh);
+		} finally {
+			h.removeTypeHierarchyChangedListener(this);
+		}
+	} finally {
+		deleteProject("P");
+	}
+}
+/**
+ * Ensures that a hierarchy is computed again when too many changes were collected to patch it.
+ */
+public void testIncrementalRefreshTooManyChanges() throws CoreException {
+	int maxChanges = TypeHierarchy.MAX_PATCHED_CHANGES;
+	try {
+		TypeHierarchy.MAX_PATCHED_CHANGES = 1;
+		createJavaProject("P", new String[] {"src"}, new String[] {"JCL_LIB"}, "bin");
+		createFolder("/P/src/p");
+		createFile("/P/src/p/X.java", "package p;\npublic class X {}");
+		createFile("/P/src/p/Y.java", "package p;\npublic class Y extends X {}");
+		createFile("/P/src/p/W.java", "package p;\npublic class W {}");
+		IType type = getCompilationUnit("/P/src/p/X.java").getType("X");
+		ITypeHierarchy h = type.newTypeHierarchy(null);
+		h.addTypeHierarchyChangedListener(this);
+		try {
+			ICompilationUnit copy = getCompilationUnit("/P/src/p/Y.java").getWorkingCopy(null);
+			copy.getBuffer().setContents("package p;\npublic class Y {}");
+			copy.commitWorkingCopy(true, null);
+			copy.discardWorkingCopy();
+			assertOneChange(h);
+
+			copy = getCompilationUnit("/P/src/p/W.java").getWorkingCopy(null);
+			copy.getBuffer().setContents("package p;\npublic class W extends X {}");
+			copy.commitWorkingCopy(true, null);
+			copy.discardWorkingCopy();
+			assertOneChange(h);
+
+			h.refresh(null);
+			assertHierarchyEquals(
+				"Focus: X [in X.java [in p [in src [in P]]]]\n" +
+				"Super types:\n" +
+				"  Object [in Object.class [in java.lang [in "+ getExternalJCLPathString() + "]]]\n" +
+				"Sub types:\n" +
+				"  W [in W.java [in p [in src [in P]]]]\n",
+				h);
+			assertFalse("Hierarchy should be computed again", ((TypeHierarchy) h).patchedOnRefresh);
+		} finally {
+			h.removeTypeHierarchyChangedListener(this);
+		}
+	} finally {
+		TypeHierarchy.MAX_PATCHED_CHANGES = maxChanges;
+		deleteProject("P");
+	}
+}
 /**
  * Make a note of the change
  */
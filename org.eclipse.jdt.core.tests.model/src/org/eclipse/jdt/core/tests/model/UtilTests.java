@@ -10,6 +10,13 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.model;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.ZipFile;
+
+import org.eclipse.jdt.internal.compiler.util.ZipFilePool;
+import org.eclipse.jdt.internal.core.util.PackageNameMap;
 import org.eclipse.jdt.internal.core.util.Util;
 
 import junit.framework.Test;
@@ -75,4 +82,142 @@ public class UtilTests extends AbstractJavaModelTests {
 		String[] result = Util.getProblemArgumentsFromMarker(Util.getProblemArgumentsForMarker(arguments));
 		assertStringsEqual("Wrong arguments", arguments, result);
 	}
+	/*
+	 * A package name map derived by put(...) does not change the map it is derived from.
+	 */
+	public void test013() {
+		PackageNameMap map = PackageNameMap.EMPTY.put(new String[] {"p1"}, "root1");
+		PackageNameMap derived = map.put(new String[] {"p1", "p2"}, "root2").put(new String[] {"p1"}, "root3");
+		assertEquals("Wrong size", 1, map.size());
+		assertEquals("Wrong value", "root1", map.get(new String[] {"p1"}));
+		assertFalse("Unexpected key", map.containsKey(new String[] {"p1", "p2"}));
+		assertEquals("Wrong size", 2, derived.size());
+		assertEquals("Wrong value", "root3", derived.get(new String[] {"p1"}));
+		assertEquals("Wrong value", "root2", derived.get(new String[] {"p1", "p2"}));
+	}
+	/*
+	 * Keys with the same hash code are kept apart.
+	 */
+	public void test014() {
+		PackageNameMap map = PackageNameMap.EMPTY;
+		String[][] keys = new String[][] {{"Aa"}, {"BB"}, {"AaAa"}, {"BBBB"}, {"AaBB"}, {}};
+		for (int i = 0; i < keys.length; i++)
+			map = map.put(keys[i], Integer.valueOf(i));
+		assertEquals("Wrong size", keys.length, map.size());
+		assertEquals("Wrong entries", keys.length, map.entries().length);
+		for (int i = 0; i < keys.length; i++)
+			assertEquals("Wrong value", Integer.valueOf(i), map.get(keys[i]));
+	}
+	/*
+	 * getKey(...) answers the key equal to a prefix of the given name.
+	 */
+	public void test015() {
+		String[] key = new String[] {"p1", "p2"};
+		PackageNameMap map = PackageNameMap.EMPTY.put(key, "root");
+		assertSame("Wrong key", key, map.getKey(new String[] {"p1", "p2", "p3"}, 2));
+		assertNull("Unexpected key", map.getKey(new String[] {"p1", "p2", "p3"}, 1));
+	}
+	/*
+	 * The clients of a zip file pool share the zip file of an archive.
+	 */
+	public void test016() throws IOException {
+		String zipPath = getExternalPath() + "pool016.zip";
+		org.eclipse.jdt.core.tests.util.Util.createSourceZip(new String[] {"p/X.java", "package p; public class X {}"}, zipPath);
+		setOlder(zipPath);
+		ZipFilePool pool = new ZipFilePool(1, 60000);
+		try {
+			ZipFile first = pool.acquire(new File(zipPath));
+			ZipFile second = pool.acquire(new File(zipPath));
+			assertSame("Should share the zip file", first, second);
+			pool.release(first);
+			pool.release(second);
+			assertSame("Should reuse the unused zip file", first, pool.acquire(new File(zipPath)));
+			pool.release(first);
+		} finally {
+			pool.flush();
+			deleteResource(new File(getExternalPath() + "pool016.zip"));
+		}
+	}
+	/*
+	 * The unused zip files exceeding the size of a zip file pool are closed.
+	 */
+	public void test017() throws IOException {
+		String zipPath1 = getExternalPath() + "pool017a.zip";
+		String zipPath2 = getExternalPath() + "pool017b.zip";
+		org.eclipse.jdt.core.tests.util.Util.createSourceZip(new String[] {"p/X.java", "package p; public class X {}"}, zipPath1);
+		org.eclipse.jdt.core.tests.util.Util.createSourceZip(new String[] {"q/Y.java", "package q; public class Y {}"}, zipPath2);
+		setOlder(zipPath1);
+		setOlder(zipPath2);
+		ZipFilePool pool = new ZipFilePool(1, 60000);
+		try {
+			ZipFile first = pool.acquire(new File(zipPath1));
+			ZipFile second = pool.acquire(new File(zipPath2));
+			pool.release(first);
+			pool.release(second);
+			try {
+				first.size();
+				assertTrue("Should be closed", false);
+			} catch (IllegalStateException e) {
+				// expected
+			}
+			assertSame("Should reuse the unused zip file", second, pool.acquire(new File(zipPath2)));
+			pool.release(second);
+		} finally {
+			pool.flush();
+			deleteResource(new File(getExternalPath() + "pool017a.zip"));
+			deleteResource(new File(getExternalPath() + "pool017b.zip"));
+		}
+	}
+	/*
+	 * The entry names of an archive are listed once by a zip file pool.
+	 */
+	public void test018() throws IOException {
+		String zipPath = getExternalPath() + "pool018.zip";
+		org.eclipse.jdt.core.tests.util.Util.createSourceZip(new String[] {"p/X.java", "package p; public class X {}"}, zipPath);
+		setOlder(zipPath);
+		ZipFilePool pool = new ZipFilePool(1, 60000);
+		try {
+			ZipFile zipFile = pool.acquire(new File(zipPath));
+			String[] names = pool.getEntryNames(zipFile);
+			assertTrue("Missing entry", Arrays.asList(names).contains("p/X.java"));
+			assertSame("Should cache the entry names", names, pool.getEntryNames(zipFile));
+			pool.release(zipFile);
+		} finally {
+			pool.flush();
+			deleteResource(new File(getExternalPath() + "pool018.zip"));
+		}
+	}
+	/*
+	 * An archive modified just before it was opened is opened again, since a change with the same
+	 * modification time and length would not be noticed.
+	 */
+	public void test019() throws IOException {
+		String zipPath = getExternalPath() + "pool019.zip";
+		org.eclipse.jdt.core.tests.util.Util.createSourceZip(new String[] {"p/X.java", "package p; public class X {}"}, zipPath);
+		File file = new File(zipPath);
+		file.setLastModified(System.currentTimeMillis());
+		ZipFilePool pool = new ZipFilePool(1, 60000);
+		try {
+			ZipFile first = pool.acquire(file);
+			pool.release(first);
+			long lastModified = file.lastModified();
+			org.eclipse.jdt.core.tests.util.Util.createSourceZip(new String[] {"p/Y.java", "package p; public class Y {}"}, zipPath);
+			file.setLastModified(lastModified); // same time and length
+			ZipFile second = pool.acquire(file);
+			assertNotSame("Should open the archive again", first, second);
+			assertNotNull("Should see the new entry", second.getEntry("p/Y.java"));
+			assertTrue("Should list the new entry", Arrays.asList(pool.getEntryNames(second)).contains("p/Y.java"));
+			pool.release(second);
+		} finally {
+			pool.flush();
+			deleteResource(new File(getExternalPath() + "pool019.zip"));
+		}
+	}
+	/*
+	 * Makes the given archive old enough for its modification time to tell whether it changed.
+	 */
+	private void setOlder(String zipPath) {
+		File file = new File(zipPath);
+		file.setLastModified(file.lastModified() - 10000);
+	}
 }
\ No newline at end of file
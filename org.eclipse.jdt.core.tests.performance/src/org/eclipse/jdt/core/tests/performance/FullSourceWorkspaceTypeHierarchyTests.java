@@ -10,18 +10,26 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.performance;
 
+import java.io.IOException;
 import java.io.PrintStream;
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import junit.framework.*;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jdt.core.*;
 import org.eclipse.jdt.core.search.*;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+import org.eclipse.jdt.internal.compiler.util.Util;
 import org.eclipse.test.performance.Performance;
 
 /**
  */
-@SuppressWarnings("rawtypes")
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class FullSourceWorkspaceTypeHierarchyTests extends FullSourceWorkspaceTests implements IJavaSearchConstants {
 
     // Tests counter
@@ -185,4 +193,74 @@ public class FullSourceWorkspaceTypeHierarchyTests extends FullSourceWorkspaceTe
 		assertPerformance();
 	}
 
+	/*
+	 * Reads the class files of the JRE library the way the hierarchy builder does, i.e. without
+	 * decoding their fields, methods and annotations. The readers are kept until the end of each
+	 * measure, so that the heap dimension holds the memory they retain.
+	 */
+	public void testPerfReadClassFilesLazily() throws ClassFormatException, IOException {
+		tagAsSummary("Read class files lazily", false); // do NOT put in fingerprint
+		measureReadClassFiles(true);
+	}
+
+	/*
+	 * Same as testPerfReadClassFilesLazily() with readers decoding everything up front, for comparison.
+	 */
+	public void testPerfReadClassFilesEagerly() throws ClassFormatException, IOException {
+		tagAsSummary("Read class files eagerly", false); // do NOT put in fingerprint
+		measureReadClassFiles(false);
+	}
+
+	private void measureReadClassFiles(boolean decodeLazily) throws ClassFormatException, IOException {
+		ArrayList contents = new ArrayList();
+		ZipFile zipFile = new ZipFile(JavaCore.getClasspathVariable("JRE_LIB").toFile());
+		try {
+			for (Enumeration e = zipFile.entries(); e.hasMoreElements();) {
+				ZipEntry entry = (ZipEntry) e.nextElement();
+				if (Util.isClassFileName(entry.getName()))
+					contents.add(Util.getZipEntryByteContent(entry, zipFile));
+			}
+		} finally {
+			zipFile.close();
+		}
+		byte[][] classFiles = new byte[contents.size()][];
+		contents.toArray(classFiles);
+
+		// Warm up
+		for (int i=0; i<WARMUP_COUNT; i++) {
+			readClassFiles(classFiles, decodeLazily);
+		}
+
+		// Clean memory
+		runGc();
+
+		// Measures
+		for (int i=0; i<MEASURES_COUNT; i++) {
+			runGc();
+			startMeasuring();
+			ClassFileReader[] readers = readClassFiles(classFiles, decodeLazily);
+			stopMeasuring();
+			assertEquals("Unexpected number of readers", classFiles.length, readers.length);
+		}
+
+		// Commit
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/*
+	 * Reads the type level information of the given class files.
+	 */
+	private ClassFileReader[] readClassFiles(byte[][] classFiles, boolean decodeLazily) throws ClassFormatException {
+		ClassFileReader[] readers = new ClassFileReader[classFiles.length];
+		for (int i = 0, length = classFiles.length; i < length; i++) {
+			ClassFileReader reader = new ClassFileReader(classFiles[i], null, false, decodeLazily);
+			reader.getName();
+			reader.getSuperclassName();
+			reader.getInterfaceNames();
+			reader.getModifiers();
+			readers[i] = reader;
+		}
+		return readers;
+	}
 }
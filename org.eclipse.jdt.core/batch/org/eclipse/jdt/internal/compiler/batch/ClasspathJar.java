@@ -25,6 +25,7 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.classfmt.BinaryTypeCache;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
 import org.eclipse.jdt.internal.compiler.classfmt.ExternalAnnotationProvider;
@@ -33,12 +34,14 @@ import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
 import org.eclipse.jdt.internal.compiler.util.ManifestAnalyzer;
 import org.eclipse.jdt.internal.compiler.util.SuffixConstants;
 import org.eclipse.jdt.internal.compiler.util.Util;
+import org.eclipse.jdt.internal.compiler.util.ZipFilePool;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class ClasspathJar extends ClasspathLocation {
 
 protected File file;
 protected ZipFile zipFile;
+protected long lastModified;
 protected ZipFile annotationZipFile;
 protected boolean closeZipFileAtEnd;
 protected Hashtable packageCache;
@@ -102,7 +105,12 @@ public NameEnvironmentAnswer findClass(char[] typeName, String qualifiedPackageN
 		return null; // most common case
 
 	try {
-		ClassFileReader reader = ClassFileReader.read(this.zipFile, qualifiedBinaryFileName);
+		ClassFileReader reader;
+		BinaryTypeCache cache = this.annotationPaths == null ? BinaryTypeCache.getShared() : null; // annotated readers cannot be shared
+		if (cache != null)
+			reader = cache.read(this.zipFile, this.lastModified, qualifiedBinaryFileName);
+		else
+			reader = ClassFileReader.read(this.zipFile, qualifiedBinaryFileName);
 		if (reader != null) {
 			if (this.annotationPaths != null) {
 				String qualifiedClassName = qualifiedBinaryFileName.substring(0, qualifiedBinaryFileName.length()-SuffixConstants.EXTENSION_CLASS.length()-1);
@@ -166,6 +174,7 @@ public char[][][] findTypeNames(String qualifiedPackageName) {
 public void initialize() throws IOException {
 	if (this.zipFile == null) {
 		this.zipFile = new ZipFile(this.file);
+		this.lastModified = this.file.lastModified();
 	}
 }
 public boolean isPackage(String qualifiedPackageName) {
@@ -175,8 +184,10 @@ public boolean isPackage(String qualifiedPackageName) {
 	this.packageCache = new Hashtable(41);
 	this.packageCache.put(Util.EMPTY_STRING, Util.EMPTY_STRING);
 
-	nextEntry : for (Enumeration e = this.zipFile.entries(); e.hasMoreElements(); ) {
-		String fileName = ((ZipEntry) e.nextElement()).getName();
+	// the zip file is private to this classpath entry, but the listing of an unchanged jar is shared
+	String[] fileNames = ZipFilePool.getShared().getEntryNames(this.zipFile);
+	nextEntry : for (int i = 0, length = fileNames.length; i < length; i++) {
+		String fileName = fileNames[i];
 
 		// add the package name & all of its parent packages
 		int last = fileName.lastIndexOf('/');
@@ -1768,6 +1768,7 @@ public void configure(String[] argv) {
 	final int INSIDE_CLASS_NAMES = 20;
 	final int INSIDE_WARNINGS_PROPERTIES = 21;
 	final int INSIDE_ANNOTATIONPATH_start = 22;
+	final int INSIDE_PARALLELISM = 23;
 
 	final int DEFAULT = 0;
 	ArrayList bootclasspaths = new ArrayList(DEFAULT_SIZE_CLASSPATH);
@@ -1981,6 +1982,10 @@ public void configure(String[] argv) {
 					mode = INSIDE_MAX_PROBLEMS;
 					continue;
 				}
+				if (currentArg.equals("-parallelism")) { //$NON-NLS-1$
+					mode = INSIDE_PARALLELISM;
+					continue;
+				}
 				if (currentArg.equals("-source")) { //$NON-NLS-1$
 					mode = INSIDE_SOURCE;
 					continue;
@@ -2528,6 +2533,17 @@ public void configure(String[] argv) {
 				}
 				mode = DEFAULT;
 				continue;
+			case INSIDE_PARALLELISM :
+				try {
+					if (Integer.parseInt(currentArg) <= 0) {
+						throw new IllegalArgumentException(this.bind("configure.parallelism", currentArg)); //$NON-NLS-1$
+					}
+					this.options.put(CompilerOptions.OPTION_Parallelism, currentArg);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException(this.bind("configure.parallelism", currentArg)); //$NON-NLS-1$
+				}
+				mode = DEFAULT;
+				continue;
 			case INSIDE_SOURCE :
 				if (this.didSpecifySource) {
 					throw new IllegalArgumentException(
@@ -45,6 +45,7 @@ import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.internal.compiler.ast.AbstractMethodDeclaration;
 import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
 import org.eclipse.jdt.internal.compiler.impl.ReferenceContext;
+import org.eclipse.jdt.internal.compiler.impl.UnitStats;
 import org.eclipse.jdt.internal.compiler.lookup.SourceTypeBinding;
 import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
 import org.eclipse.jdt.internal.compiler.parser.RecoveryScannerData;
@@ -64,6 +65,8 @@ public class CompilationResult {
 	public char[][][] qualifiedReferences;
 	public char[][] simpleNameReferences;
 	public char[][] rootReferences;
+	public char[][] memberReferences; // see CompilationUnitScope.memberReferenceKey(), null unless member reference info is produced
+	public char[][] hierarchyReferences; // simple names of the supertypes of the types of the unit, along with the member references
 	public boolean hasAnnotations = false;
 	public boolean hasFunctionalTypes = false;
 	public int lineSeparatorPositions[];
@@ -76,6 +79,7 @@ public class CompilationResult {
 	public boolean hasSyntaxError = false;
 	public char[][] packageName;
 	public boolean checkSecondaryTypes = false; // check for secondary types which were created after the initial buildTypeBindings call
+	public UnitStats stats; // null unless CompilerOptions.recordUnitStats is set
 	private int numberOfErrors;
 	private boolean hasMandatoryErrors;
 
@@ -55,6 +55,10 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 	public ReferenceBinding[] referenceBindings;
 	public boolean useSingleThread = true; // by default the compiler will not use worker threads to read/process/write
 
+	// set on the compilers a compilation is sharded over, see CompilerOptions#parallelism
+	ShardManager shardManager;
+	int shardIndex;
+
 	// number of initial units parsed at once (-1: none)
 
 	/*
@@ -310,6 +314,10 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 		CompilationResult unitResult =
 			new CompilationResult(sourceUnit, this.totalUnits, this.totalUnits, this.options.maxProblemsPerUnit);
 		unitResult.checkSecondaryTypes = true;
+		if (this.options.recordUnitStats) {
+			unitResult.stats = new UnitStats();
+			unitResult.stats.startPhase();
+		}
 		try {
 			if (this.options.verbose) {
 				String count = String.valueOf(this.totalUnits + 1);
@@ -328,12 +336,14 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 			} else {
 				parsedUnit = this.parser.dietParse(sourceUnit, unitResult);
 			}
+			if (unitResult.stats != null) unitResult.stats.endPhase(UnitStats.PARSE);
 			// initial type binding creation
 			this.lookupEnvironment.buildTypeBindings(parsedUnit, accessRestriction);
 			addCompilationUnit(sourceUnit, parsedUnit);
 
 			// binding resolution
 			this.lookupEnvironment.completeTypeBindings(parsedUnit);
+			if (unitResult.stats != null) unitResult.stats.endPhase(UnitStats.RESOLVE);
 		} catch (AbortCompilationUnit e) {
 			// at this point, currentCompilationUnitResult may not be sourceUnit, but some other
 			// one requested further along to resolve sourceUnit.
@@ -420,6 +430,10 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 	 */
 	public void compile(ICompilationUnit[] sourceUnits) {
 		this.stats.startTime = System.currentTimeMillis();
+		if (shouldCompileInShards(sourceUnits)) {
+			compileInShards(sourceUnits);
+			return;
+		}
 		try {
 			// build and record parsed units
 			reportProgress(Messages.compilation_beginningToCompile);
@@ -470,6 +484,67 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 		}
 	}
 
+	/*
+	 * Answers whether the given units should be resolved, analyzed and generated by several compilers
+	 * running side by side. Annotation processing rounds, verbose traces and debug requestors all
+	 * depend on a single compiler seeing every unit, so they keep using the sequential path.
+	 */
+	protected boolean shouldCompileInShards(ICompilationUnit[] sourceUnits) {
+		int parallelism = this.options.parallelism;
+		return parallelism > 1
+			&& this.shardManager == null
+			&& this.annotationProcessorManager == null
+			&& !this.options.verbose
+			&& DebugRequestor == null
+			&& sourceUnits.length >= parallelism * ShardManager.MIN_UNITS_PER_SHARD;
+	}
+
+	/*
+	 * Compiles the given units on several shards (see ShardManager), then accepts their results in unit order.
+	 */
+	protected void compileInShards(ICompilationUnit[] sourceUnits) {
+		ShardManager manager = null;
+		try {
+			reportProgress(Messages.compilation_beginningToCompile);
+			this.totalUnits = sourceUnits.length;
+			manager = new ShardManager(this, sourceUnits, Math.min(this.options.parallelism, sourceUnits.length));
+			int acceptedCount = 0;
+			CompilationResult result;
+			while ((result = manager.removeNextResult()) != null) { // waits if the next unit is still processed
+				reportWorked(1, acceptedCount++);
+				if (result.lineSeparatorPositions != null)
+					this.stats.lineCount += result.lineSeparatorPositions.length;
+				this.requestor.acceptResult(result.tagAsAccepted());
+			}
+		} catch (AbortCompilation e) {
+			this.handleInternalException(e, null);
+		} finally {
+			if (manager != null) {
+				manager.shutdown();
+				manager.recordStats();
+			}
+			this.totalUnits = 0;
+			this.stats.endTime = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Answer a new compiler working on a share of the units of the current compilation.
+	 * Subclasses that customize the compilation process must answer a compiler doing the same.
+	 */
+	protected Compiler newShard(INameEnvironment environment, ICompilerRequestor shardRequestor, CompilationProgress shardProgress) {
+		Compiler shard = new Compiler(
+			environment,
+			this.problemReporter.policy,
+			this.options,
+			shardRequestor,
+			this.problemReporter.problemFactory,
+			this.out,
+			shardProgress);
+		shard.parseThreshold = this.parseThreshold;
+		return shard;
+	}
+
 	class APTProblem {
 		CategorizedProblem problem;
 		ReferenceContext context;
@@ -533,6 +608,10 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 					unit = this.unitsToProcess[i];
 					if (unit.compilationResult != null && unit.compilationResult.hasBeenAccepted)
 						continue;
+					if (this.shardManager != null && !this.shardManager.owns(this.shardIndex, unit.compilationResult)) {
+						this.unitsToProcess[i] = null; // processed by another shard
+						continue;
+					}
 					reportProgress(Messages.bind(Messages.compilation_processing, new String(unit.getFileName())));
 					try {
 						if (this.options.verbose)
@@ -802,6 +881,11 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 				// diet parsing for large collection of units
 				CompilationUnitDeclaration parsedUnit;
 				unitResult = new CompilationResult(sourceUnits[i], i, maxUnits, this.options.maxProblemsPerUnit);
+				UnitStats unitStats = null;
+				if (this.options.recordUnitStats) {
+					unitStats = unitResult.stats = new UnitStats();
+					unitStats.startPhase();
+				}
 				long parseStart = System.currentTimeMillis();
 				if (this.totalUnits < this.parseThreshold) {
 					parsedUnit = this.parser.parse(sourceUnits[i], unitResult);
@@ -810,9 +894,11 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 				}
 				long resolveStart = System.currentTimeMillis();
 				this.stats.parseTime += resolveStart - parseStart;
+				if (unitStats != null) unitStats.endPhase(UnitStats.PARSE);
 				// initial type binding creation
 				this.lookupEnvironment.buildTypeBindings(parsedUnit, null /*no access restriction*/);
 				this.stats.resolveTime += System.currentTimeMillis() - resolveStart;
+				if (unitStats != null) unitStats.endPhase(UnitStats.RESOLVE);
 				addCompilationUnit(sourceUnits[i], parsedUnit);
 				ImportReference currentPackage = parsedUnit.currentPackage;
 				if (currentPackage != null) {
@@ -834,7 +920,9 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 			this.parser.readManager = null;
 		}
 		// binding resolution
+		long completionStart = System.currentTimeMillis();
 		this.lookupEnvironment.completeTypeBindings();
+		this.stats.completionTime += System.currentTimeMillis() - completionStart;
 	}
 
 	/**
@@ -842,12 +930,15 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 	 */
 	public void process(CompilationUnitDeclaration unit, int i) {
 		this.lookupEnvironment.unitBeingCompleted = unit;
+		UnitStats unitStats = unit.compilationResult.stats;
+		if (unitStats != null) unitStats.startPhase();
 		long parseStart = System.currentTimeMillis();
 
 		this.parser.getMethodBodies(unit);
 
 		long resolveStart = System.currentTimeMillis();
 		this.stats.parseTime += resolveStart - parseStart;
+		if (unitStats != null) unitStats.endPhase(UnitStats.PARSE);
 
 		// fault in fields & methods
 		if (unit.scope != null)
@@ -862,12 +953,14 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 
 		long analyzeStart = System.currentTimeMillis();
 		this.stats.resolveTime += analyzeStart - resolveStart;
+		if (unitStats != null) unitStats.endPhase(UnitStats.RESOLVE);
 		
 		//No need of analysis or generation of code if statements are not required		
 		if (!this.options.ignoreMethodBodies) unit.analyseCode(); // flow analysis
 
 		long generateStart = System.currentTimeMillis();
 		this.stats.analyzeTime += generateStart - analyzeStart;
+		if (unitStats != null) unitStats.endPhase(UnitStats.ANALYZE);
 	
 		if (!this.options.ignoreMethodBodies) unit.generateCode(); // code generation
 		
@@ -879,6 +972,7 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 		unit.finalizeProblems();
 
 		this.stats.generateTime += System.currentTimeMillis() - generateStart;
+		if (unitStats != null) unitStats.endPhase(UnitStats.GENERATE);
 
 		// refresh the total number of units known at this stage
 		unit.compilationResult.totalUnitsKnown = this.totalUnits;
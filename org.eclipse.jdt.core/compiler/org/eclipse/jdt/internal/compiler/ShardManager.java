@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.internal.compiler;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.core.compiler.CompilationProgress;
+import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
+import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
+import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
+import org.eclipse.jdt.internal.compiler.impl.CompilerStats;
+
+/**
+ * Runs one compilation on several compilers ("shards"), each one on its own thread.
+ * <p>
+ * The lookup environment is not thread-safe, so every shard owns a complete one: it builds
+ * the bindings of all the units, but only resolves, analyzes and generates the units it owns
+ * (unit <code>i</code> belongs to shard <code>i % shardCount</code>; units found through the
+ * name environment belong to the first shard processing them). Requests to the shared name
+ * environment are serialized. The results are handed back to the main compiler in unit order.
+ * </p>
+ */
+public class ShardManager {
+
+	public static final int MIN_UNITS_PER_SHARD = 50; // below that, building all the bindings on every shard does not pay off
+
+	Compiler compiler;
+	Compiler[] shards;
+	ICompilationUnit[] sourceUnits;
+	int initialUnits;
+	volatile boolean aborted;
+	private Thread[] shardThreads;
+	private ConcurrentHashMap<String, Integer> claimedUnits;
+	private Throwable caughtException;
+
+	// results, in unit order for the initial units, then in arrival order for the other units
+	private CompilationResult[] results;
+	private int nextResult;
+	private ArrayList<CompilationResult> otherResults;
+	private int runningShards;
+
+public ShardManager(Compiler compiler, ICompilationUnit[] sourceUnits, int shardCount) {
+	this.compiler = compiler;
+	this.sourceUnits = sourceUnits;
+	this.initialUnits = sourceUnits.length;
+	this.claimedUnits = new ConcurrentHashMap<String, Integer>();
+	this.results = new CompilationResult[this.initialUnits];
+	this.nextResult = 0;
+	this.otherResults = new ArrayList<CompilationResult>();
+
+	INameEnvironment environment = new SynchronizedEnvironment(compiler.lookupEnvironment.nameEnvironment);
+	this.shards = new Compiler[shardCount];
+	for (int i = 0; i < shardCount; i++) {
+		this.shards[i] = compiler.newShard(environment, new ShardRequestor(i), new ShardProgress());
+		this.shards[i].shardManager = this;
+		this.shards[i].shardIndex = i;
+	}
+
+	synchronized (this) {
+		this.runningShards = shardCount;
+		this.shardThreads = new Thread[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			final int shardIndex = i;
+			this.shardThreads[i] = new Thread(new Runnable() {
+				public void run() {
+					runShard(shardIndex);
+				}
+			}, "Compiler Shard " + i); //$NON-NLS-1$
+			this.shardThreads[i].setDaemon(true);
+			this.shardThreads[i].start();
+		}
+	}
+}
+
+/**
+ * Answers whether the given shard is responsible for processing and reporting the unit of the given result.
+ */
+boolean owns(int shardIndex, CompilationResult result) {
+	if (result.unitIndex < this.initialUnits)
+		return result.unitIndex % this.shards.length == shardIndex;
+	// unit added while compiling (e.g. from the sourcepath), the first shard to get there owns it
+	Integer owner = this.claimedUnits.putIfAbsent(new String(result.getFileName()), Integer.valueOf(shardIndex));
+	return owner == null || owner.intValue() == shardIndex;
+}
+
+private synchronized void addResult(CompilationResult result) {
+	if (result.unitIndex < this.initialUnits)
+		this.results[result.unitIndex] = result;
+	else
+		this.otherResults.add(result);
+	notifyAll();
+}
+
+/**
+ * Answers the next compilation result to accept, waiting for the shards if needed.
+ * Answers null once all the shards are done and all their results were consumed.
+ */
+public synchronized CompilationResult removeNextResult() {
+	while (true) {
+		if (this.nextResult < this.initialUnits) {
+			CompilationResult next = this.results[this.nextResult];
+			if (next != null) {
+				this.results[this.nextResult++] = null;
+				return next;
+			}
+		}
+		if (!this.otherResults.isEmpty())
+			return this.otherResults.remove(0);
+		if (this.runningShards == 0) {
+			if (this.caughtException != null) {
+				// rethrow the exception caught in a shard in the main compiler thread
+				if (this.caughtException instanceof Error)
+					throw (Error) this.caughtException;
+				throw (RuntimeException) this.caughtException;
+			}
+			if (this.nextResult >= this.initialUnits)
+				return null;
+			this.nextResult++; // unit without result, e.g. its shard aborted
+			continue;
+		}
+		try {
+			wait(100);
+		} catch (InterruptedException ignore) {
+			// ignore
+		}
+	}
+}
+
+void runShard(int shardIndex) {
+	Compiler shard = this.shards[shardIndex];
+	try {
+		shard.compile(this.sourceUnits.clone()); // units are released from the array while parsing
+	} catch (Error e) {
+		synchronized (this) {
+			this.aborted = true;
+			if (this.caughtException == null)
+				this.caughtException = e;
+		}
+	} catch (RuntimeException e) {
+		synchronized (this) {
+			this.aborted = true;
+			if (this.caughtException == null)
+				this.caughtException = e;
+		}
+	} finally {
+		synchronized (this) {
+			this.runningShards--;
+			notifyAll();
+		}
+	}
+}
+
+/**
+ * Adds the statistics of the shards to the main compiler. Since the shards work side by side,
+ * each phase is accounted for with the time spent by the slowest shard.
+ */
+public void recordStats() {
+	CompilerStats slowest = new CompilerStats();
+	for (int i = 0, length = this.shards.length; i < length; i++) {
+		CompilerStats shardStats = this.shards[i].stats;
+		slowest.parseTime = Math.max(slowest.parseTime, shardStats.parseTime);
+		slowest.completionTime = Math.max(slowest.completionTime, shardStats.completionTime);
+		slowest.resolveTime = Math.max(slowest.resolveTime, shardStats.resolveTime);
+		slowest.analyzeTime = Math.max(slowest.analyzeTime, shardStats.analyzeTime);
+		slowest.generateTime = Math.max(slowest.generateTime, shardStats.generateTime);
+	}
+	CompilerStats stats = this.compiler.stats; // may already hold the times of previous compilations
+	stats.parseTime += slowest.parseTime;
+	stats.completionTime += slowest.completionTime;
+	stats.resolveTime += slowest.resolveTime;
+	stats.analyzeTime += slowest.analyzeTime;
+	stats.generateTime += slowest.generateTime;
+}
+
+public void shutdown() {
+	this.aborted = true; // stop the shards which are still running
+	try {
+		for (int i = 0, length = this.shardThreads.length; i < length; i++)
+			this.shardThreads[i].join(250); // do not wait forever
+	} catch (InterruptedException ignored) {
+		// ignore
+	}
+}
+
+class ShardRequestor implements ICompilerRequestor {
+	int shardIndex;
+
+	ShardRequestor(int shardIndex) {
+		this.shardIndex = shardIndex;
+	}
+	public void acceptResult(CompilationResult result) {
+		// all shards build the same units, only the owner reports them
+		if (owns(this.shardIndex, result))
+			addResult(result);
+	}
+}
+
+class ShardProgress extends CompilationProgress {
+	public void begin(int remainingWork) {
+		// progress is reported by the main compiler
+	}
+	public void done() {
+		// progress is reported by the main compiler
+	}
+	public boolean isCanceled() {
+		if (ShardManager.this.aborted)
+			return true;
+		CompilationProgress progress = ShardManager.this.compiler.progress;
+		return progress != null && progress.isCanceled();
+	}
+	public void setTaskName(String name) {
+		// progress is reported by the main compiler
+	}
+	public void worked(int workIncrement, int remainingWork) {
+		// progress is reported by the main compiler
+	}
+}
+
+/*
+ * Serializes the lookups of the shards into the name environment of the main compiler,
+ * which is not expected to be thread-safe. Cleaning it up is left to its owner.
+ */
+static class SynchronizedEnvironment implements INameEnvironment {
+	INameEnvironment environment;
+
+	SynchronizedEnvironment(INameEnvironment environment) {
+		this.environment = environment;
+	}
+	public synchronized NameEnvironmentAnswer findType(char[][] compoundTypeName) {
+		return this.environment.findType(compoundTypeName);
+	}
+	public synchronized NameEnvironmentAnswer findType(char[] typeName, char[][] packageName) {
+		return this.environment.findType(typeName, packageName);
+	}
+	public synchronized boolean isPackage(char[][] parentPackageName, char[] packageName) {
+		return this.environment.isPackage(parentPackageName, packageName);
+	}
+	public void cleanup() {
+		// the environment belongs to the main compiler
+	}
+}
+}
@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.compiler.classfmt;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.jdt.internal.compiler.env.ClassSignature;
+import org.eclipse.jdt.internal.compiler.env.EnumConstantSignature;
+import org.eclipse.jdt.internal.compiler.env.IBinaryAnnotation;
+import org.eclipse.jdt.internal.compiler.env.IBinaryElementValuePair;
+import org.eclipse.jdt.internal.compiler.env.IBinaryField;
+import org.eclipse.jdt.internal.compiler.env.IBinaryMethod;
+import org.eclipse.jdt.internal.compiler.env.IBinaryNestedType;
+import org.eclipse.jdt.internal.compiler.env.IBinaryTypeAnnotation;
+import org.eclipse.jdt.internal.compiler.util.Util;
+import org.eclipse.jdt.internal.compiler.util.ZipFilePool;
+
+/**
+ * A process-wide cache of the class files decoded out of archives, so that the
+ * name environments of successive compilations (builder, reconciler, search, ...)
+ * do not decode the same library types over and over.
+ * <p>
+ * Entries are keyed by archive path, archive time stamp and file name; readers are fully
+ * initialized before being cached and must not be modified by clients (in particular, no
+ * external annotation provider may be attached to them, and their member arrays must not be
+ * reordered). The cache is bounded by the estimated memory footprint of the decoded readers
+ * (see {@link #footprint(ClassFileReader)}), and evicts the least recently used entries first.
+ * </p>
+ */
+public class BinaryTypeCache {
+
+	/**
+	 * System property holding the size of the shared cache, in kilobytes of decoded readers (0 disables it).
+	 */
+	public static final String CACHE_SIZE_PROPERTY = "jdt.compiler.binaryTypeCacheSize"; //$NON-NLS-1$
+	public static final int DEFAULT_CACHE_SIZE = 32 * 1024;
+
+	// estimated sizes in bytes of the object headers and references of a 64 bits VM with compressed references
+	private static final int OBJECT_HEADER = 12;
+	private static final int ARRAY_HEADER = 16;
+	private static final int REFERENCE = 4;
+
+	private static BinaryTypeCache Shared;
+	private static boolean SharedInitialized;
+
+	static class Key {
+		String zipName;
+		long lastModified;
+		String fileName;
+		int hashCode;
+
+		Key(String zipName, long lastModified, String fileName) {
+			this.zipName = zipName;
+			this.lastModified = lastModified;
+			this.fileName = fileName;
+			this.hashCode = (zipName.hashCode() * 31 + fileName.hashCode()) * 31 + (int) (lastModified ^ (lastModified >>> 32));
+		}
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Key other = (Key) o;
+			return this.lastModified == other.lastModified
+				&& this.fileName.equals(other.fileName)
+				&& this.zipName.equals(other.zipName);
+		}
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
+	static class Entry {
+		ClassFileReader reader;
+		long size;
+
+		Entry(ClassFileReader reader, long size) {
+			this.reader = reader;
+			this.size = size;
+		}
+	}
+
+	private LinkedHashMap<Key, Entry> entries;
+	private long maxSize;
+	private long currentSize;
+	private int hits, misses;
+
+/**
+ * Answers the cache shared by all the name environments of this process, or
+ * null if it was disabled through the {@link #CACHE_SIZE_PROPERTY} system property.
+ */
+public static synchronized BinaryTypeCache getShared() {
+	if (!SharedInitialized) {
+		SharedInitialized = true;
+		int size = Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE).intValue();
+		if (size > 0)
+			Shared = new BinaryTypeCache(size * 1024L);
+	}
+	return Shared;
+}
+
+/**
+ * Creates a cache holding decoded readers of at most the given estimated footprint, in bytes.
+ */
+public BinaryTypeCache(long maxSize) {
+	this.maxSize = maxSize;
+	this.entries = new LinkedHashMap<Key, Entry>(256, 0.75f, true/*access order*/);
+}
+
+/**
+ * Answers the fully initialized reader of the given class file of the given archive,
+ * or null if the archive has no such entry. The reader is named after its entry.
+ */
+public ClassFileReader read(ZipFile zip, long lastModified, String entryName) throws ClassFormatException, IOException {
+	return read(zip, lastModified, entryName, entryName);
+}
+
+/**
+ * Same as {@link #read(ZipFile, long, String)}, for callers that do not track the time stamp of the archive:
+ * the time stamp recorded by the {@link ZipFilePool} when it opened the archive is used.
+ */
+public ClassFileReader read(ZipFile zip, String entryName) throws ClassFormatException, IOException {
+	return read(zip, ZipFilePool.getShared().lastModified(zip), entryName, entryName);
+}
+
+/**
+ * Answers the fully initialized reader of the given class file of the given archive,
+ * or null if the archive has no such entry. The reader is named after the given file name,
+ * which is part of the key since clients use different naming conventions.
+ */
+public ClassFileReader read(ZipFile zip, long lastModified, String entryName, String fileName) throws ClassFormatException, IOException {
+	Key key = new Key(zip.getName(), lastModified, fileName);
+	synchronized (this) {
+		Entry entry = this.entries.get(key);
+		if (entry != null) {
+			this.hits++;
+			return entry.reader;
+		}
+		this.misses++;
+	}
+	ZipEntry ze = zip.getEntry(entryName);
+	if (ze == null)
+		return null;
+	byte[] classFileBytes = Util.getZipEntryByteContent(ze, zip);
+	ClassFileReader reader = new ClassFileReader(classFileBytes, fileName.toCharArray(), true/*no reference to the bytes once shared*/);
+	add(key, new Entry(reader, footprint(reader)));
+	return reader;
+}
+
+/**
+ * Answers an estimate of the memory retained by the given fully initialized reader, in bytes:
+ * the reader and its decoded names, signatures, members, annotations and constants.
+ */
+public static long footprint(ClassFileReader reader) {
+	long size = align(OBJECT_HEADER + 30 * REFERENCE + 48)
+		+ chars(reader.getFileName())
+		+ chars(reader.getName())
+		+ chars(reader.getSourceName())
+		+ chars(reader.sourceFileName())
+		+ chars(reader.getGenericSignature())
+		+ chars(reader.getSuperclassName())
+		+ chars(reader.getEnclosingTypeName())
+		+ chars(reader.getEnclosingMethod())
+		+ names(reader.getInterfaceNames())
+		+ annotations(reader.getAnnotations())
+		+ typeAnnotations(reader.getTypeAnnotations());
+	IBinaryNestedType[] memberTypes = reader.getMemberTypes();
+	if (memberTypes != null) {
+		size += array(memberTypes.length);
+		for (int i = 0, length = memberTypes.length; i < length; i++)
+			size += align(OBJECT_HEADER + 3 * REFERENCE + 16)
+				+ chars(memberTypes[i].getName())
+				+ chars(memberTypes[i].getEnclosingTypeName());
+	}
+	char[][][] missingTypeNames = reader.getMissingTypeNames();
+	if (missingTypeNames != null) {
+		size += array(missingTypeNames.length);
+		for (int i = 0, length = missingTypeNames.length; i < length; i++)
+			size += names(missingTypeNames[i]);
+	}
+	IBinaryField[] fields = reader.getFields();
+	if (fields != null) {
+		size += array(fields.length);
+		for (int i = 0, length = fields.length; i < length; i++) {
+			IBinaryField field = fields[i];
+			size += align(OBJECT_HEADER + 8 * REFERENCE + 24)
+				+ chars(field.getName())
+				+ chars(field.getTypeName())
+				+ chars(field.getGenericSignature())
+				+ annotations(field.getAnnotations())
+				+ typeAnnotations(field.getTypeAnnotations());
+			if (field.getConstant() != null)
+				size += align(OBJECT_HEADER + 8) * 2; // the constant and its wrapped value
+		}
+	}
+	IBinaryMethod[] methods = reader.getMethods();
+	if (methods != null) {
+		size += array(methods.length);
+		for (int i = 0, length = methods.length; i < length; i++) {
+			IBinaryMethod method = methods[i];
+			size += align(OBJECT_HEADER + 10 * REFERENCE + 24)
+				+ chars(method.getSelector())
+				+ chars(method.getMethodDescriptor())
+				+ chars(method.getGenericSignature())
+				+ names(method.getExceptionTypeNames())
+				+ names(method.getArgumentNames())
+				+ annotations(method.getAnnotations())
+				+ typeAnnotations(method.getTypeAnnotations())
+				+ value(method.getDefaultValue());
+			int annotatedParameters = method.getAnnotatedParametersCount();
+			if (annotatedParameters > 0) {
+				size += array(annotatedParameters);
+				for (int j = 0; j < annotatedParameters; j++)
+					size += annotations(method.getParameterAnnotations(j));
+			}
+		}
+	}
+	return size;
+}
+
+private static long align(long size) {
+	return (size + 7) & ~7L;
+}
+
+private static long array(int length) {
+	return align(ARRAY_HEADER + length * REFERENCE);
+}
+
+private static long chars(char[] chars) {
+	return chars == null ? 0 : align(ARRAY_HEADER + 2L * chars.length);
+}
+
+private static long names(char[][] names) {
+	if (names == null) return 0;
+	long size = array(names.length);
+	for (int i = 0, length = names.length; i < length; i++)
+		size += chars(names[i]);
+	return size;
+}
+
+private static long annotations(IBinaryAnnotation[] annotations) {
+	if (annotations == null) return 0;
+	long size = array(annotations.length);
+	for (int i = 0, length = annotations.length; i < length; i++)
+		size += annotation(annotations[i]);
+	return size;
+}
+
+private static long annotation(IBinaryAnnotation annotation) {
+	if (annotation == null) return 0;
+	long size = align(OBJECT_HEADER + 6 * REFERENCE + 16) + chars(annotation.getTypeName());
+	IBinaryElementValuePair[] pairs = annotation.getElementValuePairs();
+	if (pairs != null) {
+		size += array(pairs.length);
+		for (int i = 0, length = pairs.length; i < length; i++)
+			size += align(OBJECT_HEADER + 2 * REFERENCE) + chars(pairs[i].getName()) + value(pairs[i].getValue());
+	}
+	return size;
+}
+
+private static long typeAnnotations(IBinaryTypeAnnotation[] typeAnnotations) {
+	if (typeAnnotations == null) return 0;
+	long size = array(typeAnnotations.length);
+	for (int i = 0, length = typeAnnotations.length; i < length; i++) {
+		int[] typePath = typeAnnotations[i].getTypePath();
+		size += align(OBJECT_HEADER + 3 * REFERENCE + 16)
+			+ (typePath == null ? 0 : align(ARRAY_HEADER + 4L * typePath.length))
+			+ annotation(typeAnnotations[i].getAnnotation());
+	}
+	return size;
+}
+
+private static long value(Object value) {
+	if (value == null)
+		return 0;
+	if (value instanceof Object[]) {
+		Object[] values = (Object[]) value;
+		long size = array(values.length);
+		for (int i = 0, length = values.length; i < length; i++)
+			size += value(values[i]);
+		return size;
+	}
+	if (value instanceof IBinaryAnnotation)
+		return annotation((IBinaryAnnotation) value);
+	if (value instanceof EnumConstantSignature) {
+		EnumConstantSignature signature = (EnumConstantSignature) value;
+		return align(OBJECT_HEADER + 2 * REFERENCE) + chars(signature.getTypeName()) + chars(signature.getEnumConstantName());
+	}
+	if (value instanceof ClassSignature)
+		return align(OBJECT_HEADER + REFERENCE) + chars(((ClassSignature) value).getTypeName());
+	return align(OBJECT_HEADER + 8); // constant
+}
+
+private synchronized void add(Key key, Entry entry) {
+	if (entry.size > this.maxSize)
+		return;
+	Entry existing = this.entries.put(key, entry);
+	if (existing != null)
+		this.currentSize -= existing.size; // decoded concurrently by another thread
+	this.currentSize += entry.size;
+	for (Iterator<Entry> iterator = this.entries.values().iterator(); this.currentSize > this.maxSize && iterator.hasNext();) {
+		this.currentSize -= iterator.next().size; // least recently used first
+		iterator.remove();
+	}
+}
+
+public synchronized void flush() {
+	this.entries.clear();
+	this.currentSize = 0;
+}
+
+public synchronized int size() {
+	return this.entries.size();
+}
+
+public synchronized String toString() {
+	return "BinaryTypeCache: " + this.entries.size() + " types, " //$NON-NLS-1$ //$NON-NLS-2$
+		+ this.currentSize + '/' + this.maxSize + " bytes, " //$NON-NLS-1$
+		+ this.hits + " hits, " + this.misses + " misses"; //$NON-NLS-1$ //$NON-NLS-2$
+}
+}
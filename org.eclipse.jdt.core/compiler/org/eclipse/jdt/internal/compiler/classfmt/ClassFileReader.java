@@ -29,10 +29,12 @@ import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.internal.compiler.codegen.AttributeNamesConstants;
 import org.eclipse.jdt.internal.compiler.env.*;
 import org.eclipse.jdt.internal.compiler.impl.Constant;
+import org.eclipse.jdt.internal.compiler.lookup.CompilationUnitScope;
 import org.eclipse.jdt.internal.compiler.lookup.LookupEnvironment;
 import org.eclipse.jdt.internal.compiler.lookup.TagBits;
 import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
 import org.eclipse.jdt.internal.compiler.lookup.TypeIds;
+import org.eclipse.jdt.internal.compiler.util.HashtableOfObject;
 import org.eclipse.jdt.internal.compiler.util.Util;
 
 public class ClassFileReader extends ClassFileStruct implements IBinaryType {
@@ -66,6 +68,9 @@ public class ClassFileReader extends ClassFileStruct implements IBinaryType {
 	private int enclosingNameAndTypeIndex;
 	private char[] enclosingMethod;
 	private ExternalAnnotationProvider annotationProvider;
+	// when decoding lazily, offsets of the fields and of the class attributes holding annotations, 0 once decoded
+	private int membersOffset;
+	private int annotationAttributesOffset;
 
 private static String printTypeModifiers(int modifiers) {
 	java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
@@ -160,6 +165,30 @@ public ClassFileReader(byte classFileBytes[], char[] fileName) throws ClassForma
  * @exception ClassFormatException
  */
 public ClassFileReader(byte[] classFileBytes, char[] fileName, boolean fullyInitialize) throws ClassFormatException {
+	this(classFileBytes, fileName, fullyInitialize, false);
+}
+
+/**
+ * Creates a reader which, when <code>decodeLazily</code> is set, only decodes the constant pool offsets
+ * and the type level information (names, modifiers, inner classes, ...) up front. The fields, methods and
+ * annotations of the type are decoded on first access, so that clients which only need the former
+ * (e.g. to build a type hierarchy) do not pay for the latter. Such a reader keeps a reference to the bytes
+ * and is not meant to be shared between threads.
+ *
+ * @param classFileBytes byte[]
+ * 		Actual bytes of a .class file
+ *
+ * @param fileName char[]
+ * 		Actual name of the file that contains the bytes, can be null
+ *
+ * @param fullyInitialize boolean
+ * 		Flag to fully initialize the new object, which then decodes everything
+ *
+ * @param decodeLazily boolean
+ * 		Flag to defer the decoding of the fields, methods and annotations to their first access
+ * @exception ClassFormatException
+ */
+public ClassFileReader(byte[] classFileBytes, char[] fileName, boolean fullyInitialize, boolean decodeLazily) throws ClassFormatException {
 	// This method looks ugly but is actually quite simple, the constantPool is constructed
 	// in 3 passes.  All non-primitive constant pool members that usually refer to other members
 	// by index are tweaked to have their value in inst vars, this minor cost at read-time makes
@@ -264,33 +293,16 @@ public ClassFileReader(byte[] classFileBytes, char[] fileName, boolean fullyInit
 				readOffset += 2;
 			}
 		}
-		// Read the fields, use exception handlers to catch bad format
-		this.fieldsCount = u2At(readOffset);
-		readOffset += 2;
-		if (this.fieldsCount != 0) {
-			FieldInfo field;
-			this.fields = new FieldInfo[this.fieldsCount];
-			for (int i = 0; i < this.fieldsCount; i++) {
-				field = FieldInfo.createField(this.reference, this.constantPoolOffsets, readOffset);
-				this.fields[i] = field;
-				readOffset += field.sizeInBytes();
-			}
-		}
-		// Read the methods
-		this.methodsCount = u2At(readOffset);
-		readOffset += 2;
-		if (this.methodsCount != 0) {
-			this.methods = new MethodInfo[this.methodsCount];
-			boolean isAnnotationType = (this.accessFlags & ClassFileConstants.AccAnnotation) != 0;
-			for (int i = 0; i < this.methodsCount; i++) {
-				this.methods[i] = isAnnotationType
-					? AnnotationMethodInfo.createAnnotationMethod(this.reference, this.constantPoolOffsets, readOffset)
-					: MethodInfo.createMethod(this.reference, this.constantPoolOffsets, readOffset);
-				readOffset += this.methods[i].sizeInBytes();
-			}
+		// Read the fields and the methods, use exception handlers to catch bad format
+		if (decodeLazily) {
+			this.membersOffset = readOffset;
+			readOffset = skipMembers(skipMembers(readOffset));
+		} else {
+			readOffset = decodeMembers(readOffset);
 		}
 
 		// Read the attributes
+		int attributesOffset = readOffset;
 		int attributesCount = u2At(readOffset);
 		readOffset += 2;
 
@@ -365,15 +377,10 @@ public ClassFileReader(byte[] classFileBytes, char[] fileName, boolean fullyInit
 					}
 					break;
 				case 'R' :
-					if (CharOperation.equals(attributeName, AttributeNamesConstants.RuntimeVisibleAnnotationsName)) {
-						decodeAnnotations(readOffset, true);
-					} else if (CharOperation.equals(attributeName, AttributeNamesConstants.RuntimeInvisibleAnnotationsName)) {
-						decodeAnnotations(readOffset, false);
-					} else if (CharOperation.equals(attributeName, AttributeNamesConstants.RuntimeVisibleTypeAnnotationsName)) {
-						decodeTypeAnnotations(readOffset, true);
-					} else if (CharOperation.equals(attributeName, AttributeNamesConstants.RuntimeInvisibleTypeAnnotationsName)) {
-						decodeTypeAnnotations(readOffset, false);
-					}
+					if (decodeLazily)
+						this.annotationAttributesOffset = attributesOffset; // decoded with the first annotation attribute
+					else
+						decodeAnnotationAttribute(attributeName, readOffset);
 					break;
 				case 'M' :
 					if (CharOperation.equals(attributeName, AttributeNamesConstants.MissingTypesName)) {
@@ -487,6 +494,18 @@ public int accessFlags() {
 	return this.accessFlags;
 }
 
+private void decodeAnnotationAttribute(char[] attributeName, int readOffset) {
+	if (CharOperation.equals(attributeName, AttributeNamesConstants.RuntimeVisibleAnnotationsName)) {
+		decodeAnnotations(readOffset, true);
+	} else if (CharOperation.equals(attributeName, AttributeNamesConstants.RuntimeInvisibleAnnotationsName)) {
+		decodeAnnotations(readOffset, false);
+	} else if (CharOperation.equals(attributeName, AttributeNamesConstants.RuntimeVisibleTypeAnnotationsName)) {
+		decodeTypeAnnotations(readOffset, true);
+	} else if (CharOperation.equals(attributeName, AttributeNamesConstants.RuntimeInvisibleTypeAnnotationsName)) {
+		decodeTypeAnnotations(readOffset, false);
+	}
+}
+
 private void decodeAnnotations(int offset, boolean runtimeVisible) {
 	int numberOfAnnotations = u2At(offset + 6);
 	if (numberOfAnnotations > 0) {
@@ -547,10 +566,82 @@ private void decodeTypeAnnotations(int offset, boolean runtimeVisible) {
 	}
 }
 
+/*
+ * Decodes the annotations of the type which were skipped by a lazy reader.
+ */
+private void decodeLazyAnnotations() {
+	int readOffset = this.annotationAttributesOffset;
+	if (readOffset == 0) return;
+	this.annotationAttributesOffset = 0;
+	int attributesCount = u2At(readOffset);
+	readOffset += 2;
+	for (int i = 0; i < attributesCount; i++) {
+		int utf8Offset = this.constantPoolOffsets[u2At(readOffset)];
+		if (u2At(utf8Offset + 1) > 0 && u1At(utf8Offset + 3) == 'R')
+			decodeAnnotationAttribute(utf8At(utf8Offset + 3, u2At(utf8Offset + 1)), readOffset);
+		readOffset += (6 + u4At(readOffset + 2));
+	}
+}
+
+/*
+ * Decodes the fields and the methods of the type which were skipped by a lazy reader.
+ */
+private void decodeLazyMembers() {
+	int readOffset = this.membersOffset;
+	if (readOffset == 0) return;
+	this.membersOffset = 0;
+	decodeMembers(readOffset);
+}
+
+/*
+ * Decodes the members and the annotations which were skipped by a lazy reader, reporting malformed ones
+ * as a ClassFormatException like the constructor does.
+ */
+private void decodeLazyParts() throws ClassFormatException {
+	try {
+		decodeLazyMembers();
+		decodeLazyAnnotations();
+	} catch (RuntimeException e) {
+		throw new ClassFormatException(e, this.classFileName);
+	}
+}
+
+/*
+ * Decodes the fields and the methods starting at the given offset, answers the offset of the class attributes.
+ */
+private int decodeMembers(int readOffset) {
+	this.fieldsCount = u2At(readOffset);
+	readOffset += 2;
+	if (this.fieldsCount != 0) {
+		FieldInfo field;
+		this.fields = new FieldInfo[this.fieldsCount];
+		for (int i = 0; i < this.fieldsCount; i++) {
+			field = FieldInfo.createField(this.reference, this.constantPoolOffsets, readOffset);
+			this.fields[i] = field;
+			readOffset += field.sizeInBytes();
+		}
+	}
+	// Read the methods
+	this.methodsCount = u2At(readOffset);
+	readOffset += 2;
+	if (this.methodsCount != 0) {
+		this.methods = new MethodInfo[this.methodsCount];
+		boolean isAnnotationType = (this.accessFlags & ClassFileConstants.AccAnnotation) != 0;
+		for (int i = 0; i < this.methodsCount; i++) {
+			this.methods[i] = isAnnotationType
+				? AnnotationMethodInfo.createAnnotationMethod(this.reference, this.constantPoolOffsets, readOffset)
+				: MethodInfo.createMethod(this.reference, this.constantPoolOffsets, readOffset);
+			readOffset += this.methods[i].sizeInBytes();
+		}
+	}
+	return readOffset;
+}
+
 /**
  * @return the annotations or null if there is none.
  */
 public IBinaryAnnotation[] getAnnotations() {
+	decodeLazyAnnotations();
 	return this.annotations;
 }
 
@@ -558,6 +649,7 @@ public IBinaryAnnotation[] getAnnotations() {
  * @return the type annotations or null if there is none.
  */
 public IBinaryTypeAnnotation[] getTypeAnnotations() {
+	decodeLazyAnnotations();
 	return this.typeAnnotations;
 }
 
@@ -615,6 +707,7 @@ public char[] getEnclosingTypeName() {
  * @return org.eclipse.jdt.internal.compiler.api.IBinaryField[]
  */
 public IBinaryField[] getFields() {
+	decodeLazyMembers();
 	return this.fields;
 }
 
@@ -731,6 +824,7 @@ public IBinaryNestedType[] getMemberTypes() {
  * @return org.eclipse.jdt.internal.compiler.api.env.IBinaryMethod[]
  */
 public IBinaryMethod[] getMethods() {
+	decodeLazyMembers();
 	return this.methods;
 }
 
@@ -849,6 +943,7 @@ public char[] getSuperclassName() {
 }
 
 public long getTagBits() {
+	decodeLazyAnnotations(); // standard annotations are recorded as tag bits
 	return this.tagBits;
 }
 
@@ -953,6 +1048,7 @@ public boolean hasStructuralChanges(byte[] newBytes, boolean orderRequired, bool
 	try {
 		ClassFileReader newClassFile =
 			new ClassFileReader(newBytes, this.classFileName);
+		decodeLazyParts();
 		// type level comparison
 		// modifiers
 		if (getModifiers() != newClassFile.getModifiers())
@@ -1003,7 +1099,8 @@ public boolean hasStructuralChanges(byte[] newBytes, boolean orderRequired, bool
 						return true;
 		}
 
-		// fields
+		// fields (the receiver may be shared, e.g. through a BinaryTypeCache: sort copies of its members)
+		FieldInfo[] currentFieldInfos = this.fields;
 		FieldInfo[] otherFieldInfos = (FieldInfo[]) newClassFile.getFields();
 		int otherFieldInfosLength = otherFieldInfos == null ? 0 : otherFieldInfos.length;
 		boolean compareFields = true;
@@ -1019,21 +1116,22 @@ public boolean hasStructuralChanges(byte[] newBytes, boolean orderRequired, bool
 				return true;
 			if (orderRequired) {
 				if (this.fieldsCount != 0)
-					Arrays.sort(this.fields);
+					Arrays.sort(currentFieldInfos = (FieldInfo[]) this.fields.clone());
 				if (otherFieldInfosLength != 0)
 					Arrays.sort(otherFieldInfos);
 			}
 			if (excludesSynthetic) {
-				if (hasNonSyntheticFieldChanges(this.fields, otherFieldInfos))
+				if (hasNonSyntheticFieldChanges(currentFieldInfos, otherFieldInfos))
 					return true;
 			} else {
 				for (int i = 0; i < this.fieldsCount; i++)
-					if (hasStructuralFieldChanges(this.fields[i], otherFieldInfos[i]))
+					if (hasStructuralFieldChanges(currentFieldInfos[i], otherFieldInfos[i]))
 						return true;
 			}
 		}
 
 		// methods
+		MethodInfo[] currentMethodInfos = this.methods;
 		MethodInfo[] otherMethodInfos = (MethodInfo[]) newClassFile.getMethods();
 		int otherMethodInfosLength = otherMethodInfos == null ? 0 : otherMethodInfos.length;
 		boolean compareMethods = true;
@@ -1049,16 +1147,16 @@ public boolean hasStructuralChanges(byte[] newBytes, boolean orderRequired, bool
 				return true;
 			if (orderRequired) {
 				if (this.methodsCount != 0)
-					Arrays.sort(this.methods);
+					Arrays.sort(currentMethodInfos = (MethodInfo[]) this.methods.clone());
 				if (otherMethodInfosLength != 0)
 					Arrays.sort(otherMethodInfos);
 			}
 			if (excludesSynthetic) {
-				if (hasNonSyntheticMethodChanges(this.methods, otherMethodInfos))
+				if (hasNonSyntheticMethodChanges(currentMethodInfos, otherMethodInfos))
 					return true;
 			} else {
 				for (int i = 0; i < this.methodsCount; i++)
-					if (hasStructuralMethodChanges(this.methods[i], otherMethodInfos[i]))
+					if (hasStructuralMethodChanges(currentMethodInfos[i], otherMethodInfos[i]))
 						return true;
 			}
 		}
@@ -1222,12 +1320,271 @@ private boolean hasStructuralMethodChanges(MethodInfo currentMethodInfo, MethodI
 	return false;
 }
 
+/**
+ * Answer a hash of the parts of the receiver which its dependents can see, its ABI: the modifiers,
+ * structural tag bits, annotations, generic signature and hierarchy of the type, the name and modifiers
+ * of its member types, and the signatures, annotations and constant values of its fields and methods.
+ * <p>
+ * Private and synthetic members are left out since no other type is compiled against them, and the
+ * members are hashed independently of their order. Two class files whose hashes are equal have
+ * no structural changes for their dependents, see {@link #hasStructuralChanges(byte[])}.
+ * </p>
+ * @return long the ABI hash of the receiver
+ * @throws ClassFormatException if the parts of the class file which were not decoded yet are malformed
+ */
+public long getAbiHash() throws ClassFormatException {
+	try {
+		long[] memberHashes = getMemberAbiHashes(null);
+		Arrays.sort(memberHashes);
+		long hash = abiHash(getTypeAbiHash(), memberHashes.length);
+		for (int i = 0, length = memberHashes.length; i < length; i++)
+			hash = abiHash(hash, memberHashes[i]);
+		return hash;
+	} catch (RuntimeException e) {
+		throw new ClassFormatException(e, this.classFileName);
+	}
+}
+
+/**
+ * Answer the member reference keys of the fields and methods whose ABI differs between the receiver
+ * and the given class file of the same type, i.e. the members which were added, removed or changed, or
+ * null if the ABI of the type itself changed. The key of a varargs method stands for all the methods
+ * with its selector since it can be invoked with any number of arguments.
+ * <p>
+ * Annotation types, enums and package-info types always answer null since their members are also
+ * referenced by annotations and switch statements.
+ * </p>
+ * @param newClassFile the class file the receiver is compared to
+ * @return char[][] the changed member keys, see {@link CompilationUnitScope#memberReferenceKey(char[], int)}
+ * @throws ClassFormatException if the parts of either class file which were not decoded yet are malformed
+ */
+public char[][] getAbiMemberChanges(ClassFileReader newClassFile) throws ClassFormatException {
+	try {
+		return computeAbiMemberChanges(newClassFile);
+	} catch (RuntimeException e) {
+		throw new ClassFormatException(e, this.classFileName);
+	}
+}
+
+private char[][] computeAbiMemberChanges(ClassFileReader newClassFile) {
+	int kinds = ClassFileConstants.AccAnnotation | ClassFileConstants.AccEnum;
+	if ((getModifiers() & kinds) != 0 || (newClassFile.getModifiers() & kinds) != 0)
+		return null;
+	if (CharOperation.endsWith(getName(), TypeConstants.PACKAGE_INFO_NAME))
+		return null;
+	if (getTypeAbiHash() != newClassFile.getTypeAbiHash())
+		return null;
+
+	// overloads share their key, so compare the sums of the hashes of the members of each key
+	HashtableOfObject oldMembers = getMemberAbiHashesByKey();
+	HashtableOfObject newMembers = newClassFile.getMemberAbiHashesByKey();
+	char[][] changes = new char[oldMembers.elementSize + newMembers.elementSize][];
+	int count = 0;
+	for (int i = 0, length = oldMembers.keyTable.length; i < length; i++) {
+		char[] key = oldMembers.keyTable[i];
+		if (key == null) continue;
+		long[] newHashes = (long[]) newMembers.get(key);
+		long[] oldHashes = (long[]) oldMembers.valueTable[i];
+		if (newHashes == null || newHashes[0] != oldHashes[0] || newHashes[1] != oldHashes[1])
+			changes[count++] = key;
+	}
+	for (int i = 0, length = newMembers.keyTable.length; i < length; i++) {
+		char[] key = newMembers.keyTable[i];
+		if (key != null && !oldMembers.containsKey(key))
+			changes[count++] = key;
+	}
+	if (count < changes.length)
+		System.arraycopy(changes, 0, changes = new char[count][], 0, count);
+	return changes;
+}
+
+/*
+ * Hash of the type level ABI: modifiers, structural tag bits, annotations, generic signature,
+ * hierarchy, non private member types and missing types.
+ */
+private long getTypeAbiHash() {
+	long OnlyStructuralTagBits = TagBits.AnnotationTargetMASK
+		| TagBits.AnnotationDeprecated
+		| TagBits.AnnotationRetentionMASK
+		| TagBits.HierarchyHasProblems;
+	long hash = abiHash(ABI_HASH_SEED, getModifiers());
+	hash = abiHash(hash, getTagBits() & OnlyStructuralTagBits);
+	hash = abiHash(hash, getAnnotations());
+	hash = abiHash(hash, getGenericSignature());
+	hash = abiHash(hash, getSuperclassName());
+	hash = abiHash(hash, this.interfacesCount);
+	for (int i = 0; i < this.interfacesCount; i++)
+		hash = abiHash(hash, this.interfaceNames[i]);
+
+	IBinaryNestedType[] memberTypes = getMemberTypes();
+	int memberTypesLength = memberTypes == null ? 0 : memberTypes.length;
+	long[] memberTypeHashes = new long[memberTypesLength];
+	int count = 0;
+	for (int i = 0; i < memberTypesLength; i++) {
+		IBinaryNestedType memberType = memberTypes[i];
+		if ((memberType.getModifiers() & ClassFileConstants.AccPrivate) != 0) continue;
+		memberTypeHashes[count++] = abiHash(abiHash(ABI_HASH_SEED, memberType.getName()), memberType.getModifiers());
+	}
+	Arrays.sort(memberTypeHashes, 0, count);
+	hash = abiHash(hash, count);
+	for (int i = 0; i < count; i++)
+		hash = abiHash(hash, memberTypeHashes[i]);
+
+	char[][][] missingTypes = getMissingTypeNames();
+	int missingTypesLength = missingTypes == null ? 0 : missingTypes.length;
+	hash = abiHash(hash, missingTypesLength);
+	for (int i = 0; i < missingTypesLength; i++)
+		hash = abiHash(hash, CharOperation.concatWith(missingTypes[i], '/'));
+	return hash;
+}
+
+/*
+ * Answer the hashes of the non private & non synthetic fields and methods, and fill in their member reference keys.
+ */
+private long[] getMemberAbiHashes(char[][] keys) {
+	decodeLazyMembers();
+	long[] memberHashes = new long[this.fieldsCount + this.methodsCount];
+	int count = 0;
+	for (int i = 0; i < this.fieldsCount; i++) {
+		FieldInfo field = this.fields[i];
+		if (field.isSynthetic() || (field.getModifiers() & ClassFileConstants.AccPrivate) != 0) continue;
+		long fieldHash = abiHash(ABI_HASH_SEED, field.getName());
+		fieldHash = abiHash(fieldHash, field.getModifiers());
+		fieldHash = abiHash(fieldHash, field.getTagBits() & TagBits.AnnotationDeprecated);
+		fieldHash = abiHash(fieldHash, field.getTypeName());
+		fieldHash = abiHash(fieldHash, field.getGenericSignature());
+		fieldHash = abiHash(fieldHash, field.getAnnotations());
+		if (field.hasConstant())
+			fieldHash = abiHashValue(fieldHash, field.getConstant());
+		if (keys != null)
+			keys[count] = CompilationUnitScope.memberReferenceKey(field.getName(), CompilationUnitScope.FIELD_REFERENCE);
+		memberHashes[count++] = fieldHash;
+	}
+	for (int i = 0; i < this.methodsCount; i++) {
+		MethodInfo method = this.methods[i];
+		if (method.isSynthetic() || method.isClinit() || (method.getModifiers() & ClassFileConstants.AccPrivate) != 0) continue;
+		long methodHash = abiHash(ABI_HASH_SEED, method.getSelector());
+		methodHash = abiHash(methodHash, method.getMethodDescriptor());
+		methodHash = abiHash(methodHash, method.getModifiers());
+		methodHash = abiHash(methodHash, method.getTagBits() & TagBits.AnnotationDeprecated);
+		methodHash = abiHash(methodHash, method.getGenericSignature());
+		methodHash = abiHash(methodHash, method.getAnnotations());
+		int annotatedParametersCount = method.getAnnotatedParametersCount();
+		methodHash = abiHash(methodHash, annotatedParametersCount);
+		for (int j = 0; j < annotatedParametersCount; j++)
+			methodHash = abiHash(methodHash, method.getParameterAnnotations(j));
+		char[][] exceptionTypeNames = method.getExceptionTypeNames();
+		int exceptionsLength = exceptionTypeNames == null ? 0 : exceptionTypeNames.length;
+		methodHash = abiHash(methodHash, exceptionsLength);
+		for (int j = 0; j < exceptionsLength; j++)
+			methodHash = abiHash(methodHash, exceptionTypeNames[j]);
+		Object defaultValue = method.getDefaultValue();
+		if (defaultValue != null)
+			methodHash = abiHashValue(methodHash, defaultValue);
+		if (keys != null) // constructors may have synthetic parameters, varargs methods accept any number of arguments
+			keys[count] = CompilationUnitScope.memberReferenceKey(method.getSelector(),
+				method.isConstructor() || (method.getModifiers() & ClassFileConstants.AccVarargs) != 0
+					? CompilationUnitScope.ANY_ARITY
+					: parameterCount(method.getMethodDescriptor()));
+		memberHashes[count++] = methodHash;
+	}
+	if (count < memberHashes.length)
+		System.arraycopy(memberHashes, 0, memberHashes = new long[count], 0, count);
+	return memberHashes;
+}
+
+private static int parameterCount(char[] methodDescriptor) {
+	int count = 0;
+	for (int i = 1; methodDescriptor[i] != ')'; i++) {
+		switch (methodDescriptor[i]) {
+			case '[' :
+				continue;
+			case 'L' :
+				i = CharOperation.indexOf(';', methodDescriptor, i);
+		}
+		count++;
+	}
+	return count;
+}
+
+/*
+ * Answer the member reference keys of the non private & non synthetic members, mapped to the sum and
+ * the count of the hashes of the members with this key.
+ */
+private HashtableOfObject getMemberAbiHashesByKey() {
+	decodeLazyMembers(); // before sizing the keys with the member counts
+	char[][] keys = new char[this.fieldsCount + this.methodsCount][];
+	long[] memberHashes = getMemberAbiHashes(keys);
+	HashtableOfObject members = new HashtableOfObject(memberHashes.length);
+	for (int i = 0, length = memberHashes.length; i < length; i++) {
+		long[] sumAndCount = (long[]) members.get(keys[i]);
+		if (sumAndCount == null)
+			members.put(keys[i], sumAndCount = new long[2]);
+		sumAndCount[0] += memberHashes[i];
+		sumAndCount[1]++;
+	}
+	return members;
+}
+
+private static final long ABI_HASH_SEED = 0xcbf29ce484222325L; // FNV-1a 64 bit offset basis
+private static final long ABI_HASH_PRIME = 0x100000001b3L;
+
+private static long abiHash(long hash, long value) {
+	for (int i = 0; i < 8; i++, value >>>= 8)
+		hash = (hash ^ (value & 0xFF)) * ABI_HASH_PRIME;
+	return hash;
+}
+
+private static long abiHash(long hash, char[] chars) {
+	if (chars == null)
+		return abiHash(hash, -1);
+	hash = abiHash(hash, chars.length);
+	for (int i = 0, length = chars.length; i < length; i++)
+		hash = (hash ^ chars[i]) * ABI_HASH_PRIME;
+	return hash;
+}
+
+private static long abiHash(long hash, IBinaryAnnotation[] annotations) {
+	int length = annotations == null ? 0 : annotations.length;
+	hash = abiHash(hash, length);
+	for (int i = 0; i < length; i++)
+		hash = abiHashValue(hash, annotations[i]);
+	return hash;
+}
+
+private static long abiHashValue(long hash, Object value) {
+	if (value instanceof Object[]) {
+		Object[] values = (Object[]) value;
+		hash = abiHash(hash, values.length);
+		for (int i = 0, length = values.length; i < length; i++)
+			hash = abiHashValue(hash, values[i]);
+	} else if (value instanceof IBinaryAnnotation) {
+		IBinaryAnnotation annotation = (IBinaryAnnotation) value;
+		hash = abiHash(hash, annotation.getTypeName());
+		IBinaryElementValuePair[] pairs = annotation.getElementValuePairs();
+		int length = pairs == null ? 0 : pairs.length;
+		hash = abiHash(hash, length);
+		for (int i = 0; i < length; i++)
+			hash = abiHashValue(abiHash(hash, pairs[i].getName()), pairs[i].getValue());
+	} else if (value instanceof Constant) {
+		Constant constant = (Constant) value;
+		hash = abiHash(hash, constant.typeID());
+		hash = abiHash(hash, constant.stringValue().toCharArray());
+	} else {
+		// ClassSignature & EnumConstantSignature
+		hash = abiHash(hash, String.valueOf(value).toCharArray());
+	}
+	return hash;
+}
+
 /**
  * This method is used to fully initialize the contents of the receiver. All methodinfos, fields infos
  * will be therefore fully initialized and we can get rid of the bytes.
  */
 private void initialize() throws ClassFormatException {
 	try {
+		decodeLazyMembers();
+		decodeLazyAnnotations();
 		for (int i = 0, max = this.fieldsCount; i < max; i++) {
 			this.fields[i].initialize();
 		}
@@ -1252,6 +1609,21 @@ private void initialize() throws ClassFormatException {
 	}
 }
 
+/*
+ * Skips the fields or the methods starting at the given offset, answers the offset following them.
+ */
+private int skipMembers(int readOffset) {
+	int membersCount = u2At(readOffset);
+	readOffset += 2;
+	for (int i = 0; i < membersCount; i++) {
+		int attributesCount = u2At(readOffset + 6);
+		readOffset += 8;
+		for (int j = 0; j < attributesCount; j++)
+			readOffset += (6 + u4At(readOffset + 2));
+	}
+	return readOffset;
+}
+
 /**
  * Answer true if the receiver is an anonymous type, false otherwise
  *
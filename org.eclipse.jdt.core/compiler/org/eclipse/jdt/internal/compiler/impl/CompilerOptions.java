@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -116,6 +116,7 @@ public class CompilerOptions {
 	public static final String OPTION_Compliance = "org.eclipse.jdt.core.compiler.compliance"; //$NON-NLS-1$
 	public static final String OPTION_Encoding = "org.eclipse.jdt.core.encoding"; //$NON-NLS-1$
 	public static final String OPTION_MaxProblemPerUnit = "org.eclipse.jdt.core.compiler.maxProblemPerUnit"; //$NON-NLS-1$
+	public static final String OPTION_Parallelism = "org.eclipse.jdt.core.compiler.parallelism"; //$NON-NLS-1$
 	public static final String OPTION_TaskTags = "org.eclipse.jdt.core.compiler.taskTags"; //$NON-NLS-1$
 	public static final String OPTION_TaskPriorities = "org.eclipse.jdt.core.compiler.taskPriorities"; //$NON-NLS-1$
 	public static final String OPTION_TaskCaseSensitive = "org.eclipse.jdt.core.compiler.taskCaseSensitive"; //$NON-NLS-1$
@@ -343,12 +344,18 @@ public class CompilerOptions {
 	public boolean verbose;
 	/** Indicates whether reference info is desired */
 	public boolean produceReferenceInfo;	
+	/** Indicates whether the reference info also records the fields and methods referenced by each unit */
+	public boolean produceMemberReferenceInfo;
+	/** Indicates whether the time and memory spent in each phase are recorded for every unit, see UnitStats */
+	public boolean recordUnitStats;
 	/** Indicates if unused/optimizable local variables need to be preserved (debugging purpose) */
 	public boolean preserveAllLocalVariables;
 	/** Indicates whether literal expressions are inlined at parse-time or not */
 	public boolean parseLiteralExpressionsAsConstants;
 	/** Max problems per compilation unit */
 	public int maxProblemsPerUnit;
+	/** Number of compilers resolving, analyzing and generating units side by side (1: sequential), batch only: not part of getMap() */
+	public int parallelism;
 	/** Tags used to recognize tasks in comments */
 	public char[][] taskTags;
 	/** Respective priorities of recognized task tags */
@@ -1243,6 +1250,8 @@ public class CompilerOptions {
 		this.verbose = Compiler.DEBUG;
 
 		this.produceReferenceInfo = false; // no reference info by default
+		this.produceMemberReferenceInfo = false;
+		this.recordUnitStats = false;
 
 		// indicates if unused/optimizable local variables need to be preserved (debugging purpose)
 		this.preserveAllLocalVariables = false;
@@ -1255,6 +1264,9 @@ public class CompilerOptions {
 		// max problems per compilation unit
 		this.maxProblemsPerUnit = 100; // no more than 100 problems per default
 
+		// units are compiled sequentially per default
+		this.parallelism = 1;
+
 		// tags used to recognize tasks in comments
 		this.taskTags = null;
 		this.taskPriorities = null;
@@ -1502,6 +1514,17 @@ public class CompilerOptions {
 				}
 			}
 		}
+		if ((optionValue = optionsMap.get(OPTION_Parallelism)) != null) {
+			if (optionValue instanceof String) {
+				String stringValue = (String) optionValue;
+				try {
+					int val = Integer.parseInt(stringValue);
+					if (val >= 1) this.parallelism = val;
+				} catch(NumberFormatException e){
+					// ignore ill-formatted value
+				}
+			}
+		}
 		if ((optionValue = optionsMap.get(OPTION_TaskTags)) != null) {
 			if (optionValue instanceof String) {
 				String stringValue = (String) optionValue;
@@ -1901,6 +1924,8 @@ public class CompilerOptions {
 		buf.append("\n\t- JDK target level: "+ versionFromJdkLevel(this.targetJDK)); //$NON-NLS-1$
 		buf.append("\n\t- verbose : ").append(this.verbose ? "ON" : "OFF"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		buf.append("\n\t- produce reference info : ").append(this.produceReferenceInfo ? "ON" : "OFF"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		buf.append("\n\t- produce member reference info : ").append(this.produceMemberReferenceInfo ? "ON" : "OFF"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		buf.append("\n\t- record unit stats : ").append(this.recordUnitStats ? "ON" : "OFF"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		buf.append("\n\t- parse literal expressions as constants : ").append(this.parseLiteralExpressionsAsConstants ? "ON" : "OFF"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		buf.append("\n\t- encoding : ").append(this.defaultEncoding == null ? "<default>" : this.defaultEncoding); //$NON-NLS-1$ //$NON-NLS-2$
 		buf.append("\n\t- task tags: ").append(this.taskTags == null ? Util.EMPTY_STRING : new String(CharOperation.concatWith(this.taskTags,',')));  //$NON-NLS-1$
@@ -20,6 +20,7 @@ public class CompilerStats implements Comparable {
 
 	// compile phases
 	public long parseTime;
+	public long completionTime; // completing the type bindings of all the units in the lookup environment
 	public long resolveTime;
 	public long analyzeTime;
 	public long generateTime;
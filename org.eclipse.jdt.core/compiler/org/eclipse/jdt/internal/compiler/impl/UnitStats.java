@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.compiler.impl;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+/**
+ * The time spent in each phase of the compilation of one unit, and the memory allocated by the thread
+ * compiling it when the VM can measure it (see {@link CompilerOptions#recordUnitStats}).
+ */
+public class UnitStats {
+
+	// compile phases
+	public static final int PARSE = 0;
+	public static final int RESOLVE = 1;
+	public static final int ANALYZE = 2;
+	public static final int GENERATE = 3;
+	public static final int ACCEPT = 4; // handing the result to the requestor, e.g. writing the class files
+	public static final int PHASE_COUNT = 5;
+
+	public static final String[] PHASE_NAMES = { "parse", "resolve", "analyze", "generate", "accept" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+	// the HotSpot extension of ThreadMXBean, looked up through the interfaces of the bean since its package may not be visible
+	private static Object ThreadBean;
+	private static Method GetThreadAllocatedBytes;
+	static {
+		try {
+			Object bean = ManagementFactory.getThreadMXBean();
+			Class<?>[] interfaces = bean.getClass().getInterfaces();
+			for (int i = 0, length = interfaces.length; i < length; i++) {
+				if ("com.sun.management.ThreadMXBean".equals(interfaces[i].getName())) { //$NON-NLS-1$
+					Method isEnabled = interfaces[i].getMethod("isThreadAllocatedMemoryEnabled", new Class<?>[0]); //$NON-NLS-1$
+					if (Boolean.TRUE.equals(isEnabled.invoke(bean, new Object[0]))) {
+						GetThreadAllocatedBytes = interfaces[i].getMethod("getThreadAllocatedBytes", new Class<?>[] {long.class}); //$NON-NLS-1$
+						ThreadBean = bean;
+					}
+					break;
+				}
+			}
+		} catch (Exception e) {
+			// allocations are not measured
+		} catch (LinkageError e) {
+			// allocations are not measured
+		}
+	}
+
+	public final long[] times = new long[PHASE_COUNT]; // in nanoseconds
+	public final long[] allocatedBytes = new long[PHASE_COUNT];
+
+	private long phaseStartTime;
+	private long phaseStartBytes;
+
+	/**
+	 * Answers the number of bytes allocated so far by the current thread, or -1 if the VM does not measure it.
+	 */
+	public static long currentThreadAllocatedBytes() {
+		if (GetThreadAllocatedBytes == null) return -1;
+		try {
+			return ((Long) GetThreadAllocatedBytes.invoke(ThreadBean, new Object[] {Long.valueOf(Thread.currentThread().getId())})).longValue();
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Starts measuring a phase on the current thread.
+	 */
+	public void startPhase() {
+		this.phaseStartTime = System.nanoTime();
+		this.phaseStartBytes = currentThreadAllocatedBytes();
+	}
+
+	/**
+	 * Records the time and memory spent since the current phase started, then starts the next phase.
+	 */
+	public void endPhase(int phase) {
+		long time = System.nanoTime();
+		long bytes = currentThreadAllocatedBytes();
+		this.times[phase] += time - this.phaseStartTime;
+		if (bytes >= 0 && this.phaseStartBytes >= 0)
+			this.allocatedBytes[phase] += bytes - this.phaseStartBytes;
+		this.phaseStartTime = time;
+		this.phaseStartBytes = bytes;
+	}
+
+	public long totalTime() {
+		long total = 0;
+		for (int i = 0; i < PHASE_COUNT; i++)
+			total += this.times[i];
+		return total;
+	}
+
+	public long totalAllocatedBytes() {
+		long total = 0;
+		for (int i = 0; i < PHASE_COUNT; i++)
+			total += this.allocatedBytes[i];
+		return total;
+	}
+
+	public String toString() {
+		StringBuffer buffer = new StringBuffer();
+		for (int i = 0; i < PHASE_COUNT; i++) {
+			if (i > 0) buffer.append(", "); //$NON-NLS-1$
+			buffer.append(PHASE_NAMES[i]).append(' ').append(this.times[i] / 1000000).append("ms"); //$NON-NLS-1$
+			if (this.allocatedBytes[i] > 0)
+				buffer.append(' ').append(this.allocatedBytes[i] / 1024).append("KB"); //$NON-NLS-1$
+		}
+		return buffer.toString();
+	}
+}
@@ -38,6 +38,13 @@ public class CompilationUnitScope extends Scope {
 	private SimpleNameVector rootReferences;
 	private ObjectVector referencedTypes;
 	private ObjectVector referencedSuperTypes;
+	private SimpleSetOfCharArray memberReferences;
+	private ObjectVector implementedTypes;
+
+	/** Arity of the member reference to a field */
+	public static final int FIELD_REFERENCE = -1;
+	/** Arity of the member reference to all the methods with a given selector */
+	public static final int ANY_ARITY = -2;
 
 	HashtableOfType constantPoolNameUsage;
 	private int captureID = 1;
@@ -71,6 +78,10 @@ public CompilationUnitScope(CompilationUnitDeclaration unit, LookupEnvironment e
 		this.rootReferences = new SimpleNameVector();
 		this.referencedTypes = new ObjectVector();
 		this.referencedSuperTypes = new ObjectVector();
+		if (compilerOptions().produceMemberReferenceInfo) {
+			this.memberReferences = new SimpleSetOfCharArray();
+			this.implementedTypes = new ObjectVector();
+		}
 	} else {
 		this.qualifiedReferences = null; // used to test if dependencies should be recorded
 		this.simpleNameReferences = null;
@@ -559,6 +570,8 @@ private MethodBinding findStaticMethod(ReferenceBinding currentType, char[] sele
 	if (!currentType.canBeSeenBy(this))
 		return null;
 
+	recordMemberReference(selector, ANY_ARITY);
+
 	do {
 		currentType.initializeForStaticImports();
 		MethodBinding[] methods = currentType.getMethods(selector);
@@ -651,6 +664,65 @@ OR 'a' -> 'a' in the simple name collection
 -> As long as each single char[] is interned, we should not have a space problem
  and can handle collision cases.
 */
+/**
+ * Answer the key under which a reference to the field with the given name, or to the methods with the
+ * given selector and arity, is recorded: the name of a field, "selector/arity" for a method, or "selector/*"
+ * for all the methods with this selector.
+ */
+public static char[] memberReferenceKey(char[] name, int arity) {
+	switch (arity) {
+		case FIELD_REFERENCE :
+			return name;
+		case ANY_ARITY :
+			return CharOperation.concat(name, new char[] {'/', '*'});
+		default :
+			return CharOperation.concat(name, ('/' + Integer.toString(arity)).toCharArray());
+	}
+}
+/**
+ * Answer whether the two member reference keys can designate the same member: the names must be equal
+ * and the arities must be equal unless one of them stands for any arity.
+ */
+public static boolean memberReferenceKeysMatch(char[] key1, char[] key2) {
+	int separator1 = CharOperation.lastIndexOf('/', key1);
+	int separator2 = CharOperation.lastIndexOf('/', key2);
+	if (separator1 == -1 || separator2 == -1) // field references
+		return separator1 == separator2 && CharOperation.equals(key1, key2);
+	if (separator1 != separator2) return false;
+	for (int i = 0; i < separator1; i++)
+		if (key1[i] != key2[i]) return false;
+	if (key1[key1.length - 1] == '*' || key2[key2.length - 1] == '*')
+		return true;
+	return CharOperation.equals(key1, key2);
+}
+void recordImplementedType(TypeBinding type) {
+	if (this.implementedTypes == null) return; // not recording member dependencies
+
+	switch (type.kind()) {
+		case Binding.PARAMETERIZED_TYPE :
+		case Binding.RAW_TYPE :
+			type = type.erasure();
+			break;
+		case Binding.TYPE :
+		case Binding.GENERIC_TYPE :
+			break;
+		default :
+			return;
+	}
+	if (!this.implementedTypes.containsIdentical(type))
+		this.implementedTypes.add(type);
+}
+private void recordImplementedTypes(ReferenceBinding[] types) {
+	for (int i = 0, l = types == null ? 0 : types.length; i < l; i++) {
+		recordImplementedType(types[i]);
+		recordImplementedTypes(types[i].memberTypes());
+	}
+}
+public void recordMemberReference(char[] name, int arity) {
+	if (this.memberReferences == null) return; // not recording member dependencies
+
+	this.memberReferences.add(memberReferenceKey(name, arity));
+}
 void recordQualifiedReference(char[][] qualifiedName) {
 	if (this.qualifiedReferences == null) return; // not recording dependencies
 
@@ -790,6 +862,37 @@ public void storeDependencyInfo() {
 	for (int i = 0; i < size; i++)
 		rootRefs[i] = this.rootReferences.elementAt(i);
 	this.referenceContext.compilationResult.rootReferences = rootRefs;
+
+	if (this.memberReferences == null) return; // not recording member dependencies
+
+	// the unit depends on all the members of the supertypes of its types & of the functional interfaces it implements
+	recordImplementedTypes(this.topLevelTypes);
+	CompilationUnitDeclaration unit = this.referenceContext;
+	for (int i = 0; i < unit.localTypeCount; i++)
+		recordImplementedType(unit.localTypes[i]);
+	SimpleSetOfCharArray hierarchyNames = new SimpleSetOfCharArray();
+	for (int i = 0; i < this.implementedTypes.size; i++) { // grows as more types are added
+		ReferenceBinding type = (ReferenceBinding) this.implementedTypes.elementAt(i);
+		ReferenceBinding superclass = type.superclass();
+		if (superclass != null)
+			recordImplementedType(superclass);
+		ReferenceBinding[] interfaces = type.superInterfaces();
+		if (interfaces != null)
+			for (int j = 0, length = interfaces.length; j < length; j++)
+				recordImplementedType(interfaces[j]);
+		if (!type.isLocalType()) {
+			while (type.enclosingType() != null)
+				type = type.enclosingType();
+			hierarchyNames.add(type.sourceName);
+		}
+	}
+	char[][] hierarchyRefs = new char[hierarchyNames.elementSize][];
+	hierarchyNames.asArray(hierarchyRefs);
+	this.referenceContext.compilationResult.hierarchyReferences = hierarchyRefs;
+
+	char[][] memberRefs = new char[this.memberReferences.elementSize][];
+	this.memberReferences.asArray(memberRefs);
+	this.referenceContext.compilationResult.memberReferences = memberRefs;
 }
 public String toString() {
 	return "--- CompilationUnit Scope : " + new String(this.referenceContext.getFileName()); //$NON-NLS-1$
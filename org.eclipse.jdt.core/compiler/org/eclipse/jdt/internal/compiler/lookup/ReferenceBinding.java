@@ -1971,6 +1971,8 @@ private MethodBinding [] getInterfaceAbstractContracts(Scope scope) throws Inval
 public MethodBinding getSingleAbstractMethod(Scope scope, boolean replaceWildcards) {
 	
 	int index = replaceWildcards ? 0 : 1;
+	if (scope != null)
+		scope.compilationUnitScope().recordImplementedType(this); // a lambda or method reference implements this interface
 	if (this.singleAbstractMethod != null) {
 		if (this.singleAbstractMethod[index] != null)
 		return this.singleAbstractMethod[index];
@@ -1217,6 +1217,7 @@ public abstract class Scope {
 	public MethodBinding findExactMethod(ReferenceBinding receiverType, char[] selector, TypeBinding[] argumentTypes, InvocationSite invocationSite) {
 		CompilationUnitScope unitScope = compilationUnitScope();
 		unitScope.recordTypeReferences(argumentTypes);
+		unitScope.recordMemberReference(selector, argumentTypes.length);
 		MethodBinding exactMethod = receiverType.getExactMethod(selector, argumentTypes, unitScope);
 		if (exactMethod != null && exactMethod.typeVariables == Binding.NO_TYPE_VARIABLES && !exactMethod.isBridge()) {
 			// in >= 1.5 mode, ensure the exactMatch did not match raw types
@@ -1287,6 +1288,7 @@ public abstract class Scope {
 
 		CompilationUnitScope unitScope = compilationUnitScope();
 		unitScope.recordTypeReference(receiverType);
+		unitScope.recordMemberReference(fieldName, CompilationUnitScope.FIELD_REFERENCE);
 
 		checkArrayField: {
 			TypeBinding leafType;
@@ -1561,6 +1563,7 @@ public abstract class Scope {
 		ObjectVector found = new ObjectVector(3);
 		CompilationUnitScope unitScope = compilationUnitScope();
 		unitScope.recordTypeReferences(argumentTypes);
+		unitScope.recordMemberReference(selector, argumentTypes.length);
 		List<TypeBinding> visitedTypes = new ArrayList<TypeBinding>();
 		if (receiverTypeIsInterface) {
 			unitScope.recordTypeReference(receiverType);
@@ -2243,6 +2246,7 @@ public abstract class Scope {
 			currentType = getJavaLangObject();
 		}
 		
+		compilationUnitScope().recordMemberReference(selector, CompilationUnitScope.ANY_ARITY);
 		MethodBinding exactMethod = null;
 		try {
 			exactMethod = getExactMethod(receiverType, currentType, selector, invocationSite, null);
@@ -2294,6 +2298,7 @@ public abstract class Scope {
 		CompilationUnitScope unitScope = compilationUnitScope();
 		MethodBinding exactConstructor = null;
 		unitScope.recordTypeReference(receiverType);
+		unitScope.recordMemberReference(TypeConstants.INIT, CompilationUnitScope.ANY_ARITY);
 		MethodBinding[] methods = receiverType.getMethods(TypeConstants.INIT);
 		final TypeBinding[] genericTypeArguments = invocationSite.genericTypeArguments();
 		for (int i = 0, length = methods.length; i < length; i++) {
@@ -2341,6 +2346,7 @@ public abstract class Scope {
 			env.missingClassFileLocation = invocationSite;
 			unitScope.recordTypeReference(receiverType);
 			unitScope.recordTypeReferences(argumentTypes);
+			unitScope.recordMemberReference(TypeConstants.INIT, argumentTypes.length);
 			MethodBinding methodBinding = receiverType.getExactConstructor(argumentTypes);
 			if (methodBinding != null && methodBinding.canBeSeenBy(invocationSite, this)) {
 			    // targeting a non generic constructor with type arguments ?
@@ -4877,6 +4883,7 @@ public abstract class Scope {
 			currentType = currentType.enclosingType();
 		}
 	
+		compilationUnitScope().recordMemberReference(TypeConstants.INIT, argumentTypes.length);
 		MethodBinding[] methods = allocationType.getMethods(TypeConstants.INIT, argumentTypes.length);
 		MethodBinding [] staticFactories = new MethodBinding[methods.length];
 		int sfi = 0;
@@ -0,0 +1,363 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.compiler.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A process-wide pool of open archives, so that the clients reading the same archive (builder,
+ * indexer, search, reconciler, ...) share one ZipFile instead of opening and closing it over and over.
+ * <p>
+ * An archive is opened by the first {@link #acquire(File)} and stays open while it is used. Once every
+ * client released it, it is kept open for the idle timeout, and at most {@link #MAX_IDLE_PROPERTY}
+ * unused archives are kept open (least recently released are closed first). An archive which changed
+ * on disk is opened again, the previous ZipFile being closed once its last client released it.
+ * Clients must not close the ZipFiles of the pool themselves.
+ * </p>
+ * <p>
+ * Whether an archive changed is decided from its modification time and length. Since file systems may
+ * record the modification time with a precision of one or two seconds, an archive rewritten with the same
+ * length within that time would look unchanged: an archive which was modified less than {@link #STAMP_PRECISION}
+ * before it was opened (or listed) is not trusted, and is opened (or listed) again on the next request.
+ * </p>
+ * <p>
+ * The pool also caches the names of the entries of recently listed archives (see {@link #getEntryNames(ZipFile)}).
+ * </p>
+ */
+public class ZipFilePool {
+
+	/**
+	 * System property holding the maximum number of unused archives kept open (0 closes an archive as soon
+	 * as its last client released it).
+	 */
+	public static final String MAX_IDLE_PROPERTY = "jdt.compiler.zipPoolSize"; //$NON-NLS-1$
+	public static final int DEFAULT_MAX_IDLE = 32;
+
+	/**
+	 * System property holding the time in milliseconds an unused archive is kept open.
+	 */
+	public static final String IDLE_TIMEOUT_PROPERTY = "jdt.compiler.zipPoolIdleTimeout"; //$NON-NLS-1$
+	public static final int DEFAULT_IDLE_TIMEOUT = 10000;
+
+	// number of archives whose entry names are remembered
+	static final int LISTING_CACHE_SIZE = 256;
+
+	// the coarsest precision of file modification times (FAT and some network file systems use 2 seconds)
+	static final long STAMP_PRECISION = 2000;
+
+	private static ZipFilePool Shared;
+
+	static class Entry {
+		String path;
+		ZipFile zipFile;
+		long lastModified;
+		long length;
+		long checkedAt; // when the modification time and length were read
+		int refCount;
+		long idleSince;
+		boolean stale; // the archive changed on disk, close the zip file once released
+
+		Entry(String path, ZipFile zipFile, long lastModified, long length, long checkedAt) {
+			this.path = path;
+			this.zipFile = zipFile;
+			this.lastModified = lastModified;
+			this.length = length;
+			this.checkedAt = checkedAt;
+		}
+	}
+
+	static class Listing {
+		long lastModified;
+		long length;
+		long checkedAt;
+		String[] names;
+
+		Listing(long lastModified, long length, long checkedAt, String[] names) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.checkedAt = checkedAt;
+			this.names = names;
+		}
+	}
+
+	private HashMap<String, Entry> entries; // current archives by path
+	private IdentityHashMap<ZipFile, Entry> entriesByZipFile; // including stale archives still in use
+	private LinkedHashMap<String, Entry> idleEntries; // least recently released first
+	private LinkedHashMap<String, Listing> listings; // least recently used first
+	private int maxIdle;
+	private long idleTimeout;
+	private Timer timer;
+	private boolean sweepScheduled;
+	private int opened, reused, closed;
+
+/**
+ * Answers the pool shared by all the clients of this process.
+ */
+public static synchronized ZipFilePool getShared() {
+	if (Shared == null)
+		Shared = new ZipFilePool(
+			Integer.getInteger(MAX_IDLE_PROPERTY, DEFAULT_MAX_IDLE).intValue(),
+			Integer.getInteger(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT).intValue());
+	return Shared;
+}
+
+/**
+ * Creates a pool keeping at most the given number of unused archives open for the given time in milliseconds.
+ */
+public ZipFilePool(int maxIdle, long idleTimeout) {
+	this.maxIdle = maxIdle;
+	this.idleTimeout = idleTimeout;
+	this.entries = new HashMap<String, Entry>();
+	this.entriesByZipFile = new IdentityHashMap<ZipFile, Entry>();
+	this.idleEntries = new LinkedHashMap<String, Entry>(16, 0.75f, false);
+	this.listings = new LinkedHashMap<String, Listing>(16, 0.75f, true/*access order*/);
+}
+
+/**
+ * Answers the open ZipFile of the given archive. It must be given back with {@link #release(ZipFile)}.
+ */
+public ZipFile acquire(File file) throws IOException {
+	String path = file.getPath();
+	long checkedAt = System.currentTimeMillis();
+	long lastModified = file.lastModified();
+	long length = file.length();
+	ArrayList<ZipFile> toClose = new ArrayList<ZipFile>(1);
+	try {
+		synchronized (this) {
+			ZipFile zipFile = reuse(path, lastModified, length, toClose);
+			if (zipFile != null)
+				return zipFile;
+		}
+		// the VM shares the contents of open zip files with the same name and modification time, close the unused stale one first
+		close(toClose);
+		toClose.clear();
+		ZipFile zipFile = new ZipFile(file);
+		synchronized (this) {
+			ZipFile existing = reuse(path, lastModified, length, toClose);
+			if (existing != null) {
+				// opened concurrently by another client
+				toClose.add(zipFile);
+				return existing;
+			}
+			Entry entry = new Entry(path, zipFile, lastModified, length, checkedAt);
+			entry.refCount = 1;
+			this.entries.put(path, entry);
+			this.entriesByZipFile.put(zipFile, entry);
+			this.opened++;
+			return zipFile;
+		}
+	} finally {
+		close(toClose);
+	}
+}
+
+/**
+ * Gives back a ZipFile answered by {@link #acquire(File)}. A ZipFile which is not part of the pool is closed.
+ */
+public void release(ZipFile zipFile) {
+	if (zipFile == null) return;
+	ArrayList<ZipFile> toClose = new ArrayList<ZipFile>(1);
+	synchronized (this) {
+		Entry entry = this.entriesByZipFile.get(zipFile);
+		if (entry == null) {
+			toClose.add(zipFile);
+		} else if (entry.refCount > 0 && --entry.refCount == 0) {
+			if (entry.stale) {
+				this.entriesByZipFile.remove(zipFile);
+				toClose.add(zipFile);
+				this.closed++;
+			} else {
+				entry.idleSince = System.currentTimeMillis();
+				this.idleEntries.put(entry.path, entry);
+				for (Iterator<Entry> iterator = this.idleEntries.values().iterator(); this.idleEntries.size() > this.maxIdle && iterator.hasNext();) {
+					Entry eldest = iterator.next();
+					iterator.remove();
+					remove(eldest, toClose);
+				}
+				scheduleSweep();
+			}
+		}
+	}
+	close(toClose);
+}
+
+/**
+ * Answers the names of the entries of the given archive, in the order of its central directory.
+ * The answered array must not be modified.
+ */
+public String[] getEntryNames(ZipFile zipFile) {
+	String path = zipFile.getName();
+	long lastModified, length, checkedAt;
+	synchronized (this) {
+		Entry entry = this.entriesByZipFile.get(zipFile);
+		if (entry != null) {
+			lastModified = entry.lastModified;
+			length = entry.length;
+			checkedAt = entry.checkedAt;
+		} else {
+			File file = new File(path);
+			checkedAt = System.currentTimeMillis();
+			lastModified = file.lastModified();
+			length = file.length();
+		}
+		Listing listing = this.listings.get(path);
+		if (listing != null && listing.lastModified == lastModified && listing.length == length && isReliable(listing.lastModified, listing.checkedAt))
+			return listing.names;
+	}
+	ArrayList<String> names = new ArrayList<String>(zipFile.size());
+	for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements();)
+		names.add(e.nextElement().getName());
+	String[] result = names.toArray(new String[names.size()]);
+	synchronized (this) {
+		this.listings.put(path, new Listing(lastModified, length, checkedAt, result));
+		for (Iterator<Listing> iterator = this.listings.values().iterator(); this.listings.size() > LISTING_CACHE_SIZE && iterator.hasNext();) {
+			iterator.next();
+			iterator.remove();
+		}
+	}
+	return result;
+}
+
+/**
+ * Answers the modification time the given archive had when the pool opened it, so that clients
+ * keying data by archive time stamp do not read it from the file system on every lookup.
+ * A ZipFile which is not part of the pool answers the current modification time of its file.
+ */
+public long lastModified(ZipFile zipFile) {
+	synchronized (this) {
+		Entry entry = this.entriesByZipFile.get(zipFile);
+		if (entry != null)
+			return entry.lastModified;
+	}
+	return new File(zipFile.getName()).lastModified();
+}
+
+/**
+ * Closes the unused archives, and the archives in use once they are released.
+ */
+public void flush() {
+	ArrayList<ZipFile> toClose = new ArrayList<ZipFile>();
+	synchronized (this) {
+		Entry[] all = this.entries.values().toArray(new Entry[this.entries.size()]);
+		for (int i = 0, length = all.length; i < length; i++)
+			remove(all[i], toClose);
+		this.idleEntries.clear();
+		this.listings.clear();
+	}
+	close(toClose);
+}
+
+private void close(ArrayList<ZipFile> zipFiles) {
+	for (int i = 0, size = zipFiles.size(); i < size; i++) {
+		try {
+			zipFiles.get(i).close();
+		} catch (IOException e) {
+			// problem occured closing zip file: cannot do much more
+		}
+	}
+}
+
+private synchronized void closeIdleEntries() {
+	this.sweepScheduled = false;
+	ArrayList<ZipFile> toClose = new ArrayList<ZipFile>();
+	long now = System.currentTimeMillis();
+	for (Iterator<Entry> iterator = this.idleEntries.values().iterator(); iterator.hasNext();) {
+		Entry entry = iterator.next();
+		if (now - entry.idleSince < this.idleTimeout)
+			break; // released after the following entries
+		iterator.remove();
+		remove(entry, toClose);
+	}
+	scheduleSweep();
+	close(toClose);
+}
+
+/*
+ * Removes the given archive from the pool, its zip file is closed now if unused or when released otherwise.
+ */
+private void remove(Entry entry, ArrayList<ZipFile> toClose) {
+	if (this.entries.get(entry.path) == entry)
+		this.entries.remove(entry.path);
+	if (entry.refCount == 0) {
+		this.idleEntries.remove(entry.path);
+		this.entriesByZipFile.remove(entry.zipFile);
+		toClose.add(entry.zipFile);
+		this.closed++;
+	} else {
+		entry.stale = true;
+	}
+}
+
+/*
+ * Answers the zip file of the given archive if it is open and unchanged.
+ */
+private ZipFile reuse(String path, long lastModified, long length, ArrayList<ZipFile> toClose) {
+	Entry entry = this.entries.get(path);
+	if (entry == null)
+		return null;
+	if (entry.lastModified == lastModified && entry.length == length && isReliable(entry.lastModified, entry.checkedAt) && isOpen(entry.zipFile)) {
+		if (entry.refCount++ == 0)
+			this.idleEntries.remove(path);
+		this.reused++;
+		return entry.zipFile;
+	}
+	remove(entry, toClose);
+	return null;
+}
+
+/*
+ * Answers whether an archive with the given modification time, read at the given time, cannot have been
+ * rewritten since without changing its modification time.
+ */
+private static boolean isReliable(long lastModified, long checkedAt) {
+	return checkedAt - lastModified >= STAMP_PRECISION;
+}
+
+private static boolean isOpen(ZipFile zipFile) {
+	try {
+		zipFile.size();
+		return true;
+	} catch (IllegalStateException e) {
+		// closed by a client
+		return false;
+	}
+}
+
+private void scheduleSweep() {
+	if (this.sweepScheduled || this.idleEntries.isEmpty())
+		return;
+	if (this.timer == null)
+		this.timer = new Timer("ZipFile pool", true/*daemon*/); //$NON-NLS-1$
+	long eldestIdleSince = this.idleEntries.values().iterator().next().idleSince;
+	this.timer.schedule(new TimerTask() {
+		public void run() {
+			closeIdleEntries();
+		}
+	}, Math.max(0, eldestIdleSince + this.idleTimeout - System.currentTimeMillis()));
+	this.sweepScheduled = true;
+}
+
+public synchronized String toString() {
+	return "ZipFilePool: " + this.entries.size() + " archives, " + this.idleEntries.size() + " unused, " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		+ this.opened + " opened, " + this.reused + " reused, " + this.closed + " closed"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+}
+}
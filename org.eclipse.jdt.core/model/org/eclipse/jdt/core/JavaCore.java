@@ -119,6 +119,7 @@ import org.eclipse.core.runtime.IExtension;
 import org.eclipse.core.runtime.IExtensionPoint;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
@@ -151,6 +152,7 @@ import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.problem.ProblemReporter;
 import org.eclipse.jdt.internal.core.*;
 import org.eclipse.jdt.internal.core.builder.JavaBuilder;
+import org.eclipse.jdt.internal.core.builder.ParallelBuild;
 import org.eclipse.jdt.internal.core.builder.State;
 import org.eclipse.jdt.internal.core.util.MementoTokenizer;
 import org.eclipse.jdt.internal.core.util.Messages;
@@ -3257,6 +3259,35 @@ public final class JavaCore extends Plugin {
 		return JavaModelManager.createJarPackageFragmentRootFrom(file, null/*unknown java project*/);
 	}
 
+	/**
+	 * Performs a full build of the given Java projects.
+	 * <p>
+	 * By default, this is a full build of the projects by the workspace build manager, one project after
+	 * another. When the <code>jdt.builder.parallelism</code> system property is greater than 1, the Java builder
+	 * builds the projects which do not depend on each other concurrently, using up to that many jobs, each
+	 * holding the scheduling rule of the project it builds. The projects involved in a classpath cycle are built
+	 * one after another at the end.
+	 * </p>
+	 * <p>
+	 * When the calling thread owns a scheduling rule which does not contain the rule of these builds, the build
+	 * is scheduled to run once this rule is released, and this method answers without waiting.
+	 * </p>
+	 *
+	 * @param projects the projects to build
+	 * @param monitor a progress monitor, or <code>null</code> if progress
+	 *    reporting and cancellation are not desired
+	 * @exception CoreException if the build of some projects failed
+	 * @since 3.11
+	 */
+	public static void fullBuild(IJavaProject[] projects, IProgressMonitor monitor) throws CoreException {
+		IProject[] resources = new IProject[projects.length];
+		for (int i = 0, length = projects.length; i < length; i++)
+			resources[i] = projects[i].getProject();
+		IStatus status = ParallelBuild.fullBuild(resources, monitor);
+		if (!status.isOK())
+			throw new CoreException(status);
+	}
+
 	/**
 	 * Answers the project specific value for a given classpath container.
 	 * In case this container path could not be resolved, then will answer <code>null</code>.
@@ -34,11 +34,13 @@ import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jdt.core.*;
 import org.eclipse.jdt.core.compiler.IProblem;
+import org.eclipse.jdt.internal.compiler.classfmt.BinaryTypeCache;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
 import org.eclipse.jdt.internal.compiler.env.IBinaryType;
 import org.eclipse.jdt.internal.compiler.env.IDependent;
 import org.eclipse.jdt.internal.compiler.util.SuffixConstants;
+import org.eclipse.jdt.internal.compiler.util.ZipFilePool;
 import org.eclipse.jdt.internal.core.util.MementoTokenizer;
 import org.eclipse.jdt.internal.core.util.Util;
 
@@ -356,20 +358,28 @@ private IBinaryType getJarBinaryTypeInfo(PackageFragment pkg, boolean fullyIniti
 		String entryName = Util.concatWith(pkg.names, getElementName(), '/');
 		ZipEntry ze = zip.getEntry(entryName);
 		if (ze != null) {
-			byte contents[] = org.eclipse.jdt.internal.compiler.util.Util.getZipEntryByteContent(ze, zip);
 			String fileName = root.getHandleIdentifier() + IDependent.JAR_FILE_ENTRY_SEPARATOR + entryName;
-			ClassFileReader reader = new ClassFileReader(contents, fileName.toCharArray(), fullyInitialize);
+			IProject project = null;
+			IPath externalAnnotationPath = null;
 			if (root.getKind() == IPackageFragmentRoot.K_BINARY) {
 				JavaProject javaProject = (JavaProject) getAncestor(IJavaElement.JAVA_PROJECT);
 				IClasspathEntry entry = javaProject.getClasspathEntryFor(getPath());
 				if (entry != null) {
-					IProject project = javaProject.getProject();
-					IPath externalAnnotationPath = ClasspathEntry.getExternalAnnotationPath(entry, project, false);
-					if (externalAnnotationPath != null)
-						setupExternalAnnotationProvider(project, externalAnnotationPath, annotationZip, reader, 
-								entryName.substring(0, entryName.length() - SuffixConstants.SUFFIX_CLASS.length));
+					project = javaProject.getProject();
+					externalAnnotationPath = ClasspathEntry.getExternalAnnotationPath(entry, project, false);
 				}
-			} 
+			}
+			if (externalAnnotationPath == null && fullyInitialize) {
+				// fully initialized and not annotated, the reader can be shared with other clients of the same jar
+				BinaryTypeCache cache = BinaryTypeCache.getShared();
+				if (cache != null)
+					return cache.read(zip, ZipFilePool.getShared().lastModified(zip), entryName, fileName);
+			}
+			byte contents[] = org.eclipse.jdt.internal.compiler.util.Util.getZipEntryByteContent(ze, zip);
+			ClassFileReader reader = new ClassFileReader(contents, fileName.toCharArray(), fullyInitialize);
+			if (externalAnnotationPath != null)
+				annotationZip = setupExternalAnnotationProvider(project, externalAnnotationPath, annotationZip, reader, 
+						entryName.substring(0, entryName.length() - SuffixConstants.SUFFIX_CLASS.length));
 			return reader;
 		}
 	} finally {
@@ -379,7 +389,10 @@ private IBinaryType getJarBinaryTypeInfo(PackageFragment pkg, boolean fullyIniti
 	return null;
 }
 
-private void setupExternalAnnotationProvider(IProject project, final IPath externalAnnotationPath,
+/*
+ * Answers the annotation zip file acquired for the provider, which the caller must close.
+ */
+private ZipFile setupExternalAnnotationProvider(IProject project, final IPath externalAnnotationPath,
 		ZipFile annotationZip, ClassFileReader reader, final String typeName)
 {
 	// try resolve path within the workspace:
@@ -394,7 +407,7 @@ private void setupExternalAnnotationProvider(IProject project, final IPath exter
 		if (resource.isVirtual()) {
 			Util.log(new Status(IStatus.ERROR, JavaCore.PLUGIN_ID, 
 					"Virtual resource "+externalAnnotationPath+" cannot be used as annotationpath for project "+project.getName())); //$NON-NLS-1$ //$NON-NLS-2$
-			return;
+			return annotationZip;
 		}
 		resolvedPath = resource.getLocation().toString(); // workspace lookup succeeded -> resolve it
 	} else {
@@ -411,7 +424,7 @@ private void setupExternalAnnotationProvider(IProject project, final IPath exter
 			}});
 	} catch (IOException e) {
 		Util.log(e);
-		return;
+		return annotationZip;
 	}
 	if (annotationZip == null) {
 		// Additional change listening for individual types only when annotations are in individual files.
@@ -419,6 +432,7 @@ private void setupExternalAnnotationProvider(IProject project, final IPath exter
 		this.externalAnnotationBase = externalAnnotationPath; // remember so we can unregister later
 		ExternalAnnotationTracker.registerClassFile(externalAnnotationPath, new Path(typeName), this);
 	}
+	return annotationZip;
 }
 void closeAndRemoveFromJarTypeCache() throws JavaModelException {
 	super.close();
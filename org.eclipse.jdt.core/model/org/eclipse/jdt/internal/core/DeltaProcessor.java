@@ -1683,7 +1683,7 @@ public class DeltaProcessor {
 				}
 				public void run() throws Exception {
 					TypeHierarchy typeHierarchy = (TypeHierarchy)listener;
-					if (typeHierarchy.hasFineGrainChanges()) {
+					if (!typeHierarchy.needsRefresh && typeHierarchy.hasFineGrainChanges()) {
 						// case of changes in primary working copies
 						typeHierarchy.needsRefresh = true;
 						typeHierarchy.fireChange();
@@ -12,7 +12,6 @@ package org.eclipse.jdt.internal.core;
 
 import java.net.URL;
 import java.util.*;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
@@ -23,6 +22,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.jdt.core.*;
 import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.util.ZipFilePool;
 import org.eclipse.jdt.internal.core.util.HashtableOfArrayToObject;
 import org.eclipse.jdt.internal.core.util.Util;
 
@@ -84,9 +84,11 @@ public class JarPackageFragmentRoot extends PackageFragmentRoot {
 			// always create the default package
 			rawPackageInfo.put(CharOperation.NO_STRINGS, new ArrayList[] { EMPTY_LIST, EMPTY_LIST });
 
-			for (Enumeration e= jar.entries(); e.hasMoreElements();) {
-				ZipEntry member= (ZipEntry) e.nextElement();
-				initRawPackageInfo(rawPackageInfo, member.getName(), member.isDirectory(), compliance);
+			// the listing is cached by the pool as long as the archive doesn't change
+			String[] entryNames = ZipFilePool.getShared().getEntryNames(jar);
+			for (int i = 0, length = entryNames.length; i < length; i++) {
+				String entryName = entryNames[i];
+				initRawPackageInfo(rawPackageInfo, entryName, entryName.endsWith("/"), compliance); //$NON-NLS-1$
 			}
 
 			// loop through all of referenced packages, creating package fragments if necessary
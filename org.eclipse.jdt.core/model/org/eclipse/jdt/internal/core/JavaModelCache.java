@@ -13,6 +13,8 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.core;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.eclipse.jdt.core.IJavaElement;
@@ -21,9 +23,14 @@ import org.eclipse.jdt.internal.core.util.Util;
 
 /**
  * The cache of java elements to their respective info.
+ * <p>
+ * The caches are sized by numbers of elements, scaled by the maximum memory of the VM. When the
+ * {@link #MEMORY_BUDGET_PROPERTY} system property is set, the cache of compilation units and class files
+ * is instead bounded by the estimated size of their infos and of the infos of their children.
+ * </p>
  */
 @SuppressWarnings({"rawtypes", "unchecked"})
-public class JavaModelCache {
+public class JavaModelCache implements JavaModelCacheMXBean {
 	public static boolean VERBOSE = false;
 
 	public static final int DEFAULT_PROJECT_SIZE = 5;  // average 25552 bytes per project.
@@ -33,6 +40,8 @@ public class JavaModelCache {
 	public static final int DEFAULT_CHILDREN_SIZE = 250*20; // average 20 children per openable
 	public static final String RATIO_PROPERTY = "org.eclipse.jdt.core.javamodelcache.ratio"; //$NON-NLS-1$
 	public static final String JAR_TYPE_RATIO_PROPERTY = "org.eclipse.jdt.core.javamodelcache.jartyperatio"; //$NON-NLS-1$
+	public static final String MEMORY_BUDGET_PROPERTY = "org.eclipse.jdt.core.javamodelcache.budget"; //$NON-NLS-1$ // size of the openable cache in MB
+	public static final int ELEMENT_FOOTPRINT = 330; // average bytes per element and its info (see DEFAULT_OPENABLE_SIZE)
 	
 	public static final Object NON_EXISTING_JAR_TYPE_INFO = new Object();
 
@@ -41,6 +50,11 @@ public class JavaModelCache {
 	 */
 	protected double memoryRatio = -1;
 
+	/*
+	 * The size in KB the openable cache is bounded by, or -1 if it is bounded by a number of openables.
+	 */
+	protected int memoryBudget = -1;
+
 	/**
 	 * Active Java Model Info
 	 */
@@ -82,19 +96,39 @@ public JavaModelCache() {
 	// adjust the size of the openable cache using the RATIO_PROPERTY property
 	double openableRatio = getOpenableRatio();
 	this.projectCache = new HashMap(DEFAULT_PROJECT_SIZE); // NB: Don't use a LRUCache for projects as they are constantly reopened (e.g. during delta processing)
+	this.memoryBudget = getMemoryBudgetProperty();
+	int openableSize = this.memoryBudget > 0 ? this.memoryBudget : (int) (DEFAULT_OPENABLE_SIZE * ratio * openableRatio);
 	if (VERBOSE) {
 		this.rootCache = new VerboseElementCache((int) (DEFAULT_ROOT_SIZE * ratio), "Root cache"); //$NON-NLS-1$
 		this.pkgCache = new VerboseElementCache((int) (DEFAULT_PKG_SIZE * ratio), "Package cache"); //$NON-NLS-1$
-		this.openableCache = new VerboseElementCache((int) (DEFAULT_OPENABLE_SIZE * ratio * openableRatio), "Openable cache"); //$NON-NLS-1$
+		this.openableCache = new VerboseElementCache(openableSize, "Openable cache"); //$NON-NLS-1$
 	} else {
 		this.rootCache = new ElementCache((int) (DEFAULT_ROOT_SIZE * ratio));
 		this.pkgCache = new ElementCache((int) (DEFAULT_PKG_SIZE * ratio));
-		this.openableCache = new ElementCache((int) (DEFAULT_OPENABLE_SIZE * ratio * openableRatio));
+		this.openableCache = new ElementCache(openableSize);
 	}
 	this.childrenCache = new HashMap((int) (DEFAULT_CHILDREN_SIZE * ratio * openableRatio));
 	resetJarTypeCache();
 }
 
+/*
+ * Returns the memory budget of the openable cache in KB, or -1 if the property is not set.
+ */
+private int getMemoryBudgetProperty() {
+	String property = System.getProperty(MEMORY_BUDGET_PROPERTY);
+	if (property != null) {
+		try {
+			int megabytes = Integer.parseInt(property);
+			if (megabytes > 0)
+				return megabytes > Integer.MAX_VALUE / 1024 ? Integer.MAX_VALUE : megabytes * 1024;
+		} catch (NumberFormatException e) {
+			// ignore
+			Util.log(e, "Could not parse value for " + MEMORY_BUDGET_PROPERTY + ": " + property); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+	return -1;
+}
+
 private double getOpenableRatio() {
 	return getRatioForProperty(RATIO_PROPERTY);
 }
@@ -223,7 +257,8 @@ protected void putInfo(IJavaElement element, Object info) {
 			break;
 		case IJavaElement.PACKAGE_FRAGMENT:
 			this.pkgCache.put(element, info);
-			this.openableCache.ensureSpaceLimit(info, element);
+			if (this.memoryBudget <= 0) // the memory budget is not exceeded to keep the children of a package
+				this.openableCache.ensureSpaceLimit(info, element);
 			break;
 		case IJavaElement.COMPILATION_UNIT:
 		case IJavaElement.CLASS_FILE:
@@ -251,7 +286,8 @@ protected void removeInfo(JavaElement element) {
 			break;
 		case IJavaElement.PACKAGE_FRAGMENT:
 			this.pkgCache.remove(element);
-			this.openableCache.resetSpaceLimit((int) (DEFAULT_OPENABLE_SIZE * getMemoryRatio() * getOpenableRatio()), element);
+			if (this.memoryBudget <= 0)
+				this.openableCache.resetSpaceLimit((int) (DEFAULT_OPENABLE_SIZE * getMemoryRatio() * getOpenableRatio()), element);
 			break;
 		case IJavaElement.COMPILATION_UNIT:
 		case IJavaElement.CLASS_FILE:
@@ -261,12 +297,78 @@ protected void removeInfo(JavaElement element) {
 			this.childrenCache.remove(element);
 	}
 }
+/*
+ * When the openable cache is bounded by a memory budget, records the estimated size of the infos of the
+ * compilation units and class files among the given new elements (a map from IJavaElement to info), which
+ * includes the infos of their children since these are removed with them.
+ */
+protected void weighOpenables(Map newElements) {
+	if (this.memoryBudget <= 0) return;
+	HashMap elementCounts = new HashMap();
+	for (Iterator iterator = newElements.keySet().iterator(); iterator.hasNext();) {
+		Object openable = ((JavaElement) iterator.next()).getOpenable();
+		if (openable == null) continue;
+		Integer count = (Integer) elementCounts.get(openable);
+		elementCounts.put(openable, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+	}
+	for (Iterator iterator = elementCounts.entrySet().iterator(); iterator.hasNext();) {
+		Map.Entry entry = (Map.Entry) iterator.next();
+		int type = ((IJavaElement) entry.getKey()).getElementType();
+		if (type != IJavaElement.COMPILATION_UNIT && type != IJavaElement.CLASS_FILE) continue;
+		Object info = newElements.get(entry.getKey());
+		if (info instanceof OpenableElementInfo) {
+			long bytes = (long) ((Integer) entry.getValue()).intValue() * ELEMENT_FOOTPRINT;
+			((OpenableElementInfo) info).cacheFootprint = (int) Math.max(1, bytes / 1024);
+		}
+	}
+}
 protected void resetJarTypeCache() {
 	this.jarTypeCache = new LRUCache((int) (DEFAULT_OPENABLE_SIZE * getMemoryRatio() * getJarTypeRatio()));
 }
 protected void removeFromJarTypeCache(BinaryType type) {
 	this.jarTypeCache.flush(type);
 }
+public Map<String, Long> getHitCounts() {
+	return getCounts(0);
+}
+public Map<String, Long> getMissCounts() {
+	return getCounts(1);
+}
+public Map<String, Long> getEvictionCounts() {
+	return getCounts(2);
+}
+public Map<String, Long> getCurrentSpaces() {
+	return getCounts(3);
+}
+public Map<String, Long> getSpaceLimits() {
+	return getCounts(4);
+}
+public long getMemoryBudget() {
+	return this.memoryBudget > 0 ? this.memoryBudget * 1024L : -1;
+}
+private Map<String, Long> getCounts(int counter) {
+	Map<String, Long> counts = new LinkedHashMap<String, Long>();
+	counts.put("Root cache", Long.valueOf(getCount(this.rootCache, counter))); //$NON-NLS-1$
+	counts.put("Package cache", Long.valueOf(getCount(this.pkgCache, counter))); //$NON-NLS-1$
+	counts.put("Openable cache", Long.valueOf(getCount(this.openableCache, counter))); //$NON-NLS-1$
+	counts.put("Jar type cache", Long.valueOf(getCount(this.jarTypeCache, counter))); //$NON-NLS-1$
+	return counts;
+}
+private long getCount(LRUCache cache, int counter) {
+	LRUCache.Stats stats = cache.new Stats();
+	switch (counter) {
+		case 0:
+			return stats.getHitCount();
+		case 1:
+			return stats.getMissCount();
+		case 2:
+			return stats.getEvictionCount();
+		case 3:
+			return cache.getCurrentSpace();
+		default:
+			return cache.getSpaceLimit();
+	}
+}
 public String toString() {
 	return toStringFillingRation(""); //$NON-NLS-1$
 }
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core;
+
+import java.util.Map;
+
+/**
+ * The management interface of the Java model cache, registered as {@link #OBJECT_NAME} in the
+ * platform MBean server when the {@link #REGISTER_PROPERTY} system property is <code>true</code>.
+ * <p>
+ * The counters are keyed by the name of the cache: "Root cache", "Package cache", "Openable cache"
+ * and "Jar type cache".
+ * </p>
+ */
+public interface JavaModelCacheMXBean {
+
+	public static final String OBJECT_NAME = "org.eclipse.jdt.core:type=JavaModelCache"; //$NON-NLS-1$
+	public static final String REGISTER_PROPERTY = "org.eclipse.jdt.core.javamodelcache.jmx"; //$NON-NLS-1$
+
+	/**
+	 * Returns the number of lookups which found an info in each cache.
+	 */
+	public Map<String, Long> getHitCounts();
+
+	/**
+	 * Returns the number of lookups which found no info in each cache.
+	 */
+	public Map<String, Long> getMissCounts();
+
+	/**
+	 * Returns the number of infos removed from each cache to make space for others.
+	 */
+	public Map<String, Long> getEvictionCounts();
+
+	/**
+	 * Returns the space used in each cache: a number of elements, or of KB for the openable cache
+	 * when it is bounded by a memory budget.
+	 */
+	public Map<String, Long> getCurrentSpaces();
+
+	/**
+	 * Returns the space limit of each cache, in the same unit as {@link #getCurrentSpaces()}.
+	 */
+	public Map<String, Long> getSpaceLimits();
+
+	/**
+	 * Returns the memory budget of the openable cache in bytes, or -1 if it is bounded by a number of elements.
+	 */
+	public long getMemoryBudget();
+}
@@ -21,6 +21,7 @@
 package org.eclipse.jdt.internal.core;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.net.URI;
 import java.text.MessageFormat;
 import java.util.*;
@@ -28,6 +29,9 @@ import java.util.Map.Entry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -55,6 +59,7 @@ import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.compiler.env.AccessRestriction;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.util.HashtableOfObjectToInt;
+import org.eclipse.jdt.internal.compiler.util.ZipFilePool;
 import org.eclipse.jdt.internal.core.JavaProjectElementInfo.ProjectCache;
 import org.eclipse.jdt.internal.core.builder.JavaBuilder;
 import org.eclipse.jdt.internal.core.dom.SourceRangeVerifier;
@@ -66,9 +71,9 @@ import org.eclipse.jdt.internal.core.search.IRestrictedAccessTypeRequestor;
 import org.eclipse.jdt.internal.core.search.JavaWorkspaceScope;
 import org.eclipse.jdt.internal.core.search.indexing.IndexManager;
 import org.eclipse.jdt.internal.core.search.processing.JobManager;
-import org.eclipse.jdt.internal.core.util.HashtableOfArrayToObject;
 import org.eclipse.jdt.internal.core.util.LRUCache;
 import org.eclipse.jdt.internal.core.util.Messages;
+import org.eclipse.jdt.internal.core.util.PackageNameMap;
 import org.eclipse.jdt.internal.core.util.Util;
 import org.eclipse.jdt.internal.core.util.WeakHashSet;
 import org.eclipse.jdt.internal.core.util.WeakHashSetOfCharArray;
@@ -116,15 +121,11 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 			Thread currentThread = Thread.currentThread();
 			Iterator iterator = this.map.values().iterator();
 			while (iterator.hasNext()) {
-				try {
-					ZipFile zipFile = (ZipFile)iterator.next();
-					if (JavaModelManager.ZIP_ACCESS_VERBOSE) {
-						System.out.println("(" + currentThread + ") [JavaModelManager.flushZipFiles()] Closing ZipFile on " +zipFile.getName()); //$NON-NLS-1$//$NON-NLS-2$
-					}
-					zipFile.close();
-				} catch (IOException e) {
-					// problem occured closing zip file: cannot do much more
+				ZipFile zipFile = (ZipFile)iterator.next();
+				if (JavaModelManager.ZIP_ACCESS_VERBOSE) {
+					System.out.println("(" + currentThread + ") [JavaModelManager.flushZipFiles()] Releasing ZipFile on " +zipFile.getName()); //$NON-NLS-1$//$NON-NLS-2$
 				}
+				ZipFilePool.getShared().release(zipFile);
 			}
 		}
 
@@ -1031,7 +1032,7 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 		try {
 			JavaProjectElementInfo projectInfo = (JavaProjectElementInfo) getJavaModelManager().getInfo(project);
 			ProjectCache projectCache = projectInfo == null ? null : projectInfo.projectCache;
-			HashtableOfArrayToObject allPkgFragmentsCache = projectCache == null ? null : projectCache.allPkgFragmentsCache;
+			PackageNameMap allPkgFragmentsCache = projectCache == null ? null : projectCache.allPkgFragmentsCache;
 			boolean isJavaLike = org.eclipse.jdt.internal.core.util.Util.isJavaLikeFileName(resourcePath.lastSegment());
 			IClasspathEntry[] entries = isJavaLike ? project.getRawClasspath() // JAVA file can only live inside SRC folder (on the raw path)
 					: ((JavaProject)project).getResolvedClasspath();
@@ -1442,6 +1443,7 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 	/**
 	 * A cache of opened zip files per thread.
 	 * (for a given thread, the object value is a HashMap from IPath to java.io.ZipFile)
+	 * The zip files are acquired from the shared ZipFilePool and released when the cache is flushed.
 	 */
 	private ThreadLocal zipFiles = new ThreadLocal();
 
@@ -1662,14 +1664,10 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 		if (this.zipFiles.get() != null) {
 			return; // zip file will be closed by call to flushZipFiles
 		}
-		try {
-			if (JavaModelManager.ZIP_ACCESS_VERBOSE) {
-				System.out.println("(" + Thread.currentThread() + ") [JavaModelManager.closeZipFile(ZipFile)] Closing ZipFile on " +zipFile.getName()); //$NON-NLS-1$	//$NON-NLS-2$
-			}
-			zipFile.close();
-		} catch (IOException e) {
-			// problem occured closing zip file: cannot do much more
+		if (JavaModelManager.ZIP_ACCESS_VERBOSE) {
+			System.out.println("(" + Thread.currentThread() + ") [JavaModelManager.closeZipFile(ZipFile)] Releasing ZipFile on " +zipFile.getName()); //$NON-NLS-1$	//$NON-NLS-2$
 		}
+		ZipFilePool.getShared().release(zipFile);
 	}
 
 	public static void registerDebugOptionsListener(BundleContext context) {
@@ -2063,17 +2061,19 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 			return null; // should never be requested on non-Java projects
 		}
 		PerProjectInfo info = getPerProjectInfo(project, true/*create if missing*/);
-		if (!info.triedRead) {
-			info.triedRead = true;
-			try {
-				if (monitor != null)
-					monitor.subTask(Messages.bind(Messages.build_readStateProgress, project.getName()));
-				info.savedState = readState(project);
-			} catch (CoreException e) {
-				e.printStackTrace();
+		synchronized (info) { // projects built in parallel can ask for the same prerequisite state
+			if (!info.triedRead) {
+				info.triedRead = true;
+				try {
+					if (monitor != null)
+						monitor.subTask(Messages.bind(Messages.build_readStateProgress, project.getName()));
+					info.savedState = readState(project);
+				} catch (CoreException e) {
+					e.printStackTrace();
+				}
 			}
+			return info.savedState;
 		}
-		return info.savedState;
 	}
 
 	public String getOption(String optionName) {
@@ -2633,6 +2633,8 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 	 * Returns the open ZipFile at the given path. If the ZipFile
 	 * does not yet exist, it is created, opened, and added to the cache
 	 * of open ZipFiles.
+	 * The ZipFile is shared with the other clients of the archive: it must be given back
+	 * with closeZipFile(ZipFile) instead of being closed.
 	 *
 	 * The path must be a file system path if representing an external
 	 * zip/jar, or it must be an absolute workspace relative path if
@@ -2673,9 +2675,9 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 
 		try {
 			if (ZIP_ACCESS_VERBOSE) {
-				System.out.println("(" + Thread.currentThread() + ") [JavaModelManager.getZipFile(IPath)] Creating ZipFile on " + localFile ); //$NON-NLS-1$ //$NON-NLS-2$
+				System.out.println("(" + Thread.currentThread() + ") [JavaModelManager.getZipFile(IPath)] Acquiring ZipFile on " + localFile ); //$NON-NLS-1$ //$NON-NLS-2$
 			}
-			zipFile = new ZipFile(localFile);
+			zipFile = ZipFilePool.getShared().acquire(localFile);
 			if (zipCache != null) {
 				zipCache.setCache(path, zipFile);
 			}
@@ -3128,7 +3130,7 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 		// If it transitioned to being valid, remove it from the cache and force an update to project caches.
 		if (now > evictionTime) {
 			try {
-				getZipFile(path, false);
+				closeZipFile(getZipFile(path, false));
 				removeFromInvalidArchiveCache(path);
 				return false;
 			} catch (CoreException e) {
@@ -3753,6 +3755,7 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 		if (openedElement instanceof IParent) {
 			closeChildren(existingInfo);
 		}
+		this.cache.weighOpenables(newElements);
 
 		// Need to put any JarPackageFragmentRoot in first.
 		// This is due to the way the LRU cache flushes entries.
@@ -4912,8 +4915,10 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 		if (JavaProject.hasJavaNature(project)) {
 			// should never be requested on non-Java projects
 			PerProjectInfo info = getPerProjectInfo(project, true /*create if missing*/);
-			info.triedRead = true; // no point trying to re-read once using setter
-			info.savedState = state;
+			synchronized (info) {
+				info.triedRead = true; // no point trying to re-read once using setter
+				info.savedState = state;
+			}
 		}
 		if (state == null) { // delete state file to ensure a full build happens if the workspace crashes
 			try {
@@ -5017,6 +5022,8 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 		try {
 			// initialize Java model cache
 			this.cache = new JavaModelCache();
+			if ("true".equalsIgnoreCase(System.getProperty(JavaModelCacheMXBean.REGISTER_PROPERTY))) //$NON-NLS-1$
+				registerCacheMXBean(true);
 
 			// request state folder creation (workaround 19885)
 			JavaCore.getPlugin().getStateLocation();
@@ -5153,9 +5160,33 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 			// ignore
 		}
 
+		if ("true".equalsIgnoreCase(System.getProperty(JavaModelCacheMXBean.REGISTER_PROPERTY))) //$NON-NLS-1$
+			registerCacheMXBean(false);
+
+		// close the archives which are no longer used
+		ZipFilePool.getShared().flush();
+
 		// Note: no need to close the Java model as this just removes Java element infos from the Java model cache
 	}
 
+	/*
+	 * Registers the Java model cache in the platform MBean server, or unregisters it.
+	 */
+	private void registerCacheMXBean(boolean register) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(JavaModelCacheMXBean.OBJECT_NAME);
+			if (register) {
+				if (!server.isRegistered(name))
+					server.registerMBean(this.cache, name);
+			} else if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException e) {
+			Util.log(e, "Could not register the Java model cache management bean"); //$NON-NLS-1$
+		}
+	}
+
 	public synchronized IPath variableGet(String variableName){
 		// check initialization in progress first
 		HashSet initializations = variableInitializationInProgress();
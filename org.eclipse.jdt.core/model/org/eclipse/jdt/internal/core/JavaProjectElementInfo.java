@@ -20,7 +20,7 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.jdt.core.*;
 import org.eclipse.jdt.internal.core.util.HashSetOfArray;
 import org.eclipse.jdt.internal.core.util.Util;
-import org.eclipse.jdt.internal.core.util.HashtableOfArrayToObject;
+import org.eclipse.jdt.internal.core.util.PackageNameMap;
 
 /**
  * Info for IJavaProject.
@@ -53,8 +53,9 @@ class JavaProjectElementInfo extends OpenableElementInfo {
 		/*
 		 * A cache of all package fragments in this project.
 		 * (a map from String[] (the package name) to IPackageFragmentRoot[] (the package fragment roots that contain a package fragment with this name))
+		 * The map is shared by the name lookups of this project, which derive their own map when adding the packages of working copies.
 		 */
-		public HashtableOfArrayToObject allPkgFragmentsCache;
+		public PackageNameMap allPkgFragmentsCache;
 
 		/*
 		 * A cache of package fragments for each package fragment root of this project
@@ -73,16 +74,17 @@ class JavaProjectElementInfo extends OpenableElementInfo {
 	ProjectCache projectCache;
 
 	/*
-	 * Adds the given name and its super names to the given set
-	 * (e.g. for {"a", "b", "c"}, adds {"a", "b", "c"}, {"a", "b"}, and {"a"})
+	 * Answers the given map with the super names of the given name added
+	 * (e.g. for {"a", "b", "c"}, adds {"a", "b"}, and {"a"})
 	 */
-	static void addSuperPackageNames(String[] pkgName, HashtableOfArrayToObject packageFragments) {
+	static PackageNameMap addSuperPackageNames(String[] pkgName, PackageNameMap packageFragments) {
 		for (int i = pkgName.length-1; i > 0; i--) {
 			if (packageFragments.getKey(pkgName, i) == null) {
 				System.arraycopy(pkgName, 0, pkgName = new String[i], 0, i);
-				packageFragments.put(pkgName, NO_ROOTS);
+				packageFragments = packageFragments.put(pkgName, NO_ROOTS);
 			}
 		}
+		return packageFragments;
 	}
 
 	/**
@@ -289,12 +291,12 @@ class JavaProjectElementInfo extends OpenableElementInfo {
 	 */
 	NameLookup newNameLookup(JavaProject project, ICompilationUnit[] workingCopies) {
 		ProjectCache cache = getProjectCache(project);
-		HashtableOfArrayToObject allPkgFragmentsCache = cache.allPkgFragmentsCache;
+		PackageNameMap allPkgFragmentsCache = cache.allPkgFragmentsCache;
 		if (allPkgFragmentsCache == null) {
 			HashMap rootInfos = JavaModelManager.getJavaModelManager().deltaState.roots;
 			IPackageFragmentRoot[] allRoots = cache.allPkgFragmentRootsCache;
 			int length = allRoots.length;
-			allPkgFragmentsCache = new HashtableOfArrayToObject();
+			allPkgFragmentsCache = PackageNameMap.EMPTY;
 			for (int i = 0; i < length; i++) {
 				IPackageFragmentRoot root = allRoots[i];
 				DeltaProcessor.RootInfo rootInfo = (DeltaProcessor.RootInfo) rootInfos.get(root.getPath());
@@ -325,19 +327,19 @@ class JavaProjectElementInfo extends OpenableElementInfo {
 						continue;
 					Object existing = allPkgFragmentsCache.get(pkgName);
 					if (existing == null || existing == NO_ROOTS) {
-						allPkgFragmentsCache.put(pkgName, root);
+						allPkgFragmentsCache = allPkgFragmentsCache.put(pkgName, root);
 						// ensure super packages (see https://bugs.eclipse.org/bugs/show_bug.cgi?id=119161)
 						// are also in the map
-						addSuperPackageNames(pkgName, allPkgFragmentsCache);
+						allPkgFragmentsCache = addSuperPackageNames(pkgName, allPkgFragmentsCache);
 					} else {
 						if (existing instanceof PackageFragmentRoot) {
-							allPkgFragmentsCache.put(pkgName, new IPackageFragmentRoot[] {(PackageFragmentRoot) existing, root});
+							allPkgFragmentsCache = allPkgFragmentsCache.put(pkgName, new IPackageFragmentRoot[] {(PackageFragmentRoot) existing, root});
 						} else {
 							IPackageFragmentRoot[] roots = (IPackageFragmentRoot[]) existing;
 							int rootLength = roots.length;
 							System.arraycopy(roots, 0, roots = new IPackageFragmentRoot[rootLength+1], 0, rootLength);
 							roots[rootLength] = root;
-							allPkgFragmentsCache.put(pkgName, roots);
+							allPkgFragmentsCache = allPkgFragmentsCache.put(pkgName, roots);
 						}
 					}
 				}
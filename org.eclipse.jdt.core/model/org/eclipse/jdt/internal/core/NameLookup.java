@@ -36,7 +36,7 @@ import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
 import org.eclipse.jdt.internal.compiler.parser.ScannerHelper;
 import org.eclipse.jdt.internal.compiler.util.HashtableOfObjectToInt;
 import org.eclipse.jdt.internal.compiler.util.SuffixConstants;
-import org.eclipse.jdt.internal.core.util.HashtableOfArrayToObject;
+import org.eclipse.jdt.internal.core.util.PackageNameMap;
 import org.eclipse.jdt.internal.core.util.Messages;
 import org.eclipse.jdt.internal.core.util.Util;
 
@@ -126,8 +126,10 @@ public class NameLookup implements SuffixConstants {
 	 * classpath.
 	 * Note if the list is of size 1, then the IPackageFragmentRoot object
 	 * replaces the array.
+	 * The table of the project is shared, and the packages of the working copies
+	 * are added to a derived table.
 	 */
-	protected HashtableOfArrayToObject packageFragments;
+	protected PackageNameMap packageFragments;
 
 	/**
 	 * Reverse map from root path to corresponding resolved CP entry
@@ -146,7 +148,7 @@ public class NameLookup implements SuffixConstants {
 
 	public NameLookup(
 			IPackageFragmentRoot[] packageFragmentRoots,
-			HashtableOfArrayToObject packageFragments,
+			PackageNameMap packageFragments,
 			ICompilationUnit[] workingCopies,
 			Map rootToResolvedEntries) {
 		long start = -1;
@@ -158,15 +160,9 @@ public class NameLookup implements SuffixConstants {
 			start = System.currentTimeMillis();
 		}
 		this.packageFragmentRoots = packageFragmentRoots;
-		if (workingCopies == null) {
-			this.packageFragments = packageFragments;
-		} else {
-			// clone tables as we're adding packages from working copies
-			try {
-				this.packageFragments = (HashtableOfArrayToObject) packageFragments.clone();
-			} catch (CloneNotSupportedException e1) {
-				// ignore (implementation of HashtableOfArrayToObject supports cloning)
-			}
+		this.packageFragments = packageFragments;
+		if (workingCopies != null) {
+			// packages from working copies are added to a derived table, the table of the project is not modified
 			this.typesInWorkingCopies = new HashMap();
 			HashtableOfObjectToInt rootPositions = new HashtableOfObjectToInt();
 			for (int i = 0, length = packageFragmentRoots.length; i < length; i++) {
@@ -216,15 +212,15 @@ public class NameLookup implements SuffixConstants {
 				String[] pkgName = pkg.names;
 				Object existing = this.packageFragments.get(pkgName);
 				if (existing == null || existing == JavaProjectElementInfo.NO_ROOTS) {
-					this.packageFragments.put(pkgName, root);
+					this.packageFragments = this.packageFragments.put(pkgName, root);
 					// ensure super packages (see https://bugs.eclipse.org/bugs/show_bug.cgi?id=119161)
 					// are also in the map
-					JavaProjectElementInfo.addSuperPackageNames(pkgName, this.packageFragments);
+					this.packageFragments = JavaProjectElementInfo.addSuperPackageNames(pkgName, this.packageFragments);
 				} else {
 					if (existing instanceof PackageFragmentRoot) {
 						int exisitingPosition = rootPositions.get(existing);
 						if (rootPosition != exisitingPosition) { // if not equal
-							this.packageFragments.put(
+							this.packageFragments = this.packageFragments.put(
 								pkgName,
 								exisitingPosition < rootPosition ?
 									new IPackageFragmentRoot[] {(PackageFragmentRoot) existing, root} :
@@ -254,7 +250,7 @@ public class NameLookup implements SuffixConstants {
 							System.arraycopy(roots, 0, newRoots, 0, insertionIndex);
 							newRoots[insertionIndex] = root;
 							System.arraycopy(roots, insertionIndex, newRoots, insertionIndex+1, rootLength-insertionIndex);
-							this.packageFragments.put(pkgName, newRoots);
+							this.packageFragments = this.packageFragments.put(pkgName, newRoots);
 						}
 					}
 				}
@@ -353,11 +349,11 @@ public class NameLookup implements SuffixConstants {
 		if (index != -1) {
 			cuName= cuName.substring(0, index);
 		}
-		int pkgIndex = this.packageFragments.getIndex(pkgName);
-		if (pkgIndex != -1) {
-			Object value = this.packageFragments.valueTable[pkgIndex];
+		PackageNameMap.Entry pkgEntry = this.packageFragments.getEntry(pkgName);
+		if (pkgEntry != null) {
+			Object value = pkgEntry.value;
 			// reuse existing String[]
-			pkgName = (String[]) this.packageFragments.keyTable[pkgIndex];
+			pkgName = (String[]) pkgEntry.key;
 			if (value instanceof PackageFragmentRoot) {
 				return findCompilationUnit(pkgName, cuName, (PackageFragmentRoot) value);
 			} else {
@@ -517,17 +513,30 @@ public class NameLookup implements SuffixConstants {
 			IPackageFragment[] oneFragment = null;
 			ArrayList pkgs = null;
 			char[] lowercaseName = hasPatternChars && !isStarPattern ? name.toLowerCase().toCharArray() : null;
-			Object[][] keys = this.packageFragments.keyTable;
-			for (int i = 0, length = keys.length; i < length; i++) {
-				String[] pkgName = (String[]) keys[i];
-				if (pkgName != null) {
-					boolean match = isStarPattern || (hasPatternChars
-						? CharOperation.match(lowercaseName, Util.concatCompoundNameToCharArray(pkgName), false)
-						: Util.startsWithIgnoreCase(pkgName, splittedName, partialMatch));
-					if (match) {
-						Object value = this.packageFragments.valueTable[i];
-						if (value instanceof PackageFragmentRoot) {
-							IPackageFragment pkg = ((PackageFragmentRoot) value).getPackageFragment(pkgName);
+			PackageNameMap.Entry[] entries = this.packageFragments.entries();
+			for (int i = 0, length = entries.length; i < length; i++) {
+				String[] pkgName = (String[]) entries[i].key;
+				boolean match = isStarPattern || (hasPatternChars
+					? CharOperation.match(lowercaseName, Util.concatCompoundNameToCharArray(pkgName), false)
+					: Util.startsWithIgnoreCase(pkgName, splittedName, partialMatch));
+				if (match) {
+					Object value = entries[i].value;
+					if (value instanceof PackageFragmentRoot) {
+						IPackageFragment pkg = ((PackageFragmentRoot) value).getPackageFragment(pkgName);
+						if (oneFragment == null) {
+							oneFragment = new IPackageFragment[] {pkg};
+						} else {
+							if (pkgs == null) {
+								pkgs = new ArrayList();
+								pkgs.add(oneFragment[0]);
+							}
+							pkgs.add(pkg);
+						}
+					} else {
+						IPackageFragmentRoot[] roots = (IPackageFragmentRoot[]) value;
+						for (int j = 0, length2 = roots.length; j < length2; j++) {
+							PackageFragmentRoot root = (PackageFragmentRoot) roots[j];
+							IPackageFragment pkg = root.getPackageFragment(pkgName);
 							if (oneFragment == null) {
 								oneFragment = new IPackageFragment[] {pkg};
 							} else {
@@ -537,21 +546,6 @@ public class NameLookup implements SuffixConstants {
 								}
 								pkgs.add(pkg);
 							}
-						} else {
-							IPackageFragmentRoot[] roots = (IPackageFragmentRoot[]) value;
-							for (int j = 0, length2 = roots.length; j < length2; j++) {
-								PackageFragmentRoot root = (PackageFragmentRoot) roots[j];
-								IPackageFragment pkg = root.getPackageFragment(pkgName);
-								if (oneFragment == null) {
-									oneFragment = new IPackageFragment[] {pkg};
-								} else {
-									if (pkgs == null) {
-										pkgs = new ArrayList();
-										pkgs.add(oneFragment[0]);
-									}
-									pkgs.add(pkg);
-								}
-							}
 						}
 					}
 				}
@@ -563,12 +557,12 @@ public class NameLookup implements SuffixConstants {
 			return result;
 		} else {
 			String[] splittedName = Util.splitOn('.', name, 0, name.length());
-			int pkgIndex = this.packageFragments.getIndex(splittedName);
-			if (pkgIndex == -1)
+			PackageNameMap.Entry pkgEntry = this.packageFragments.getEntry(splittedName);
+			if (pkgEntry == null)
 				return null;
-			Object value = this.packageFragments.valueTable[pkgIndex];
+			Object value = pkgEntry.value;
 			// reuse existing String[]
-			String[] pkgName = (String[]) this.packageFragments.keyTable[pkgIndex];
+			String[] pkgName = (String[]) pkgEntry.key;
 			if (value instanceof PackageFragmentRoot) {
 				return new IPackageFragment[] {((PackageFragmentRoot) value).getPackageFragment(pkgName)};
 			} else {
@@ -913,13 +907,13 @@ public class NameLookup implements SuffixConstants {
 		}
 */		if (partialMatch) {
 			String[] splittedName = Util.splitOn('.', name, 0, name.length());
-			Object[][] keys = this.packageFragments.keyTable;
-			for (int i = 0, length = keys.length; i < length; i++) {
+			PackageNameMap.Entry[] entries = this.packageFragments.entries();
+			for (int i = 0, length = entries.length; i < length; i++) {
 				if (requestor.isCanceled())
 					return;
-				String[] pkgName = (String[]) keys[i];
-				if (pkgName != null && Util.startsWithIgnoreCase(pkgName, splittedName, partialMatch)) {
-					Object value = this.packageFragments.valueTable[i];
+				String[] pkgName = (String[]) entries[i].key;
+				if (Util.startsWithIgnoreCase(pkgName, splittedName, partialMatch)) {
+					Object value = entries[i].value;
 					if (value instanceof PackageFragmentRoot) {
 						PackageFragmentRoot root = (PackageFragmentRoot) value;
 						requestor.acceptPackageFragment(root.getPackageFragment(pkgName));
@@ -936,11 +930,11 @@ public class NameLookup implements SuffixConstants {
 			}
 		} else {
 			String[] splittedName = Util.splitOn('.', name, 0, name.length());
-			int pkgIndex = this.packageFragments.getIndex(splittedName);
-			if (pkgIndex != -1) {
-				Object value = this.packageFragments.valueTable[pkgIndex];
+			PackageNameMap.Entry pkgEntry = this.packageFragments.getEntry(splittedName);
+			if (pkgEntry != null) {
+				Object value = pkgEntry.value;
 				// reuse existing String[]
-				String[] pkgName = (String[]) this.packageFragments.keyTable[pkgIndex];
+				String[] pkgName = (String[]) pkgEntry.key;
 				if (value instanceof PackageFragmentRoot) {
 					requestor.acceptPackageFragment(((PackageFragmentRoot) value).getPackageFragment(pkgName));
 				} else {
@@ -12,9 +12,10 @@
 package org.eclipse.jdt.internal.core;
 
 import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.internal.core.util.ILRUCacheable;
 
 /** Element info for IOpenable elements. */
-public class OpenableElementInfo extends JavaElementInfo {
+public class OpenableElementInfo extends JavaElementInfo implements ILRUCacheable {
 
 	/**
 	 * Collection of handles of immediate children of this
@@ -29,6 +30,13 @@ public class OpenableElementInfo extends JavaElementInfo {
 	 */
 	protected boolean isStructureKnown = false;
 
+	/*
+	 * The space this info takes in the Java model cache: 1 unless the cache of openables
+	 * is bounded by a memory budget, in which case it is the estimated size in KB of this info
+	 * and of the infos of its children (see JavaModelCache#weighOpenables(Map))
+	 */
+	protected int cacheFootprint = 1;
+
 	public void addChild(IJavaElement child) {
 		IJavaElement[] oldChildren = this.children;
 		int length = oldChildren.length;
@@ -46,6 +54,10 @@ public class OpenableElementInfo extends JavaElementInfo {
 		}
 	}
 
+	public int getCacheFootprint() {
+		return this.cacheFootprint;
+	}
+
 	public IJavaElement[] getChildren() {
 		return this.children;
 	}
@@ -171,6 +171,7 @@ public double getLoadFactor() {
 		int spaceNeeded = (int)((1 - this.loadFactor) * limit);
 		spaceNeeded = (spaceNeeded > space) ? spaceNeeded : space;
 		LRUCacheEntry entry = this.entryQueueTail;
+		int size = this.entryTable.size();
 
 		try {
 			// disable timestamps update while making space so that the previous and next links are not changed
@@ -183,6 +184,8 @@ public double getLoadFactor() {
 			}
 		} finally {
 			this.timestampsOn = true;
+			// entries which could not be closed are not removed
+			this.evictionCount += size - this.entryTable.size();
 		}
 
 		/* check again, since we may have aquired enough space */
@@ -20,6 +20,7 @@ import org.eclipse.jdt.internal.compiler.Compiler;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.impl.UnitStats;
 import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
 import org.eclipse.jdt.internal.compiler.problem.*;
 import org.eclipse.jdt.internal.compiler.util.SimpleSet;
@@ -57,9 +58,13 @@ private boolean inCompiler;
 
 protected boolean keepStoringProblemMarkers;
 protected SimpleSet filesWithAnnotations = null;
+protected BuildCache buildCache = null; // only when a cache location is specified, see BuildCache
+protected MarkerSink markerSink; // problems and tasks of the units compiled in a batch
 
 //2000 is best compromise between space used and speed
 public static int MAX_AT_ONCE = Integer.getInteger(JavaModelManager.MAX_COMPILED_UNITS_AT_ONCE, 2000).intValue();
+// record the fields & methods referenced by each unit, so only the units using the changed members of a type are recompiled (opt-in)
+public static boolean RecordMemberReferences = "true".equals(System.getProperty("jdt.builder.memberReferences")); //$NON-NLS-1$ //$NON-NLS-2$
 public final static String[] JAVA_PROBLEM_MARKER_ATTRIBUTE_NAMES = {
 	IMarker.MESSAGE,
 	IMarker.SEVERITY,
@@ -93,6 +98,7 @@ protected AbstractImageBuilder(JavaBuilder javaBuilder, boolean buildStarting, S
 	this.sourceLocations = this.nameEnvironment.sourceLocations;
 	this.notifier = javaBuilder.notifier;
 	this.keepStoringProblemMarkers = true; // may get disabled when missing classfiles are encountered
+	this.markerSink = new MarkerSink();
 
 	if (buildStarting) {
 		this.newState = newState == null ? new State(javaBuilder) : newState;
@@ -110,6 +116,9 @@ protected AbstractImageBuilder(JavaBuilder javaBuilder, boolean buildStarting, S
 					break;
 				}
 			}
+		} else if (BuildCache.isEnabled() && !this.compiler.options.processAnnotations) {
+			// participants can change the result of compiling a source file, so do not reuse cached results
+			this.buildCache = new BuildCache(this.newState, this.nameEnvironment, this.compiler.options);
 		}
 	}
 }
@@ -126,6 +135,8 @@ public void acceptResult(CompilationResult result) {
 	SourceFile compilationUnit = (SourceFile) result.getCompilationUnit(); // go directly back to the sourceFile
 	if (!this.workQueue.isCompiled(compilationUnit)) {
 		this.workQueue.finished(compilationUnit);
+		UnitStats unitStats = result.stats;
+		if (unitStats != null) unitStats.startPhase();
 
 		try {
 			updateProblemsFor(compilationUnit, result); // record compilation problems before potentially adding duplicate errors
@@ -199,9 +210,12 @@ public void acceptResult(CompilationResult result) {
 		if (result.hasAnnotations && this.filesWithAnnotations != null) // only initialized if an annotation processor is attached
 			this.filesWithAnnotations.add(compilationUnit);
 
+		if (this.buildCache != null && this.inCompiler && duplicateTypeNames == null && definedTypeNames.size() == length)
+			this.buildCache.add(compilationUnit, result);
 		this.compiler.lookupEnvironment.releaseClassFiles(classFiles);
 		finishedWith(typeLocator, result, compilationUnit.getMainTypeName(), definedTypeNames, duplicateTypeNames);
-		this.notifier.compiled(compilationUnit);
+		if (unitStats != null) unitStats.endPhase(UnitStats.ACCEPT);
+		this.notifier.compiled(compilationUnit, unitStats);
 	}
 }
 
@@ -209,6 +223,28 @@ protected void acceptSecondaryType(ClassFile classFile) {
 	// noop
 }
 
+/* Accept the results of the given units which can be reused from the build cache
+* and answer the units which remain to be compiled.
+*/
+protected SourceFile[] acceptCachedResults(SourceFile[] units) {
+	this.buildCache.startLookups();
+	SourceFile[] toCompile = new SourceFile[units.length];
+	int count = 0;
+	for (int i = 0, l = units.length; i < l; i++) {
+		CompilationResult result = this.buildCache.find(units[i]);
+		if (result == null) {
+			toCompile[count++] = units[i];
+		} else {
+			if (JavaBuilder.DEBUG)
+				System.out.println("Reusing cached result of " + units[i].typeLocator()); //$NON-NLS-1$
+			acceptResult(result);
+		}
+	}
+	if (count < units.length)
+		System.arraycopy(toCompile, 0, toCompile = new SourceFile[count], 0, count);
+	return toCompile;
+}
+
 protected void addAllSourceFiles(final ArrayList sourceFiles) throws CoreException {
 	for (int i = 0, l = this.sourceLocations.length; i < l; i++) {
 		final ClasspathMultiDirectory sourceLocation = this.sourceLocations[i];
@@ -276,6 +312,8 @@ protected void cleanUp() {
 	this.compiler = null;
 	this.workQueue = null;
 	this.problemSourceFiles = null;
+	this.buildCache = null;
+	this.markerSink = null;
 }
 
 /* Compile the given elements, adding more elements to the work queue
@@ -338,12 +376,21 @@ protected void compile(SourceFile[] units) {
 			if (participantResults[i] != null)
 				recordParticipantResult(participantResults[i]);
 
+		long start = System.nanoTime();
 		processAnnotations(participantResults);
+		this.notifier.recordPhase(BuildStats.ANNOTATION_PROCESSING, System.nanoTime() - start);
+		storeMarkers();
 	}
 }
 
 protected void compile(SourceFile[] units, SourceFile[] additionalUnits, boolean compilingFirstGroup) {
-	if (units.length == 0) return;
+	if (this.buildCache != null && this.nameEnvironment.isIncrementalBuild)
+		// only incremental builds since a unit using a cached result is recompiled if the types it uses change later in the build
+		units = acceptCachedResults(units);
+	if (units.length == 0) {
+		storeMarkers();
+		return;
+	}
 	this.notifier.aboutToCompile(units[0]); // just to change the message
 
 	// extend additionalFilenames with all hierarchical problem types found during this entire build
@@ -362,6 +409,7 @@ protected void compile(SourceFile[] units, SourceFile[] additionalUnits, boolean
 		initialTypeNames[i] = units[i].initialTypeName;
 	this.nameEnvironment.setNames(initialTypeNames, additionalUnits);
 	this.notifier.checkCancel();
+	long completionTime = this.compiler.stats.completionTime;
 	try {
 		this.inCompiler = true;
 		this.compiler.compile(units);
@@ -371,6 +419,8 @@ protected void compile(SourceFile[] units, SourceFile[] additionalUnits, boolean
 	} finally {
 		this.inCompiler = false;
 	}
+	this.notifier.recordPhase(BuildStats.COMPLETION, (this.compiler.stats.completionTime - completionTime) * 1000000);
+	storeMarkers();
 	// Check for cancel immediately after a compile, because the compiler may
 	// have been cancelled but without propagating the correct exception
 	this.notifier.checkCancel();
@@ -445,7 +495,8 @@ protected SourceFile findSourceFile(IFile file, boolean mustExist) {
 
 protected void finishedWith(String sourceLocator, CompilationResult result, char[] mainTypeName, ArrayList definedTypeNames, ArrayList duplicateTypeNames) {
 	if (duplicateTypeNames == null) {
-		this.newState.record(sourceLocator, result.qualifiedReferences, result.simpleNameReferences, result.rootReferences, mainTypeName, definedTypeNames);
+		this.newState.record(sourceLocator, result.qualifiedReferences, result.simpleNameReferences, result.rootReferences,
+			result.memberReferences, result.hierarchyReferences, mainTypeName, definedTypeNames);
 		return;
 	}
 
@@ -461,7 +512,8 @@ protected void finishedWith(String sourceLocator, CompilationResult result, char
 		System.arraycopy(simpleRefs, 0, simpleRefs = new char[sLength + 1][], 0, sLength);
 		simpleRefs[sLength] = typeName;
 	}
-	this.newState.record(sourceLocator, result.qualifiedReferences, simpleRefs, result.rootReferences, mainTypeName, definedTypeNames);
+	this.newState.record(sourceLocator, result.qualifiedReferences, simpleRefs, result.rootReferences,
+		result.memberReferences, result.hierarchyReferences, mainTypeName, definedTypeNames);
 }
 
 protected IContainer createFolder(IPath packagePath, IContainer outputFolder) throws CoreException {
@@ -546,6 +598,9 @@ protected Compiler newCompiler() {
 
 	// enable the compiler reference info support
 	options.produceReferenceInfo = true;
+	options.produceMemberReferenceInfo = RecordMemberReferences;
+	// record the time and memory spent in each phase when someone is interested in them
+	options.recordUnitStats = this.notifier.isRecordingStats();
 
 	if (options.complianceLevel >= ClassFileConstants.JDK1_6
 			&& options.processAnnotations) {
@@ -649,7 +704,7 @@ protected void recordParticipantResult(CompilationParticipantResult result) {
 
 	String[] dependencies = result.dependencies;
 	if (dependencies != null) {
-		ReferenceCollection refs = (ReferenceCollection) this.newState.references.get(result.sourceFile.typeLocator());
+		ReferenceCollection refs = (ReferenceCollection) this.newState.getReferences().get(result.sourceFile.typeLocator());
 		if (refs != null)
 			refs.addDependencies(dependencies);
 	}
@@ -690,6 +745,7 @@ protected void storeProblemsFor(SourceFile sourceFile, CategorizedProblem[] prob
 			boolean isInvalidClasspathError = JavaCore.ERROR.equals(this.javaBuilder.javaProject.getOption(JavaCore.CORE_INCOMPLETE_CLASSPATH, true));
 			// insert extra classpath problem, and make it the only problem for this project (optional)
 			if (isInvalidClasspathError && JavaCore.ABORT.equals(this.javaBuilder.javaProject.getOption(JavaCore.CORE_JAVA_BUILD_INVALID_CLASSPATH, true))) {
+				this.markerSink.clear();
 				JavaBuilder.removeProblemsAndTasksFor(this.javaBuilder.currentProject); // make this the only problem for this project
 				this.keepStoringProblemMarkers = false;
 			}
@@ -743,8 +799,6 @@ protected void storeProblemsFor(SourceFile sourceFile, CategorizedProblem[] prob
 					}
 				}
 			}
-			IMarker marker = resource.createMarker(markerType);
-
 			String[] attributeNames = JAVA_PROBLEM_MARKER_ATTRIBUTE_NAMES;
 			int standardLength = attributeNames.length;
 			String[] allNames = attributeNames;
@@ -777,7 +831,13 @@ protected void storeProblemsFor(SourceFile sourceFile, CategorizedProblem[] prob
 			if (extraLength > 0)
 				System.arraycopy(problem.getExtraMarkerAttributeValues(), 0, allValues, index, extraLength);
 
-			marker.setAttributes(allNames, allValues);
+			if (resource == sourceFile.resource) {
+				this.markerSink.add(resource, markerType, allNames, allValues);
+			} else {
+				// create the marker on the package right away so the next unit of the package finds it
+				IMarker marker = resource.createMarker(markerType);
+				marker.setAttributes(allNames, allValues);
+			}
 
 			if (!this.keepStoringProblemMarkers) return; // only want the one error recorded on this source file
 		}
@@ -791,7 +851,6 @@ protected void storeTasksFor(SourceFile sourceFile, CategorizedProblem[] tasks)
 	for (int i = 0, l = tasks.length; i < l; i++) {
 		CategorizedProblem task = tasks[i];
 		if (task.getID() == IProblem.Task) {
-			IMarker marker = resource.createMarker(IJavaModelMarker.TASK_MARKER);
 			Integer priority = P_NORMAL;
 			String compilerPriority = task.getArguments()[2];
 			if (JavaCore.COMPILER_TASK_PRIORITY_HIGH.equals(compilerPriority))
@@ -825,11 +884,23 @@ protected void storeTasksFor(SourceFile sourceFile, CategorizedProblem[] tasks)
 			if (extraLength > 0)
 				System.arraycopy(task.getExtraMarkerAttributeValues(), 0, allValues, index, extraLength);
 
-			marker.setAttributes(allNames, allValues);
+			this.markerSink.add(resource, IJavaModelMarker.TASK_MARKER, allNames, allValues);
 		}
 	}
 }
 
+/* Apply the problems and tasks collected since the last call in one workspace operation.
+*/
+protected void storeMarkers() {
+	long start = System.nanoTime();
+	try {
+		this.markerSink.flush();
+	} catch (CoreException e) {
+		throw internalException(e);
+	}
+	this.notifier.recordPhase(BuildStats.MARKERS, System.nanoTime() - start);
+}
+
 protected void updateProblemsFor(SourceFile sourceFile, CompilationResult result) throws CoreException {
 	CategorizedProblem[] problems = result.getProblems();
 	if (problems == null || problems.length == 0) return;
@@ -65,6 +65,8 @@ public void build() {
 					rebuildTypesAffectedBySecondaryTypes();
 			if (this.incrementalBuilder != null)
 				this.incrementalBuilder.buildAfterBatchBuild();
+			if (this.buildCache != null)
+				this.buildCache.store();
 		}
 
 		if (this.javaBuilder.javaProject.hasCycleMarker())
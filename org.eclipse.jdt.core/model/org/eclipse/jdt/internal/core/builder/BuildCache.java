@@ -0,0 +1,729 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.builder;
+
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.*;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.core.compiler.IProblem;
+import org.eclipse.jdt.internal.compiler.ClassFile;
+import org.eclipse.jdt.internal.compiler.CompilationResult;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+import org.eclipse.jdt.internal.compiler.env.IBinaryType;
+import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.problem.DefaultProblem;
+import org.eclipse.jdt.internal.compiler.problem.ProblemSeverities;
+import org.eclipse.jdt.internal.compiler.util.SimpleLookupTable;
+import org.eclipse.jdt.internal.compiler.util.SimpleSet;
+import org.eclipse.jdt.internal.compiler.util.SuffixConstants;
+import org.eclipse.jdt.internal.core.util.Util;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * A cache of compiled source files on the local file system, shared by all the builds which use the same
+ * cache location.
+ * <p>
+ * Entries are keyed by a digest of the contents and location of a source file, the compiler options and the
+ * classpath. Each entry holds the class files, problems, tasks and references produced by compiling the source
+ * file along with a hash of every name it referenced: the ABI hash of the type with this name (see
+ * ClassFileReader.getAbiHash()) or, when no such type exists, a fingerprint of the package with this name.
+ * An entry is only reused when all of these hashes are unchanged. Entries are stored at the end of a build,
+ * once all the class files of the project have been written, and the least recently used ones are deleted
+ * when the cache grows over its size limit.
+ * </p>
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class BuildCache {
+
+// the cache is disabled unless a directory is specified
+public static String CacheLocation = System.getProperty("jdt.builder.cacheLocation"); //$NON-NLS-1$
+// in megabytes
+public static int MaxCacheSize = Integer.getInteger("jdt.builder.cacheSize", 512).intValue(); //$NON-NLS-1$
+
+static final byte VERSION = 1;
+static final long HASH_SEED = 0xcbf29ce484222325L;
+static final long HASH_PRIME = 0x100000001b3L;
+static final String TEMP_FILE_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+// keyed by cache location, value is the Long total size of its entries, computed once per session
+private static SimpleLookupTable CacheSizes = new SimpleLookupTable(3);
+
+File cacheFolder;
+State state;
+NameEnvironment nameEnvironment;
+int maxProblemsPerUnit;
+byte[] environmentDigest;
+
+// keyed by type locator, value is the key of the source file computed when looking it up
+SimpleLookupTable entryKeys;
+// type locators of the source files whose cached result was reused, computed before the changes of this build
+SimpleSet reusedTypeLocators;
+ArrayList pendingEntries;
+// keyed by qualified name, value is the Long hash of the type or package with this name outside of the project
+SimpleLookupTable externalTypeHashes;
+SimpleLookupTable externalPackageHashes;
+// keyed by qualified package name, value is the ArrayList of the type names defined by the project in the package
+SimpleLookupTable projectPackages;
+
+int hits;
+int misses;
+int stores;
+int evictions;
+
+static class Entry {
+	String key;
+	String packageName;
+	boolean checkSecondaryTypes;
+	char[][][] qualifiedReferences;
+	char[][] simpleNameReferences;
+	char[][] rootReferences;
+	char[][] memberReferences;
+	char[][] hierarchyReferences;
+	String[] classFileNames;
+	int[] enclosingClassFiles;
+	byte[][] classFileBytes;
+	CategorizedProblem[] problems;
+	CategorizedProblem[] tasks;
+}
+
+static class CachedClassFile extends ClassFile {
+	char[] fileName;
+	byte[] contents;
+
+	CachedClassFile(char[] fileName, byte[] contents) {
+		this.fileName = fileName;
+		this.contents = contents;
+	}
+	public char[] fileName() {
+		return this.fileName;
+	}
+	public byte[] getBytes() {
+		return this.contents;
+	}
+}
+
+static class CachedProblem extends DefaultProblem {
+	int categoryId;
+
+	CachedProblem(char[] originatingFileName, String message, int id, String[] arguments, int severity, int startPosition, int endPosition, int line, int column, int categoryId) {
+		super(originatingFileName, message, id, arguments, severity, startPosition, endPosition, line, column);
+		this.categoryId = categoryId;
+	}
+	public int getCategoryID() {
+		return this.categoryId;
+	}
+}
+
+public static boolean isEnabled() {
+	return CacheLocation != null && CacheLocation.length() > 0;
+}
+
+BuildCache(State state, NameEnvironment nameEnvironment, CompilerOptions options) {
+	this.cacheFolder = new File(CacheLocation);
+	this.state = state;
+	this.nameEnvironment = nameEnvironment;
+	this.maxProblemsPerUnit = options.maxProblemsPerUnit;
+	this.entryKeys = new SimpleLookupTable();
+	this.reusedTypeLocators = new SimpleSet();
+	this.pendingEntries = new ArrayList();
+	this.externalTypeHashes = new SimpleLookupTable();
+	this.externalPackageHashes = new SimpleLookupTable();
+
+	MessageDigest digest = newDigest();
+	update(digest, String.valueOf(VERSION) + State.VERSION);
+	if (JavaCore.getPlugin() != null)
+		update(digest, JavaCore.getPlugin().getBundle().getVersion().toString());
+	update(digest, String.valueOf(options.produceMemberReferenceInfo));
+	Map optionsMap = new TreeMap(options.getMap());
+	for (Iterator iterator = optionsMap.entrySet().iterator(); iterator.hasNext();)
+		update(digest, iterator.next().toString());
+	// the access rules of the classpath entries are part of their description
+	ClasspathLocation[] binaryLocations = nameEnvironment.binaryLocations;
+	for (int i = 0, l = binaryLocations.length; i < l; i++)
+		update(digest, binaryLocations[i].toString());
+	this.environmentDigest = digest.digest();
+}
+
+/**
+ * Add the result of compiling the given source file, which is stored with the other results of the build
+ * by store() once the class files of all the types it depends on have been written.
+ */
+void add(SourceFile sourceFile, CompilationResult result) {
+	if (result.hasInconsistentToplevelHierarchies) return;
+	CategorizedProblem[] problems = result.getProblems();
+	CategorizedProblem[] tasks = result.getTasks();
+	if (!isCacheable(problems) || !isCacheable(tasks)) return;
+
+	String key = (String) this.entryKeys.removeKey(sourceFile.typeLocator());
+	if (key == null && (key = computeKey(sourceFile)) == null) return;
+
+	Entry entry = new Entry();
+	entry.key = key;
+	entry.packageName = new String(CharOperation.concatWith(sourceFile.getPackageName(), '/'));
+	entry.checkSecondaryTypes = result.checkSecondaryTypes;
+	entry.qualifiedReferences = result.qualifiedReferences;
+	entry.simpleNameReferences = result.simpleNameReferences;
+	entry.rootReferences = result.rootReferences;
+	entry.memberReferences = result.memberReferences;
+	entry.hierarchyReferences = result.hierarchyReferences;
+	ClassFile[] classFiles = result.getClassFiles();
+	int length = classFiles.length;
+	entry.classFileNames = new String[length];
+	entry.enclosingClassFiles = new int[length];
+	entry.classFileBytes = new byte[length][];
+	for (int i = 0; i < length; i++) {
+		ClassFile classFile = classFiles[i];
+		entry.classFileNames[i] = new String(classFile.fileName());
+		entry.classFileBytes[i] = classFile.getBytes();
+		entry.enclosingClassFiles[i] = -1;
+		if (classFile.isNestedType) {
+			ClassFile outerMost = classFile.outerMostEnclosingClassFile();
+			for (int j = 0; j < length; j++)
+				if (classFiles[j] == outerMost)
+					entry.enclosingClassFiles[i] = j;
+		}
+	}
+	entry.problems = problems;
+	entry.tasks = tasks;
+	this.pendingEntries.add(entry);
+}
+
+private boolean isCacheable(CategorizedProblem[] problems) {
+	if (problems == null) return true;
+	for (int i = 0, l = problems.length; i < l; i++) {
+		CategorizedProblem problem = problems[i];
+		// problems from participants may carry extra marker attributes, and missing class files depend on more than the references
+		if (problem.getClass() != DefaultProblem.class || problem.getID() == IProblem.IsClassPathCorrect)
+			return false;
+	}
+	return true;
+}
+
+/**
+ * Answer a compilation result for the given source file from the cache, or null if there is no entry for
+ * the current contents of the source file whose dependencies are unchanged.
+ */
+CompilationResult find(SourceFile sourceFile) {
+	String key = computeKey(sourceFile);
+	if (key == null) return null;
+
+	File[] variants = entryFolder(key).listFiles();
+	if (variants != null) {
+		for (int i = 0, l = variants.length; i < l; i++) {
+			File variant = variants[i];
+			if (variant.getName().endsWith(TEMP_FILE_SUFFIX)) continue;
+			try {
+				CompilationResult result = read(variant, sourceFile);
+				if (result != null) {
+					variant.setLastModified(System.currentTimeMillis()); // most recently used
+					this.reusedTypeLocators.add(sourceFile.typeLocator());
+					this.hits++;
+					return result;
+				}
+			} catch (IOException e) {
+				// the entry was evicted or is corrupt
+				if (JavaBuilder.DEBUG)
+					System.out.println("Could not read build cache entry " + variant + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+	this.misses++;
+	this.reusedTypeLocators.remove(sourceFile.typeLocator());
+	this.entryKeys.put(sourceFile.typeLocator(), key);
+	return null;
+}
+
+/**
+ * Answer whether the result of the given source file was last reused from the cache, so it must be recompiled
+ * when the types it depends on change later in the build, even if it was compiled with them.
+ */
+boolean isReused(String typeLocator) {
+	return this.reusedTypeLocators.includes(typeLocator);
+}
+
+/**
+ * Forget the type names of the project which were collected by the previous lookups since new source files
+ * may have been compiled since.
+ */
+void startLookups() {
+	this.projectPackages = null;
+}
+
+/**
+ * Store the results added during the build, then evict the least recently used entries if the cache has grown
+ * over its size limit.
+ */
+void store() {
+	this.projectPackages = null;
+	long added = 0;
+	for (int i = 0, l = this.pendingEntries.size(); i < l; i++) {
+		Entry entry = (Entry) this.pendingEntries.get(i);
+		try {
+			added += write(entry);
+			this.stores++;
+		} catch (IOException e) {
+			Util.log(e, "Could not write build cache entry " + entry.key); //$NON-NLS-1$
+		}
+	}
+	this.pendingEntries.clear();
+	if (added > 0)
+		recordAddedSize(this.cacheFolder, added, this);
+	if (JavaBuilder.SHOW_STATS)
+		printStats();
+}
+
+private static synchronized void recordAddedSize(File cacheFolder, long added, BuildCache cache) {
+	String location = cacheFolder.getAbsolutePath();
+	Long size = (Long) CacheSizes.get(location);
+	long newSize = size == null ? sizeOf(cacheFolder) : size.longValue() + added;
+	long limit = MaxCacheSize * 1024L * 1024L;
+	if (newSize > limit)
+		newSize = evict(cacheFolder, newSize, limit - limit / 10, cache);
+	CacheSizes.put(location, new Long(newSize));
+}
+
+private static long sizeOf(File folder) {
+	long size = 0;
+	File[] members = folder.listFiles();
+	if (members != null)
+		for (int i = 0, l = members.length; i < l; i++)
+			size += members[i].isDirectory() ? sizeOf(members[i]) : members[i].length();
+	return size;
+}
+
+private static long evict(File cacheFolder, long size, long targetSize, BuildCache cache) {
+	ArrayList variants = new ArrayList();
+	File[] buckets = cacheFolder.listFiles();
+	for (int i = 0, l = buckets == null ? 0 : buckets.length; i < l; i++) {
+		File[] keys = buckets[i].listFiles();
+		for (int j = 0, m = keys == null ? 0 : keys.length; j < m; j++) {
+			File[] files = keys[j].listFiles();
+			if (files != null)
+				variants.addAll(Arrays.asList(files));
+		}
+	}
+	final long[] lastModified = new long[variants.size()];
+	final File[] files = new File[lastModified.length];
+	Integer[] order = new Integer[lastModified.length];
+	for (int i = 0, l = files.length; i < l; i++) {
+		files[i] = (File) variants.get(i);
+		lastModified[i] = files[i].lastModified();
+		order[i] = new Integer(i);
+	}
+	Arrays.sort(order, new Comparator() {
+		public int compare(Object o1, Object o2) {
+			long t1 = lastModified[((Integer) o1).intValue()];
+			long t2 = lastModified[((Integer) o2).intValue()];
+			return t1 < t2 ? -1 : t1 == t2 ? 0 : 1;
+		}
+	});
+	for (int i = 0, l = order.length; i < l && size > targetSize; i++) {
+		File file = files[order[i].intValue()];
+		long length = file.length();
+		if (file.delete()) {
+			size -= length;
+			cache.evictions++;
+			File keyFolder = file.getParentFile();
+			String[] remaining = keyFolder.list();
+			if (remaining != null && remaining.length == 0 && keyFolder.delete()) {
+				File bucket = keyFolder.getParentFile();
+				remaining = bucket.list();
+				if (remaining != null && remaining.length == 0)
+					bucket.delete();
+			}
+		}
+	}
+	return size;
+}
+
+private String computeKey(SourceFile sourceFile) {
+	MessageDigest digest = newDigest();
+	digest.update(this.environmentDigest);
+	update(digest, sourceFile.typeLocator());
+	update(digest, String.valueOf(sourceFile.sourceLocation.ignoreOptionalProblems));
+	try {
+		update(digest, new String(sourceFile.getContents()));
+	} catch (RuntimeException e) {
+		return null; // let the compiler report the missing source file
+	}
+	return toHex(digest.digest());
+}
+
+private File entryFolder(String key) {
+	return new File(new File(this.cacheFolder, key.substring(0, 2)), key.substring(2));
+}
+
+/**
+ * Answer the hash of the given qualified name in the current build: the ABI hash of the type with this name
+ * or, when there is no such type, a hash of the types in the package with this name.
+ */
+long dependencyHash(String qualifiedName) {
+	// member types are recorded as p/A/M (see CompilationUnitScope#storeDependencyInfo), so like the name
+	// environment, try each tail of the name as member types of the type named by the rest
+	String typeName = qualifiedName;
+	int index = qualifiedName.length();
+	while (true) {
+		int memberIndex = typeName.indexOf('$');
+		String topLevelTypeName = memberIndex == -1 ? typeName : typeName.substring(0, memberIndex);
+		if (this.state.isKnownType(topLevelTypeName))
+			return sourceTypeHash(typeName);
+		long typeHash = externalTypeHash(typeName);
+		if (typeHash != 0)
+			return typeHash;
+		index = qualifiedName.lastIndexOf('/', index - 1);
+		if (index <= 0) break;
+		typeName = qualifiedName.substring(0, index) + qualifiedName.substring(index).replace('/', '$');
+	}
+	return hash(externalPackageHash(qualifiedName), projectPackageHash(qualifiedName));
+}
+
+private long sourceTypeHash(String qualifiedTypeName) {
+	Long abiHash = this.state.getAbiHash(qualifiedTypeName);
+	if (abiHash != null)
+		return abiHash.longValue();
+	ClasspathMultiDirectory[] sourceLocations = this.nameEnvironment.sourceLocations;
+	for (int i = 0, l = sourceLocations.length; i < l; i++) {
+		IFile file = sourceLocations[i].binaryFolder.getFile(new Path(qualifiedTypeName + SuffixConstants.SUFFIX_STRING_class));
+		if (file.exists()) {
+			try {
+				ClassFileReader reader = Util.newClassFileReader(file);
+				if (reader != null) {
+					long hash = reader.getAbiHash();
+					this.state.recordAbiHash(qualifiedTypeName, hash); // same as the hash of the class file when it is next written
+					return hash;
+				}
+			} catch (CoreException e) {
+				// treat as missing
+			} catch (ClassFormatException e) {
+				// treat as missing
+			} catch (IOException e) {
+				// treat as missing
+			}
+		}
+	}
+	return 0;
+}
+
+private long externalTypeHash(String qualifiedTypeName) {
+	Long hash = (Long) this.externalTypeHashes.get(qualifiedTypeName);
+	if (hash != null)
+		return hash.longValue();
+
+	long typeHash = 0;
+	String qualifiedBinaryFileName = qualifiedTypeName + SuffixConstants.SUFFIX_STRING_class;
+	int index = qualifiedTypeName.lastIndexOf('/');
+	String qualifiedPackageName = index == -1 ? "" : qualifiedTypeName.substring(0, index); //$NON-NLS-1$
+	String binaryFileName = qualifiedBinaryFileName.substring(index + 1);
+	ClasspathLocation[] binaryLocations = this.nameEnvironment.binaryLocations;
+	for (int i = 0, l = binaryLocations.length; i < l; i++) {
+		if (binaryLocations[i] instanceof ClasspathMultiDirectory) continue; // the output folders of the project
+		NameEnvironmentAnswer answer = binaryLocations[i].findClass(binaryFileName, qualifiedPackageName, qualifiedBinaryFileName);
+		if (answer != null) {
+			IBinaryType binaryType = answer.getBinaryType();
+			typeHash = 1;
+			if (binaryType instanceof ClassFileReader) {
+				try {
+					typeHash = ((ClassFileReader) binaryType).getAbiHash();
+				} catch (ClassFormatException e) {
+					// hash the type as if it was not a class file
+				}
+			}
+			break;
+		}
+	}
+	this.externalTypeHashes.put(qualifiedTypeName, new Long(typeHash));
+	return typeHash;
+}
+
+private long externalPackageHash(String qualifiedPackageName) {
+	Long packageHash = (Long) this.externalPackageHashes.get(qualifiedPackageName);
+	if (packageHash != null)
+		return packageHash.longValue();
+
+	long hash = HASH_SEED;
+	ClasspathLocation[] binaryLocations = this.nameEnvironment.binaryLocations;
+	for (int i = 0, l = binaryLocations.length; i < l; i++) {
+		ClasspathLocation location = binaryLocations[i];
+		if (location instanceof ClasspathMultiDirectory || !location.isPackage(qualifiedPackageName)) continue;
+		if (location instanceof ClasspathJar) {
+			ClasspathJar jar = (ClasspathJar) location;
+			hash = hash(hash(hash, jar.zipFilename), jar.lastModified());
+		} else {
+			String[] names = ((ClasspathDirectory) location).directoryList(qualifiedPackageName);
+			if (names != null) {
+				names = (String[]) names.clone();
+				Arrays.sort(names);
+				for (int j = 0, m = names.length; j < m; j++)
+					hash = hash(hash, names[j]);
+			}
+		}
+	}
+	this.externalPackageHashes.put(qualifiedPackageName, new Long(hash));
+	return hash;
+}
+
+private long projectPackageHash(String qualifiedPackageName) {
+	if (this.projectPackages == null) {
+		this.projectPackages = new SimpleLookupTable();
+		Object[] keyTable = this.state.typeLocators.keyTable;
+		for (int i = 0, l = keyTable.length; i < l; i++) {
+			String typeName = (String) keyTable[i];
+			if (typeName != null) {
+				int index = typeName.lastIndexOf('/');
+				String packageName = index == -1 ? "" : typeName.substring(0, index); //$NON-NLS-1$
+				ArrayList names = (ArrayList) this.projectPackages.get(packageName);
+				if (names == null)
+					this.projectPackages.put(packageName, names = new ArrayList());
+				names.add(typeName.substring(index + 1));
+			}
+		}
+	}
+	ArrayList names = (ArrayList) this.projectPackages.get(qualifiedPackageName);
+	if (names == null) return 0;
+	long sum = 0; // independent of the order of the type locators
+	for (int i = 0, l = names.size(); i < l; i++)
+		sum += hash(HASH_SEED, (String) names.get(i));
+	return hash(hash(HASH_SEED, sum), names.size());
+}
+
+private CompilationResult read(File variant, SourceFile sourceFile) throws IOException {
+	DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(variant)));
+	try {
+		if (in.readByte() != VERSION) return null;
+		for (int i = 0, l = in.readInt(); i < l; i++) {
+			String name = in.readUTF();
+			if (in.readLong() != dependencyHash(name))
+				return null;
+		}
+
+		CompilationResult result = new CompilationResult(sourceFile, 0, 1, this.maxProblemsPerUnit);
+		result.checkSecondaryTypes = in.readBoolean();
+		char[][][] qualifiedReferences = new char[in.readInt()][][];
+		for (int i = 0, l = qualifiedReferences.length; i < l; i++)
+			qualifiedReferences[i] = readNames(in);
+		result.qualifiedReferences = qualifiedReferences;
+		result.simpleNameReferences = readNames(in);
+		result.rootReferences = readNames(in);
+		if (in.readBoolean()) {
+			result.memberReferences = readNames(in);
+			result.hierarchyReferences = readNames(in);
+		}
+
+		CachedClassFile[] classFiles = new CachedClassFile[in.readInt()];
+		int[] enclosingClassFiles = new int[classFiles.length];
+		for (int i = 0, l = classFiles.length; i < l; i++) {
+			char[] fileName = in.readUTF().toCharArray();
+			enclosingClassFiles[i] = in.readInt();
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			classFiles[i] = new CachedClassFile(fileName, bytes);
+			result.compiledTypes.put(fileName, classFiles[i]); // record() needs the binding of the type
+		}
+		for (int i = 0, l = classFiles.length; i < l; i++) {
+			if (enclosingClassFiles[i] >= 0) {
+				classFiles[i].isNestedType = true;
+				classFiles[i].enclosingClassFile = classFiles[enclosingClassFiles[i]];
+			}
+		}
+
+		char[] fileName = sourceFile.getFileName();
+		for (int i = 0, l = in.readInt(); i < l; i++)
+			result.record(readProblem(in, fileName), null);
+		for (int i = 0, l = in.readInt(); i < l; i++)
+			result.record(readProblem(in, fileName), null);
+		return result;
+	} finally {
+		in.close();
+	}
+}
+
+private CategorizedProblem readProblem(DataInputStream in, char[] fileName) throws IOException {
+	int id = in.readInt();
+	String message = readString(in);
+	int severity = in.readBoolean() ? ProblemSeverities.Error : ProblemSeverities.Warning;
+	int categoryId = in.readInt();
+	int start = in.readInt();
+	int end = in.readInt();
+	int line = in.readInt();
+	int column = in.readInt();
+	String[] arguments = new String[in.readInt()];
+	for (int i = 0, l = arguments.length; i < l; i++)
+		arguments[i] = readString(in);
+	return new CachedProblem(fileName, message, id, arguments, severity, start, end, line, column, categoryId);
+}
+
+private String readString(DataInputStream in) throws IOException {
+	return in.readBoolean() ? in.readUTF() : null;
+}
+
+private char[][] readNames(DataInputStream in) throws IOException {
+	char[][] names = new char[in.readInt()][];
+	for (int i = 0, l = names.length; i < l; i++)
+		names[i] = in.readUTF().toCharArray();
+	return names;
+}
+
+private long write(Entry entry) throws IOException {
+	// the dependencies are the qualified names referenced by the unit, its referenced types and imported packages,
+	// and its own package so that a new type of the project hiding one of its simple name references is noticed
+	char[][][] qualifiedReferences = entry.qualifiedReferences;
+	int length = qualifiedReferences.length;
+	String[] names = new String[length + 1];
+	long[] hashes = new long[length + 1];
+	long variantHash = HASH_SEED;
+	for (int i = 0; i <= length; i++) {
+		names[i] = i < length ? new String(CharOperation.concatWith(qualifiedReferences[i], '/')) : entry.packageName;
+		hashes[i] = dependencyHash(names[i]);
+		variantHash = hash(hash(variantHash, names[i]), hashes[i]);
+	}
+
+	File entryFolder = entryFolder(entry.key);
+	entryFolder.mkdirs();
+	File variant = new File(entryFolder, Long.toHexString(variantHash));
+	File temp = new File(entryFolder, variant.getName() + TEMP_FILE_SUFFIX);
+	DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+	try {
+		out.writeByte(VERSION);
+		out.writeInt(names.length);
+		for (int i = 0, l = names.length; i < l; i++) {
+			out.writeUTF(names[i]);
+			out.writeLong(hashes[i]);
+		}
+
+		out.writeBoolean(entry.checkSecondaryTypes);
+		out.writeInt(length);
+		for (int i = 0; i < length; i++)
+			writeNames(qualifiedReferences[i], out);
+		writeNames(entry.simpleNameReferences, out);
+		writeNames(entry.rootReferences, out);
+		out.writeBoolean(entry.memberReferences != null);
+		if (entry.memberReferences != null) {
+			writeNames(entry.memberReferences, out);
+			writeNames(entry.hierarchyReferences, out);
+		}
+
+		out.writeInt(length = entry.classFileNames.length);
+		for (int i = 0; i < length; i++) {
+			out.writeUTF(entry.classFileNames[i]);
+			out.writeInt(entry.enclosingClassFiles[i]);
+			out.writeInt(entry.classFileBytes[i].length);
+			out.write(entry.classFileBytes[i]);
+		}
+
+		writeProblems(entry.problems, out);
+		writeProblems(entry.tasks, out);
+	} finally {
+		out.close();
+	}
+	if (variant.exists())
+		variant.delete();
+	if (!temp.renameTo(variant)) {
+		temp.delete();
+		throw new IOException("Could not rename " + temp); //$NON-NLS-1$
+	}
+	return variant.length();
+}
+
+private void writeProblems(CategorizedProblem[] problems, DataOutputStream out) throws IOException {
+	int length = problems == null ? 0 : problems.length;
+	out.writeInt(length);
+	for (int i = 0; i < length; i++) {
+		CategorizedProblem problem = problems[i];
+		out.writeInt(problem.getID());
+		writeString(problem.getMessage(), out);
+		out.writeBoolean(problem.isError());
+		out.writeInt(problem.getCategoryID());
+		out.writeInt(problem.getSourceStart());
+		out.writeInt(problem.getSourceEnd());
+		out.writeInt(problem.getSourceLineNumber());
+		out.writeInt(((DefaultProblem) problem).getSourceColumnNumber());
+		String[] arguments = problem.getArguments();
+		int argumentsLength = arguments == null ? 0 : arguments.length;
+		out.writeInt(argumentsLength);
+		for (int j = 0; j < argumentsLength; j++)
+			writeString(arguments[j], out);
+	}
+}
+
+private void writeString(String value, DataOutputStream out) throws IOException {
+	// the arguments of tasks and some problems may be null
+	out.writeBoolean(value != null);
+	if (value != null)
+		out.writeUTF(value);
+}
+
+private void writeNames(char[][] names, DataOutputStream out) throws IOException {
+	int length = names == null ? 0 : names.length;
+	out.writeInt(length);
+	for (int i = 0; i < length; i++)
+		out.writeUTF(new String(names[i]));
+}
+
+private static long hash(long hash, long value) {
+	for (int i = 0; i < 8; i++) {
+		hash ^= (value >>> (i * 8)) & 0xFF;
+		hash *= HASH_PRIME;
+	}
+	return hash;
+}
+
+private static long hash(long hash, String value) {
+	for (int i = 0, l = value.length(); i < l; i++) {
+		char c = value.charAt(i);
+		hash ^= c & 0xFF;
+		hash *= HASH_PRIME;
+		hash ^= c >>> 8;
+		hash *= HASH_PRIME;
+	}
+	return hash(hash, value.length());
+}
+
+private static MessageDigest newDigest() {
+	try {
+		return MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+	} catch (NoSuchAlgorithmException e) {
+		throw new IllegalStateException(e.getMessage());
+	}
+}
+
+private static void update(MessageDigest digest, String value) {
+	try {
+		digest.update(value.getBytes("UTF-8")); //$NON-NLS-1$
+	} catch (UnsupportedEncodingException e) {
+		// UTF-8 is always supported
+	}
+	digest.update((byte) 0);
+}
+
+private static String toHex(byte[] bytes) {
+	StringBuffer buffer = new StringBuffer(bytes.length * 2);
+	for (int i = 0, l = bytes.length; i < l; i++) {
+		buffer.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+		buffer.append(Character.forDigit(bytes[i] & 0xF, 16));
+	}
+	return buffer.toString();
+}
+
+private void printStats() {
+	System.out.println(">BUILD CACHE STATS for: " + this.state.javaProjectName); //$NON-NLS-1$
+	System.out.println(">   " + this.hits + " hits, " + this.misses + " misses, " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		+ this.stores + " stored, " + this.evictions + " evicted"); //$NON-NLS-1$ //$NON-NLS-2$
+}
+}
@@ -15,8 +15,10 @@ import org.eclipse.core.runtime.*;
 
 import org.eclipse.jdt.core.compiler.CategorizedProblem;
 import org.eclipse.jdt.core.compiler.IProblem;
+import org.eclipse.jdt.internal.compiler.impl.UnitStats;
 import org.eclipse.jdt.internal.compiler.problem.AbortCompilation;
 import org.eclipse.jdt.internal.core.util.Messages;
+import org.eclipse.jdt.internal.core.util.Util;
 
 public class BuildNotifier {
 
@@ -31,13 +33,47 @@ protected int fixedWarningCount;
 protected int workDone;
 protected int totalWork;
 protected String previousSubtask;
+protected BuildStats stats; // null unless there are stats listeners or JavaBuilder.SHOW_STATS is set
+private int[] initialCounts; // the problem counters when this build started
+
+// problem counters of the current build cycle, concurrent builds update them while holding BuildNotifier.class
 
 public static int NewErrorCount = 0;
 public static int FixedErrorCount = 0;
 public static int NewWarningCount = 0;
 public static int FixedWarningCount = 0;
 
-public static void resetProblemCounters() {
+private static IBuildStatsListener[] StatsListeners = new IBuildStatsListener[0];
+
+/**
+ * Add a listener notified of the time and memory spent by every build, from now on.
+ */
+public static synchronized void addStatsListener(IBuildStatsListener listener) {
+	int length = StatsListeners.length;
+	for (int i = 0; i < length; i++)
+		if (StatsListeners[i] == listener) return;
+	System.arraycopy(StatsListeners, 0, StatsListeners = new IBuildStatsListener[length + 1], 0, length);
+	StatsListeners[length] = listener;
+}
+
+public static synchronized void removeStatsListener(IBuildStatsListener listener) {
+	int length = StatsListeners.length;
+	for (int i = 0; i < length; i++) {
+		if (StatsListeners[i] == listener) {
+			IBuildStatsListener[] newListeners = new IBuildStatsListener[length - 1];
+			System.arraycopy(StatsListeners, 0, newListeners, 0, i);
+			System.arraycopy(StatsListeners, i + 1, newListeners, i, length - i - 1);
+			StatsListeners = newListeners;
+			return;
+		}
+	}
+}
+
+private static synchronized IBuildStatsListener[] getStatsListeners() {
+	return StatsListeners;
+}
+
+public static synchronized void resetProblemCounters() {
 	NewErrorCount = 0;
 	FixedErrorCount = 0;
 	NewWarningCount = 0;
@@ -47,12 +83,17 @@ public static void resetProblemCounters() {
 public BuildNotifier(IProgressMonitor monitor, IProject project) {
 	this.monitor = monitor;
 	this.cancelling = false;
-	this.newErrorCount = NewErrorCount;
-	this.fixedErrorCount = FixedErrorCount;
-	this.newWarningCount = NewWarningCount;
-	this.fixedWarningCount = FixedWarningCount;
+	synchronized (BuildNotifier.class) {
+		this.newErrorCount = NewErrorCount;
+		this.fixedErrorCount = FixedErrorCount;
+		this.newWarningCount = NewWarningCount;
+		this.fixedWarningCount = FixedWarningCount;
+	}
+	this.initialCounts = new int[] {this.newErrorCount, this.fixedErrorCount, this.newWarningCount, this.fixedWarningCount};
 	this.workDone = 0;
 	this.totalWork = 1000000;
+	if (JavaBuilder.SHOW_STATS || getStatsListeners().length > 0)
+		this.stats = new BuildStats(project.getName());
 }
 
 /**
@@ -95,6 +136,30 @@ public void checkCancelWithinCompiler() {
  * Notification while within a compile that a unit has finished being compiled.
  */
 public void compiled(SourceFile unit) {
+	compiled(unit, null);
+}
+
+/**
+ * Notification while within a compile that a unit has finished being compiled, with the time and memory
+ * spent in each phase when they were recorded.
+ */
+public void compiled(SourceFile unit, final UnitStats unitStats) {
+	if (this.stats != null && unitStats != null) {
+		final String typeLocator = unit.typeLocator();
+		this.stats.recordUnit(typeLocator, unitStats);
+		IBuildStatsListener[] listeners = getStatsListeners();
+		for (int i = 0, length = listeners.length; i < length; i++) {
+			final IBuildStatsListener listener = listeners[i];
+			SafeRunner.run(new ISafeRunnable() {
+				public void handleException(Throwable exception) {
+					Util.log(exception, "Exception occurred in listener of build statistics"); //$NON-NLS-1$
+				}
+				public void run() throws Exception {
+					listener.unitCompiled(BuildNotifier.this.stats, typeLocator, unitStats);
+				}
+			});
+		}
+	}
 	String message = Messages.bind(Messages.build_compiling, unit.resource.getFullPath().removeLastSegments(1).makeRelative().toString());
 	subTask(message);
 	updateProgressDelta(this.progressPerCompilationUnit);
@@ -102,16 +167,57 @@ public void compiled(SourceFile unit) {
 }
 
 public void done() {
-	NewErrorCount = this.newErrorCount;
-	FixedErrorCount = this.fixedErrorCount;
-	NewWarningCount = this.newWarningCount;
-	FixedWarningCount = this.fixedWarningCount;
+	// only add the problems of this build, other builds may have updated the counters since it started
+	synchronized (BuildNotifier.class) {
+		NewErrorCount += this.newErrorCount - this.initialCounts[0];
+		FixedErrorCount += this.fixedErrorCount - this.initialCounts[1];
+		NewWarningCount += this.newWarningCount - this.initialCounts[2];
+		FixedWarningCount += this.fixedWarningCount - this.initialCounts[3];
+	}
+	this.initialCounts = new int[] {this.newErrorCount, this.fixedErrorCount, this.newWarningCount, this.fixedWarningCount};
 
 	updateProgress(1.0f);
 	subTask(Messages.build_done);
 	if (this.monitor != null)
 		this.monitor.done();
 	this.previousSubtask = null;
+	if (this.stats != null)
+		statsDone();
+}
+
+private void statsDone() {
+	final BuildStats buildStats = this.stats;
+	this.stats = null;
+	buildStats.endTime = System.currentTimeMillis();
+	if (JavaBuilder.SHOW_STATS && buildStats.unitCount > 0)
+		buildStats.print();
+	IBuildStatsListener[] listeners = getStatsListeners();
+	for (int i = 0, length = listeners.length; i < length; i++) {
+		final IBuildStatsListener listener = listeners[i];
+		SafeRunner.run(new ISafeRunnable() {
+			public void handleException(Throwable exception) {
+				Util.log(exception, "Exception occurred in listener of build statistics"); //$NON-NLS-1$
+			}
+			public void run() throws Exception {
+				listener.buildFinished(buildStats);
+			}
+		});
+	}
+}
+
+/**
+ * Record the time spent in a phase of the build which is not specific to a unit, see BuildStats.
+ */
+public void recordPhase(int phase, long time) {
+	if (this.stats != null)
+		this.stats.recordPhase(phase, time);
+}
+
+/**
+ * Answer whether the time and memory spent by the build are recorded.
+ */
+public boolean isRecordingStats() {
+	return this.stats != null;
 }
 
 /**
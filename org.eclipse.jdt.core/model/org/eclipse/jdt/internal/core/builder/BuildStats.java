@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.builder;
+
+import org.eclipse.jdt.internal.compiler.impl.UnitStats;
+
+/**
+ * The time and memory spent by the build of a project: the sum of the phases of every compiled unit (see
+ * {@link UnitStats}), the phases of the build which are not specific to a unit, and the slowest units.
+ */
+public class BuildStats {
+
+// build phases
+public static final int COMPLETION = 0; // completing the type bindings of the units in the lookup environment
+public static final int ANNOTATION_PROCESSING = 1; // by the compilation participants
+public static final int MARKERS = 2; // storing problem and task markers
+public static final int PHASE_COUNT = 3;
+
+public static final String[] PHASE_NAMES = { "completion", "annotation processing", "markers" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+// number of slowest units remembered by each build
+public static int SlowestUnitsCount = Integer.getInteger("jdt.builder.slowestUnits", 10).intValue(); //$NON-NLS-1$
+
+public String projectName;
+public long startTime;
+public long endTime;
+public int unitCount;
+public final long[] unitPhaseTimes = new long[UnitStats.PHASE_COUNT]; // in nanoseconds
+public final long[] unitPhaseAllocatedBytes = new long[UnitStats.PHASE_COUNT];
+public final long[] phaseTimes = new long[PHASE_COUNT]; // in nanoseconds
+
+// slowest units first
+String[] slowestTypeLocators;
+UnitStats[] slowestUnits;
+int slowestCount;
+
+public BuildStats(String projectName) {
+	this.projectName = projectName;
+	this.startTime = System.currentTimeMillis();
+	this.slowestTypeLocators = new String[SlowestUnitsCount];
+	this.slowestUnits = new UnitStats[SlowestUnitsCount];
+	this.slowestCount = 0;
+}
+
+public long elapsedTime() {
+	return this.endTime - this.startTime;
+}
+
+public void recordPhase(int phase, long time) {
+	this.phaseTimes[phase] += time;
+}
+
+public void recordUnit(String typeLocator, UnitStats stats) {
+	this.unitCount++;
+	for (int i = 0; i < UnitStats.PHASE_COUNT; i++) {
+		this.unitPhaseTimes[i] += stats.times[i];
+		this.unitPhaseAllocatedBytes[i] += stats.allocatedBytes[i];
+	}
+
+	long time = stats.totalTime();
+	int index = this.slowestCount;
+	while (index > 0 && this.slowestUnits[index - 1].totalTime() < time)
+		index--;
+	if (index == this.slowestUnits.length) return;
+	int length = this.slowestCount < this.slowestUnits.length ? this.slowestCount++ : this.slowestCount - 1;
+	System.arraycopy(this.slowestTypeLocators, index, this.slowestTypeLocators, index + 1, length - index);
+	System.arraycopy(this.slowestUnits, index, this.slowestUnits, index + 1, length - index);
+	this.slowestTypeLocators[index] = typeLocator;
+	this.slowestUnits[index] = stats;
+}
+
+/**
+ * Answer the type locators of the slowest units, slowest first.
+ */
+public String[] getSlowestTypeLocators() {
+	String[] result = new String[this.slowestCount];
+	System.arraycopy(this.slowestTypeLocators, 0, result, 0, this.slowestCount);
+	return result;
+}
+
+/**
+ * Answer the stats of the slowest units, in the same order as getSlowestTypeLocators().
+ */
+public UnitStats[] getSlowestUnits() {
+	UnitStats[] result = new UnitStats[this.slowestCount];
+	System.arraycopy(this.slowestUnits, 0, result, 0, this.slowestCount);
+	return result;
+}
+
+void print() {
+	System.out.println(">BUILD PHASE STATS for: " + this.projectName); //$NON-NLS-1$
+	System.out.println(">   compiled " + this.unitCount + " units in " + elapsedTime() + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	for (int i = 0; i < UnitStats.PHASE_COUNT; i++)
+		System.out.println(">   " + UnitStats.PHASE_NAMES[i] + ": " + this.unitPhaseTimes[i] / 1000000 + "ms, " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			+ this.unitPhaseAllocatedBytes[i] / (1024 * 1024) + "MB allocated"); //$NON-NLS-1$
+	for (int i = 0; i < PHASE_COUNT; i++)
+		System.out.println(">   " + PHASE_NAMES[i] + ": " + this.phaseTimes[i] / 1000000 + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	if (this.slowestCount > 0) {
+		System.out.println(">   slowest units:"); //$NON-NLS-1$
+		for (int i = 0; i < this.slowestCount; i++)
+			System.out.println(">     " + this.slowestTypeLocators[i] + ": " + this.slowestUnits[i].totalTime() / 1000000 + "ms (" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ this.slowestUnits[i] + ')');
+	}
+}
+}
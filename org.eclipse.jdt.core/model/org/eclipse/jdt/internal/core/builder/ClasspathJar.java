@@ -16,6 +16,7 @@ package org.eclipse.jdt.internal.core.builder;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.*;
 
+import org.eclipse.jdt.internal.compiler.classfmt.BinaryTypeCache;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
 import org.eclipse.jdt.internal.compiler.env.AccessRuleSet;
@@ -23,6 +24,7 @@ import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
 import org.eclipse.jdt.internal.compiler.util.SimpleLookupTable;
 import org.eclipse.jdt.internal.compiler.util.SimpleSet;
 import org.eclipse.jdt.internal.compiler.util.SuffixConstants;
+import org.eclipse.jdt.internal.compiler.util.ZipFilePool;
 import org.eclipse.jdt.internal.core.util.Util;
 
 import java.io.*;
@@ -51,7 +53,7 @@ static SimpleLookupTable PackageCache = new SimpleLookupTable();
  * @param jar The ClasspathJar to use
  * @return A SimpleSet with the all the package names in the zipFile.
  */
-static SimpleSet findPackageSet(ClasspathJar jar) {
+static synchronized SimpleSet findPackageSet(ClasspathJar jar) {
 	String zipFileName = jar.zipFilename;
 	long lastModified = jar.lastModified();
 	long fileSize = new File(zipFileName).length();
@@ -61,8 +63,9 @@ static SimpleSet findPackageSet(ClasspathJar jar) {
 
 	SimpleSet packageSet = new SimpleSet(41);
 	packageSet.add(""); //$NON-NLS-1$
-	nextEntry : for (Enumeration e = jar.zipFile.entries(); e.hasMoreElements(); ) {
-		String fileName = ((ZipEntry) e.nextElement()).getName();
+	String[] fileNames = ZipFilePool.getShared().getEntryNames(jar.zipFile);
+	nextEntry : for (int i = 0, length = fileNames.length; i < length; i++) {
+		String fileName = fileNames[i];
 
 		// add the package name & all of its parent packages
 		int last = fileName.lastIndexOf('/');
@@ -133,10 +136,7 @@ public ClasspathJar(ZipFile zipFile, AccessRuleSet accessRuleSet, IPath external
 public void cleanup() {
 	if (this.closeZipFileAtEnd) {
 		if (this.zipFile != null) {
-			try {
-				this.zipFile.close();
-			} catch(IOException e) { // ignore it
-			}
+			ZipFilePool.getShared().release(this.zipFile);
 			this.zipFile = null;
 		}
 		if (this.annotationZipFile != null) {
@@ -165,7 +165,12 @@ public NameEnvironmentAnswer findClass(String binaryFileName, String qualifiedPa
 	if (!isPackage(qualifiedPackageName)) return null; // most common case
 
 	try {
-		ClassFileReader reader = ClassFileReader.read(this.zipFile, qualifiedBinaryFileName);
+		ClassFileReader reader;
+		BinaryTypeCache cache = this.externalAnnotationPath == null ? BinaryTypeCache.getShared() : null; // annotated readers cannot be shared
+		if (cache != null)
+			reader = cache.read(this.zipFile, lastModified(), qualifiedBinaryFileName);
+		else
+			reader = ClassFileReader.read(this.zipFile, qualifiedBinaryFileName);
 		if (reader != null) {
 			String fileNameWithoutExtension = qualifiedBinaryFileName.substring(0, qualifiedBinaryFileName.length() - SuffixConstants.SUFFIX_CLASS.length);
 			if (this.externalAnnotationPath != null) {
@@ -201,9 +206,9 @@ public boolean isPackage(String qualifiedPackageName) {
 	try {
 		if (this.zipFile == null) {
 			if (org.eclipse.jdt.internal.core.JavaModelManager.ZIP_ACCESS_VERBOSE) {
-				System.out.println("(" + Thread.currentThread() + ") [ClasspathJar.isPackage(String)] Creating ZipFile on " + this.zipFilename); //$NON-NLS-1$	//$NON-NLS-2$
+				System.out.println("(" + Thread.currentThread() + ") [ClasspathJar.isPackage(String)] Acquiring ZipFile on " + this.zipFilename); //$NON-NLS-1$	//$NON-NLS-2$
 			}
-			this.zipFile = new ZipFile(this.zipFilename);
+			this.zipFile = ZipFilePool.getShared().acquire(new File(this.zipFilename));
 			this.closeZipFileAtEnd = true;
 		}
 		this.knownPackageNames = findPackageSet(this);
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.builder;
+
+import org.eclipse.jdt.internal.compiler.impl.UnitStats;
+
+/**
+ * A listener notified of the time and memory spent by the Java builder, see
+ * {@link BuildNotifier#addStatsListener(IBuildStatsListener)}.
+ * <p>
+ * Projects may be built concurrently, so the listener may be notified from several threads at the same time.
+ * </p>
+ */
+public interface IBuildStatsListener {
+
+/**
+ * Notification that a unit of the given build was compiled. The source files whose result is reused from
+ * the build cache are not reported.
+ *
+ * @param build the statistics of the build so far
+ * @param typeLocator the project relative path of the source file, e.g. "src/p1/p2/A.java"
+ * @param stats the time and memory spent in each phase of the compilation of the unit
+ */
+void unitCompiled(BuildStats build, String typeLocator, UnitStats stats);
+
+/**
+ * Notification that the build of a project is done.
+ *
+ * @param build the statistics of the build
+ */
+void buildFinished(BuildStats build);
+}
@@ -40,9 +40,18 @@ protected StringSet qualifiedStrings;
 protected StringSet simpleStrings;
 protected StringSet rootStrings;
 protected SimpleLookupTable secondaryTypesToRemove;
+protected SimpleLookupTable memberChanges; // keyed by the path of a type whose ABI changed only in some of its members, value is the char[][] keys of these members
 protected boolean hasStructuralChanges;
 protected int compileLoop;
 protected boolean makeOutputFolderConsistent;
+protected int unchangedAbiTypes; // changed class files whose ABI hash did not change, so their dependents were not recompiled
+
+// build statistics: the dependents of the types which were structurally changed but kept their ABI hash & the compiled units
+private StringSet skippedQualifiedStrings;
+private StringSet skippedSimpleStrings;
+private StringSet skippedRootStrings;
+private StringSet compiledTypeLocators;
+private int memberSkippedUnits; // units which reference a type whose changed members they do not use
 
 public static int MaxCompileLoop = 5; // perform a full build if it takes more than ? incremental compile loops
 
@@ -132,10 +141,17 @@ public boolean build(SimpleLookupTable deltas) {
 			this.workQueue.addAll(allSourceFiles);
 			this.notifier.setProgressPerCompilationUnit(increment / allSourceFiles.length);
 			increment = increment / 2;
+			if (this.compiledTypeLocators != null)
+				for (int i = 0, l = allSourceFiles.length; i < l; i++)
+					this.compiledTypeLocators.add(allSourceFiles[i].typeLocator());
 			compile(allSourceFiles);
 			removeSecondaryTypes();
 			addAffectedSourceFiles();
 		}
+		if (this.buildCache != null)
+			this.buildCache.store();
+		if (this.compiledTypeLocators != null)
+			printStats();
 		if (this.hasStructuralChanges && this.javaBuilder.javaProject.hasCycleMarker())
 			this.javaBuilder.mustPropagateStructuralChanges();
 	} catch (AbortIncrementalBuildException e) {
@@ -173,6 +189,8 @@ protected void buildAfterBatchBuild() {
 			removeSecondaryTypes();
 			addAffectedSourceFiles();
 		}
+		if (this.buildCache != null)
+			this.buildCache.store();
 	} catch (CoreException e) {
 		throw internalException(e);
 	} finally {
@@ -181,6 +199,8 @@ protected void buildAfterBatchBuild() {
 }
 
 protected void addAffectedSourceFiles() {
+	if (this.memberChanges.elementSize > 0)
+		addMemberAffectedSourceFiles();
 	if (this.qualifiedStrings.elementSize == 0 && this.simpleStrings.elementSize == 0) return;
 
 	addAffectedSourceFiles(this.qualifiedStrings, this.simpleStrings, this.rootStrings, null);
@@ -198,24 +218,67 @@ protected void addAffectedSourceFiles(StringSet qualifiedSet, StringSet simpleSe
 		internedSimpleNames = null;
 	char[][] internedRootNames = ReferenceCollection.internSimpleNames(rootSet, false);
 
-	Object[] keyTable = this.newState.references.keyTable;
-	Object[] valueTable = this.newState.references.valueTable;
+	SimpleLookupTable references = this.newState.getReferences();
+	Object[] keyTable = references.keyTable;
+	Object[] valueTable = references.valueTable;
 	next : for (int i = 0, l = valueTable.length; i < l; i++) {
 		String typeLocator = (String) keyTable[i];
 		if (typeLocator != null) {
 			if (affectedTypes != null && !affectedTypes.includes(typeLocator)) continue next;
 			ReferenceCollection refs = (ReferenceCollection) valueTable[i];
-			if (refs.includes(internedQualifiedNames, internedSimpleNames, internedRootNames)) {
-				IFile file = this.javaBuilder.currentProject.getFile(typeLocator);
-				SourceFile sourceFile = findSourceFile(file, true);
-				if (sourceFile == null) continue next;
-				if (this.sourceFiles.contains(sourceFile)) continue next;
-				if (this.compiledAllAtOnce && this.previousSourceFiles != null && this.previousSourceFiles.contains(sourceFile))
-					continue next; // can skip previously compiled files since already saw hierarchy related problems
+			if (refs.includes(internedQualifiedNames, internedSimpleNames, internedRootNames))
+				addAffectedSourceFile(typeLocator);
+		}
+	}
+}
 
-				if (JavaBuilder.DEBUG)
-					System.out.println("  adding affected source file " + typeLocator); //$NON-NLS-1$
-				this.sourceFiles.add(sourceFile);
+private void addAffectedSourceFile(String typeLocator) {
+	IFile file = this.javaBuilder.currentProject.getFile(typeLocator);
+	SourceFile sourceFile = findSourceFile(file, true);
+	if (sourceFile == null) return;
+	if (this.sourceFiles.contains(sourceFile)) return;
+	if (this.compiledAllAtOnce && this.previousSourceFiles != null && this.previousSourceFiles.contains(sourceFile)
+		&& (this.buildCache == null || !this.buildCache.isReused(typeLocator)))
+			return; // can skip previously compiled files since already saw hierarchy related problems
+
+	if (JavaBuilder.DEBUG)
+		System.out.println("  adding affected source file " + typeLocator); //$NON-NLS-1$
+	this.sourceFiles.add(sourceFile);
+}
+
+protected void addMemberAffectedSourceFiles() {
+	// only the units which reference a changed member, or which extend the changed type, are affected
+	Object[] changedTypes = this.memberChanges.keyTable;
+	Object[] changedMembers = this.memberChanges.valueTable;
+	for (int c = 0, length = changedTypes.length; c < length; c++) {
+		IPath typePath = (IPath) changedTypes[c];
+		if (typePath == null) continue;
+		StringSet qualifiedSet = new StringSet(3), simpleSet = new StringSet(3), rootSet = new StringSet(3);
+		addDependentsOf(typePath, false, qualifiedSet, simpleSet, rootSet);
+		char[][][] internedQualifiedNames = ReferenceCollection.internQualifiedNames(qualifiedSet);
+		if (internedQualifiedNames.length < qualifiedSet.elementSize)
+			internedQualifiedNames = null;
+		char[][] internedSimpleNames = ReferenceCollection.internSimpleNames(simpleSet, true);
+		if (internedSimpleNames.length < simpleSet.elementSize)
+			internedSimpleNames = null;
+		char[][] internedRootNames = ReferenceCollection.internSimpleNames(rootSet, false);
+		String typeName = typePath.lastSegment();
+		int memberIndex = typeName.indexOf('$');
+		char[] topLevelTypeName = (memberIndex > 0 ? typeName.substring(0, memberIndex) : typeName).toCharArray();
+
+		SimpleLookupTable references = this.newState.getReferences();
+		Object[] keyTable = references.keyTable;
+		Object[] valueTable = references.valueTable;
+		for (int i = 0, l = valueTable.length; i < l; i++) {
+			String typeLocator = (String) keyTable[i];
+			if (typeLocator != null) {
+				ReferenceCollection refs = (ReferenceCollection) valueTable[i];
+				if (refs.includes(internedQualifiedNames, internedSimpleNames, internedRootNames)) {
+					if (refs.includesMembers(topLevelTypeName, (char[][]) changedMembers[c]))
+						addAffectedSourceFile(typeLocator);
+					else
+						this.memberSkippedUnits++;
+				}
 			}
 		}
 	}
@@ -260,6 +323,19 @@ protected void addDependentsOf(IPath path, boolean isStructuralChange, StringSet
 			+ typeName + " in " + packageName); //$NON-NLS-1$
 }
 
+protected void addDependentsOf(IPath path, char[][] changedMembers) {
+	if (!this.hasStructuralChanges) {
+		this.newState.tagAsStructurallyChanged();
+		this.hasStructuralChanges = true;
+	}
+	path = path.setDevice(null);
+	char[][] previousMembers = (char[][]) this.memberChanges.get(path);
+	this.memberChanges.put(path, previousMembers == null ? changedMembers : CharOperation.arrayConcat(previousMembers, changedMembers));
+	if (JavaBuilder.DEBUG)
+		System.out.println("  will look for dependents of the members " //$NON-NLS-1$
+			+ CharOperation.toString(changedMembers) + " of " + path); //$NON-NLS-1$
+}
+
 protected boolean checkForClassFileChanges(IResourceDelta binaryDelta, ClasspathMultiDirectory md, int segmentCount) throws CoreException {
 	IResource resource = binaryDelta.getResource();
 	// remember that if inclusion & exclusion patterns change then a full build is done
@@ -743,7 +819,38 @@ protected void processAnnotationResults(CompilationParticipantResult[] results)
 	}
 }
 
+private void printStats() {
+	// count the units which depend on a type whose ABI hash did not change but which the class file comparison
+	// would have reported as structurally changed, and which were not compiled anyway
+	int skippedUnits = 0;
+	if (this.skippedQualifiedStrings.elementSize > 0 || this.skippedSimpleStrings.elementSize > 0) {
+		char[][][] internedQualifiedNames = ReferenceCollection.internQualifiedNames(this.skippedQualifiedStrings);
+		if (internedQualifiedNames.length < this.skippedQualifiedStrings.elementSize)
+			internedQualifiedNames = null;
+		char[][] internedSimpleNames = ReferenceCollection.internSimpleNames(this.skippedSimpleStrings, true);
+		if (internedSimpleNames.length < this.skippedSimpleStrings.elementSize)
+			internedSimpleNames = null;
+		char[][] internedRootNames = ReferenceCollection.internSimpleNames(this.skippedRootStrings, false);
+		SimpleLookupTable references = this.newState.getReferences();
+		Object[] keyTable = references.keyTable;
+		Object[] valueTable = references.valueTable;
+		for (int i = 0, l = keyTable.length; i < l; i++) {
+			String typeLocator = (String) keyTable[i];
+			if (typeLocator != null && !this.compiledTypeLocators.includes(typeLocator)
+					&& ((ReferenceCollection) valueTable[i]).includes(internedQualifiedNames, internedSimpleNames, internedRootNames))
+				skippedUnits++;
+		}
+	}
+	System.out.println(">INCREMENTAL BUILD STATS for: " + this.javaBuilder.javaProject.getElementName()); //$NON-NLS-1$
+	System.out.println(">   compiled " + this.compiledTypeLocators.elementSize + " units in " + this.compileLoop + " loops"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	System.out.println(">   unchanged ABI hash: " + this.unchangedAbiTypes + " types, skipped " + skippedUnits + " dependent units"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	System.out.println(">   unchanged members referenced by " + this.memberSkippedUnits + " dependent units"); //$NON-NLS-1$ //$NON-NLS-2$
+	System.out.println(">   markers: " + this.markerSink.createdMarkers + " created, " + this.markerSink.keptMarkers + " kept, " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		+ this.markerSink.deletedMarkers + " deleted"); //$NON-NLS-1$
+}
+
 protected void removeClassFile(IPath typePath, IContainer outputFolder) throws CoreException {
+	this.newState.removeAbiHash(typePath.toString());
 	if (typePath.lastSegment().indexOf('$') == -1) { // is not a nested type
 		this.newState.removeQualifiedTypeName(typePath.toString());
 		// add dependents even when the type thinks it does not exist to be on the safe side
@@ -784,8 +891,16 @@ protected void resetCollections() {
 		this.qualifiedStrings = new StringSet(3);
 		this.simpleStrings = new StringSet(3);
 		this.rootStrings = new StringSet(3);
+		this.memberChanges = new SimpleLookupTable(3);
 		this.hasStructuralChanges = false;
 		this.compileLoop = 0;
+		this.unchangedAbiTypes = 0;
+		if (JavaBuilder.SHOW_STATS) {
+			this.skippedQualifiedStrings = new StringSet(3);
+			this.skippedSimpleStrings = new StringSet(3);
+			this.skippedRootStrings = new StringSet(3);
+			this.compiledTypeLocators = new StringSet(33);
+		}
 	} else {
 		this.previousSourceFiles = this.sourceFiles.isEmpty() ? null : (ArrayList) this.sourceFiles.clone();
 
@@ -793,6 +908,7 @@ protected void resetCollections() {
 		this.qualifiedStrings.clear();
 		this.simpleStrings.clear();
 		this.rootStrings.clear();
+		this.memberChanges = new SimpleLookupTable(3);
 		this.workQueue.clear();
 	}
 }
@@ -807,7 +923,7 @@ protected void updateProblemsFor(SourceFile sourceFile, CompilationResult result
 	if (problems == null && markers.length == 0) return;
 
 	this.notifier.updateProblemCounts(markers, problems);
-	JavaBuilder.removeProblemsFor(sourceFile.resource);
+	this.markerSink.replaceProblems(sourceFile.resource, markers); // unchanged markers are kept
 	storeProblemsFor(sourceFile, problems);
 }
 
@@ -816,7 +932,7 @@ protected void updateTasksFor(SourceFile sourceFile, CompilationResult result) t
 	CategorizedProblem[] tasks = result.getTasks();
 	if (tasks == null && markers.length == 0) return;
 
-	JavaBuilder.removeTasksFor(sourceFile.resource);
+	this.markerSink.replaceTasks(sourceFile.resource, markers); // unchanged markers are kept
 	storeTasksFor(sourceFile, tasks);
 }
 
@@ -838,6 +954,7 @@ protected void writeClassFileContents(ClassFile classfile, IFile file, String qu
 			System.out.println("Skipped over unchanged class file " + file.getName());//$NON-NLS-1$
 		}
 	} else {
+		this.newState.removeAbiHash(qualifiedFileName); // computed from the class file once it changes
 		if (isTopLevelType)
 			addDependentsOf(new Path(qualifiedFileName), true); // new type
 		if (JavaBuilder.DEBUG)
@@ -895,13 +1012,35 @@ protected boolean writeClassFileCheck(IFile file, String fileName, byte[] newByt
 		URI location = file.getLocationURI();
 		if (location == null) return false; // unable to determine location of this class file
 		String filePath = location.getSchemeSpecificPart();
-		ClassFileReader reader = new ClassFileReader(oldBytes, filePath.toCharArray());
+		ClassFileReader newReader = new ClassFileReader(newBytes, filePath.toCharArray());
 		// ignore local types since they're only visible inside a single method
-		if (!(reader.isLocal() || reader.isAnonymous()) && reader.hasStructuralChanges(newBytes)) {
-			if (JavaBuilder.DEBUG)
-				System.out.println("Type has structural changes " + fileName); //$NON-NLS-1$
-			addDependentsOf(new Path(fileName), true);
-			this.newState.wasStructurallyChanged(fileName);
+		if (!(newReader.isLocal() || newReader.isAnonymous())) {
+			// only the dependents of types whose ABI changed need to be recompiled, the hash of the
+			// previous class file is remembered by the state unless it was never compared before
+			Long lastAbiHash = this.newState.getAbiHash(fileName);
+			long oldAbiHash = lastAbiHash != null
+				? lastAbiHash.longValue()
+				: new ClassFileReader(oldBytes, filePath.toCharArray()).getAbiHash();
+			long newAbiHash = newReader.getAbiHash();
+			this.newState.recordAbiHash(fileName, newAbiHash);
+			if (oldAbiHash != newAbiHash) {
+				if (JavaBuilder.DEBUG)
+					System.out.println("Type has structural changes " + fileName); //$NON-NLS-1$
+				// when only some members changed, the units which do not use them need not be recompiled
+				char[][] changedMembers = RecordMemberReferences
+					? new ClassFileReader(oldBytes, filePath.toCharArray()).getAbiMemberChanges(newReader)
+					: null;
+				if (changedMembers == null)
+					addDependentsOf(new Path(fileName), true);
+				else
+					addDependentsOf(new Path(fileName), changedMembers);
+				this.newState.wasStructurallyChanged(fileName);
+			} else {
+				this.unchangedAbiTypes++;
+				if (this.skippedQualifiedStrings != null
+						&& new ClassFileReader(oldBytes, filePath.toCharArray()).hasStructuralChanges(newBytes))
+					addDependentsOf(new Path(fileName), false, this.skippedQualifiedStrings, this.skippedSimpleStrings, this.skippedRootStrings);
+			}
 		}
 	} catch (ClassFormatException e) {
 		addDependentsOf(new Path(fileName), true);
@@ -155,7 +155,15 @@ public static void writeState(Object state, DataOutputStream out) throws IOExcep
 }
 
 protected IProject[] build(int kind, Map ignored, IProgressMonitor monitor) throws CoreException {
-	this.currentProject = getProject();
+	return build(getProject(), kind, monitor);
+}
+
+/*
+ * Builds the given project. Besides the workspace builds, ParallelBuild uses it
+ * to run full builds of projects outside of the build manager.
+ */
+IProject[] build(IProject project, int kind, IProgressMonitor monitor) throws CoreException {
+	this.currentProject = project;
 	if (this.currentProject == null || !this.currentProject.isAccessible()) return new IProject[0];
 
 	if (DEBUG)
@@ -594,10 +602,12 @@ private int initializeBuilder(int kind, boolean forBuild) throws CoreException {
 
 		// Flush the existing external files cache if this is the beginning of a build cycle
 		String projectName = this.currentProject.getName();
-		if (builtProjects == null || builtProjects.contains(projectName)) {
-			builtProjects = new ArrayList();
+		synchronized (JavaBuilder.class) {
+			if (builtProjects == null || builtProjects.contains(projectName)) {
+				builtProjects = new ArrayList();
+			}
+			builtProjects.add(projectName);
 		}
-		builtProjects.add(projectName);
 	}
 
 	this.binaryLocationsPerProject = new SimpleLookupTable(3);
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.builder;
+
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.*;
+
+import org.eclipse.jdt.internal.compiler.util.SimpleLookupTable;
+
+import java.util.*;
+
+/**
+ * Collects the problem and task markers of the source files compiled in a batch, and applies them
+ * in a single workspace operation when the batch is flushed.
+ * <p>
+ * When the markers of a resource are replaced, the existing markers whose type and attributes are
+ * unchanged are kept instead of being deleted and created again, so they do not appear in the
+ * resource delta of the build.
+ * </p>
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class MarkerSink {
+
+// keyed by resource, value is its MarkerChanges
+SimpleLookupTable changes;
+
+int createdMarkers;
+int keptMarkers;
+int deletedMarkers;
+
+static class MarkerChanges {
+	IMarker[] oldProblems; // null unless the problems of the resource are replaced
+	IMarker[] oldTasks; // null unless the tasks of the resource are replaced
+	ArrayList newMarkers = new ArrayList(3);
+}
+
+static class NewMarker {
+	String type;
+	String[] attributeNames;
+	Object[] attributeValues;
+
+	NewMarker(String type, String[] attributeNames, Object[] attributeValues) {
+		this.type = type;
+		this.attributeNames = attributeNames;
+		this.attributeValues = attributeValues;
+	}
+
+	boolean matches(IMarker marker) throws CoreException {
+		if (!this.type.equals(marker.getType())) return false;
+		Map attributes = marker.getAttributes();
+		int count = 0;
+		for (int i = 0, l = this.attributeNames.length; i < l; i++) {
+			Object value = this.attributeValues[i];
+			if (value == null) {
+				// a null value removes the attribute
+				if (attributes != null && attributes.containsKey(this.attributeNames[i])) return false;
+			} else {
+				if (attributes == null || !value.equals(attributes.get(this.attributeNames[i]))) return false;
+				count++;
+			}
+		}
+		return count == (attributes == null ? 0 : attributes.size());
+	}
+}
+
+public MarkerSink() {
+	this.changes = new SimpleLookupTable(13);
+}
+
+/**
+ * Add a marker of the given type to the resource when the sink is flushed.
+ */
+public void add(IResource resource, String markerType, String[] attributeNames, Object[] attributeValues) {
+	changesFor(resource).newMarkers.add(new NewMarker(markerType, attributeNames, attributeValues));
+}
+
+/**
+ * Forget the markers which have not been flushed yet, since all the markers of the project were deleted.
+ */
+public void clear() {
+	this.changes = new SimpleLookupTable(13);
+}
+
+/**
+ * Apply the collected markers in one workspace operation.
+ */
+public void flush() throws CoreException {
+	if (this.changes.elementSize == 0) return;
+
+	final Object[] keyTable = this.changes.keyTable;
+	final Object[] valueTable = this.changes.valueTable;
+	this.changes = new SimpleLookupTable(13);
+	IWorkspace workspace = ResourcesPlugin.getWorkspace();
+	workspace.run(
+		new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (int i = 0, l = keyTable.length; i < l; i++) {
+					IResource resource = (IResource) keyTable[i];
+					if (resource != null && resource.exists())
+						apply(resource, (MarkerChanges) valueTable[i]);
+				}
+			}
+		},
+		null,
+		IWorkspace.AVOID_UPDATE,
+		null);
+}
+
+/**
+ * Replace the given problem markers of the resource by the problem markers added to it.
+ */
+public void replaceProblems(IResource resource, IMarker[] existingMarkers) {
+	changesFor(resource).oldProblems = existingMarkers;
+}
+
+/**
+ * Replace the given task markers of the resource by the task markers added to it.
+ */
+public void replaceTasks(IResource resource, IMarker[] existingMarkers) {
+	changesFor(resource).oldTasks = existingMarkers;
+}
+
+private void apply(IResource resource, MarkerChanges markerChanges) throws CoreException {
+	ArrayList newMarkers = markerChanges.newMarkers;
+	ArrayList deleted = null;
+	for (int k = 0; k < 2; k++) {
+		IMarker[] oldMarkers = k == 0 ? markerChanges.oldProblems : markerChanges.oldTasks;
+		if (oldMarkers == null) continue;
+		next : for (int i = 0, l = oldMarkers.length; i < l; i++) {
+			IMarker oldMarker = oldMarkers[i];
+			if (!oldMarker.exists()) continue next;
+			for (int j = 0, m = newMarkers.size(); j < m; j++) {
+				if (((NewMarker) newMarkers.get(j)).matches(oldMarker)) {
+					newMarkers.remove(j);
+					this.keptMarkers++;
+					continue next;
+				}
+			}
+			if (deleted == null)
+				deleted = new ArrayList(oldMarkers.length);
+			deleted.add(oldMarker);
+		}
+	}
+	if (deleted != null) {
+		IMarker[] toDelete = new IMarker[deleted.size()];
+		deleted.toArray(toDelete);
+		resource.getWorkspace().deleteMarkers(toDelete);
+		this.deletedMarkers += toDelete.length;
+	}
+	for (int i = 0, l = newMarkers.size(); i < l; i++) {
+		NewMarker newMarker = (NewMarker) newMarkers.get(i);
+		IMarker marker = resource.createMarker(newMarker.type);
+		marker.setAttributes(newMarker.attributeNames, newMarker.attributeValues);
+		this.createdMarkers++;
+	}
+}
+
+private MarkerChanges changesFor(IResource resource) {
+	MarkerChanges markerChanges = (MarkerChanges) this.changes.get(resource);
+	if (markerChanges == null)
+		this.changes.put(resource, markerChanges = new MarkerChanges());
+	return markerChanges;
+}
+
+public String toString() {
+	return "MarkerSink: " + this.createdMarkers + " created, " + this.keptMarkers + " kept, " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		+ this.deletedMarkers + " deleted"; //$NON-NLS-1$
+}
+}
@@ -0,0 +1,357 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.builder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.core.runtime.jobs.MultiRule;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.internal.core.JavaProject;
+import org.eclipse.jdt.internal.core.util.Messages;
+
+/**
+ * Performs full builds of Java projects, building the projects which do not depend on each other concurrently.
+ * <p>
+ * The workspace builds projects one after another. Here, the prerequisites of each project are taken from
+ * its resolved classpath, and a project is built as soon as its prerequisites among the given projects are built,
+ * in a job whose scheduling rule is the project itself. Every build uses its own {@link JavaBuilder}, so the
+ * {@link State} and {@link NameEnvironment} of a project are never shared with another build.
+ * </p><p>
+ * These builds run outside of the build manager, which is only used for the projects involved in a classpath cycle,
+ * built one at a time at the end since they can ask for more build iterations. The next workspace build sees
+ * the changes of the output folders in its deltas, and skips them as it does for its own builds.
+ * </p><p>
+ * This is only done when the {@link #BUILD_PARALLELISM} system property is greater than 1. Otherwise
+ * {@link #fullBuild(IProject[], IProgressMonitor)} is a full build of the projects by the workspace build manager.
+ * </p>
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ParallelBuild {
+
+public static final String BUILD_PARALLELISM = "jdt.builder.parallelism"; //$NON-NLS-1$
+public static int PARALLELISM = Integer.getInteger(BUILD_PARALLELISM, 1).intValue(); // 1: builds are done by the build manager
+
+IProject[] projects; // the projects built concurrently, the others are in cycleProjects
+int[][] prerequisites; // indexes of the prerequisites of each project among the projects
+int[][] dependents; // indexes of the projects which depend on each project
+IProject[] cycleProjects;
+
+LinkedList finishedProjects; // indexes of the projects whose job is done
+long[] buildTimes;
+MultiStatus status;
+
+class ProjectBuildJob extends Job {
+	int index;
+
+	ProjectBuildJob(int index) {
+		super(Messages.bind(Messages.build_buildingProject, ParallelBuild.this.projects[index].getName()));
+		this.index = index;
+		setRule(ParallelBuild.this.projects[index]);
+		setSystem(true);
+		addJobChangeListener(new JobChangeAdapter() {
+			public void done(IJobChangeEvent event) {
+				// also called when the job is canceled before it runs
+				finished(ProjectBuildJob.this.index);
+			}
+		});
+	}
+	public boolean belongsTo(Object family) {
+		return family == ParallelBuild.this;
+	}
+	protected IStatus run(IProgressMonitor monitor) {
+		buildProject(this.index, monitor);
+		return Status.OK_STATUS; // failures are collected in the status of the build
+	}
+}
+
+/**
+ * Performs a full build of the given projects, using up to {@link #PARALLELISM} threads.
+ * Projects which are not built by the Java builder are ignored.
+ * <p>
+ * When the calling thread owns a scheduling rule which contains the projects (or the workspace root for a build
+ * by the build manager), the projects are built in this thread, since jobs could not start until the rule is released.
+ * When it owns another rule, the projects cannot be built before this rule is released: the build is done
+ * by a job which waits for it, and this method answers without waiting.
+ * </p>
+ * @return the status of the builds which failed, or an OK status
+ * @throws OperationCanceledException if the monitor was canceled
+ */
+public static IStatus fullBuild(final IProject[] projects, IProgressMonitor monitor) {
+	IWorkspace workspace = ResourcesPlugin.getWorkspace();
+	ISchedulingRule rule = PARALLELISM > 1 ? MultiRule.combine(projects) : workspace.getRuleFactory().buildRule();
+	ISchedulingRule currentRule = Job.getJobManager().currentRule();
+	if (currentRule != null && rule != null && !currentRule.contains(rule)) {
+		Job job = new Job(Messages.build_fullBuild) {
+			protected IStatus run(IProgressMonitor jobMonitor) {
+				try {
+					return fullBuild(projects, jobMonitor);
+				} catch (OperationCanceledException e) {
+					return Status.CANCEL_STATUS;
+				}
+			}
+		};
+		job.setSystem(true);
+		job.schedule(); // its builds start once the rule of this thread is released
+		return Status.OK_STATUS;
+	}
+	if (monitor == null)
+		monitor = new NullProgressMonitor();
+	if (PARALLELISM <= 1) {
+		IBuildConfiguration[] configs = new IBuildConfiguration[projects.length];
+		try {
+			for (int i = 0, l = projects.length; i < l; i++)
+				configs[i] = projects[i].getActiveBuildConfig();
+			workspace.build(configs, IncrementalProjectBuilder.FULL_BUILD, false, monitor);
+		} catch (CoreException e) {
+			return e.getStatus();
+		}
+		return Status.OK_STATUS;
+	}
+	return new ParallelBuild(projects).build(monitor);
+}
+
+ParallelBuild(IProject[] candidates) {
+	ArrayList acyclic = new ArrayList(candidates.length);
+	ArrayList cyclic = new ArrayList(3);
+	for (int i = 0, l = candidates.length; i < l; i++) {
+		IProject project = candidates[i];
+		if (acyclic.contains(project) || cyclic.contains(project) || !isBuiltByJavaBuilder(project)) continue;
+		if (((JavaProject) JavaCore.create(project)).hasCycleMarker())
+			cyclic.add(project);
+		else
+			acyclic.add(project);
+	}
+	int length = acyclic.size();
+	this.projects = (IProject[]) acyclic.toArray(new IProject[length]);
+	this.cycleProjects = (IProject[]) cyclic.toArray(new IProject[cyclic.size()]);
+	this.status = new MultiStatus(JavaCore.PLUGIN_ID, IStatus.OK, Messages.build_errors, null);
+
+	HashMap indexes = new HashMap(length);
+	for (int i = 0; i < length; i++)
+		indexes.put(this.projects[i], new Integer(i));
+	ArrayList[] dependentLists = new ArrayList[length];
+	this.prerequisites = new int[length][];
+	for (int i = 0; i < length; i++) {
+		IProject[] required = getRequiredProjects(this.projects[i]);
+		int[] prereqs = new int[required.length];
+		int count = 0;
+		for (int j = 0, m = required.length; j < m; j++) {
+			Integer index = (Integer) indexes.get(required[j]);
+			if (index == null) continue; // not built here, its last build is used
+			int prereq = index.intValue();
+			prereqs[count++] = prereq;
+			if (dependentLists[prereq] == null)
+				dependentLists[prereq] = new ArrayList(3);
+			dependentLists[prereq].add(new Integer(i));
+		}
+		if (count < prereqs.length)
+			System.arraycopy(prereqs, 0, prereqs = new int[count], 0, count);
+		this.prerequisites[i] = prereqs;
+	}
+	this.dependents = new int[length][];
+	for (int i = 0; i < length; i++) {
+		ArrayList list = dependentLists[i];
+		int[] indexList = new int[list == null ? 0 : list.size()];
+		for (int j = 0, m = indexList.length; j < m; j++)
+			indexList[j] = ((Integer) list.get(j)).intValue();
+		this.dependents[i] = indexList;
+	}
+}
+
+/*
+ * Returns the workspace projects the given project requires on its resolved classpath, either as
+ * project entries or for the class folders and jar files they contain.
+ */
+static IProject[] getRequiredProjects(IProject project) {
+	IWorkspaceRoot root = project.getWorkspace().getRoot();
+	ArrayList required = new ArrayList();
+	try {
+		IClasspathEntry[] entries = ((JavaProject) JavaCore.create(project)).getResolvedClasspath();
+		for (int i = 0, l = entries.length; i < l; i++) {
+			IClasspathEntry entry = entries[i];
+			IPath path = entry.getPath();
+			IProject p = null;
+			switch (entry.getEntryKind()) {
+				case IClasspathEntry.CPE_PROJECT :
+					p = root.getProject(path.lastSegment());
+					break;
+				case IClasspathEntry.CPE_LIBRARY :
+					if (path.segmentCount() > 0) {
+						IResource resource = root.findMember(path.segment(0));
+						if (resource instanceof IProject)
+							p = (IProject) resource;
+					}
+			}
+			if (p != null && !p.equals(project) && !required.contains(p))
+				required.add(p);
+		}
+	} catch (JavaModelException e) {
+		// build it without waiting for other projects, its builder reports the classpath problems
+	}
+	return (IProject[]) required.toArray(new IProject[required.size()]);
+}
+
+static boolean isBuiltByJavaBuilder(IProject project) {
+	if (!project.isAccessible() || !JavaProject.hasJavaNature(project)) return false;
+	try {
+		ICommand[] buildCommands = project.getDescription().getBuildSpec();
+		for (int i = 0, l = buildCommands.length; i < l; i++)
+			if (buildCommands[i].getBuilderName().equals(JavaCore.BUILDER_ID))
+				return true;
+	} catch (CoreException e) {
+		// not a buildable project
+	}
+	return false;
+}
+
+IStatus build(IProgressMonitor monitor) {
+	int length = this.projects.length;
+	int threads = Job.getJobManager().currentRule() != null ? 1 : Math.max(1, Math.min(PARALLELISM, length));
+	this.finishedProjects = new LinkedList();
+	this.buildTimes = new long[length];
+	int[] pendingPrereqs = new int[length];
+	LinkedList ready = new LinkedList();
+	for (int i = 0; i < length; i++)
+		if ((pendingPrereqs[i] = this.prerequisites[i].length) == 0)
+			ready.add(new Integer(i));
+
+	monitor.beginTask("", length + this.cycleProjects.length); //$NON-NLS-1$
+	long start = System.currentTimeMillis();
+	int[] buildOrder = new int[length];
+	int built = 0;
+	try {
+		int running = 0;
+		while (built < length) {
+			if (monitor.isCanceled()) {
+				Job.getJobManager().cancel(this);
+				if (running == 0)
+					throw new OperationCanceledException();
+			} else {
+				while (!ready.isEmpty() && running < threads) {
+					int index = ((Integer) ready.removeFirst()).intValue();
+					running++;
+					if (threads > 1) {
+						new ProjectBuildJob(index).schedule();
+					} else {
+						buildProject(index, new SubProgressMonitor(monitor, 0));
+						finished(index);
+					}
+				}
+			}
+			if (running == 0) break; // the remaining projects depend on each other, build them as cycles
+			synchronized (this) {
+				while (this.finishedProjects.isEmpty()) {
+					try {
+						wait(100);
+					} catch (InterruptedException e) {
+						// continue
+					}
+					if (monitor.isCanceled()) break;
+				}
+				while (!this.finishedProjects.isEmpty()) {
+					int index = ((Integer) this.finishedProjects.removeFirst()).intValue();
+					buildOrder[built++] = index;
+					running--;
+					monitor.worked(1);
+					int[] dependentIndexes = this.dependents[index];
+					for (int i = 0, l = dependentIndexes.length; i < l; i++)
+						if (--pendingPrereqs[dependentIndexes[i]] == 0)
+							ready.add(new Integer(dependentIndexes[i]));
+				}
+			}
+		}
+		if (JavaBuilder.SHOW_STATS)
+			printStats(buildOrder, built, System.currentTimeMillis() - start, threads);
+
+		if (built < length) {
+			ArrayList cyclic = new ArrayList();
+			for (int i = 0; i < length; i++)
+				if (pendingPrereqs[i] > 0)
+					cyclic.add(this.projects[i]);
+			for (int i = 0, l = this.cycleProjects.length; i < l; i++)
+				cyclic.add(this.cycleProjects[i]);
+			this.cycleProjects = (IProject[]) cyclic.toArray(new IProject[cyclic.size()]);
+		}
+		for (int i = 0, l = this.cycleProjects.length; i < l; i++) {
+			if (monitor.isCanceled())
+				throw new OperationCanceledException();
+			try {
+				this.cycleProjects[i].build(IncrementalProjectBuilder.FULL_BUILD, JavaCore.BUILDER_ID, null, new SubProgressMonitor(monitor, 1));
+			} catch (CoreException e) {
+				this.status.add(e.getStatus());
+			}
+		}
+	} finally {
+		JavaBuilder.buildFinished();
+		monitor.done();
+	}
+	return this.status.isOK() ? Status.OK_STATUS : this.status;
+}
+
+void buildProject(int index, IProgressMonitor monitor) {
+	final IProject project = this.projects[index];
+	long start = System.currentTimeMillis();
+	try {
+		project.getWorkspace().run(
+			new IWorkspaceRunnable() {
+				public void run(IProgressMonitor runMonitor) throws CoreException {
+					new JavaBuilder().build(project, IncrementalProjectBuilder.FULL_BUILD, runMonitor);
+				}
+			},
+			project,
+			IWorkspace.AVOID_UPDATE,
+			monitor);
+	} catch (CoreException e) {
+		synchronized (this) {
+			this.status.add(e.getStatus());
+		}
+	} catch (OperationCanceledException e) {
+		// the build was canceled, the project is rebuilt next time since it has no state
+	}
+	this.buildTimes[index] = System.currentTimeMillis() - start;
+}
+
+synchronized void finished(int index) {
+	this.finishedProjects.add(new Integer(index));
+	notifyAll();
+}
+
+private void printStats(int[] buildOrder, int built, long elapsed, int threads) {
+	// the projects finished in an order which respects their prerequisites
+	long[] chainTimes = new long[this.projects.length];
+	long serialTime = 0, longestChain = 0;
+	for (int i = 0; i < built; i++) {
+		int index = buildOrder[i];
+		long prereqsTime = 0;
+		int[] prereqs = this.prerequisites[index];
+		for (int j = 0, l = prereqs.length; j < l; j++)
+			prereqsTime = Math.max(prereqsTime, chainTimes[prereqs[j]]);
+		chainTimes[index] = prereqsTime + this.buildTimes[index];
+		longestChain = Math.max(longestChain, chainTimes[index]);
+		serialTime += this.buildTimes[index];
+	}
+	System.out.println("JavaBuilder: Built " + built + " projects in " + elapsed + " ms using " + threads + " threads"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	System.out.println("    Serial order (sum of the project builds): " + serialTime + " ms"); //$NON-NLS-1$ //$NON-NLS-2$
+	System.out.println("    Longest chain of prerequisites: " + longestChain + " ms"); //$NON-NLS-1$ //$NON-NLS-2$
+	if (elapsed > 0)
+		System.out.println("    Speedup over serial order: " + (serialTime * 100 / elapsed) / 100f); //$NON-NLS-1$
+}
+}
@@ -12,6 +12,7 @@
 package org.eclipse.jdt.internal.core.builder;
 
 import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.lookup.CompilationUnitScope;
 import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
 
 public class ReferenceCollection {
@@ -19,6 +20,10 @@ public class ReferenceCollection {
 char[][][] qualifiedNameReferences; // contains no simple names as in just 'a' which is kept in simpleNameReferences instead
 char[][] simpleNameReferences;
 char[][] rootReferences;
+// the fields & methods referenced by the unit (see CompilationUnitScope.memberReferenceKey()) & the simple names
+// of the supertypes of its types, null when the members referenced by the unit are unknown
+char[][] memberReferences;
+char[][] hierarchyReferences;
 
 protected ReferenceCollection(char[][][] qualifiedNameReferences, char[][] simpleNameReferences, char[][] rootReferences) {
 	this.qualifiedNameReferences = internQualifiedNames(qualifiedNameReferences, false);
@@ -61,6 +66,26 @@ public void addDependencies(String[] typeNameDependencies) {
 	}
 }
 
+/**
+ * Answer whether a change of the given members of the type with the given simple name can affect
+ * the unit: when one of its types is a subtype of the changed type or when it references one of the
+ * members. Answer true if the member references of the unit are unknown.
+ */
+public boolean includesMembers(char[] typeName, char[][] memberKeys) {
+	if (this.memberReferences == null) return true;
+
+	for (int i = 0, l = this.hierarchyReferences.length; i < l; i++)
+		if (CharOperation.equals(typeName, this.hierarchyReferences[i])) return true;
+	for (int i = 0, l = memberKeys.length; i < l; i++)
+		for (int j = 0, m = this.memberReferences.length; j < m; j++)
+			if (CompilationUnitScope.memberReferenceKeysMatch(memberKeys[i], this.memberReferences[j])) {
+				if (JavaBuilder.DEBUG)
+					System.out.println("Found match of member " + new String(memberKeys[i]) + " in " + new String(typeName)); //$NON-NLS-1$ //$NON-NLS-2$
+				return true;
+			}
+	return false;
+}
+
 public boolean includes(char[] simpleName) {
 	for (int i = 0, l = this.simpleNameReferences.length; i < l; i++)
 		if (simpleName == this.simpleNameReferences[i]) return true;
@@ -151,6 +176,11 @@ public boolean includes(char[][][] qualifiedNames, char[][] simpleNames, char[][
 	return false;
 }
 
+void setMemberReferences(char[][] memberReferences, char[][] hierarchyReferences) {
+	this.memberReferences = internSimpleNames(memberReferences, false);
+	this.hierarchyReferences = internSimpleNames(hierarchyReferences, false);
+}
+
 public boolean insideRoot(char[] rootName) {
 	for (int i = 0, l = this.rootReferences.length; i < l; i++)
 		if (rootName == this.rootReferences[i]) return true;
@@ -213,7 +243,7 @@ public static char[][][] internQualifiedNames(char[][][] qualifiedNames) {
 	return internQualifiedNames(qualifiedNames, false);
 }
 
-public static char[][][] internQualifiedNames(char[][][] qualifiedNames, boolean keepWellKnown) {
+public static synchronized char[][][] internQualifiedNames(char[][][] qualifiedNames, boolean keepWellKnown) {
 	if (qualifiedNames == null) return EmptyQualifiedNames;
 	int length = qualifiedNames.length;
 	if (length == 0) return EmptyQualifiedNames;
@@ -269,7 +299,7 @@ public static char[][] internSimpleNames(StringSet simpleStrings, boolean remove
 	return internSimpleNames(result, removeWellKnown);
 }
 
-public static char[][] internSimpleNames(char[][] simpleNames, boolean removeWellKnown) {
+public static synchronized char[][] internSimpleNames(char[][] simpleNames, boolean removeWellKnown) {
 	if (simpleNames == null) return EmptySimpleNames;
 	int length = simpleNames.length;
 	if (length == 0) return EmptySimpleNames;
@@ -15,6 +15,7 @@ package org.eclipse.jdt.internal.core.builder;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.*;
 
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.internal.compiler.env.AccessRuleSet;
 import org.eclipse.jdt.internal.compiler.env.AccessRule;
@@ -33,13 +34,19 @@ String javaProjectName;
 public ClasspathMultiDirectory[] sourceLocations;
 ClasspathLocation[] binaryLocations;
 // keyed by the project relative path of the type (i.e. "src1/p1/p2/A.java"), value is a ReferenceCollection or an AdditionalTypeCollection
-SimpleLookupTable references;
+// null until the encoded references of a read state are needed, see getReferences()
+private SimpleLookupTable references;
+// sorted type locators and their encoded reference collections when the state was read from disk, see read() and encodeReferences()
+private String[] encodedTypeLocators;
+private byte[] encodedReferences;
 // keyed by qualified type name "p1/p2/A", value is the project relative path which defines this type "src1/p1/p2/A.java"
 public SimpleLookupTable typeLocators;
 
 int buildNumber;
 long lastStructuralBuildTime;
 SimpleLookupTable structuralBuildTimes;
+// keyed by qualified type name "p1/p2/A" or "p1/p2/A$M", value is the Long ABI hash of its class file, see ClassFileReader.getAbiHash()
+SimpleLookupTable abiHashes;
 
 private String[] knownPackageNames; // of the form "p1/p2"
 
@@ -47,7 +54,7 @@ private long previousStructuralBuildTime;
 private StringSet structurallyChangedTypes;
 public static int MaxStructurallyChangedTypes = 100; // keep track of ? structurally changed types, otherwise consider all to be changed
 
-public static final byte VERSION = 0x001C;
+public static final byte VERSION = 0x001F;
 
 static final byte SOURCE_FOLDER = 1;
 static final byte BINARY_FOLDER = 2;
@@ -71,6 +78,7 @@ protected State(JavaBuilder javaBuilder) {
 	this.buildNumber = 0; // indicates a full build
 	this.lastStructuralBuildTime = computeStructuralBuildTime(javaBuilder.lastState == null ? 0 : javaBuilder.lastState.lastStructuralBuildTime);
 	this.structuralBuildTimes = new SimpleLookupTable(3);
+	this.abiHashes = new SimpleLookupTable(7);
 }
 
 long computeStructuralBuildTime(long previousTime) {
@@ -89,12 +97,14 @@ void copyFrom(State lastState) {
 	this.structuralBuildTimes = lastState.structuralBuildTimes;
 
 	try {
-		this.references = (SimpleLookupTable) lastState.references.clone();
+		this.references = (SimpleLookupTable) lastState.getReferences().clone();
 		this.typeLocators = (SimpleLookupTable) lastState.typeLocators.clone();
+		this.abiHashes = (SimpleLookupTable) lastState.abiHashes.clone();
 	} catch (CloneNotSupportedException e) {
-		this.references = new SimpleLookupTable(lastState.references.elementSize);
-		Object[] keyTable = lastState.references.keyTable;
-		Object[] valueTable = lastState.references.valueTable;
+		SimpleLookupTable lastReferences = lastState.getReferences();
+		this.references = new SimpleLookupTable(lastReferences.elementSize);
+		Object[] keyTable = lastReferences.keyTable;
+		Object[] valueTable = lastReferences.valueTable;
 		for (int i = 0, l = keyTable.length; i < l; i++)
 			if (keyTable[i] != null)
 				this.references.put(keyTable[i], valueTable[i]);
@@ -105,16 +115,56 @@ void copyFrom(State lastState) {
 		for (int i = 0, l = keyTable.length; i < l; i++)
 			if (keyTable[i] != null)
 				this.typeLocators.put(keyTable[i], valueTable[i]);
+
+		this.abiHashes = new SimpleLookupTable(lastState.abiHashes.elementSize);
+		keyTable = lastState.abiHashes.keyTable;
+		valueTable = lastState.abiHashes.valueTable;
+		for (int i = 0, l = keyTable.length; i < l; i++)
+			if (keyTable[i] != null)
+				this.abiHashes.put(keyTable[i], valueTable[i]);
 	}
 }
-public char[][] getDefinedTypeNamesFor(String typeLocator) {
+/**
+ * Answer the ABI hash recorded for the class file of the given qualified type name, or null if it is unknown.
+ */
+Long getAbiHash(String qualifiedTypeName) {
+	return (Long) this.abiHashes.get(qualifiedTypeName);
+}
+public synchronized char[][] getDefinedTypeNamesFor(String typeLocator) {
+	if (this.references == null) {
+		// answer from the encoded record of the type locator instead of materializing all the reference collections
+		int index = Arrays.binarySearch(this.encodedTypeLocators, typeLocator);
+		if (index < 0) return null;
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(this.encodedReferences));
+			in.skipBytes(index * 4);
+			int offset = in.readInt();
+			in.skipBytes(offset - index * 4 - 4);
+			return in.readByte() == 1 ? readNames(in) : null;
+		} catch (IOException e) {
+			throw new ImageBuilderInternalException(newReadException(e));
+		}
+	}
 	Object c = this.references.get(typeLocator);
 	if (c instanceof AdditionalTypeCollection)
 		return ((AdditionalTypeCollection) c).definedTypeNames;
 	return null; // means only one type is defined with the same name as the file... saves space
 }
 
-public SimpleLookupTable getReferences() {
+/**
+ * Answer the reference collections of this state keyed by type locator. When the state was read from disk,
+ * they are decoded on the first call so that projects which are never built incrementally do not pay for them.
+ */
+public synchronized SimpleLookupTable getReferences() {
+	if (this.references == null) {
+		try {
+			this.references = decodeReferences(this.encodedTypeLocators, this.encodedReferences);
+		} catch (IOException e) {
+			throw new ImageBuilderInternalException(newReadException(e));
+		}
+		this.encodedTypeLocators = null;
+		this.encodedReferences = null;
+	}
 	return this.references;
 }
 
@@ -171,14 +221,18 @@ boolean isSourceFolderEmpty(IContainer sourceFolder) {
 	return true;
 }
 
-void record(String typeLocator, char[][][] qualifiedRefs, char[][] simpleRefs, char[][] rootRefs, char[] mainTypeName, ArrayList typeNames) {
+void record(String typeLocator, char[][][] qualifiedRefs, char[][] simpleRefs, char[][] rootRefs, char[][] memberRefs, char[][] hierarchyRefs, char[] mainTypeName, ArrayList typeNames) {
+	ReferenceCollection collection;
 	if (typeNames.size() == 1 && CharOperation.equals(mainTypeName, (char[]) typeNames.get(0))) {
-		this.references.put(typeLocator, new ReferenceCollection(qualifiedRefs, simpleRefs, rootRefs));
+		collection = new ReferenceCollection(qualifiedRefs, simpleRefs, rootRefs);
 	} else {
 		char[][] definedTypeNames = new char[typeNames.size()][]; // can be empty when no types are defined
 		typeNames.toArray(definedTypeNames);
-		this.references.put(typeLocator, new AdditionalTypeCollection(definedTypeNames, qualifiedRefs, simpleRefs, rootRefs));
+		collection = new AdditionalTypeCollection(definedTypeNames, qualifiedRefs, simpleRefs, rootRefs);
 	}
+	if (memberRefs != null)
+		collection.setMemberReferences(memberRefs, hierarchyRefs);
+	getReferences().put(typeLocator, collection);
 }
 
 void recordLocatorForType(String qualifiedTypeName, String typeLocator) {
@@ -198,7 +252,7 @@ void recordStructuralDependency(IProject prereqProject, State prereqState) {
 
 void removeLocator(String typeLocatorToRemove) {
 	this.knownPackageNames = null;
-	this.references.removeKey(typeLocatorToRemove);
+	getReferences().removeKey(typeLocatorToRemove);
 	this.typeLocators.removeValue(typeLocatorToRemove);
 }
 
@@ -217,6 +271,14 @@ void removePackage(IResourceDelta sourceDelta) {
 	}
 }
 
+void recordAbiHash(String qualifiedTypeName, long abiHash) {
+	this.abiHashes.put(qualifiedTypeName, new Long(abiHash));
+}
+
+void removeAbiHash(String qualifiedTypeName) {
+	this.abiHashes.removeKey(qualifiedTypeName);
+}
+
 void removeQualifiedTypeName(String qualifiedTypeNameToRemove) {
 	this.knownPackageNames = null;
 	this.typeLocators.removeKey(qualifiedTypeNameToRemove);
@@ -290,10 +352,29 @@ static State read(IProject project, DataInputStream in) throws IOException {
 	for (int i = 0; i < length; i++)
 		newState.recordLocatorForType(in.readUTF(), internedTypeLocators[in.readInt()]);
 
+	// the reference collections are only decoded when needed, see getReferences()
+	newState.encodedTypeLocators = internedTypeLocators;
+	newState.encodedReferences = new byte[in.readInt()];
+	in.readFully(newState.encodedReferences);
+
+	newState.abiHashes = new SimpleLookupTable(length = in.readInt());
+	for (int i = 0; i < length; i++)
+		newState.abiHashes.put(in.readUTF(), new Long(in.readLong()));
+	if (JavaBuilder.DEBUG)
+		System.out.println("Successfully read state for " + newState.javaProjectName); //$NON-NLS-1$
+	return newState;
+}
+
+private static SimpleLookupTable decodeReferences(String[] typeLocators, byte[] encodedReferences) throws IOException {
+	long start = JavaBuilder.DEBUG ? System.currentTimeMillis() : 0;
+	DataInputStream in = new DataInputStream(new ByteArrayInputStream(encodedReferences));
+	int length = typeLocators.length;
+	in.skipBytes(length * 4); // the record offsets are only used to answer a single record, see getDefinedTypeNamesFor()
+
 	char[][] internedRootNames = ReferenceCollection.internSimpleNames(readNames(in), false);
 	char[][] internedSimpleNames = ReferenceCollection.internSimpleNames(readNames(in), false);
-	char[][][] internedQualifiedNames = new char[length = in.readInt()][][];
-	for (int i = 0; i < length; i++) {
+	char[][][] internedQualifiedNames = new char[in.readInt()][][];
+	for (int i = 0, l = internedQualifiedNames.length; i < l; i++) {
 		int qLength = in.readInt();
 		char[][] qName = new char[qLength][];
 		for (int j = 0; j < qLength; j++)
@@ -302,9 +383,8 @@ static State read(IProject project, DataInputStream in) throws IOException {
 	}
 	internedQualifiedNames = ReferenceCollection.internQualifiedNames(internedQualifiedNames, false);
 
-	newState.references = new SimpleLookupTable(length = in.readInt());
+	SimpleLookupTable references = new SimpleLookupTable(length);
 	for (int i = 0; i < length; i++) {
-		String typeLocator = internedTypeLocators[in.readInt()];
 		ReferenceCollection collection = null;
 		switch (in.readByte()) {
 			case 1 :
@@ -331,12 +411,29 @@ static State read(IProject project, DataInputStream in) throws IOException {
 				for (int j = 0, m = rNames.length; j < m; j++)
 					rNames[j] = internedRootNames[in.readInt()];
 				collection = new ReferenceCollection(qNames, sNames, rNames);
+				break;
+			default :
+				throw new IOException("Unknown reference collection kind"); //$NON-NLS-1$
+		}
+		int mLength = in.readInt();
+		if (mLength >= 0) {
+			char[][] memberNames = new char[mLength][];
+			for (int j = 0; j < mLength; j++)
+				memberNames[j] = internedSimpleNames[in.readInt()];
+			char[][] hierarchyNames = new char[in.readInt()][];
+			for (int j = 0, m = hierarchyNames.length; j < m; j++)
+				hierarchyNames[j] = internedSimpleNames[in.readInt()];
+			collection.setMemberReferences(memberNames, hierarchyNames);
 		}
-		newState.references.put(typeLocator, collection);
+		references.put(typeLocators[i], collection);
 	}
 	if (JavaBuilder.DEBUG)
-		System.out.println("Successfully read state for " + newState.javaProjectName); //$NON-NLS-1$
-	return newState;
+		System.out.println("Decoded " + length + " reference collections in " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	return references;
+}
+
+private CoreException newReadException(IOException e) {
+	return new CoreException(new Status(IStatus.ERROR, JavaCore.PLUGIN_ID, Platform.PLUGIN_ERROR, "Error reading last build state for project " + this.javaProjectName, e)); //$NON-NLS-1$
 }
 
 private static char[] readName(DataInputStream in) throws IOException {
@@ -400,7 +497,7 @@ void wasStructurallyChanged(String typeName) {
 	}
 }
 
-void write(DataOutputStream out) throws IOException {
+synchronized void write(DataOutputStream out) throws IOException {
 	int length;
 	Object[] keyTable;
 	Object[] valueTable;
@@ -490,23 +587,23 @@ void write(DataOutputStream out) throws IOException {
 	}
 
 /*
- * String[]	Interned type locators
+ * String[]	Interned type locators, sorted
  */
-	out.writeInt(length = this.references.elementSize);
-	SimpleLookupTable internedTypeLocators = new SimpleLookupTable(length);
-	if (length > 0) {
+	String[] internedTypeLocators = this.encodedTypeLocators;
+	byte[] encoded = this.encodedReferences;
+	if (this.references != null) {
+		// the references were materialized so they may have changed, otherwise the encoded ones are written back unchanged
+		internedTypeLocators = new String[this.references.elementSize];
 		keyTable = this.references.keyTable;
-		for (int i = 0, l = keyTable.length; i < l; i++) {
-			if (keyTable[i] != null) {
-				length--;
-				String key = (String) keyTable[i];
-				out.writeUTF(key);
-				internedTypeLocators.put(key, new Integer(internedTypeLocators.elementSize));
-			}
-		}
-		if (JavaBuilder.DEBUG && length != 0)
-			System.out.println("references table is inconsistent"); //$NON-NLS-1$
+		for (int i = 0, index = 0, l = keyTable.length; i < l; i++)
+			if (keyTable[i] != null)
+				internedTypeLocators[index++] = (String) keyTable[i];
+		Arrays.sort(internedTypeLocators);
+		encoded = encodeReferences(internedTypeLocators);
 	}
+	out.writeInt(length = internedTypeLocators.length);
+	for (int i = 0; i < length; i++)
+		out.writeUTF(internedTypeLocators[i]);
 
 /*
  * Type locators table
@@ -521,8 +618,7 @@ void write(DataOutputStream out) throws IOException {
 			if (keyTable[i] != null) {
 				length--;
 				out.writeUTF((String) keyTable[i]);
-				Integer index = (Integer) internedTypeLocators.get(valueTable[i]);
-				out.writeInt(index.intValue());
+				out.writeInt(Arrays.binarySearch(internedTypeLocators, valueTable[i]));
 			}
 		}
 		if (JavaBuilder.DEBUG && length != 0)
@@ -530,14 +626,53 @@ void write(DataOutputStream out) throws IOException {
 	}
 
 /*
- * char[][]	Interned root names
- * char[][][]	Interned qualified names
- * char[][]	Interned simple names
+ * References table, see encodeReferences()
+ * int			length
+ * byte[]		encoded reference collections
+ */
+	out.writeInt(encoded.length);
+	out.write(encoded);
+
+/*
+ * ABI hashes table
+ * String		qualified type name
+ * long		ABI hash
  */
+	out.writeInt(length = this.abiHashes.elementSize);
+	if (length > 0) {
+		keyTable = this.abiHashes.keyTable;
+		valueTable = this.abiHashes.valueTable;
+		for (int i = 0, l = keyTable.length; i < l; i++) {
+			if (keyTable[i] != null) {
+				length--;
+				out.writeUTF((String) keyTable[i]);
+				out.writeLong(((Long) valueTable[i]).longValue());
+			}
+		}
+		if (JavaBuilder.DEBUG && length != 0)
+			System.out.println("abiHashes table is inconsistent"); //$NON-NLS-1$
+	}
+}
+
+/**
+ * Encode the reference collections of the given sorted type locators as:
+ * <pre>
+ * int[]		offset of the record of each type locator
+ * char[][]	interned root names
+ * char[][]	interned simple names
+ * char[][][]	interned qualified names, as indexes of interned simple names
+ * records	kind, additional type names and indexes of the interned names referenced by the collection
+ * </pre>
+ * The records are in the order of the type locators so that a single record can be read from its offset.
+ */
+private byte[] encodeReferences(String[] internedTypeLocators) throws IOException {
+	int length;
+	ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+	DataOutputStream header = new DataOutputStream(headerBytes);
 	SimpleLookupTable internedRootNames = new SimpleLookupTable(3);
 	SimpleLookupTable internedQualifiedNames = new SimpleLookupTable(31);
 	SimpleLookupTable internedSimpleNames = new SimpleLookupTable(31);
-	valueTable = this.references.valueTable;
+	Object[] valueTable = this.references.valueTable;
 	for (int i = 0, l = valueTable.length; i < l; i++) {
 		if (valueTable[i] != null) {
 			ReferenceCollection collection = (ReferenceCollection) valueTable[i];
@@ -565,6 +700,20 @@ void write(DataOutputStream out) throws IOException {
 				if (!internedSimpleNames.containsKey(sName)) // remember the names have been interned
 					internedSimpleNames.put(sName, new Integer(internedSimpleNames.elementSize));
 			}
+			if (collection.memberReferences != null) {
+				char[][] mNames = collection.memberReferences;
+				for (int j = 0, m = mNames.length; j < m; j++) {
+					char[] mName = mNames[j];
+					if (!internedSimpleNames.containsKey(mName)) // remember the names have been interned
+						internedSimpleNames.put(mName, new Integer(internedSimpleNames.elementSize));
+				}
+				char[][] hNames = collection.hierarchyReferences;
+				for (int j = 0, m = hNames.length; j < m; j++) {
+					char[] hName = hNames[j];
+					if (!internedSimpleNames.containsKey(hName)) // remember the names have been interned
+						internedSimpleNames.put(hName, new Integer(internedSimpleNames.elementSize));
+				}
+			}
 		}
 	}
 	char[][] internedArray = new char[internedRootNames.elementSize][];
@@ -576,7 +725,7 @@ void write(DataOutputStream out) throws IOException {
 			internedArray[index] = (char[]) rootNames[i];
 		}
 	}
-	writeNames(internedArray, out);
+	writeNames(internedArray, header);
 	// now write the interned simple names
 	internedArray = new char[internedSimpleNames.elementSize][];
 	Object[] simpleNames = internedSimpleNames.keyTable;
@@ -587,7 +736,7 @@ void write(DataOutputStream out) throws IOException {
 			internedArray[index] = (char[]) simpleNames[i];
 		}
 	}
-	writeNames(internedArray, out);
+	writeNames(internedArray, header);
 	// now write the interned qualified names as arrays of interned simple names
 	char[][][] internedQArray = new char[internedQualifiedNames.elementSize][][];
 	Object[] qualifiedNames = internedQualifiedNames.keyTable;
@@ -598,64 +747,83 @@ void write(DataOutputStream out) throws IOException {
 			internedQArray[index] = (char[][]) qualifiedNames[i];
 		}
 	}
-	out.writeInt(length = internedQArray.length);
+	header.writeInt(length = internedQArray.length);
 	for (int i = 0; i < length; i++) {
 		char[][] qName = internedQArray[i];
 		int qLength = qName.length;
-		out.writeInt(qLength);
+		header.writeInt(qLength);
 		for (int j = 0; j < qLength; j++) {
 			Integer index = (Integer) internedSimpleNames.get(qName[j]);
-			out.writeInt(index.intValue());
+			header.writeInt(index.intValue());
 		}
 	}
 
-/*
- * References table
- * int		interned locator id
- * ReferenceCollection
-*/
-	out.writeInt(length = this.references.elementSize);
-	if (length > 0) {
-		keyTable = this.references.keyTable;
-		for (int i = 0, l = keyTable.length; i < l; i++) {
-			if (keyTable[i] != null) {
-				length--;
-				Integer index = (Integer) internedTypeLocators.get(keyTable[i]);
-				out.writeInt(index.intValue());
-				ReferenceCollection collection = (ReferenceCollection) valueTable[i];
-				if (collection instanceof AdditionalTypeCollection) {
-					out.writeByte(1);
-					AdditionalTypeCollection atc = (AdditionalTypeCollection) collection;
-					writeNames(atc.definedTypeNames, out);
-				} else {
-					out.writeByte(2);
-				}
-				char[][][] qNames = collection.qualifiedNameReferences;
-				int qLength = qNames.length;
-				out.writeInt(qLength);
-				for (int j = 0; j < qLength; j++) {
-					index = (Integer) internedQualifiedNames.get(qNames[j]);
-					out.writeInt(index.intValue());
-				}
-				char[][] sNames = collection.simpleNameReferences;
-				int sLength = sNames.length;
-				out.writeInt(sLength);
-				for (int j = 0; j < sLength; j++) {
-					index = (Integer) internedSimpleNames.get(sNames[j]);
-					out.writeInt(index.intValue());
-				}
-				char[][] rNames = collection.rootReferences;
-				int rLength = rNames.length;
-				out.writeInt(rLength);
-				for (int j = 0; j < rLength; j++) {
-					index = (Integer) internedRootNames.get(rNames[j]);
-					out.writeInt(index.intValue());
-				}
+	ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+	DataOutputStream records = new DataOutputStream(recordBytes);
+	int[] offsets = new int[length = internedTypeLocators.length];
+	for (int i = 0; i < length; i++) {
+		offsets[i] = records.size();
+		ReferenceCollection collection = (ReferenceCollection) this.references.get(internedTypeLocators[i]);
+		Integer index;
+		if (collection instanceof AdditionalTypeCollection) {
+			records.writeByte(1);
+			AdditionalTypeCollection atc = (AdditionalTypeCollection) collection;
+			writeNames(atc.definedTypeNames, records);
+		} else {
+			records.writeByte(2);
+		}
+		char[][][] qNames = collection.qualifiedNameReferences;
+		int qLength = qNames.length;
+		records.writeInt(qLength);
+		for (int j = 0; j < qLength; j++) {
+			index = (Integer) internedQualifiedNames.get(qNames[j]);
+			records.writeInt(index.intValue());
+		}
+		char[][] sNames = collection.simpleNameReferences;
+		int sLength = sNames.length;
+		records.writeInt(sLength);
+		for (int j = 0; j < sLength; j++) {
+			index = (Integer) internedSimpleNames.get(sNames[j]);
+			records.writeInt(index.intValue());
+		}
+		char[][] rNames = collection.rootReferences;
+		int rLength = rNames.length;
+		records.writeInt(rLength);
+		for (int j = 0; j < rLength; j++) {
+			index = (Integer) internedRootNames.get(rNames[j]);
+			records.writeInt(index.intValue());
+		}
+		char[][] mNames = collection.memberReferences;
+		if (mNames == null) {
+			records.writeInt(-1); // member references are unknown
+		} else {
+			int mLength = mNames.length;
+			records.writeInt(mLength);
+			for (int j = 0; j < mLength; j++) {
+				index = (Integer) internedSimpleNames.get(mNames[j]);
+				records.writeInt(index.intValue());
+			}
+			char[][] hNames = collection.hierarchyReferences;
+			int hLength = hNames.length;
+			records.writeInt(hLength);
+			for (int j = 0; j < hLength; j++) {
+				index = (Integer) internedSimpleNames.get(hNames[j]);
+				records.writeInt(index.intValue());
 			}
 		}
-		if (JavaBuilder.DEBUG && length != 0)
-			System.out.println("references table is inconsistent"); //$NON-NLS-1$
 	}
+	header.flush();
+	records.flush();
+
+	int headerLength = length * 4 + header.size();
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream(headerLength + records.size());
+	DataOutputStream out = new DataOutputStream(bytes);
+	for (int i = 0; i < length; i++)
+		out.writeInt(headerLength + offsets[i]);
+	headerBytes.writeTo(out);
+	recordBytes.writeTo(out);
+	out.flush();
+	return bytes.toByteArray();
 }
 
 private void writeName(char[] name, DataOutputStream out) throws IOException {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -390,6 +390,41 @@ public class ChangeCollector {
 		}
 	}
 
+	/*
+	 * Returns the types whose super types may have changed according to the changes collected so far:
+	 * the added, removed and changed types, and the types of the compilation units whose imports changed.
+	 */
+	public IType[] getChangedTypes() throws JavaModelException {
+		ArrayList changedTypes = new ArrayList();
+		HashSet unitsWithImportChanges = new HashSet();
+		Iterator iterator = this.changes.keySet().iterator();
+		while (iterator.hasNext()) {
+			IJavaElement element = (IJavaElement) iterator.next();
+			if (element.getElementType() == IJavaElement.TYPE) {
+				if (!changedTypes.contains(element)) {
+					changedTypes.add(element);
+				}
+			} else {
+				// an import change may change the resolution of the super types of all the types of the unit
+				IJavaElement cu = element.getAncestor(IJavaElement.COMPILATION_UNIT);
+				if (cu != null && unitsWithImportChanges.add(cu)) {
+					ArrayList types = new ArrayList();
+					getAllTypesFromElement(cu, types);
+					getAllTypesFromHierarchy((JavaElement) cu, types);
+					for (int i = 0, length = types.size(); i < length; i++) {
+						Object type = types.get(i);
+						if (!changedTypes.contains(type)) {
+							changedTypes.add(type);
+						}
+					}
+				}
+			}
+		}
+		IType[] result = new IType[changedTypes.size()];
+		changedTypes.toArray(result);
+		return result;
+	}
+
 	private boolean hasSuperTypeChange(IType type) throws JavaModelException {
 		// check super class
 		IType superclass = this.hierarchy.getSuperclass(type);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,7 +10,9 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.core.hierarchy;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 
 import org.eclipse.core.resources.IFile;
@@ -94,6 +96,38 @@ public abstract class HierarchyBuilder {
 
 	public abstract void build(boolean computeSubtypes)
 		throws JavaModelException, CoreException;
+	/**
+	 * Patches the changes collected by the given collector into the hierarchy.
+	 * Returns <code>false</code> if the hierarchy must be built again instead.
+	 */
+	public boolean buildIncrementally(ChangeCollector collector) throws JavaModelException {
+		return false;
+	}
+	/**
+	 * Removes the given types and all their subtypes from the hierarchy, so that they can be resolved again.
+	 * Returns the removed types.
+	 */
+	protected ArrayList removeSubtrees(IType[] types) {
+		ArrayList removed = new ArrayList();
+		HashSet visited = new HashSet();
+		ArrayList queue = new ArrayList();
+		for (int i = 0, length = types.length; i < length; i++) {
+			queue.add(types[i]);
+		}
+		while (!queue.isEmpty()) {
+			IType type = (IType) queue.remove(queue.size() - 1);
+			if (!visited.add(type)) continue;
+			IType[] subtypes = this.hierarchy.getSubtypes(type);
+			for (int i = 0, length = subtypes.length; i < length; i++) {
+				queue.add(subtypes[i]);
+			}
+			if (this.hierarchy.contains(type)) {
+				this.hierarchy.removeType(type);
+				removed.add(type);
+			}
+		}
+		return removed;
+	}
 	/**
 	 * Configure this type hierarchy by computing the supertypes only.
 	 */
@@ -278,7 +312,7 @@ protected ICompilationUnit createCompilationUnitFromPath(Openable handle, IFile
 protected IBinaryType createInfoFromClassFile(Openable handle, IResource file) {
 	IBinaryType info = null;
 	try {
-		info = Util.newClassFileReader(file);
+		info = Util.newClassFileReader(file, true/*fields and methods are not needed*/);
 	} catch (org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException e) {
 		if (TypeHierarchy.DEBUG) {
 			e.printStackTrace();
@@ -308,9 +342,15 @@ protected IBinaryType createInfoFromClassFileInJar(Openable classFile) {
 	java.util.zip.ZipFile zipFile = null;
 	try {
 		zipFile = ((JarPackageFragmentRoot)pkg.getParent()).getJar();
-		info = org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader.read(
-			zipFile,
-			classFilePath);
+		java.util.zip.ZipEntry entry = zipFile.getEntry(classFilePath);
+		if (entry != null) {
+			byte[] contents = org.eclipse.jdt.internal.compiler.util.Util.getZipEntryByteContent(entry, zipFile);
+			info = new org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader(
+				contents,
+				classFilePath.toCharArray(),
+				false/*don't fully initialize*/,
+				true/*fields and methods are not needed*/);
+		}
 	} catch (org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException e) {
 		if (TypeHierarchy.DEBUG) {
 			e.printStackTrace();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -139,6 +139,122 @@ public void build(boolean computeSubtypes) {
 		manager.flushZipFiles(this);
 	}
 }
+/**
+ * Patches the changes collected by the given collector into the hierarchy: the changed types and their
+ * subtypes are removed from the hierarchy, then the changed types, their former subtypes and their
+ * possible subtypes are resolved again. Returns <code>false</code> if a change affects the focus type or
+ * one of its super types, the hierarchy must then be built again.
+ */
+public boolean buildIncrementally(ChangeCollector collector) throws JavaModelException {
+	IType focusType = getType();
+	if (((Member)focusType).getOuterMostLocalContext() != null) return false; // local or anonymous type: the hierarchy is in one unit
+
+	// the types which may hide or be hidden by a changed type, by simple name
+	HashSet supertypeNames = new HashSet();
+	supertypeNames.add(focusType.getElementName());
+	IType[] supertypes = this.hierarchy.getAllSupertypes(focusType);
+	for (int i = 0, length = supertypes.length; i < length; i++) {
+		supertypeNames.add(supertypes[i].getElementName());
+	}
+	HashSet subtypes = new HashSet();
+	HashMap subtypesByName = new HashMap();
+	IType[] allSubtypes = this.hierarchy.getAllSubtypes(focusType);
+	for (int i = 0, length = allSubtypes.length; i < length; i++) {
+		IType subtype = allSubtypes[i];
+		if (subtypes.add(subtype)) {
+			String name = subtype.getElementName();
+			ArrayList sameName = (ArrayList) subtypesByName.get(name);
+			if (sameName == null)
+				subtypesByName.put(name, sameName = new ArrayList(1));
+			sameName.add(subtype);
+		}
+	}
+
+	// the types whose subtree is resolved again
+	IType[] changedTypes = collector.getChangedTypes();
+	ArrayList roots = new ArrayList(changedTypes.length);
+	for (int i = 0, length = changedTypes.length; i < length; i++) {
+		IType type = changedTypes[i];
+		String name = type.getElementName();
+		if (supertypeNames.contains(name)) return false; // the focus type or one of its super types (or a type hiding it) changed
+		if (this.hierarchy.contains(type) && !subtypes.contains(type)) return false;
+		if (!roots.contains(type))
+			roots.add(type);
+		ArrayList sameName = (ArrayList) subtypesByName.get(name);
+		if (sameName != null) {
+			for (int j = 0, size = sameName.size(); j < size; j++) {
+				if (!roots.contains(sameName.get(j)))
+					roots.add(sameName.get(j));
+			}
+		}
+	}
+	if (TypeHierarchy.DEBUG) {
+		System.out.println("Patching hierarchy for changed types: " + roots); //$NON-NLS-1$
+	}
+
+	JavaModelManager manager = JavaModelManager.getJavaModelManager();
+	try {
+		// optimize access to zip files while building hierarchy
+		manager.cacheZipFiles(this);
+
+		IType[] rootTypes = new IType[roots.size()];
+		roots.toArray(rootTypes);
+		ArrayList removed = removeSubtrees(rootTypes);
+
+		// the units of the removed types and of the changed types, and the possible subtypes of the changed types
+		final HashSet paths = new HashSet();
+		final HashSet localTypes = new HashSet(10);
+		for (int i = 0, size = removed.size(); i < size; i++) {
+			addUnitPath((IType) removed.get(i), paths, localTypes);
+		}
+		IPathRequestor pathRequestor = new IPathRequestor() {
+			public void acceptPath(String path, boolean containsLocalTypes) {
+				paths.add(path);
+				if (containsLocalTypes) {
+					localTypes.add(path);
+				}
+			}
+		};
+		for (int i = 0, length = rootTypes.length; i < length; i++) {
+			IType type = rootTypes[i];
+			if (!type.exists()) continue;
+			addUnitPath(type, paths, localTypes);
+			if (((Member)type).getOuterMostLocalContext() == null) {
+				searchAllPossibleSubTypes(
+					type,
+					this.scope,
+					this.binariesFromIndexMatches,
+					pathRequestor,
+					IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
+					this.hierarchy.progressMonitor == null ? null : new SubProgressMonitor(this.hierarchy.progressMonitor, 20 / length));
+			}
+		}
+
+		String[] potentialSubtypes = new String[paths.size()];
+		paths.toArray(potentialSubtypes);
+		IProgressMonitor buildMonitor =
+			this.hierarchy.progressMonitor == null ?
+				null :
+				new SubProgressMonitor(this.hierarchy.progressMonitor, 80);
+		buildFromPotentialSubtypes(potentialSubtypes, localTypes, buildMonitor);
+	} finally {
+		manager.flushZipFiles(this);
+	}
+	return true;
+}
+/*
+ * Adds the path of the compilation unit of the given source type, unless the unit was removed.
+ * The binary types are found again through the index.
+ */
+private void addUnitPath(IType type, HashSet paths, HashSet localTypes) {
+	org.eclipse.jdt.core.ICompilationUnit unit = type.getCompilationUnit();
+	if (unit == null || !unit.exists()) return;
+	String path = unit.getPath().toString();
+	paths.add(path);
+	if (((Member)type).getOuterMostLocalContext() != null) {
+		localTypes.add(path);
+	}
+}
 private void buildForProject(JavaProject project, ArrayList potentialSubtypes, org.eclipse.jdt.core.ICompilationUnit[] workingCopies, HashSet localTypes, IProgressMonitor monitor) throws JavaModelException {
 	// resolve
 	int openablesLength = potentialSubtypes.size();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -90,6 +90,12 @@ protected void initializeRegions() {
 		checkCanceled();
 	}
 }
+/*
+ * @see TypeHierarchy#computeIncrementally(ChangeCollector)
+ */
+protected boolean computeIncrementally(ChangeCollector collector) {
+	return false; // the region is resolved as a whole
+}
 /**
  * Compute this type hierarchy.
  */
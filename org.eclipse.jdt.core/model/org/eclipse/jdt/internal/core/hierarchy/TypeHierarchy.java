@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -41,6 +41,11 @@ public class TypeHierarchy implements ITypeHierarchy, IElementChangedListener {
 
 	public static boolean DEBUG = false;
 
+	/*
+	 * The number of changed elements above which a hierarchy is computed again instead of being patched
+	 */
+	public static int MAX_PATCHED_CHANGES = 100;
+
 	static final byte VERSION = 0x0000;
 	// SEPARATOR
 	static final byte SEPARATOR1 = '\n';
@@ -134,6 +139,23 @@ public class TypeHierarchy implements ITypeHierarchy, IElementChangedListener {
 	 */
 	protected ChangeCollector changeCollector;
 
+	/*
+	 * Whether changes that the change collector cannot patch into this hierarchy (e.g. a classpath change)
+	 * affected it since it was computed
+	 */
+	protected boolean needsFullRefresh = false;
+
+	/*
+	 * Whether the last refresh patched the collected changes into this hierarchy instead of computing it again
+	 */
+	public boolean patchedOnRefresh = false;
+
+	/*
+	 * Guards the collected changes, which are collected by the notifying thread while a refresh may
+	 * run on another one
+	 */
+	private final Object changesLock = new Object();
+
 /**
  * Creates an empty TypeHierarchy
  */
@@ -289,6 +311,16 @@ protected void checkCanceled() {
 		throw new OperationCanceledException();
 	}
 }
+/**
+ * Patches the changes collected since this hierarchy was computed into it, re-resolving only the types
+ * whose super types changed and their subtypes. Returns <code>false</code> if the hierarchy must be
+ * computed again instead.
+ */
+protected boolean computeIncrementally(ChangeCollector collector) throws JavaModelException {
+	if (this.focusType == null || !this.computeSubtypes) return false; // super type hierarchies are cheap to compute
+	IndexBasedHierarchyBuilder builder = new IndexBasedHierarchyBuilder(this, this.scope);
+	return builder.buildIncrementally(collector);
+}
 /**
  * Compute this type hierarchy.
  */
@@ -323,13 +355,38 @@ public boolean contains(IType type) {
  * change notification if required.
  */
 public void elementChanged(ElementChangedEvent event) {
-	// type hierarchy change has already been fired
-	if (this.needsRefresh) return;
+	IJavaElementDelta delta = event.getDelta();
+	synchronized (this.changesLock) {
+		if (this.needsRefresh) {
+			// type hierarchy change has already been fired, keep collecting the changes that can be patched into the hierarchy
+			if (this.changeCollector != null && !this.needsFullRefresh
+					&& isAffected(delta, event.getType()) && !hasOnlyCompilationUnitChanges(delta)) {
+				this.needsFullRefresh = true;
+			}
+			checkCollectedChanges();
+			return;
+		}
 
-	if (isAffected(event.getDelta(), event.getType())) {
+		if (!isAffected(delta, event.getType()))
+			return;
+		if (!hasOnlyCompilationUnitChanges(delta)) {
+			this.needsFullRefresh = true;
+		}
 		this.needsRefresh = true;
-		fireChange();
+		checkCollectedChanges();
 	}
+	fireChange();
+}
+/*
+ * Stops collecting the changes once this hierarchy is to be computed again, or once too many changes
+ * were collected for patching them to be worth it.
+ */
+private void checkCollectedChanges() {
+	ChangeCollector collector = this.changeCollector;
+	if (collector != null && collector.changes.size() > MAX_PATCHED_CHANGES)
+		this.needsFullRefresh = true;
+	if (this.needsFullRefresh)
+		this.changeCollector = null;
 }
 /**
  * @see ITypeHierarchy
@@ -723,6 +780,32 @@ public boolean hasFineGrainChanges() {
     ChangeCollector collector = this.changeCollector;
 	return collector != null && collector.needsRefresh();
 }
+/*
+ * Returns whether the given delta only reports changes to compilation units, which the change collector
+ * can patch into this hierarchy.
+ */
+private boolean hasOnlyCompilationUnitChanges(IJavaElementDelta delta) {
+	switch (delta.getElement().getElementType()) {
+		case IJavaElement.COMPILATION_UNIT:
+			return true;
+		case IJavaElement.JAVA_MODEL:
+		case IJavaElement.JAVA_PROJECT:
+		case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+		case IJavaElement.PACKAGE_FRAGMENT:
+			if (delta.getKind() != IJavaElementDelta.CHANGED
+					|| (delta.getFlags() & ~(IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_CONTENT)) != 0) {
+				return false;
+			}
+			IJavaElementDelta[] children = delta.getAffectedChildren();
+			for (int i = 0, length = children.length; i < length; i++) {
+				if (!hasOnlyCompilationUnitChanges(children[i])) {
+					return false;
+				}
+			}
+			return true;
+	}
+	return false;
+}
 /**
  * Returns whether this type or one of the subtypes in this hierarchy has the
  * same simple name as the given name.
@@ -1007,9 +1090,10 @@ protected boolean isAffectedByOpenable(IJavaElementDelta delta, IJavaElement ele
 			if (DEBUG)
 				e.printStackTrace();
 		}
+		// remember the changes so that they can be patched into the hierarchy on refresh
+		this.changeCollector = collector;
 		if (cu.isWorkingCopy() && eventType == ElementChangedEvent.POST_RECONCILE) {
 			// changes to working copies are batched
-			this.changeCollector = collector;
 			return false;
 		} else {
 			return collector.needsRefresh();
@@ -1265,13 +1349,50 @@ public synchronized void refresh(IProgressMonitor monitor) throws JavaModelExcep
 			}
 		}
 
-		compute();
-		initializeRegions();
-		this.needsRefresh = false;
-		this.changeCollector = null;
+		// detach the collected changes, the changes notified from now on are collected for the next refresh
+		ChangeCollector collector;
+		boolean needsFullRefresh;
+		synchronized (this.changesLock) {
+			collector = this.needsRefresh ? this.changeCollector : null;
+			needsFullRefresh = this.needsFullRefresh;
+			this.changeCollector = null;
+			this.needsRefresh = false;
+			this.needsFullRefresh = false;
+		}
+		boolean patched = false;
+		boolean refreshed = false;
+		try {
+			// the missing types are not recorded per type, so a hierarchy is only patched when it has none: the
+			// missing types then only come from the patch
+			if (!needsFullRefresh && collector != null && collector.needsRefresh()
+					&& collector.changes.size() <= MAX_PATCHED_CHANGES && this.missingTypes.isEmpty()) {
+				patched = computeIncrementally(collector);
+			}
+			if (patched) {
+				this.files = new HashMap(5);
+				this.packageRegion = new Region();
+				this.projectRegion = new Region();
+			} else {
+				compute();
+			}
+			initializeRegions();
+			refreshed = true;
+		} finally {
+			if (!refreshed) {
+				// a hierarchy left partially computed (e.g. if cancelled) must be computed again
+				synchronized (this.changesLock) {
+					this.needsRefresh = true;
+					this.needsFullRefresh = true;
+					this.changeCollector = null;
+				}
+			}
+		}
+		this.patchedOnRefresh = patched;
 
 		if (DEBUG) {
-			if (this.computeSubtypes) {
+			if (patched) {
+				System.out.println("PATCHED TYPE HIERARCHY in " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
+			} else if (this.computeSubtypes) {
 				System.out.println("CREATED TYPE HIERARCHY in " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
 			} else {
 				System.out.println("CREATED SUPER TYPE HIERARCHY in " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -1290,6 +1411,52 @@ public synchronized void refresh(IProgressMonitor monitor) throws JavaModelExcep
 	}
 }
 
+/**
+ * Removes the given type from this hierarchy, so that it can be connected again.
+ * Its subtypes are left in the hierarchy.
+ */
+protected void removeType(IType type) {
+	IType superclass = (IType) this.classToSuperclass.remove(type);
+	if (superclass != null) {
+		removeSubtype(superclass, type);
+	}
+	IType[] superinterfaces = (IType[]) this.typeToSuperInterfaces.remove(type);
+	if (superinterfaces != null) {
+		for (int i = 0; i < superinterfaces.length; i++) {
+			if (superinterfaces[i] != null) {
+				removeSubtype(superinterfaces[i], type);
+			}
+		}
+	}
+	removeEqual(this.rootClasses, type);
+	this.interfaces.remove(type);
+	this.typeToSubtypes.remove(type);
+	this.typeFlags.remove(type);
+}
+/*
+ * Removes the given subtype from the subtypes of the given type.
+ */
+private void removeSubtype(IType type, IType subtype) {
+	TypeVector subtypes = (TypeVector)this.typeToSubtypes.get(type);
+	if (subtypes != null) {
+		removeEqual(subtypes, subtype);
+		if (subtypes.size == 0) {
+			this.typeToSubtypes.remove(type);
+		}
+	}
+}
+/*
+ * Removes the element of the given vector which is equal to the given type (TypeVector#remove(IType) compares identities).
+ */
+private static void removeEqual(TypeVector vector, IType type) {
+	IType[] elements = vector.elements();
+	for (int i = 0, length = elements.length; i < length; i++) {
+		if (elements[i].equals(type)) {
+			vector.remove(elements[i]);
+			return;
+		}
+	}
+}
 /**
  * @see ITypeHierarchy
  */
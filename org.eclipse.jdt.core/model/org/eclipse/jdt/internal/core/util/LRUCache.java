@@ -230,6 +230,24 @@ public class LRUCache implements Cloneable {
 		public Object getOldestElement() {
 			return LRUCache.this.getOldestElement();
 		}
+		/**
+		 * Returns the number of calls to get(Object) which found a value.
+		 */
+		public long getHitCount() {
+			return LRUCache.this.hitCount;
+		}
+		/**
+		 * Returns the number of calls to get(Object) which found no value.
+		 */
+		public long getMissCount() {
+			return LRUCache.this.missCount;
+		}
+		/**
+		 * Returns the number of entries removed to make space for new entries.
+		 */
+		public long getEvictionCount() {
+			return LRUCache.this.evictionCount;
+		}
 		public long getOldestTimestamps() {
 			return getTimestamps(getOldestTimestampCounter());
 		}
@@ -269,6 +287,14 @@ public class LRUCache implements Cloneable {
 	 */
 	protected LRUCacheEntry entryQueueTail;
 
+	/**
+	 * Number of lookups which found or did not find a value, and number of entries
+	 * removed to make space (see Stats)
+	 */
+	protected long hitCount;
+	protected long missCount;
+	protected long evictionCount;
+
 	/**
 	 * Default amount of space in the cache
 	 */
@@ -365,9 +391,11 @@ public class LRUCache implements Cloneable {
 
 		LRUCacheEntry entry = (LRUCacheEntry) this.entryTable.get(key);
 		if (entry == null) {
+			this.missCount++;
 			return null;
 		}
 
+		this.hitCount++;
 		updateTimestamp (entry);
 		return entry.value;
 	}
@@ -462,6 +490,7 @@ public class LRUCache implements Cloneable {
 		/* Free up space by removing oldest entries */
 		while (this.currentSpace + space > limit && this.entryQueueTail != null) {
 			privateRemoveEntry (this.entryQueueTail, false);
+			this.evictionCount++;
 		}
 		return true;
 	}
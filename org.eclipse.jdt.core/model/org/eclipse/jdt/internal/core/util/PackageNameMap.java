@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.util;
+
+/**
+ * Persistent map of {Object[] --> Object }, e.g. from package names to package fragment roots.
+ * <p>
+ * The map is never modified: {@link #put(Object[], Object)} answers a new map which shares all
+ * but the changed path of the hash trie with the receiver. Deriving a map with a few more entries
+ * from a large map thus costs O(changes) instead of a copy of the whole table.
+ * </p>
+ */
+public final class PackageNameMap {
+
+	public static final PackageNameMap EMPTY = new PackageNameMap(null, 0);
+
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+	private static final int MAX_SHIFT = 30; // nodes below this shift hold entries whose hash codes collide
+
+	public static final class Entry {
+		public final Object[] key;
+		public final Object value;
+		final int hash;
+
+		Entry(Object[] key, Object value, int hash) {
+			this.key = key;
+			this.value = value;
+			this.hash = hash;
+		}
+	}
+
+	/*
+	 * The array of a node holds an Entry or a sub Node for each bit set in its bitmap.
+	 * Collision nodes have no bitmap and hold the Entries with the same hash code.
+	 */
+	static final class Node {
+		final int bitmap;
+		final Object[] array;
+
+		Node(int bitmap, Object[] array) {
+			this.bitmap = bitmap;
+			this.array = array;
+		}
+	}
+
+	private final Node root;
+	private final int elementSize;
+	private volatile Entry[] entries; // flattened lazily
+
+	private PackageNameMap(Node root, int elementSize) {
+		this.root = root;
+		this.elementSize = elementSize;
+	}
+
+	public boolean containsKey(Object[] key) {
+		return getEntry(key, key.length) != null;
+	}
+
+	public Object get(Object[] key) {
+		Entry entry = getEntry(key, key.length);
+		return entry == null ? null : entry.value;
+	}
+
+	public Entry getEntry(Object[] key) {
+		return getEntry(key, key.length);
+	}
+
+	/**
+	 * Answers the key of the map which is equal to the first keyLength elements of the given key,
+	 * or <code>null</code> if none.
+	 */
+	public Object[] getKey(Object[] key, int keyLength) {
+		Entry entry = getEntry(key, keyLength);
+		return entry == null ? null : entry.key;
+	}
+
+	private Entry getEntry(Object[] key, int keyLength) {
+		int hash = hashCode(key, keyLength);
+		Node node = this.root;
+		int shift = 0;
+		while (node != null) {
+			Object[] array = node.array;
+			if (shift > MAX_SHIFT) {
+				for (int i = 0, length = array.length; i < length; i++) {
+					Entry entry = (Entry) array[i];
+					if (matches(entry, key, keyLength))
+						return entry;
+				}
+				return null;
+			}
+			int bit = 1 << ((hash >>> shift) & MASK);
+			if ((node.bitmap & bit) == 0)
+				return null;
+			Object child = array[Integer.bitCount(node.bitmap & (bit - 1))];
+			if (child instanceof Entry) {
+				Entry entry = (Entry) child;
+				return entry.hash == hash && matches(entry, key, keyLength) ? entry : null;
+			}
+			node = (Node) child;
+			shift += BITS;
+		}
+		return null;
+	}
+
+	/**
+	 * Answers the entries of the map, in no particular order.
+	 */
+	public Entry[] entries() {
+		Entry[] result = this.entries;
+		if (result == null) {
+			result = new Entry[this.elementSize];
+			if (this.root != null)
+				collect(this.root, result, 0);
+			this.entries = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Answers a map with the given value for the given key, which shares the rest of its entries with the receiver.
+	 */
+	public PackageNameMap put(Object[] key, Object value) {
+		int hash = hashCode(key, key.length);
+		Entry existing = getEntry(key, key.length);
+		if (existing != null && existing.value == value)
+			return this;
+		Node newRoot = put(this.root, 0, new Entry(key, value, hash));
+		return new PackageNameMap(newRoot, existing == null ? this.elementSize + 1 : this.elementSize);
+	}
+
+	public int size() {
+		return this.elementSize;
+	}
+
+	private static int collect(Node node, Entry[] result, int index) {
+		Object[] array = node.array;
+		for (int i = 0, length = array.length; i < length; i++) {
+			Object child = array[i];
+			if (child instanceof Entry)
+				result[index++] = (Entry) child;
+			else
+				index = collect((Node) child, result, index);
+		}
+		return index;
+	}
+
+	private static int hashCode(Object[] element, int length) {
+		int hash = 0;
+		for (int i = length-1; i >= 0; i--)
+			hash = Util.combineHashCodes(hash, element[i].hashCode());
+		return hash & 0x7FFFFFFF;
+	}
+
+	private static boolean matches(Entry entry, Object[] key, int keyLength) {
+		return entry.key.length == keyLength && Util.equalArrays(entry.key, key, keyLength);
+	}
+
+	private static Node put(Node node, int shift, Entry entry) {
+		if (shift > MAX_SHIFT) {
+			if (node == null)
+				return new Node(0, new Object[] {entry});
+			Object[] array = node.array;
+			int length = array.length;
+			for (int i = 0; i < length; i++) {
+				if (matches((Entry) array[i], entry.key, entry.key.length))
+					return new Node(0, replace(array, i, entry));
+			}
+			Object[] newArray = new Object[length + 1];
+			System.arraycopy(array, 0, newArray, 0, length);
+			newArray[length] = entry;
+			return new Node(0, newArray);
+		}
+		int bit = 1 << ((entry.hash >>> shift) & MASK);
+		if (node == null)
+			return new Node(bit, new Object[] {entry});
+		Object[] array = node.array;
+		int index = Integer.bitCount(node.bitmap & (bit - 1));
+		if ((node.bitmap & bit) == 0) {
+			int length = array.length;
+			Object[] newArray = new Object[length + 1];
+			System.arraycopy(array, 0, newArray, 0, index);
+			newArray[index] = entry;
+			System.arraycopy(array, index, newArray, index + 1, length - index);
+			return new Node(node.bitmap | bit, newArray);
+		}
+		Object child = array[index];
+		if (child instanceof Node)
+			return new Node(node.bitmap, replace(array, index, put((Node) child, shift + BITS, entry)));
+		Entry existing = (Entry) child;
+		if (existing.hash == entry.hash && matches(existing, entry.key, entry.key.length))
+			return new Node(node.bitmap, replace(array, index, entry));
+		// push both entries down one level
+		Node subNode = put(put(null, shift + BITS, existing), shift + BITS, entry);
+		return new Node(node.bitmap, replace(array, index, subNode));
+	}
+
+	private static Object[] replace(Object[] array, int index, Object element) {
+		Object[] newArray = new Object[array.length];
+		System.arraycopy(array, 0, newArray, 0, array.length);
+		newArray[index] = element;
+		return newArray;
+	}
+
+	public String toString() {
+		StringBuffer buffer = new StringBuffer();
+		Entry[] all = entries();
+		for (int i = 0, length = all.length; i < length; i++) {
+			Object[] element = all[i].key;
+			buffer.append('{');
+			for (int j = 0, length2 = element.length; j < length2; j++) {
+				buffer.append(element[j]);
+				if (j != length2-1)
+					buffer.append(", "); //$NON-NLS-1$
+			}
+			buffer.append("} -> ");  //$NON-NLS-1$
+			buffer.append(all[i].value);
+			if (i != length-1)
+				buffer.append('\n');
+		}
+		return buffer.toString();
+	}
+}
@@ -830,7 +830,7 @@ public class Util {
 			if (targetLibrary instanceof IFolder) {
 				IFile classFile = findFirstClassFile((IFolder) targetLibrary); // only internal classfolders are allowed
 				if (classFile != null)
-					reader = Util.newClassFileReader(classFile);
+					reader = Util.newClassFileReader(classFile, true/*only the version is needed*/);
 			} else {
 				// root is a jar file or a zip file
 				ZipFile jar = null;
@@ -1871,10 +1871,21 @@ public class Util {
 	}
 
 	public static ClassFileReader newClassFileReader(IResource resource) throws CoreException, ClassFormatException, IOException {
+		return newClassFileReader(resource, false);
+	}
+
+	/**
+	 * Reads the given class file, deferring the decoding of its fields, methods and annotations
+	 * to their first access if <code>decodeLazily</code> is set.
+	 */
+	public static ClassFileReader newClassFileReader(IResource resource, boolean decodeLazily) throws CoreException, ClassFormatException, IOException {
 		InputStream in = null;
 		try {
 			in = ((IFile) resource).getContents(true);
-			return ClassFileReader.read(in, resource.getFullPath().toString());
+			if (!decodeLazily)
+				return ClassFileReader.read(in, resource.getFullPath().toString());
+			byte[] classFileBytes = org.eclipse.jdt.internal.compiler.util.Util.getInputStreamAsByteArray(in, -1);
+			return new ClassFileReader(classFileBytes, resource.getFullPath().toString().toCharArray(), false, true);
 		} finally {
 			if (in != null)
 				in.close();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011 IBM Corporation and others.
+ * Copyright (c) 2011, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -39,4 +39,21 @@ public final class JavaIndexer {
 		new DefaultJavaIndexer().generateIndexForJar(pathToJar, pathToIndexFile);
 	}
 
+	/**
+	 * Generates an index bundle for the specified jars: a folder holding the index file of each jar, named
+	 * after the checksum of the jar content. A jar whose index is already in the bundle is not indexed again.
+	 * 
+	 * <p> A bundle can be shared by several workspaces, or shipped with a JDK or a set of libraries. When the
+	 * "jdt.search.sharedIndexes" system property holds the path to the bundle folder, the search engine uses
+	 * the index of the bundle for any library with the same content instead of indexing it. </p>
+	 * 
+	 * @param pathsToJars The full paths to the jars that need to be indexed
+	 * @param pathToBundleFolder The full path to the folder holding the index files, created if needed
+	 * @throws IOException if a jar is not found or could not write into the bundle folder
+	 * @since 3.11
+	 */
+	public static void generateIndexBundle(String[] pathsToJars, String pathToBundleFolder) throws IOException {
+		new DefaultJavaIndexer().generateIndexBundle(pathsToJars, pathToBundleFolder);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2011, 2013 IBM Corporation and others.
+ *  Copyright (c) 2011, 2015 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -48,6 +48,9 @@ public class JavaIndexerApplication implements IApplication {
 		public static String CommandLineIndexFileNotSpecified;
 		public static String CaughtException;
 		public static String CommandLineJarFileNotExist;
+		public static String CommandLineBundleProcessing;
+		public static String CommandLineBundleTakesArgs;
+		public static String CommandLineOutputAndBundleError;
 
 		static {
 			NLS.initializeMessages(MESSAGES_NAME, Messages.class);
@@ -72,11 +75,14 @@ public class JavaIndexerApplication implements IApplication {
 
 	private String jarToIndex;
 	private String indexFile;
+	private String bundleFolder;
+	private ArrayList jarsToBundle = new ArrayList();
 	private boolean verbose = false;
 	private static final String PDE_LAUNCH = "-pdelaunch"; //$NON-NLS-1$
 	private static final String ARG_HELP = "-help"; //$NON-NLS-1$
 	private static final String ARG_VERBOSE = "-verbose"; //$NON-NLS-1$
 	private static final String ARG_OUTPUT = "-output"; //$NON-NLS-1$
+	private static final String ARG_BUNDLE = "-bundle"; //$NON-NLS-1$
 
 	private void displayHelp() {
 		System.out.println(Messages.bind(Messages.CommandLineUsage));
@@ -110,25 +116,46 @@ public class JavaIndexerApplication implements IApplication {
 				if (this.indexFile != null) {
 					displayError(Messages.bind(Messages.CommandLineOnlyOneOutputError));
 					return false;
+				} else if (this.bundleFolder != null) {
+					displayError(Messages.bind(Messages.CommandLineOutputAndBundleError));
+					return false;
 				} else if (index == argCount) {
 					displayError(Messages.bind(Messages.CommandLineOutputTakesArgs));
 					return false;
 				}
 				this.indexFile = argsArray[index++];
-			} else {
-				if (this.jarToIndex != null) {
-					displayError(Messages.bind(Messages.CommandLineOnlyOneJarError));
+			} else if (ARG_BUNDLE.equals(currentArg)) {
+				if (this.bundleFolder != null) {
+					displayError(Messages.bind(Messages.CommandLineOnlyOneOutputError));
+					return false;
+				} else if (this.indexFile != null) {
+					displayError(Messages.bind(Messages.CommandLineOutputAndBundleError));
 					return false;
+				} else if (index == argCount) {
+					displayError(Messages.bind(Messages.CommandLineBundleTakesArgs));
+					return false;
+				}
+				this.bundleFolder = argsArray[index++];
+			} else {
+				this.jarsToBundle.add(currentArg);
+				if (this.jarToIndex == null) {
+					this.jarToIndex = currentArg;
 				}
-				this.jarToIndex = currentArg;
 			}
 		}
+		if (this.bundleFolder == null && this.jarsToBundle.size() > 1) {
+			// only a bundle takes several jars
+			displayError(Messages.bind(Messages.CommandLineOnlyOneJarError));
+			return false;
+		}
 		return true;
 	}
 
 	public Object start(IApplicationContext context) throws Exception {
 		boolean execute = processCommandLine((String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS));
-		if (execute) {
+		if (execute && this.bundleFolder != null) {
+			generateBundle();
+		} else if (execute) {
 			if (this.jarToIndex != null && this.indexFile != null) {
 				File f = new File(this.jarToIndex);
 				if (f.exists()) {
@@ -152,6 +179,28 @@ public class JavaIndexerApplication implements IApplication {
 		return IApplication.EXIT_OK;
 	}
 
+	private void generateBundle() {
+		if (this.jarsToBundle.isEmpty()) {
+			System.out.println(Messages.bind(Messages.CommandLineJarNotSpecified));
+			return;
+		}
+		for (int i = 0, size = this.jarsToBundle.size(); i < size; i++) {
+			String jar = (String) this.jarsToBundle.get(i);
+			if (!new File(jar).exists()) {
+				System.out.println(Messages.bind(Messages.CommandLineJarFileNotExist, jar));
+				return;
+			}
+		}
+		if (this.verbose) {
+			System.out.println(Messages.bind(Messages.CommandLineBundleProcessing, this.bundleFolder, Integer.toString(this.jarsToBundle.size())));
+		}
+		try {
+			JavaIndexer.generateIndexBundle((String[]) this.jarsToBundle.toArray(new String[this.jarsToBundle.size()]), this.bundleFolder);
+		} catch (IOException e) {
+			System.out.println(Messages.bind(Messages.CaughtException, "IOException", e.getLocalizedMessage())); //$NON-NLS-1$
+		}
+	}
+
 	public void stop() {
 		// do nothing
 	}
@@ -11,6 +11,7 @@
 package org.eclipse.jdt.internal.core.index;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.core.search.*;
@@ -29,7 +30,7 @@ private int headerInfoOffset;
 private int numberOfChunks;
 private int sizeOfLastChunk;
 private int[] chunkOffsets;
-private int documentReferenceSize; // 1, 2 or more bytes... depends on # of document names
+private int documentReferenceSize; // VARIABLE_BYTE_REFERENCES, or 1, 2 or more bytes in indexes of version 1.127... depends on # of document names
 private int startOfCategoryTables;
 private HashtableOfIntValues categoryOffsets, categoryEnds;
 
@@ -37,6 +38,10 @@ private int cacheUserCount;
 private String[][] cachedChunks; // decompressed chunks of document names
 private HashtableOfObject categoryTables; // category name -> HashtableOfObject(words -> int[] of document #'s) or offset if not read yet
 private char[] cachedCategoryName;
+private boolean hasSortedWords; // whether the words of the category tables are written in SortedWords order
+private HashtableOfObject sortedWords; // category name -> SortedWords of a cached category table, if the words are sorted
+private SimpleSet supersededSet; // the documents of the newer segments that supersededNumbers was computed for
+private boolean[] supersededNumbers;
 
 private static final int DEFAULT_BUFFER_SIZE = 2048;
 private static int BUFFER_READ_SIZE = DEFAULT_BUFFER_SIZE;
@@ -44,17 +49,43 @@ private static final int BUFFER_WRITE_SIZE = DEFAULT_BUFFER_SIZE;
 private byte[] streamBuffer;
 private int bufferIndex, bufferEnd; // used when reading from the file into the streamBuffer
 private int streamEnd; // used when writing data from the streamBuffer to the file
+private ByteBuffer mappedBuffer; // read-only mapping of the whole index file when USE_MAPPED_FILES is set
 char separator = Index.DEFAULT_SEPARATOR;
 
-public static final String SIGNATURE= "INDEX VERSION 1.127"; //$NON-NLS-1$
+public static final String SIGNATURE= "INDEX VERSION 1.129"; //$NON-NLS-1$
 private static final char[] SIGNATURE_CHARS = SIGNATURE.toCharArray();
+// indexes of previous versions can still be read (e.g. pre-built indexes): 1.127 used fixed size document numbers,
+// and neither 1.127 nor 1.128 sorted the words of the category tables
+private static final char[][] PREVIOUS_SIGNATURES = new char[][] {
+	"INDEX VERSION 1.127".toCharArray(), //$NON-NLS-1$
+	"INDEX VERSION 1.128".toCharArray() //$NON-NLS-1$
+};
+
+// document numbers are sorted, then written as the delta to the previous one, 7 bits per byte (the high bit tells whether more bytes follow)
+private static final int VARIABLE_BYTE_REFERENCES = 0;
 public static boolean DEBUG = false;
 
+/**
+ * Set to read index files through a read-only memory mapping instead of re-opening the file
+ * and copying its content through the stream buffer on every read. Words and document numbers
+ * are then decoded straight from the mapped region, and large document number arrays are only
+ * decoded when the query results ask for them.
+ * <p>
+ * Mapped files cannot be deleted on Windows until the mapping is garbage collected,
+ * so this mode is only available on other platforms.
+ * </p>
+ */
+public static boolean USE_MAPPED_FILES = Boolean.getBoolean("org.eclipse.jdt.core.index.useMappedFiles") //$NON-NLS-1$
+	&& File.separatorChar == '/';
+
 private static final int RE_INDEXED = -1;
 private static final int DELETED = -2;
 
 private static final int CHUNK_SIZE = 100;
 
+// documents deleted by a segment are listed under a single word of this category, which queries never ask for
+private static final char[] DELETED_DOCUMENTS = "#deletedDocuments".toCharArray(); //$NON-NLS-1$
+
 private static final SimpleSetOfCharArray INTERNED_CATEGORY_NAMES = new SimpleSetOfCharArray(20);
 private static final String TMP_EXT = ".tmp"; //$NON-NLS-1$
 
@@ -95,6 +126,7 @@ DiskIndex() {
 	this.cachedCategoryName = null;
 	this.categoryOffsets = null;
 	this.categoryEnds = null;
+	this.hasSortedWords = true; // as written by this version
 }
 DiskIndex(IndexLocation location) throws IOException {
 	this();
@@ -103,55 +135,62 @@ DiskIndex(IndexLocation location) throws IOException {
 	}
 	this.indexLocation = location;
 }
-SimpleSet addDocumentNames(String substring, MemoryIndex memoryIndex) throws IOException {
-	// must skip over documents which have been added/changed/deleted in the memory index
+SimpleSet addDocumentNames(String substring, MemoryIndex memoryIndex, SimpleSet supersededDocuments, SimpleSet results) throws IOException {
+	// must skip over documents which have been added/changed/deleted in the memory index or in a newer segment
 	String[] docNames = readAllDocumentNames();
-	SimpleSet results = new SimpleSet(docNames.length);
-	if (substring == null) {
-		if (memoryIndex == null) {
+	if (results == null)
+		results = new SimpleSet(docNames.length);
+	SimpleSet deletedDocuments = readDeletedDocumentNames();
+	if (memoryIndex == null && supersededDocuments == null && deletedDocuments == null) {
+		if (substring == null) {
 			for (int i = 0, l = docNames.length; i < l; i++)
 				results.add(docNames[i]);
 		} else {
-			SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
-			for (int i = 0, l = docNames.length; i < l; i++) {
-				String docName = docNames[i];
-				if (!docsToRefs.containsKey(docName))
-					results.add(docName);
-			}
-		}
-	} else {
-		if (memoryIndex == null) {
 			for (int i = 0, l = docNames.length; i < l; i++)
 				if (docNames[i].startsWith(substring, 0))
 					results.add(docNames[i]);
-		} else {
-			SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
-			for (int i = 0, l = docNames.length; i < l; i++) {
-				String docName = docNames[i];
-				if (docName.startsWith(substring, 0) && !docsToRefs.containsKey(docName))
-					results.add(docName);
-			}
+		}
+	} else {
+		for (int i = 0, l = docNames.length; i < l; i++) {
+			String docName = docNames[i];
+			if ((substring == null || docName.startsWith(substring, 0))
+					&& !isSuperseded(docName, memoryIndex, supersededDocuments)
+					&& (deletedDocuments == null || !deletedDocuments.includes(docName)))
+				results.add(docName);
 		}
 	}
 	return results;
 }
-private HashtableOfObject addQueryResult(HashtableOfObject results, char[] word, Object docs, MemoryIndex memoryIndex, boolean prevResults) throws IOException {
-	// must skip over documents which have been added/changed/deleted in the memory index
+private HashtableOfObject addQueryResult(HashtableOfObject results, char[] word, Object docs, MemoryIndex memoryIndex, SimpleSet supersededDocuments, boolean prevResults) throws IOException {
+	// must skip over documents which have been added/changed/deleted in the memory index or in a newer segment
 	if (results == null)
 		results = new HashtableOfObject(13);
 	EntryResult result = prevResults ? (EntryResult) results.get(word) : null;
 	if (memoryIndex == null) {
+		// the document names are resolved when asked for, the documents of the newer segments are skipped by number
+		boolean[] superseded = supersededDocuments == null ? null : supersededNumbers(supersededDocuments);
+		if (superseded != null) {
+			int[] docNumbers = readDocumentNumbers(docs);
+			int length = docNumbers.length;
+			int[] remaining = new int[length];
+			int count = 0;
+			for (int i = 0; i < length; i++)
+				if (!superseded[docNumbers[i]])
+					remaining[count++] = docNumbers[i];
+			if (count == 0) return results;
+			if (count < length)
+				System.arraycopy(remaining, 0, docs = new int[count], 0, count);
+		}
 		if (result == null)
-			results.putUnsafely(word, new EntryResult(word, docs));
+			results.putUnsafely(word, new EntryResult(word, this, docs));
 		else
-			result.addDocumentTable(docs);
+			result.addDocumentTable(this, docs);
 	} else {
-		SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
 		if (result == null) result = new EntryResult(word, null);
 		int[] docNumbers = readDocumentNumbers(docs);
 		for (int i = 0, l = docNumbers.length; i < l; i++) {
 			String docName = readDocumentName(docNumbers[i]);
-			if (!docsToRefs.containsKey(docName))
+			if (!isSuperseded(docName, memoryIndex, supersededDocuments))
 				result.addDocumentName(docName);
 		}
 		if (!result.isEmpty())
@@ -159,15 +198,21 @@ private HashtableOfObject addQueryResult(HashtableOfObject results, char[] word,
 	}
 	return results;
 }
-HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule, MemoryIndex memoryIndex) throws IOException {
+/**
+ * Adds the entries of this index to the given results, which are null or come from older indexes.
+ * <p>
+ * Document tables are kept unresolved in the results unless a memory index is given, since the
+ * memory index may change before the names are asked for. The documents of the given set, which
+ * were superseded by newer segments, are left out of the tables by number.
+ * </p>
+ */
+HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule, MemoryIndex memoryIndex, SimpleSet supersededDocuments, HashtableOfObject results) throws IOException {
 	// assumes sender has called startQuery() & will call stopQuery() when finished
-	if (this.categoryOffsets == null) return null; // file is empty
+	if (this.categoryOffsets == null) return results; // file is empty
 
-	HashtableOfObject results = null; // initialized if needed
-	
 	// No need to check the results table for duplicates while processing the
 	// first category table or if the first category tables doesn't have any results.
-	boolean prevResults = false;
+	boolean prevResults = results != null;
 	if (key == null) {
 		for (int i = 0, l = categories.length; i < l; i++) {
 			HashtableOfObject wordsToDocNumbers = readCategoryTable(categories[i], true); // cache if key is null since its a definite match
@@ -178,7 +223,7 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 					results = new HashtableOfObject(wordsToDocNumbers.elementSize);
 				for (int j = 0, m = words.length; j < m; j++)
 					if (words[j] != null)
-						results = addQueryResult(results, words[j], values[j], memoryIndex, prevResults);
+						results = addQueryResult(results, words[j], values[j], memoryIndex, supersededDocuments, prevResults);
 			}
 			prevResults = results != null;
 		}
@@ -191,35 +236,52 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 					HashtableOfObject wordsToDocNumbers = readCategoryTable(categories[i], false);
 					Object value;
 					if (wordsToDocNumbers != null && (value = wordsToDocNumbers.get(key)) != null)
-						results = addQueryResult(results, key, value, memoryIndex, prevResults);
+						results = addQueryResult(results, key, value, memoryIndex, supersededDocuments, prevResults);
 					prevResults = results != null;
 				}
 				break;
 			case SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE:
 				for (int i = 0, l = categories.length; i < l; i++) {
 					HashtableOfObject wordsToDocNumbers = readCategoryTable(categories[i], false);
-					if (wordsToDocNumbers != null) {
+					SortedWords sorted = wordsToDocNumbers == null ? null : sortedWords(categories[i], wordsToDocNumbers);
+					if (sorted != null) {
+						char[][] words = sorted.words;
+						for (int j = sorted.start(key), end = sorted.end(key, j); j < end; j++) {
+							char[] word = words[j];
+							if (key[0] == word[0] && CharOperation.prefixEquals(key, word))
+								results = addQueryResult(results, word, wordsToDocNumbers.get(word), memoryIndex, supersededDocuments, prevResults);
+						}
+					} else if (wordsToDocNumbers != null) {
 						char[][] words = wordsToDocNumbers.keyTable;
 						Object[] values = wordsToDocNumbers.valueTable;
 						for (int j = 0, m = words.length; j < m; j++) {
 							char[] word = words[j];
 							if (word != null && key[0] == word[0] && CharOperation.prefixEquals(key, word))
-								results = addQueryResult(results, word, values[j], memoryIndex, prevResults);
+								results = addQueryResult(results, word, values[j], memoryIndex, supersededDocuments, prevResults);
 						}
 					}
 					prevResults = results != null;
 				}
 				break;
 			default:
+				char[] prefix = SortedWords.candidatePrefix(key, matchRule);
 				for (int i = 0, l = categories.length; i < l; i++) {
 					HashtableOfObject wordsToDocNumbers = readCategoryTable(categories[i], false);
-					if (wordsToDocNumbers != null) {
+					SortedWords sorted = wordsToDocNumbers == null || prefix == null ? null : sortedWords(categories[i], wordsToDocNumbers);
+					if (sorted != null) {
+						char[][] words = sorted.words;
+						for (int j = sorted.start(prefix), end = sorted.end(prefix, j); j < end; j++) {
+							char[] word = words[j];
+							if (Index.isMatch(key, word, matchRule))
+								results = addQueryResult(results, word, wordsToDocNumbers.get(word), memoryIndex, supersededDocuments, prevResults);
+						}
+					} else if (wordsToDocNumbers != null) {
 						char[][] words = wordsToDocNumbers.keyTable;
 						Object[] values = wordsToDocNumbers.valueTable;
 						for (int j = 0, m = words.length; j < m; j++) {
 							char[] word = words[j];
 							if (word != null && Index.isMatch(key, word, matchRule))
-								results = addQueryResult(results, word, values[j], memoryIndex, prevResults);
+								results = addQueryResult(results, word, values[j], memoryIndex, supersededDocuments, prevResults);
 						}
 					}
 					prevResults = results != null;
@@ -229,9 +291,24 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 
 	return results;
 }
+private void cacheSortedWords(char[] categoryName, HashtableOfObject categoryTable, char[][] words) {
+	if (words == null) return;
+	if (this.sortedWords == null)
+		this.sortedWords = new HashtableOfObject(3);
+	this.sortedWords.put(INTERNED_CATEGORY_NAMES.get(categoryName), new SortedWords(categoryTable, words));
+}
 private void cacheDocumentNames() throws IOException {
 	// will need all document names so get them now
 	this.cachedChunks = new String[this.numberOfChunks][];
+	ByteBuffer buffer = mappedBuffer();
+	if (buffer != null) {
+		buffer.position(this.chunkOffsets[0]);
+		for (int i = 0; i < this.numberOfChunks; i++) {
+			int size = i == this.numberOfChunks - 1 ? this.sizeOfLastChunk : CHUNK_SIZE;
+			readMappedChunk(this.cachedChunks[i] = new String[size], buffer, 0, size);
+		}
+		return;
+	}
 	InputStream stream = this.indexLocation.getInputStream();
 	try {
 		if (this.numberOfChunks > 5) BUFFER_READ_SIZE <<= 1;
@@ -254,14 +331,14 @@ private void cacheDocumentNames() throws IOException {
 		BUFFER_READ_SIZE = DEFAULT_BUFFER_SIZE;
 	}
 }
-private String[] computeDocumentNames(String[] onDiskNames, int[] positions, SimpleLookupTable indexedDocuments, MemoryIndex memoryIndex) {
+private String[] computeDocumentNames(String[] onDiskNames, int[] positions, SimpleLookupTable indexedDocuments, MemoryIndex memoryIndex, boolean keepDeletedDocuments) {
 	int onDiskLength = onDiskNames.length;
 	Object[] docNames = memoryIndex.docsToReferences.keyTable;
 	Object[] referenceTables = memoryIndex.docsToReferences.valueTable;
 	if (onDiskLength == 0) {
-		// disk index was empty, so add every indexed document
+		// disk index was empty, so add every indexed document (and every deleted one when writing a segment)
 		for (int i = 0, l = referenceTables.length; i < l; i++)
-			if (referenceTables[i] != null)
+			if (referenceTables[i] != null || (keepDeletedDocuments && docNames[i] != null))
 				indexedDocuments.put(docNames[i], null); // remember each new document
 
 		String[] newDocNames = new String[indexedDocuments.elementSize];
@@ -342,6 +419,55 @@ private String[] computeDocumentNames(String[] onDiskNames, int[] positions, Sim
 	}
 	return newDocNames;
 }
+/**
+ * Copies all the entries of the documents of this index which are not known to the given memory index yet
+ * (deleted documents included), so that it can be merged into an older index instead of this one.
+ */
+void copyDocuments(MemoryIndex memoryIndex) throws IOException {
+	String[] docNames = readAllDocumentNames();
+	int length = docNames.length;
+	boolean[] isCopied = new boolean[length];
+	SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
+	for (int i = 0; i < length; i++)
+		isCopied[i] = !docsToRefs.containsKey(docNames[i]);
+
+	for (int i = 0; i < length; i++)
+		if (isCopied[i])
+			memoryIndex.addDocument(docNames[i]); // keep the documents without entries, the deleted ones are removed below
+
+	char[][] categoryNames = this.categoryOffsets == null ? CharOperation.NO_CHAR_CHAR : this.categoryOffsets.keyTable;
+	for (int i = 0, l = categoryNames.length; i < l; i++) {
+		char[] categoryName = categoryNames[i];
+		if (categoryName == null) continue;
+		boolean isDeletedDocuments = CharOperation.equals(categoryName, DELETED_DOCUMENTS);
+		HashtableOfObject wordsToDocs = readCategoryTable(categoryName, true);
+		char[][] words = wordsToDocs.keyTable;
+		Object[] docNumberArrays = wordsToDocs.valueTable;
+		for (int j = 0, m = words.length; j < m; j++) {
+			if (words[j] == null) continue;
+			int[] docNumbers = readDocumentNumbers(docNumberArrays[j]);
+			for (int k = 0, n = docNumbers.length; k < n; k++) {
+				int docNumber = docNumbers[k];
+				if (!isCopied[docNumber]) continue;
+				if (isDeletedDocuments)
+					memoryIndex.remove(docNames[docNumber]);
+				else
+					memoryIndex.addIndexEntry(categoryName, words[j], docNames[docNumber]);
+			}
+		}
+		this.categoryTables.put(categoryName, null); // flush cached table
+	}
+}
+private void copyDeletedDocument(int newPosition) {
+	HashtableOfObject wordsToDocs = (HashtableOfObject) this.categoryTables.get(DELETED_DOCUMENTS);
+	if (wordsToDocs == null)
+		this.categoryTables.put(DELETED_DOCUMENTS, wordsToDocs = new HashtableOfObject(1));
+	IntList list = (IntList) wordsToDocs.get(DELETED_DOCUMENTS);
+	if (list == null)
+		wordsToDocs.put(DELETED_DOCUMENTS, new IntList(new int[] {newPosition}));
+	else
+		list.add(newPosition);
+}
 private void copyQueryResults(HashtableOfObject categoryToWords, int newPosition) {
 	char[][] categoryNames = categoryToWords.keyTable;
 	Object[] wordSets = categoryToWords.valueTable;
@@ -384,7 +510,8 @@ void initialize(boolean reuseExistingFile) throws IOException {
 			this.bufferEnd = stream.read(this.streamBuffer, 0, 128);
 			try {
 				char[] signature = readStreamChars(stream);
-				if (!CharOperation.equals(signature, SIGNATURE_CHARS)) {
+				this.hasSortedWords = CharOperation.equals(signature, SIGNATURE_CHARS);
+				if (!this.hasSortedWords && !CharOperation.equals(signature, PREVIOUS_SIGNATURES[0]) && !CharOperation.equals(signature, PREVIOUS_SIGNATURES[1])) {
 					throw new IOException(Messages.exception_wrongFormat);
 				}
 				this.headerInfoOffset = readStreamInt(stream);
@@ -443,6 +570,15 @@ private void initializeFrom(DiskIndex diskIndex, File newIndexFile) throws IOExc
 	this.categoryTables = new HashtableOfObject(size);
 	this.separator = diskIndex.separator;
 }
+private ByteBuffer mappedBuffer() throws IOException {
+	// answers a private view on the mapped index file, or null if the file must be read through streams
+	if (this.mappedBuffer == null) {
+		if (!USE_MAPPED_FILES) return null;
+		this.mappedBuffer = this.indexLocation.map();
+		if (this.mappedBuffer == null) return null;
+	}
+	return this.mappedBuffer.duplicate();
+}
 private void mergeCategories(DiskIndex onDisk, int[] positions, FileOutputStream stream) throws IOException {
 	// at this point, this.categoryTables contains the names -> wordsToDocs added in copyQueryResults()
 	char[][] oldNames = onDisk.categoryOffsets.keyTable;
@@ -504,7 +640,68 @@ private void mergeCategory(char[] categoryName, DiskIndex onDisk, int[] position
 	}
 	writeCategoryTable(categoryName, wordsToDocs, stream);
 }
+/*
+ * Answers the number of the given document in this index, or -1 if it is not part of it.
+ * Document names are sorted, so that only the chunks on the way are read.
+ */
+private int documentNumber(String documentName) throws IOException {
+	int low = 0, high = documentCount() - 1;
+	while (low <= high) {
+		int middle = (low + high) >>> 1;
+		int comparison = readDocumentName(middle).compareTo(documentName);
+		if (comparison < 0)
+			low = middle + 1;
+		else if (comparison > 0)
+			high = middle - 1;
+		else
+			return middle;
+	}
+	return -1;
+}
+/**
+ * Answers the number of documents of this index, including the deleted ones recorded by a segment.
+ */
+int documentCount() {
+	return this.numberOfChunks <= 0 ? 0 : (this.numberOfChunks - 1) * CHUNK_SIZE + this.sizeOfLastChunk;
+}
+/*
+ * Answers which documents of this index are part of the given documents of the newer segments,
+ * by document number, or null if none. Computed once per set of documents.
+ */
+private synchronized boolean[] supersededNumbers(SimpleSet supersededDocuments) throws IOException {
+	if (supersededDocuments != this.supersededSet) {
+		boolean[] numbers = null;
+		Object[] names = supersededDocuments.values;
+		for (int i = 0, l = names.length; i < l; i++) {
+			if (names[i] == null) continue;
+			int docNumber = documentNumber((String) names[i]);
+			if (docNumber >= 0) {
+				if (numbers == null)
+					numbers = new boolean[documentCount()];
+				numbers[docNumber] = true;
+			}
+		}
+		this.supersededNumbers = numbers;
+		this.supersededSet = supersededDocuments;
+	}
+	return this.supersededNumbers;
+}
+private static boolean isSuperseded(String docName, MemoryIndex memoryIndex, SimpleSet supersededDocuments) {
+	return (memoryIndex != null && memoryIndex.docsToReferences.containsKey(docName))
+		|| (supersededDocuments != null && supersededDocuments.includes(docName));
+}
 DiskIndex mergeWith(MemoryIndex memoryIndex) throws IOException {
+	return mergeWith(memoryIndex, false);
+}
+/**
+ * Answers a new disk index holding the documents of this one, updated with the changes of the given memory index.
+ * <p>
+ * When <code>keepDeletedDocuments</code> is set, this index must be empty, and the documents
+ * deleted in the memory index are recorded in the new one so that it can be used as a segment
+ * on top of an older index.
+ * </p>
+ */
+DiskIndex mergeWith(MemoryIndex memoryIndex, boolean keepDeletedDocuments) throws IOException {
  	// assume write lock is held
 	// compute & write out new docNames
 	if (this.indexLocation == null) {
@@ -514,7 +711,7 @@ DiskIndex mergeWith(MemoryIndex memoryIndex) throws IOException {
 	int previousLength = docNames.length;
 	int[] positions = new int[previousLength]; // keeps track of the position of each document in the new sorted docNames
 	SimpleLookupTable indexedDocuments = new SimpleLookupTable(3); // for each new/changed document in the memoryIndex
-	docNames = computeDocumentNames(docNames, positions, indexedDocuments, memoryIndex);
+	docNames = computeDocumentNames(docNames, positions, indexedDocuments, memoryIndex, keepDeletedDocuments);
 	if (docNames.length == 0) {
 		if (previousLength == 0) return this; // nothing to do... memory index contained deleted documents that had never been saved
 
@@ -546,10 +743,15 @@ DiskIndex mergeWith(MemoryIndex memoryIndex) throws IOException {
 			if (indexedDocuments.elementSize > 0) {
 				Object[] names = indexedDocuments.keyTable;
 				Object[] integerPositions = indexedDocuments.valueTable;
-				for (int i = 0, l = names.length; i < l; i++)
-					if (names[i] != null)
-						newDiskIndex.copyQueryResults(
-							(HashtableOfObject) memoryIndex.docsToReferences.get(names[i]), ((Integer) integerPositions[i]).intValue());
+				for (int i = 0, l = names.length; i < l; i++) {
+					if (names[i] != null) {
+						HashtableOfObject categoryToWords = (HashtableOfObject) memoryIndex.docsToReferences.get(names[i]);
+						if (categoryToWords == null)
+							newDiskIndex.copyDeletedDocument(((Integer) integerPositions[i]).intValue());
+						else
+							newDiskIndex.copyQueryResults(categoryToWords, ((Integer) integerPositions[i]).intValue());
+					}
+				}
 			}
 			indexedDocuments = null; // free up the space
 
@@ -566,6 +768,7 @@ DiskIndex mergeWith(MemoryIndex memoryIndex) throws IOException {
 			this.streamBuffer = null;
 		}
 		newDiskIndex.writeOffsetToHeader(offsetToHeader);
+		this.mappedBuffer = null; // the old file is about to be replaced
 
 		// rename file by deleting previous index file & renaming temp one
 		if (oldIndexFile.exists() && !oldIndexFile.delete()) {
@@ -597,10 +800,20 @@ DiskIndex mergeWith(MemoryIndex memoryIndex) throws IOException {
 		newDiskIndex.indexLocation = this.indexLocation;
 	return newDiskIndex;
 }
-private synchronized String[] readAllDocumentNames() throws IOException {
+synchronized String[] readAllDocumentNames() throws IOException {
 	if (this.numberOfChunks <= 0)
 		return CharOperation.NO_STRINGS;
 
+	int lastIndex = this.numberOfChunks - 1;
+	ByteBuffer buffer = mappedBuffer();
+	if (buffer != null) {
+		buffer.position(this.chunkOffsets[0]);
+		String[] docNames = new String[lastIndex * CHUNK_SIZE + this.sizeOfLastChunk];
+		for (int i = 0; i < this.numberOfChunks; i++)
+			readMappedChunk(docNames, buffer, i * CHUNK_SIZE, i < lastIndex ? CHUNK_SIZE : this.sizeOfLastChunk);
+		return docNames;
+	}
+
 	InputStream stream = this.indexLocation.getInputStream();
 	try {
 		int offset = this.chunkOffsets[0];
@@ -608,7 +821,6 @@ private synchronized String[] readAllDocumentNames() throws IOException {
 		this.streamBuffer = new byte[BUFFER_READ_SIZE];
 		this.bufferIndex = 0;
 		this.bufferEnd = stream.read(this.streamBuffer, 0, this.streamBuffer.length);
-		int lastIndex = this.numberOfChunks - 1;
 		String[] docNames = new String[lastIndex * CHUNK_SIZE + this.sizeOfLastChunk];
 		for (int i = 0; i < this.numberOfChunks; i++)
 			readChunk(docNames, stream, i * CHUNK_SIZE, i < lastIndex ? CHUNK_SIZE : this.sizeOfLastChunk);
@@ -619,6 +831,16 @@ private synchronized String[] readAllDocumentNames() throws IOException {
 		this.streamBuffer = null;
 	}
 }
+private SimpleSet readDeletedDocumentNames() throws IOException {
+	// answers null unless this index is a segment which deleted documents of older indexes
+	if (this.categoryOffsets == null || this.categoryOffsets.get(DELETED_DOCUMENTS) == HashtableOfIntValues.NO_VALUE)
+		return null;
+	int[] docNumbers = readDocumentNumbers(readCategoryTable(DELETED_DOCUMENTS, true).get(DELETED_DOCUMENTS));
+	SimpleSet deletedDocuments = new SimpleSet(docNumbers.length);
+	for (int i = 0, l = docNumbers.length; i < l; i++)
+		deletedDocuments.add(readDocumentName(docNumbers[i]));
+	return deletedDocuments;
+}
 private synchronized HashtableOfObject readCategoryTable(char[] categoryName, boolean readDocNumbers) throws IOException {
 	// result will be null if categoryName is unknown
 	int offset = this.categoryOffsets.get(categoryName);
@@ -641,6 +863,10 @@ private synchronized HashtableOfObject readCategoryTable(char[] categoryName, bo
 		}
 	}
 
+	ByteBuffer buffer = mappedBuffer();
+	if (buffer != null)
+		return readMappedCategoryTable(categoryName, buffer, offset, readDocNumbers);
+
 	InputStream stream = this.indexLocation.getInputStream();
 	HashtableOfObject categoryTable = null;
 	char[][] matchingWords = null;
@@ -672,8 +898,11 @@ private synchronized HashtableOfObject readCategoryTable(char[] categoryName, bo
 			throw oom;
 		}
 		int largeArraySize = 256;
+		char[][] sortedWords = this.hasSortedWords ? new char[size][] : null;
 		for (int i = 0; i < size; i++) {
 			char[] word = readStreamChars(stream);
+			if (sortedWords != null)
+				sortedWords[i] = word;
 			int arrayOffset = readStreamInt(stream);
 			// if arrayOffset is:
 			//		<= 0 then the array size == 1 with the value -> -arrayOffset
@@ -696,6 +925,7 @@ private synchronized HashtableOfObject readCategoryTable(char[] categoryName, bo
 			}
 		}
 		this.categoryTables.put(INTERNED_CATEGORY_NAMES.get(categoryName), categoryTable);
+		cacheSortedWords(categoryName, categoryTable, sortedWords);
 		// cache the table as long as its not too big
 		// in practice, some tables can be greater than 500K when they contain more than 10K elements
 		this.cachedCategoryName = categoryTable.elementSize < 20000 ? categoryName : null;
@@ -763,6 +993,15 @@ synchronized String readDocumentName(int docNumber) throws IOException {
 		int numberOfBytes = (isLastChunk ? this.startOfCategoryTables : this.chunkOffsets[chunkNumber + 1]) - start;
 		if (numberOfBytes < 0)
 			throw new IllegalArgumentException();
+		int numberOfNames = isLastChunk ? this.sizeOfLastChunk : CHUNK_SIZE;
+		chunk = new String[numberOfNames];
+		ByteBuffer buffer = mappedBuffer();
+		if (buffer != null) {
+			buffer.position(start);
+			readMappedChunk(chunk, buffer, 0, numberOfNames);
+			this.cachedChunks[chunkNumber] = chunk;
+			return chunk[docNumber - (chunkNumber * CHUNK_SIZE)];
+		}
 		this.streamBuffer = new byte[numberOfBytes];
 		this.bufferIndex = 0;
 		InputStream file = this.indexLocation.getInputStream();
@@ -777,8 +1016,6 @@ synchronized String readDocumentName(int docNumber) throws IOException {
 			file.close();
 			this.indexLocation.close();
 		}
-		int numberOfNames = isLastChunk ? this.sizeOfLastChunk : CHUNK_SIZE;
-		chunk = new String[numberOfNames];
 		try {
 			readChunk(chunk, null, 0, numberOfNames);
 		} catch (IOException ioe) {
@@ -795,6 +1032,12 @@ synchronized int[] readDocumentNumbers(Object arrayOffset) throws IOException {
 	if (arrayOffset instanceof int[])
 		return (int[]) arrayOffset;
 
+	ByteBuffer buffer = mappedBuffer();
+	if (buffer != null) {
+		buffer.position(((Integer) arrayOffset).intValue());
+		return readMappedDocumentArray(buffer, buffer.getInt());
+	}
+
 	InputStream stream = this.indexLocation.getInputStream();
 	try {
 		int offset = ((Integer) arrayOffset).intValue();
@@ -854,6 +1097,138 @@ private void readHeaderInfo(InputStream stream) throws IOException {
 	}
 	this.categoryTables = new HashtableOfObject(3);
 }
+private HashtableOfObject readMappedCategoryTable(char[] categoryName, ByteBuffer buffer, int offset, boolean readDocNumbers) throws IOException {
+	// same format as readCategoryTable() but the arrays of >= 256 document numbers are left in the file
+	// until they are asked for, since they can be decoded in place without another pass over the table
+	buffer.position(offset);
+	int size = buffer.getInt();
+	HashtableOfObject categoryTable = new HashtableOfObject(size);
+	int largeArraySize = 256;
+	char[][] sortedWords = this.hasSortedWords ? new char[size][] : null;
+	for (int i = 0; i < size; i++) {
+		char[] word = readMappedChars(buffer);
+		if (sortedWords != null)
+			sortedWords[i] = word;
+		int arrayOffset = buffer.getInt();
+		if (arrayOffset <= 0) {
+			categoryTable.putUnsafely(word, new int[] {-arrayOffset}); // store 1 element array by negating documentNumber
+		} else if (arrayOffset < largeArraySize) {
+			categoryTable.putUnsafely(word, readMappedDocumentArray(buffer, arrayOffset)); // read in-lined array providing size
+		} else {
+			arrayOffset = buffer.getInt(); // read actual offset
+			if (readDocNumbers) {
+				ByteBuffer arrayBuffer = buffer.duplicate();
+				arrayBuffer.position(arrayOffset);
+				categoryTable.putUnsafely(word, readMappedDocumentArray(arrayBuffer, arrayBuffer.getInt()));
+			} else {
+				categoryTable.putUnsafely(word, new Integer(arrayOffset)); // offset to array in the file
+			}
+		}
+	}
+	this.categoryTables.put(INTERNED_CATEGORY_NAMES.get(categoryName), categoryTable);
+	cacheSortedWords(categoryName, categoryTable, sortedWords);
+	// cache the table as long as its not too big
+	this.cachedCategoryName = categoryTable.elementSize < 20000 ? categoryName : null;
+	return categoryTable;
+}
+private char[] readMappedChars(ByteBuffer buffer) throws IOException {
+	// same encoding as readStreamChars()
+	int length = buffer.getChar(); // unsigned short
+	char[] word = new char[length];
+	for (int i = 0; i < length; i++) {
+		byte b = buffer.get();
+		switch (b & 0xF0) {
+			case 0x00 :
+			case 0x10 :
+			case 0x20 :
+			case 0x30 :
+			case 0x40 :
+			case 0x50 :
+			case 0x60 :
+			case 0x70 :
+				word[i] = (char) b;
+				break;
+			case 0xC0 :
+			case 0xD0 :
+				char next = (char) buffer.get();
+				if ((next & 0xC0) != 0x80) {
+					throw new UTFDataFormatException();
+				}
+				char ch = (char) ((b & 0x1F) << 6);
+				ch |= next & 0x3F;
+				word[i] = ch;
+				break;
+			case 0xE0 :
+				char first = (char) buffer.get();
+				char second = (char) buffer.get();
+				if ((first & second & 0xC0) != 0x80) {
+					throw new UTFDataFormatException();
+				}
+				ch = (char) ((b & 0x0F) << 12);
+				ch |= ((first& 0x3F) << 6);
+				ch |= second & 0x3F;
+				word[i] = ch;
+				break;
+			default:
+				throw new UTFDataFormatException();
+		}
+	}
+	return word;
+}
+private void readMappedChunk(String[] docNames, ByteBuffer buffer, int index, int size) throws IOException {
+	// same encoding as readChunk()
+	String current = new String(readMappedChars(buffer));
+	docNames[index++] = current;
+	for (int i = 1; i < size; i++) {
+		int start = buffer.get() & 0xFF;
+		int end = buffer.get() & 0xFF;
+		String next  = new String(readMappedChars(buffer));
+		if (start > 0) {
+			if (end > 0) {
+				int length = current.length();
+				next = current.substring(0, start) + next + current.substring(length - end, length);
+			} else {
+				next = current.substring(0, start) + next;
+			}
+		} else if (end > 0) {
+			int length = current.length();
+			next = next + current.substring(length - end, length);
+		}
+		docNames[index++] = next;
+		current = next;
+	}
+}
+private int[] readMappedDocumentArray(ByteBuffer buffer, int arraySize) {
+	// same encoding as readStreamDocumentArray()
+	int[] indexes = new int[arraySize];
+	switch (this.documentReferenceSize) {
+		case VARIABLE_BYTE_REFERENCES :
+			int documentNumber = 0;
+			for (int i = 0; i < arraySize; i++) {
+				int b = buffer.get();
+				int delta = b & 0x7F;
+				for (int shift = 7; b < 0; shift += 7) {
+					b = buffer.get();
+					delta |= (b & 0x7F) << shift;
+				}
+				indexes[i] = documentNumber += delta;
+			}
+			break;
+		case 1 :
+			for (int i = 0; i < arraySize; i++)
+				indexes[i] = buffer.get() & 0xFF;
+			break;
+		case 2 :
+			for (int i = 0; i < arraySize; i++)
+				indexes[i] = buffer.getChar(); // unsigned short
+			break;
+		default :
+			for (int i = 0; i < arraySize; i++)
+				indexes[i] = buffer.getInt();
+			break;
+	}
+	return indexes;
+}
 synchronized void startQuery() {
 	this.cacheUserCount++;
 }
@@ -865,14 +1240,27 @@ synchronized void stopQuery() {
 		if (this.categoryTables != null) {
 			if (this.cachedCategoryName == null) {
 				this.categoryTables = null;
+				this.sortedWords = null;
 			} else if (this.categoryTables.elementSize > 1) {
 				HashtableOfObject newTables = new HashtableOfObject(3);
 				newTables.put(this.cachedCategoryName, this.categoryTables.get(this.cachedCategoryName));
 				this.categoryTables = newTables;
+				if (this.sortedWords != null) {
+					Object cachedWords = this.sortedWords.get(this.cachedCategoryName);
+					this.sortedWords = null;
+					if (cachedWords != null)
+						(this.sortedWords = new HashtableOfObject(3)).put(this.cachedCategoryName, cachedWords);
+				}
 			}
 		}
 	}
 }
+private SortedWords sortedWords(char[] categoryName, HashtableOfObject categoryTable) {
+	// answers null if the words of the table were not read in order, or if the table was read again since
+	if (this.sortedWords == null) return null;
+	SortedWords words = (SortedWords) this.sortedWords.get(categoryName);
+	return words != null && words.table == categoryTable ? words : null;
+}
 private void readStreamBuffer(InputStream stream) throws IOException {
 	// if we're about to read a known amount at the end of the existing buffer, but it does not completely fit
 	// so we need to shift the remaining bytes to be read, and fill the buffer from the stream
@@ -972,6 +1360,20 @@ private int[] readStreamDocumentArray(InputStream stream, int arraySize) throws
 
 	int i = 0;
 	switch (this.documentReferenceSize) {
+		case VARIABLE_BYTE_REFERENCES :
+			int documentNumber = 0;
+			while (i < arraySize) {
+				if (this.bufferIndex + 5 > this.bufferEnd && stream != null)
+					readStreamBuffer(stream); // a reference takes at most 5 bytes
+				int b = this.streamBuffer[this.bufferIndex++];
+				int delta = b & 0x7F;
+				for (int shift = 7; b < 0; shift += 7) {
+					b = this.streamBuffer[this.bufferIndex++];
+					delta |= (b & 0x7F) << shift;
+				}
+				indexes[i++] = documentNumber += delta;
+			}
+			break;
 		case 1 :
 			while (i < arraySize) {
 				// how many bytes without refilling the buffer?
@@ -1037,7 +1439,7 @@ private void writeAllDocumentNames(String[] sortedDocNames, FileOutputStream str
 		this.numberOfChunks--;
 		this.sizeOfLastChunk = CHUNK_SIZE;
 	}
-	this.documentReferenceSize = size <= 0x7F ? 1 : (size <= 0x7FFF ? 2 : 4); // number of bytes used to encode a reference
+	this.documentReferenceSize = VARIABLE_BYTE_REFERENCES;
 
 	this.chunkOffsets = new int[this.numberOfChunks];
 	int lastIndex = this.numberOfChunks - 1;
@@ -1099,39 +1501,40 @@ private void writeCategoryTable(char[] categoryName, HashtableOfObject wordsToDo
 	//		an int > 1 & < 256 for the size of the array if its > 1 & < 256, the document array follows immediately
 	//		256 if the array size >= 256 followed by another int which is the offset to the array (written prior to the table)
 
+	// words are written in SortedWords order, and so are the large arrays since they are read back in the order of the words
 	int largeArraySize = 256;
-	Object[] values = wordsToDocs.valueTable;
-	for (int i = 0, l = values.length; i < l; i++) {
-		Object o = values[i];
-		if (o != null) {
-			if (o instanceof IntList)
-				o = values[i] = ((IntList) values[i]).asArray();
-			int[] documentNumbers = (int[]) o;
-			if (documentNumbers.length >= largeArraySize) {
-				values[i] = new Integer(this.streamEnd);
-				writeDocumentNumbers(documentNumbers, stream);
-			}
+	char[][] words = new char[wordsToDocs.elementSize][];
+	char[][] keys = wordsToDocs.keyTable;
+	for (int i = 0, l = keys.length, count = 0; i < l; i++)
+		if (keys[i] != null)
+			words[count++] = keys[i];
+	SortedWords.sort(words);
+	for (int i = 0, l = words.length; i < l; i++) {
+		Object o = wordsToDocs.get(words[i]);
+		if (o instanceof IntList)
+			wordsToDocs.put(words[i], o = ((IntList) o).asArray());
+		int[] documentNumbers = (int[]) o;
+		if (documentNumbers.length >= largeArraySize) {
+			wordsToDocs.put(words[i], new Integer(this.streamEnd));
+			writeDocumentNumbers(documentNumbers, stream);
 		}
 	}
 
 	this.categoryOffsets.put(categoryName, this.streamEnd); // remember the offset to the start of the table
 	this.categoryTables.put(categoryName, null); // flush cached table
 	writeStreamInt(stream, wordsToDocs.elementSize);
-	char[][] words = wordsToDocs.keyTable;
 	for (int i = 0, l = words.length; i < l; i++) {
-		Object o = values[i];
-		if (o != null) {
-			writeStreamChars(stream, words[i]);
-			if (o instanceof int[]) {
-				int[] documentNumbers = (int[]) o;
-				if (documentNumbers.length == 1)
-					writeStreamInt(stream, -documentNumbers[0]); // store an array of 1 element by negating the documentNumber (can be zero)
-				else
-					writeDocumentNumbers(documentNumbers, stream);
-			} else {
-				writeStreamInt(stream, largeArraySize); // mark to identify that an offset follows
-				writeStreamInt(stream, ((Integer) o).intValue()); // offset in the file of the array of document numbers
-			}
+		Object o = wordsToDocs.get(words[i]);
+		writeStreamChars(stream, words[i]);
+		if (o instanceof int[]) {
+			int[] documentNumbers = (int[]) o;
+			if (documentNumbers.length == 1)
+				writeStreamInt(stream, -documentNumbers[0]); // store an array of 1 element by negating the documentNumber (can be zero)
+			else
+				writeDocumentNumbers(documentNumbers, stream);
+		} else {
+			writeStreamInt(stream, largeArraySize); // mark to identify that an offset follows
+			writeStreamInt(stream, ((Integer) o).intValue()); // offset in the file of the array of document numbers
 		}
 	}
 }
@@ -1140,45 +1543,22 @@ private void writeDocumentNumbers(int[] documentNumbers, FileOutputStream stream
 	int length = documentNumbers.length;
 	writeStreamInt(stream, length);
 	Util.sort(documentNumbers);
-	int start = 0;
-	switch (this.documentReferenceSize) {
-		case 1 :
-			while ((this.bufferIndex + length - start) >= BUFFER_WRITE_SIZE) {
-				// when documentNumbers is large, write BUFFER_WRITE_SIZE parts & fall thru to write the last part
-				int bytesLeft = BUFFER_WRITE_SIZE - this.bufferIndex;
-				for (int i=0; i < bytesLeft; i++) {
-					this.streamBuffer[this.bufferIndex++] = (byte) documentNumbers[start++];
-				}
-				stream.write(this.streamBuffer, 0, this.bufferIndex);
-				this.bufferIndex = 0;
-			}
-			while (start < length) {
-				this.streamBuffer[this.bufferIndex++] = (byte) documentNumbers[start++];
-			}
-			this.streamEnd += length;
-			break;
-		case 2 :
-			while ((this.bufferIndex + ((length - start) * 2)) >= BUFFER_WRITE_SIZE) {
-				// when documentNumbers is large, write BUFFER_WRITE_SIZE parts & fall thru to write the last part
-				int shortsLeft = (BUFFER_WRITE_SIZE - this.bufferIndex) / 2;
-				for (int i=0; i < shortsLeft; i++) {
-					this.streamBuffer[this.bufferIndex++] = (byte) (documentNumbers[start] >> 8);
-					this.streamBuffer[this.bufferIndex++] = (byte) documentNumbers[start++];
-				}
-				stream.write(this.streamBuffer, 0, this.bufferIndex);
-				this.bufferIndex = 0;
-			}
-			while (start < length) {
-				this.streamBuffer[this.bufferIndex++] = (byte) (documentNumbers[start] >> 8);
-				this.streamBuffer[this.bufferIndex++] = (byte) documentNumbers[start++];
-			}
-			this.streamEnd += length * 2;
-			break;
-		default :
-			while (start < length) {
-				writeStreamInt(stream, documentNumbers[start++]);
-			}
-			break;
+	// always written as VARIABLE_BYTE_REFERENCES
+	int previous = 0;
+	for (int i = 0; i < length; i++) {
+		if (this.bufferIndex + 5 >= BUFFER_WRITE_SIZE) {
+			stream.write(this.streamBuffer, 0, this.bufferIndex);
+			this.bufferIndex = 0;
+		}
+		int delta = documentNumbers[i] - previous;
+		previous = documentNumbers[i];
+		while ((delta & ~0x7F) != 0) {
+			this.streamBuffer[this.bufferIndex++] = (byte) ((delta & 0x7F) | 0x80);
+			this.streamEnd++;
+			delta >>>= 7;
+		}
+		this.streamBuffer[this.bufferIndex++] = (byte) delta;
+		this.streamEnd++;
 	}
 }
 private void writeHeaderInfo(FileOutputStream stream) throws IOException {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,16 +13,25 @@ package org.eclipse.jdt.internal.core.index;
 import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.internal.compiler.util.SimpleSet;
 
+/**
+ * The documents containing a word. The document tables of disk indexes are kept unresolved until
+ * {@link #getDocumentNames(Index)} is called, while the index is still being read.
+ */
 public class EntryResult {
 
 private char[] word;
 private Object[] documentTables;
+private DiskIndex[] diskIndexes; // the index of each table, null for the disk index of the Index
 private SimpleSet documentNames;
 
 public EntryResult(char[] word, Object table) {
 	this.word = word;
 	if (table != null)
-		this.documentTables = new Object[] {table};
+		addDocumentTable(null, table);
+}
+EntryResult(char[] word, DiskIndex diskIndex, Object table) {
+	this.word = word;
+	addDocumentTable(diskIndex, table);
 }
 public void addDocumentName(String documentName) {
 	if (this.documentNames == null)
@@ -30,12 +39,18 @@ public void addDocumentName(String documentName) {
 	this.documentNames.add(documentName);
 }
 public void addDocumentTable(Object table) {
+	addDocumentTable(null, table);
+}
+void addDocumentTable(DiskIndex diskIndex, Object table) {
 	if (this.documentTables != null) {
 		int length = this.documentTables.length;
 		System.arraycopy(this.documentTables, 0, this.documentTables = new Object[length + 1], 0, length);
+		System.arraycopy(this.diskIndexes, 0, this.diskIndexes = new DiskIndex[length + 1], 0, length);
 		this.documentTables[length] = table;
+		this.diskIndexes[length] = diskIndex;
 	} else {
 		this.documentTables = new Object[] {table};
+		this.diskIndexes = new DiskIndex[] {diskIndex};
 	}
 }
 public char[] getWord() {
@@ -45,19 +60,21 @@ public String[] getDocumentNames(Index index) throws java.io.IOException {
 	if (this.documentTables != null) {
 		int length = this.documentTables.length;
 		if (length == 1 && this.documentNames == null) { // have a single table
+			DiskIndex diskIndex = this.diskIndexes[0] == null ? index.diskIndex : this.diskIndexes[0];
 			Object offset = this.documentTables[0];
-			int[] numbers = index.diskIndex.readDocumentNumbers(offset);
+			int[] numbers = diskIndex.readDocumentNumbers(offset);
 			String[] names = new String[numbers.length];
 			for (int i = 0, l = numbers.length; i < l; i++)
-				names[i] = index.diskIndex.readDocumentName(numbers[i]);
+				names[i] = diskIndex.readDocumentName(numbers[i]);
 			return names;
 		}
 
 		for (int i = 0; i < length; i++) {
+			DiskIndex diskIndex = this.diskIndexes[i] == null ? index.diskIndex : this.diskIndexes[i];
 			Object offset = this.documentTables[i];
-			int[] numbers = index.diskIndex.readDocumentNumbers(offset);
+			int[] numbers = diskIndex.readDocumentNumbers(offset);
 			for (int j = 0, k = numbers.length; j < k; j++)
-				addDocumentName(index.diskIndex.readDocumentName(numbers[j]));
+				addDocumentName(diskIndex.readDocumentName(numbers[j]));
 		}
 	}
 
@@ -14,7 +14,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
@@ -84,6 +87,17 @@ public class FileIndexLocation extends IndexLocation {
 		return this.indexFile.hashCode();
 	}
 
+	ByteBuffer map() throws IOException {
+		RandomAccessFile file = new RandomAccessFile(this.indexFile, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel = file.getChannel();
+			// the mapping stays valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			file.close();
+		}
+	}
+
 	public long lastModified() {
 		return this.indexFile.lastModified();
 	}
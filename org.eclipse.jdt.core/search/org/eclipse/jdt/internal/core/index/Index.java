@@ -24,6 +24,13 @@ import org.eclipse.jdt.internal.core.search.indexing.ReadWriteMonitor;
  * Queries can search a single category or several at the same time.
  * </p>
  * Indexes are not synchronized structures and should only be queried/updated one at a time.
+ * <p>
+ * Saving an index file rewrites it entirely, so small changes to indexes kept in files are saved
+ * as segments instead: smaller index files written next to the index file, which hold the changed
+ * and deleted documents and override the documents of the older segments and of the index file.
+ * Once there are too many of them, or they hold too many documents compared to the index file,
+ * the segments are folded back into the index file.
+ * </p>
  */
 public class Index {
 
@@ -38,6 +45,16 @@ static final char JAR_SEPARATOR = IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR.char
 protected DiskIndex diskIndex;
 protected MemoryIndex memoryIndex;
 
+// segments are named after the index file, e.g. 123.index.segment1, and numbered from the oldest one
+public static final String SEGMENT_EXT = ".segment"; //$NON-NLS-1$
+static final int MAX_SEGMENTS = 8;
+static final int SEGMENT_RATIO = 8; // fold the segments once they hold more than 1/8th of the documents of the disk index
+private static final DiskIndex[] NO_SEGMENTS = new DiskIndex[0];
+
+private String segmentPath; // null if the index is not kept in a file, and thus cannot be saved in segments
+protected DiskIndex[] segments = NO_SEGMENTS;
+private SimpleSet[] supersededDocuments; // for the disk index then each segment, the documents of the newer segments
+
 /**
  * Mask used on match rule for indexing.
  */
@@ -92,9 +109,31 @@ public Index(IndexLocation location, String containerPath, boolean reuseExisting
 	this.monitor = new ReadWriteMonitor();
 
 	this.memoryIndex = new MemoryIndex();
+	boolean reuseSegments = reuseExistingFile && location.exists();
+	if (location instanceof FileIndexLocation)
+		this.segmentPath = location.getIndexFile().getPath() + SEGMENT_EXT;
 	this.diskIndex = new DiskIndex(location);
-	this.diskIndex.initialize(reuseExistingFile);
-	if (reuseExistingFile) this.separator = this.diskIndex.separator;
+	try {
+		this.diskIndex.initialize(reuseExistingFile);
+		if (reuseExistingFile) this.separator = this.diskIndex.separator;
+		if (this.segmentPath != null) {
+			if (reuseSegments)
+				readSegments();
+			else
+				deleteSegments(); // left over by a previous index file
+		}
+	} catch (IOException e) {
+		// the index file is corrupt and is going to be recreated, its segments must not be read against the new one
+		if (this.segmentPath != null)
+			deleteSegments();
+		throw e;
+	}
+}
+/**
+ * Records the given document as indexed, even if it has no index entries, so that it is not indexed again.
+ */
+public void addDocument(String containerRelativePath) {
+	this.memoryIndex.addDocument(containerRelativePath);
 }
 public void addIndexEntry(char[] category, char[] key, String containerRelativePath) {
 	this.memoryIndex.addIndexEntry(category, key, containerRelativePath);
@@ -115,7 +154,11 @@ public IndexLocation getIndexLocation() {
 	return this.diskIndex == null ? null : this.diskIndex.indexLocation;
 }
 public long getIndexLastModified() {
-	return this.diskIndex == null? -1 : this.diskIndex.indexLocation.lastModified();
+	if (this.diskIndex == null) return -1;
+	long lastModified = this.diskIndex.indexLocation.lastModified();
+	for (int i = 0, length = this.segments.length; i < length; i++)
+		lastModified = Math.max(lastModified, this.segments[i].indexLocation.lastModified());
+	return lastModified;
 }
 public boolean hasChanged() {
 	return this.memoryIndex.hasChanged();
@@ -136,13 +179,13 @@ public EntryResult[] query(char[][] categories, char[] key, int matchRule) throw
 
 	HashtableOfObject results;
 	int rule = matchRule & MATCH_RULE_INDEX_MASK;
-	if (this.memoryIndex.hasChanged()) {
-		results = this.diskIndex.addQueryResults(categories, key, rule, this.memoryIndex);
+	MemoryIndex changes = this.memoryIndex.hasChanged() ? this.memoryIndex : null;
+	results = this.diskIndex.addQueryResults(categories, key, rule, changes, supersededDocuments(0), null);
+	for (int i = 0, length = this.segments.length; i < length; i++)
+		results = this.segments[i].addQueryResults(categories, key, rule, changes, supersededDocuments(i + 1), results);
+	if (changes != null)
 		results = this.memoryIndex.addQueryResults(categories, key, rule, results);
-	} else {
-		results = this.diskIndex.addQueryResults(categories, key, rule, null);
-	}
-	if (results == null) return null;
+	if (results == null || results.elementSize == 0) return null;
 
 	EntryResult[] entryResults = new EntryResult[results.elementSize];
 	int count = 0;
@@ -158,13 +201,12 @@ public EntryResult[] query(char[][] categories, char[] key, int matchRule) throw
  * Returns the document names that contain the given substring, if null then returns all of them.
  */
 public String[] queryDocumentNames(String substring) throws IOException {
-	SimpleSet results;
-	if (this.memoryIndex.hasChanged()) {
-		results = this.diskIndex.addDocumentNames(substring, this.memoryIndex);
+	MemoryIndex changes = this.memoryIndex.hasChanged() ? this.memoryIndex : null;
+	SimpleSet results = this.diskIndex.addDocumentNames(substring, changes, supersededDocuments(0), null);
+	for (int i = 0, length = this.segments.length; i < length; i++)
+		results = this.segments[i].addDocumentNames(substring, changes, supersededDocuments(i + 1), results);
+	if (changes != null)
 		this.memoryIndex.addDocumentNames(substring, results);
-	} else {
-		results = this.diskIndex.addDocumentNames(substring, null);
-	}
 	if (results.elementSize == 0) return null;
 
 	String[] documentNames = new String[results.elementSize];
@@ -175,6 +217,87 @@ public String[] queryDocumentNames(String substring) throws IOException {
 			documentNames[count++] = (String) paths[i];
 	return documentNames;
 }
+private boolean addSegment() throws IOException {
+	int length = this.segments.length;
+	File segmentFile = new File(this.segmentPath + (length + 1));
+	DiskIndex segment = new DiskIndex(new FileIndexLocation(segmentFile));
+	segment.initialize(false);
+	segment.separator = this.separator;
+	segment = segment.mergeWith(this.memoryIndex, true/*keep deleted documents*/);
+	if (!segmentFile.equals(segment.indexLocation.getIndexFile())) {
+		// the temporary file could not be renamed, the segment would not be found after a restart
+		segment.indexLocation.getIndexFile().delete();
+		segmentFile.delete();
+		return false;
+	}
+	System.arraycopy(this.segments, 0, this.segments = new DiskIndex[length + 1], 0, length);
+	this.segments[length] = segment;
+	computeSupersededDocuments();
+	return true;
+}
+private void computeSupersededDocuments() throws IOException {
+	int length = this.segments.length;
+	if (length == 0) {
+		this.supersededDocuments = null;
+		return;
+	}
+	this.supersededDocuments = new SimpleSet[length + 1];
+	SimpleSet newerDocuments = new SimpleSet(1);
+	for (int i = length; i > 0; i--) {
+		this.supersededDocuments[i] = newerDocuments.elementSize == 0 ? null : newerDocuments;
+		String[] docNames = this.segments[i - 1].readAllDocumentNames(); // deleted documents included
+		SimpleSet documents = new SimpleSet(newerDocuments.elementSize + docNames.length);
+		Object[] newerNames = newerDocuments.values;
+		for (int j = 0, l = newerNames.length; j < l; j++)
+			if (newerNames[j] != null)
+				documents.add(newerNames[j]);
+		for (int j = 0, l = docNames.length; j < l; j++)
+			documents.add(docNames[j]);
+		newerDocuments = documents;
+	}
+	this.supersededDocuments[0] = newerDocuments;
+}
+private void deleteSegments() {
+	deleteSegments(this.segmentPath, this.segments.length);
+	this.segments = NO_SEGMENTS;
+	this.supersededDocuments = null;
+}
+/**
+ * Deletes the segments saved next to the given index file, which is deleted or recreated.
+ */
+public static void deleteSegments(File indexFile) {
+	deleteSegments(indexFile.getPath() + SEGMENT_EXT, 0);
+}
+private static void deleteSegments(String segmentPath, int count) {
+	// delete the newest ones first, so that the remaining segments are always numbered from 1
+	while (new File(segmentPath + (count + 1)).exists())
+		count++;
+	for (int i = count; i > 0; i--) {
+		File segmentFile = new File(segmentPath + i);
+		if (!segmentFile.delete() && DiskIndex.DEBUG)
+			System.out.println("deleteSegments - Failed to delete " + segmentFile); //$NON-NLS-1$
+	}
+}
+private void foldSegments() throws IOException {
+	// the changes of the memory index are not folded, so that the segments still hold valid changes if they cannot be deleted
+	MemoryIndex folded = new MemoryIndex();
+	for (int i = this.segments.length; --i >= 0;)
+		this.segments[i].copyDocuments(folded);
+	this.diskIndex = this.diskIndex.mergeWith(folded);
+	deleteSegments();
+}
+private void readSegments() throws IOException {
+	int count = 0;
+	while (new File(this.segmentPath + (count + 1)).exists())
+		count++;
+	if (count == 0) return;
+	this.segments = new DiskIndex[count];
+	for (int i = 0; i < count; i++) {
+		this.segments[i] = new DiskIndex(new FileIndexLocation(new File(this.segmentPath + (i + 1))));
+		this.segments[i].initialize(true);
+	}
+	computeSupersededDocuments();
+}
 public void remove(String containerRelativePath) {
 	this.memoryIndex.remove(containerRelativePath);
 }
@@ -187,6 +310,8 @@ public void reset() throws IOException {
 	this.memoryIndex = new MemoryIndex();
 	this.diskIndex = new DiskIndex(this.diskIndex.indexLocation);
 	this.diskIndex.initialize(false/*do not reuse the index file*/);
+	if (this.segmentPath != null)
+		deleteSegments();
 }
 public void save() throws IOException {
 	// must own the write lock of the monitor
@@ -194,7 +319,21 @@ public void save() throws IOException {
 
 	int numberOfChanges = this.memoryIndex.docsToReferences.elementSize;
 	this.diskIndex.separator = this.separator;
-	this.diskIndex = this.diskIndex.mergeWith(this.memoryIndex);
+	int length = this.segments.length;
+	if (length > 0) {
+		int segmentDocuments = numberOfChanges;
+		for (int i = 0; i < length; i++)
+			segmentDocuments += this.segments[i].documentCount();
+		if (length >= MAX_SEGMENTS || segmentDocuments * SEGMENT_RATIO > this.diskIndex.documentCount())
+			foldSegments();
+	}
+	boolean addSegment = this.segments.length > 0
+		|| (this.segmentPath != null && numberOfChanges * SEGMENT_RATIO <= this.diskIndex.documentCount());
+	if (!addSegment || !addSegment()) { // only write the changes if possible
+		if (this.segments.length > 0)
+			foldSegments();
+		this.diskIndex = this.diskIndex.mergeWith(this.memoryIndex);
+	}
 	this.memoryIndex = new MemoryIndex();
 	if (numberOfChanges > 1000)
 		System.gc(); // reclaim space if the MemoryIndex was very BIG
@@ -202,10 +341,17 @@ public void save() throws IOException {
 public void startQuery() {
 	if (this.diskIndex != null)
 		this.diskIndex.startQuery();
+	for (int i = 0, length = this.segments.length; i < length; i++)
+		this.segments[i].startQuery();
 }
 public void stopQuery() {
 	if (this.diskIndex != null)
 		this.diskIndex.stopQuery();
+	for (int i = 0, length = this.segments.length; i < length; i++)
+		this.segments[i].stopQuery();
+}
+private SimpleSet supersededDocuments(int index) {
+	return this.supersededDocuments == null ? null : this.supersededDocuments[index];
 }
 public String toString() {
 	return "Index for " + this.containerPath; //$NON-NLS-1$
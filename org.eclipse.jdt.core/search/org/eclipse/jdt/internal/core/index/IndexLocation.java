@@ -13,6 +13,7 @@ package org.eclipse.jdt.internal.core.index;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -103,6 +104,16 @@ public abstract class IndexLocation {
 
 	abstract InputStream getInputStream() throws IOException;
 
+	/**
+	 * Maps the content of the index file into memory.
+	 * 
+	 * @return a read-only buffer on the whole index file or null if the location cannot be mapped
+	 * @throws IOException
+	 */
+	ByteBuffer map() throws IOException {
+		return null;
+	}
+
 	public URL getUrl() {
 		return this.url;
 	}
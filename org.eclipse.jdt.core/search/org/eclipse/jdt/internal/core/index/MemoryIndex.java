@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.core.index;
 
+import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.core.search.*;
 import org.eclipse.jdt.internal.core.util.*;
 import org.eclipse.jdt.internal.compiler.util.HashtableOfObject;
@@ -43,6 +44,11 @@ void addDocumentNames(String substring, SimpleSet results) {
 				results.add(paths[i]);
 	}
 }
+void addDocument(String documentName) {
+	// a document without entries has an empty reference table, a deleted one has none
+	if (this.docsToReferences.get(documentName) == null)
+		this.docsToReferences.put(documentName, new HashtableOfObject(3));
+}
 void addIndexEntry(char[] category, char[] key, String documentName) {
 	HashtableOfObject referenceTable;
 	if (documentName.equals(this.lastDocumentName))
@@ -86,6 +92,8 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 			}
 		}
 	} else {
+		// the word sets are not sorted (only saved tables are), a cheap prefix check skips most words before the complete match
+		char[] prefix = SortedWords.candidatePrefix(key, matchRule);
 		for (int i = 0, l = referenceTables.length; i < l; i++) {
 			HashtableOfObject categoryToWords = (HashtableOfObject) referenceTables[i];
 			if (categoryToWords != null) {
@@ -95,7 +103,7 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 						char[][] words = wordSet.words;
 						for (int k = 0, n = words.length; k < n; k++) {
 							char[] word = words[k];
-							if (word != null && Index.isMatch(key, word, matchRule)) {
+							if (word != null && (prefix == null || CharOperation.prefixEquals(prefix, word, false)) && Index.isMatch(key, word, matchRule)) {
 								if (results == null)
 									results = new HashtableOfObject(13);
 								EntryResult result = (EntryResult) results.get(word);
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.internal.compiler.parser.ScannerHelper;
+import org.eclipse.jdt.internal.compiler.util.HashtableOfObject;
+
+/**
+ * The words of a category table, sorted ignoring case, so that the words which can match a key
+ * are found with a binary search on the prefix they must start with instead of a scan of the table.
+ * <p>
+ * Words are ordered by their lower case characters first, then by their actual characters, so the
+ * words starting with a given prefix (ignoring case) are next to each other.
+ * </p><p>
+ * Only the category tables of a saved index ({@link DiskIndex}) are sorted. The words of a
+ * {@link MemoryIndex} stay in hashed sets which change with every added entry: they are scanned,
+ * and only compared with {@link #candidatePrefix(char[], int)} before the complete match.
+ * </p>
+ */
+class SortedWords {
+
+static final Comparator<char[]> ORDER = new Comparator<char[]>() {
+	public int compare(char[] word1, char[] word2) {
+		int length1 = word1.length, length2 = word2.length;
+		for (int i = 0, min = Math.min(length1, length2); i < min; i++) {
+			char c1 = ScannerHelper.toLowerCase(word1[i]), c2 = ScannerHelper.toLowerCase(word2[i]);
+			if (c1 != c2) return c1 - c2;
+		}
+		if (length1 != length2) return length1 - length2;
+		for (int i = 0; i < length1; i++)
+			if (word1[i] != word2[i]) return word1[i] - word2[i];
+		return 0;
+	}
+};
+
+HashtableOfObject table; // the category table the words come from
+char[][] words;
+
+SortedWords(HashtableOfObject table, char[][] words) {
+	this.table = table;
+	this.words = words;
+}
+/**
+ * Answers the prefix (to compare ignoring case) that all the words matching the given key
+ * start with, or null if the words cannot be pruned.
+ */
+static char[] candidatePrefix(char[] key, int matchRule) {
+	if (key == null || key.length == 0) return null;
+	switch (matchRule & ~SearchPattern.R_CASE_SENSITIVE) {
+		case SearchPattern.R_EXACT_MATCH :
+		case SearchPattern.R_PREFIX_MATCH :
+			return key;
+		case SearchPattern.R_PATTERN_MATCH :
+			for (int i = 0, length = key.length; i < length; i++) {
+				if (key[i] == '*' || key[i] == '?') {
+					if (i == 0) return null;
+					char[] prefix = new char[i];
+					System.arraycopy(key, 0, prefix, 0, i);
+					return prefix;
+				}
+			}
+			return key;
+		case SearchPattern.R_CAMELCASE_MATCH :
+		case SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH :
+			// camel case matches must start with the same character, other matches are prefix matches
+			return new char[] {key[0]};
+	}
+	return null;
+}
+static void sort(char[][] words) {
+	Arrays.sort(words, ORDER);
+}
+private static int comparePrefix(char[] prefix, char[] word) {
+	// answers 0 if the word starts with the prefix ignoring case, otherwise compares them as ORDER does
+	int prefixLength = prefix.length, wordLength = word.length;
+	for (int i = 0, min = Math.min(prefixLength, wordLength); i < min; i++) {
+		char c1 = ScannerHelper.toLowerCase(prefix[i]), c2 = ScannerHelper.toLowerCase(word[i]);
+		if (c1 != c2) return c1 - c2;
+	}
+	return prefixLength <= wordLength ? 0 : 1;
+}
+/**
+ * Answers the index of the first word which starts with the given prefix ignoring case, or of the word which would follow it.
+ */
+int start(char[] prefix) {
+	int low = 0, high = this.words.length;
+	while (low < high) {
+		int middle = (low + high) >>> 1;
+		if (comparePrefix(prefix, this.words[middle]) > 0)
+			low = middle + 1;
+		else
+			high = middle;
+	}
+	return low;
+}
+/**
+ * Answers the index following the last word which starts with the given prefix ignoring case.
+ */
+int end(char[] prefix, int start) {
+	int low = start, high = this.words.length;
+	while (low < high) {
+		int middle = (low + high) >>> 1;
+		if (comparePrefix(prefix, this.words[middle]) >= 0)
+			low = middle + 1;
+		else
+			high = middle;
+	}
+	return low;
+}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,23 +11,70 @@
 package org.eclipse.jdt.internal.core.search;
 
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jdt.core.search.*;
 import org.eclipse.jdt.internal.core.JavaModelManager;
+import org.eclipse.jdt.internal.core.index.EntryResult;
 import org.eclipse.jdt.internal.core.index.FileIndexLocation;
 import org.eclipse.jdt.internal.core.index.Index;
 import org.eclipse.jdt.internal.core.index.IndexLocation;
 import org.eclipse.jdt.internal.core.search.indexing.ReadWriteMonitor;
+import org.eclipse.jdt.internal.core.search.matching.IntersectingPattern;
+import org.eclipse.jdt.internal.core.search.matching.LocalVariablePattern;
 import org.eclipse.jdt.internal.core.search.matching.MatchLocator;
+import org.eclipse.jdt.internal.core.search.matching.OrPattern;
+import org.eclipse.jdt.internal.core.search.matching.TypeParameterPattern;
 import org.eclipse.jdt.internal.core.search.processing.IJob;
 import org.eclipse.jdt.internal.core.search.processing.JobManager;
 import org.eclipse.jdt.internal.core.util.Util;
 
 public class PatternSearchJob implements IJob {
 
+/**
+ * Name of the JVM parameter to specify how many indexes a search job may query at the same time.
+ * The default value of 1 queries the indexes one after another on the calling thread.
+ * The pool querying the indexes is sized with the value of the first concurrent search.
+ */
+public static final String INDEX_QUERY_PARALLELISM = "jdt.search.indexQueryParallelism"; //$NON-NLS-1$
+public static int PARALLELISM = Integer.getInteger(INDEX_QUERY_PARALLELISM, 1).intValue();
+private static ForkJoinPool QueryPool; // shared by all jobs, created on first concurrent search
+
+/*
+ * The entries read from one index by a query task: the matching words and, for each word,
+ * the names of the documents which contain it.
+ */
+static class IndexQueryResult {
+	Index index;
+	int count;
+	char[][] words;
+	String[][] documentNames;
+	boolean isComplete = COMPLETE;
+
+	IndexQueryResult(Index index) {
+		this.index = index;
+	}
+	void add(char[] word, String[] names) {
+		if (this.words == null) {
+			this.words = new char[5][];
+			this.documentNames = new String[5][];
+		} else if (this.count == this.words.length) {
+			System.arraycopy(this.words, 0, this.words = new char[this.count * 2][], 0, this.count);
+			System.arraycopy(this.documentNames, 0, this.documentNames = new String[this.count * 2][], 0, this.count);
+		}
+		this.words[this.count] = word;
+		this.documentNames[this.count++] = names;
+	}
+}
+
 protected SearchPattern pattern;
 protected IJavaSearchScope scope;
 protected SearchParticipant participant;
@@ -61,11 +108,15 @@ public boolean execute(IProgressMonitor progressMonitor) {
 		int max = indexes.length;
 		if (progressMonitor != null)
 			progressMonitor.beginTask("", max); //$NON-NLS-1$
-		for (int i = 0; i < max; i++) {
-			isComplete &= search(indexes[i], progressMonitor);
-			if (progressMonitor != null) {
-				if (progressMonitor.isCanceled()) throw new OperationCanceledException();
-				progressMonitor.worked(1);
+		if (max > 1 && PARALLELISM > 1 && canQueryConcurrently()) {
+			isComplete = searchConcurrently(indexes, progressMonitor);
+		} else {
+			for (int i = 0; i < max; i++) {
+				isComplete &= search(indexes[i], progressMonitor);
+				if (progressMonitor != null) {
+					if (progressMonitor.isCanceled()) throw new OperationCanceledException();
+					progressMonitor.worked(1);
+				}
 			}
 		}
 		if (JobManager.VERBOSE)
@@ -95,6 +146,28 @@ public Index[] getIndexes(IProgressMonitor progressMonitor) {
 	this.areIndexesReady = indexes.length == length;
 	return indexes;
 }
+/*
+ * Answers whether the indexes can be queried on the shared pool. Only the patterns which rely on the default
+ * SearchPattern#findIndexMatches() can be split between a concurrent read of the index entries and an ordered
+ * report of the matches, since the other ones keep some query state in the pattern itself.
+ * Note that the pattern itself is tested: asking an intersecting pattern for its current pattern moves its query cursor.
+ */
+protected boolean canQueryConcurrently() {
+	return !(this.pattern instanceof OrPattern
+		|| this.pattern instanceof IntersectingPattern
+		|| this.pattern instanceof LocalVariablePattern
+		|| this.pattern instanceof TypeParameterPattern);
+}
+/*
+ * Answers the pool shared by the concurrent searches. Its size is the PARALLELISM of the first concurrent search
+ * and stays the same for the session: the pool is never shut down, since other searches may be submitting to it.
+ * A later change of PARALLELISM still decides whether the indexes are queried concurrently.
+ */
+private static synchronized ForkJoinPool getQueryPool() {
+	if (QueryPool == null)
+		QueryPool = new ForkJoinPool(PARALLELISM);
+	return QueryPool;
+}
 public String getJobFamily() {
 	return ""; //$NON-NLS-1$
 }
@@ -117,6 +190,116 @@ public boolean search(Index index, IProgressMonitor progressMonitor) {
 		monitor.exitRead(); // finished reading
 	}
 }
+/*
+ * Reads the matching entries of the given index and the names of their documents.
+ * Runs on a thread of the query pool, so nothing is reported to the requestor from here.
+ */
+IndexQueryResult query(Index index, IProgressMonitor progressMonitor) {
+	IndexQueryResult result = new IndexQueryResult(index);
+	ReadWriteMonitor monitor = index.monitor;
+	if (monitor == null) return result; // index got deleted since acquired
+	try {
+		monitor.enterRead(); // ask permission to read
+		index.startQuery();
+		try {
+			SearchPattern currentPattern = this.pattern.currentPattern();
+			EntryResult[] entries = currentPattern.queryIn(index);
+			if (entries == null) return result;
+
+			SearchPattern decodedResult = currentPattern.getBlankPattern();
+			for (int i = 0, l = entries.length; i < l; i++) {
+				if (progressMonitor != null && progressMonitor.isCanceled()) throw new OperationCanceledException();
+
+				EntryResult entry = entries[i];
+				decodedResult.decodeIndexKey(entry.getWord());
+				if (currentPattern.matchesDecodedKey(decodedResult))
+					result.add(entry.getWord(), entry.getDocumentNames(index));
+			}
+		} finally {
+			index.stopQuery();
+		}
+	} catch (IOException e) {
+		if (e instanceof java.io.EOFException)
+			e.printStackTrace();
+		result.isComplete = FAILED;
+	} finally {
+		monitor.exitRead(); // finished reading
+	}
+	return result;
+}
+/*
+ * Queries the given indexes on the shared pool, then reports the matches of each index in the order of the indexes,
+ * so the requestor sees the same sequence of matches as with a sequential search.
+ */
+protected boolean searchConcurrently(final Index[] indexes, final IProgressMonitor progressMonitor) {
+	long start = System.currentTimeMillis();
+	int length = indexes.length;
+	ForkJoinPool pool = getQueryPool();
+	@SuppressWarnings("unchecked")
+	ForkJoinTask<IndexQueryResult>[] tasks = new ForkJoinTask[length];
+	for (int i = 0; i < length; i++) {
+		final Index index = indexes[i];
+		if (index != null) {
+			tasks[i] = pool.submit(new Callable<IndexQueryResult>() {
+				public IndexQueryResult call() {
+					return query(index, progressMonitor);
+				}
+			});
+		}
+	}
+
+	boolean isComplete = COMPLETE;
+	try {
+		SearchPattern currentPattern = this.pattern.currentPattern();
+		for (int i = 0; i < length; i++) {
+			if (tasks[i] != null) {
+				IndexQueryResult result = waitFor(tasks[i], progressMonitor);
+				isComplete &= result.isComplete;
+				if (result.count > 0) {
+					SearchPattern decodedResult = currentPattern.getBlankPattern();
+					String containerPath = result.index.containerPath;
+					char separator = result.index.separator;
+					for (int j = 0; j < result.count; j++) {
+						decodedResult.decodeIndexKey(result.words[j]);
+						String[] names = result.documentNames[j];
+						for (int k = 0, n = names.length; k < n; k++)
+							currentPattern.acceptMatch(names[k], containerPath, separator, decodedResult, this.requestor, this.participant, this.scope, progressMonitor);
+					}
+				}
+			}
+			if (progressMonitor != null) {
+				if (progressMonitor.isCanceled()) throw new OperationCanceledException();
+				progressMonitor.worked(1);
+			}
+		}
+	} finally {
+		// stop the remaining queries if the search was cancelled or the requestor asked to stop
+		for (int i = 0; i < length; i++)
+			if (tasks[i] != null)
+				tasks[i].cancel(false);
+	}
+	this.executionTime += System.currentTimeMillis() - start;
+	return isComplete;
+}
+private IndexQueryResult waitFor(ForkJoinTask<IndexQueryResult> task, IProgressMonitor progressMonitor) {
+	while (true) {
+		if (progressMonitor != null && progressMonitor.isCanceled()) throw new OperationCanceledException();
+		try {
+			return task.get(50, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			// check for cancellation again
+		} catch (InterruptedException e) {
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+	}
+}
 public String toString() {
 	return "searching " + this.pattern.toString(); //$NON-NLS-1$
 }
@@ -22,6 +22,9 @@ SimpleSet indexes = new SimpleSet(5);
 public SubTypeSearchJob(SearchPattern pattern, SearchParticipant participant, IJavaSearchScope scope, IndexQueryRequestor requestor) {
 	super(pattern, participant, scope, requestor);
 }
+protected boolean canQueryConcurrently() {
+	return false; // the indexes stay in query mode until the job's end
+}
 public void finished() {
 	Object[] values = this.indexes.values;
 	for (int i = 0, l = values.length; i < l; i++)
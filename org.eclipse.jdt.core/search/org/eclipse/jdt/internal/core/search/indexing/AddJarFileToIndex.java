@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,14 @@ package org.eclipse.jdt.internal.core.search.indexing;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipError;
 import java.util.zip.ZipFile;
@@ -22,6 +28,7 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.compiler.InvalidInputException;
 import org.eclipse.jdt.core.search.IJavaSearchScope;
@@ -33,6 +40,7 @@ import org.eclipse.jdt.internal.compiler.parser.TerminalTokens;
 import org.eclipse.jdt.internal.compiler.util.SimpleLookupTable;
 import org.eclipse.jdt.internal.compiler.util.SuffixConstants;
 import org.eclipse.jdt.internal.compiler.util.Util;
+import org.eclipse.jdt.internal.compiler.util.ZipFilePool;
 import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.index.Index;
 import org.eclipse.jdt.internal.core.index.IndexLocation;
@@ -40,9 +48,64 @@ import org.eclipse.jdt.internal.core.search.JavaSearchDocument;
 import org.eclipse.jdt.internal.core.search.processing.JobManager;
 
 @SuppressWarnings("rawtypes")
-class AddJarFileToIndex extends IndexRequest {
+public class AddJarFileToIndex extends IndexRequest {
 
 	private static final char JAR_SEPARATOR = IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR.charAt(0);
+
+	/**
+	 * Name of the JVM parameter to specify how many threads may index the class files of a jar at the same time.
+	 * The default value of 1 indexes the class files one after another on the indexing thread.
+	 */
+	public static final String INDEXING_THREADS_PROPERTY = "jdt.search.jarIndexingThreads"; //$NON-NLS-1$
+	public static int INDEXING_THREADS = Integer.getInteger(INDEXING_THREADS_PROPERTY, 1).intValue();
+	private static ForkJoinPool IndexingPool; // shared by all jobs, created on first concurrent indexing
+
+	/*
+	 * A class file of the jar indexed on the shared pool. Its index entries are kept until the indexing thread
+	 * adds them to the index, so that only one thread writes into the index.
+	 */
+	static class EntryDocument extends JavaSearchDocument {
+		char[][] categories = new char[20][];
+		char[][] keys = new char[20][];
+		int entryCount = 0;
+
+		EntryDocument(ZipEntry zipEntry, IPath zipFilePath, byte[] contents, SearchParticipant participant) {
+			super(zipEntry, zipFilePath, contents, participant);
+		}
+		public void addIndexEntry(char[] category, char[] key) {
+			if (this.entryCount == this.keys.length) {
+				System.arraycopy(this.categories, 0, this.categories = new char[this.entryCount * 2][], 0, this.entryCount);
+				System.arraycopy(this.keys, 0, this.keys = new char[this.entryCount * 2][], 0, this.entryCount);
+			}
+			this.categories[this.entryCount] = category;
+			this.keys[this.entryCount++] = key;
+		}
+		void addIndexEntries(Index index) {
+			setIndex(index);
+			try {
+				super.removeAllIndexEntries(); // in case the document was already indexed
+				for (int i = 0; i < this.entryCount; i++)
+					super.addIndexEntry(this.categories[i], this.keys[i]);
+			} finally {
+				setIndex(null);
+			}
+		}
+		void indexContents() {
+			new BinaryIndexer(this).indexDocument();
+			this.byteContents = null; // release the contents while the entries wait to be added
+		}
+		public void removeAllIndexEntries() {
+			this.entryCount = 0;
+		}
+	}
+
+	/*
+	 * A class file of the jar being read and indexed.
+	 */
+	static class PendingEntry {
+		Future<EntryDocument> document;
+	}
+
 	IFile resource;
 	Scanner scanner;
 	private IndexLocation indexFileURL;
@@ -86,6 +149,12 @@ class AddJarFileToIndex extends IndexRequest {
 
 		if (this.isCancelled || progressMonitor != null && progressMonitor.isCanceled()) return true;
 
+		// computing the checksum of the library for the shared indexes is only worth it when it has no usable index yet
+		if (this.indexFileURL == null && IndexManager.SHARED_INDEXES_FOLDER != null && !this.manager.hasValidIndex(this.containerPath)) {
+			IPath location = this.resource != null ? this.resource.getLocation() : this.containerPath;
+			if (location != null)
+				this.indexFileURL = this.manager.getSharedIndexLocation(this.containerPath, location.toFile());
+		}
 		if (hasPreBuiltIndex()) {
 			boolean added = this.manager.addIndex(this.containerPath, this.indexFileURL);
 			if (added) return true;	
@@ -126,7 +195,7 @@ class AddJarFileToIndex extends IndexRequest {
 					URI location = this.resource.getLocationURI();
 					if (location == null) return false;
 					if (JavaModelManager.ZIP_ACCESS_VERBOSE)
-						System.out.println("(" + Thread.currentThread() + ") [AddJarFileToIndex.execute()] Creating ZipFile on " + location.getPath()); //$NON-NLS-1$	//$NON-NLS-2$
+						System.out.println("(" + Thread.currentThread() + ") [AddJarFileToIndex.execute()] Acquiring ZipFile on " + location.getPath()); //$NON-NLS-1$	//$NON-NLS-2$
 					File file = null;
 					try {
 						file = org.eclipse.jdt.internal.core.util.Util.toLocalFile(location, progressMonitor);
@@ -141,14 +210,14 @@ class AddJarFileToIndex extends IndexRequest {
 							org.eclipse.jdt.internal.core.util.Util.verbose("-> failed to index " + location.getPath() + " because the file could not be fetched"); //$NON-NLS-1$ //$NON-NLS-2$
 						return false;
 					}
-					zip = new ZipFile(file);
+					zip = ZipFilePool.getShared().acquire(file);
 					zipFilePath = (Path) this.resource.getFullPath().makeRelative();
 					// absolute path relative to the workspace
 				} else {
 					if (JavaModelManager.ZIP_ACCESS_VERBOSE)
-						System.out.println("(" + Thread.currentThread() + ") [AddJarFileToIndex.execute()] Creating ZipFile on " + this.containerPath); //$NON-NLS-1$	//$NON-NLS-2$
+						System.out.println("(" + Thread.currentThread() + ") [AddJarFileToIndex.execute()] Acquiring ZipFile on " + this.containerPath); //$NON-NLS-1$	//$NON-NLS-2$
 					// external file -> it is ok to use toFile()
-					zip = new ZipFile(this.containerPath.toFile());
+					zip = ZipFilePool.getShared().acquire(this.containerPath.toFile());
 					zipFilePath = (Path) this.containerPath;
 					// path is already canonical since coming from a library classpath entry
 				}
@@ -176,10 +245,9 @@ class AddJarFileToIndex extends IndexRequest {
 					SimpleLookupTable indexedFileNames = new SimpleLookupTable(max == 0 ? 33 : max + 11);
 					for (int i = 0; i < max; i++)
 						indexedFileNames.put(paths[i], DELETED);
-					for (Enumeration e = zip.entries(); e.hasMoreElements();) {
-						// iterate each entry to index it
-						ZipEntry ze = (ZipEntry) e.nextElement();
-						String zipEntryName = ze.getName();
+					String[] zipEntryNames = ZipFilePool.getShared().getEntryNames(zip);
+					for (int i = 0, length = zipEntryNames.length; i < length; i++) {
+						String zipEntryName = zipEntryNames[i];
 						if (Util.isClassFileName(zipEntryName) && isValidPackageNameForClass(zipEntryName))
 								// the class file may not be there if the package name is not valid
 							indexedFileNames.put(zipEntryName, EXISTS);
@@ -218,22 +286,27 @@ class AddJarFileToIndex extends IndexRequest {
 				if ((indexLocation = index.getIndexLocation()) != null) {
 					indexPath = new Path(indexLocation.getCanonicalFilePath());
 				}
-				for (Enumeration e = zip.entries(); e.hasMoreElements();) {
-					if (this.isCancelled) {
-						if (JobManager.VERBOSE)
-							org.eclipse.jdt.internal.core.util.Util.verbose("-> indexing of " + zip.getName() + " has been cancelled"); //$NON-NLS-1$ //$NON-NLS-2$
+				if (INDEXING_THREADS > 1) {
+					if (!indexEntriesConcurrently(zip, zipFilePath, index, participant))
 						return false;
-					}
+				} else {
+					for (Enumeration e = zip.entries(); e.hasMoreElements();) {
+						if (this.isCancelled) {
+							if (JobManager.VERBOSE)
+								org.eclipse.jdt.internal.core.util.Util.verbose("-> indexing of " + zip.getName() + " has been cancelled"); //$NON-NLS-1$ //$NON-NLS-2$
+							return false;
+						}
 
-					// iterate each entry to index it
-					ZipEntry ze = (ZipEntry) e.nextElement();
-					String zipEntryName = ze.getName();
-					if (Util.isClassFileName(zipEntryName) && 
-							isValidPackageNameForClass(zipEntryName)) {
-						// index only classes coming from valid packages - https://bugs.eclipse.org/bugs/show_bug.cgi?id=293861
-						final byte[] classFileBytes = org.eclipse.jdt.internal.compiler.util.Util.getZipEntryByteContent(ze, zip);
-						JavaSearchDocument entryDocument = new JavaSearchDocument(ze, zipFilePath, classFileBytes, participant);
-						this.manager.indexDocument(entryDocument, participant, index, indexPath);
+						// iterate each entry to index it
+						ZipEntry ze = (ZipEntry) e.nextElement();
+						String zipEntryName = ze.getName();
+						if (Util.isClassFileName(zipEntryName) && 
+								isValidPackageNameForClass(zipEntryName)) {
+							// index only classes coming from valid packages - https://bugs.eclipse.org/bugs/show_bug.cgi?id=293861
+							final byte[] classFileBytes = org.eclipse.jdt.internal.compiler.util.Util.getZipEntryByteContent(ze, zip);
+							JavaSearchDocument entryDocument = new JavaSearchDocument(ze, zipFilePath, classFileBytes, participant);
+							this.manager.indexDocument(entryDocument, participant, index, indexPath);
+						}
 					}
 				}
 				if(this.forceIndexUpdate) {
@@ -249,8 +322,8 @@ class AddJarFileToIndex extends IndexRequest {
 			} finally {
 				if (zip != null) {
 					if (JavaModelManager.ZIP_ACCESS_VERBOSE)
-						System.out.println("(" + Thread.currentThread() + ") [AddJarFileToIndex.execute()] Closing ZipFile " + zip); //$NON-NLS-1$	//$NON-NLS-2$
-					zip.close();
+						System.out.println("(" + Thread.currentThread() + ") [AddJarFileToIndex.execute()] Releasing ZipFile " + zip); //$NON-NLS-1$	//$NON-NLS-2$
+					ZipFilePool.getShared().release(zip);
 				}
 				monitor.exitWrite(); // free write lock
 			}
@@ -271,11 +344,87 @@ class AddJarFileToIndex extends IndexRequest {
 		}
 		return true;
 	}
+	/*
+	 * Adds the index entries of the given pending class file, once it has been indexed.
+	 */
+	private void addIndexEntries(PendingEntry entry, Index index) throws IOException {
+		EntryDocument document;
+		try {
+			document = entry.document.get();
+		} catch (InterruptedException e) {
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		} finally {
+			entry.document = null;
+		}
+		document.addIndexEntries(index);
+	}
+	private static synchronized ForkJoinPool getIndexingPool() {
+		if (IndexingPool == null)
+			IndexingPool = new ForkJoinPool(INDEXING_THREADS);
+		return IndexingPool;
+	}
 	public String getJobFamily() {
 		if (this.resource != null)
 			return super.getJobFamily();
 		return this.containerPath.toOSString(); // external jar
 	}	
+	/*
+	 * Reads and indexes the class files of the given jar on the shared pool, and adds their index entries
+	 * to the index in the order of the jar entries. At most a bounded number of class files is pending:
+	 * the next one is submitted once the index entries of the eldest one were added.
+	 * Answers false if the job was cancelled.
+	 */
+	private boolean indexEntriesConcurrently(final ZipFile zip, final IPath zipFilePath, Index index, final SearchParticipant participant) throws IOException {
+		ForkJoinPool pool = getIndexingPool();
+		PendingEntry[] pendingEntries = new PendingEntry[INDEXING_THREADS * 4];
+		int capacity = pendingEntries.length;
+		int submitted = 0, added = 0;
+		try {
+			for (Enumeration e = zip.entries(); e.hasMoreElements();) {
+				if (this.isCancelled) {
+					if (JobManager.VERBOSE)
+						org.eclipse.jdt.internal.core.util.Util.verbose("-> indexing of " + zip.getName() + " has been cancelled"); //$NON-NLS-1$ //$NON-NLS-2$
+					return false;
+				}
+				final ZipEntry ze = (ZipEntry) e.nextElement();
+				String zipEntryName = ze.getName();
+				if (!Util.isClassFileName(zipEntryName) || !isValidPackageNameForClass(zipEntryName))
+					continue; // index only classes coming from valid packages - https://bugs.eclipse.org/bugs/show_bug.cgi?id=293861
+
+				// add the entries of the class files indexed so far, waiting for the eldest one if too many are pending
+				while (added < submitted && (submitted - added == capacity || pendingEntries[added % capacity].document.isDone()))
+					addIndexEntries(pendingEntries[added++ % capacity], index);
+
+				PendingEntry entry = pendingEntries[submitted % capacity];
+				if (entry == null)
+					entry = pendingEntries[submitted % capacity] = new PendingEntry();
+				entry.document = pool.submit(new Callable<EntryDocument>() {
+					public EntryDocument call() throws IOException {
+						EntryDocument document = new EntryDocument(ze, zipFilePath, readEntry(zip, ze), participant);
+						document.indexContents();
+						return document;
+					}
+				});
+				submitted++;
+			}
+			while (added < submitted)
+				addIndexEntries(pendingEntries[added++ % capacity], index);
+			return true;
+		} finally {
+			for (int i = 0; i < capacity; i++)
+				if (pendingEntries[i] != null && pendingEntries[i].document != null)
+					pendingEntries[i].document.cancel(false);
+		}
+	}
 	private boolean isIdentifier() throws InvalidInputException {
 		switch(this.scanner.scanIdentifier()) {
 			// assert and enum will not be recognized as java identifiers 
@@ -313,6 +462,32 @@ class AddJarFileToIndex extends IndexRequest {
 		}
 		return false;
 	}
+	/*
+	 * Reads the contents of the given entry into an array of their exact length, the readers of class files
+	 * relying on it (e.g. an empty entry must not be read as another class file).
+	 */
+	static byte[] readEntry(ZipFile zip, ZipEntry entry) throws IOException {
+		int size = (int) entry.getSize();
+		if (size < 0)
+			return Util.getZipEntryByteContent(entry, zip);
+		if (size == 0)
+			return new byte[0];
+		byte[] buffer = new byte[size];
+		InputStream stream = zip.getInputStream(entry);
+		if (stream == null) throw new IOException("Invalid zip entry name : " + entry.getName()); //$NON-NLS-1$
+		try {
+			int read = 0;
+			while (read < size) {
+				int count = stream.read(buffer, read, size - read);
+				if (count < 0)
+					return Arrays.copyOf(buffer, read); // truncated entry
+				read += count;
+			}
+		} finally {
+			stream.close();
+		}
+		return buffer;
+	}
 	protected Integer updatedIndexState() {
 
 		Integer updateState = null;
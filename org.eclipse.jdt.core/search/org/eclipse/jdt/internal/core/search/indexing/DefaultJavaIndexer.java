@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2013 IBM Corporation and others.
+ * Copyright (c) 2011, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,8 +11,12 @@
 package org.eclipse.jdt.internal.core.search.indexing;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Enumeration;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -30,7 +34,80 @@ import org.eclipse.jdt.internal.core.search.JavaSearchDocument;
 @SuppressWarnings("rawtypes")
 public class DefaultJavaIndexer {
 	private static final char JAR_SEPARATOR = IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR.charAt(0);
-	
+
+	// the index of a jar in a bundle is named after the checksum of the jar content
+	public static final String BUNDLE_INDEX_EXTENSION = ".index"; //$NON-NLS-1$
+	private static final String CHECKSUM_ALGORITHM = "SHA-1"; //$NON-NLS-1$
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+	/**
+	 * Answers the checksum of the content of the given file, as an hexadecimal string.
+	 */
+	public static String checksum(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every platform has SHA-1
+		}
+		InputStream stream = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = stream.read(buffer)) != -1)
+				digest.update(buffer, 0, read);
+		} finally {
+			stream.close();
+		}
+		byte[] bytes = digest.digest();
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0, length = bytes.length; i < length; i++) {
+			hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+			hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * Answers the name of the index of the given jar in an index bundle.
+	 */
+	public static String getBundleIndexFileName(File jar) throws IOException {
+		return checksum(jar) + BUNDLE_INDEX_EXTENSION;
+	}
+
+	/*
+	 * Generates the index of each given jar into the given folder, unless the folder already has a readable
+	 * index for the same jar content.
+	 */
+	public void generateIndexBundle(String[] pathsToJars, String pathToBundleFolder) throws IOException {
+		File folder = new File(pathToBundleFolder);
+		if (!folder.isDirectory() && !folder.mkdirs())
+			throw new IOException("Could not create " + pathToBundleFolder); //$NON-NLS-1$
+		for (int i = 0, length = pathsToJars.length; i < length; i++) {
+			File jar = new File(pathsToJars[i]);
+			if (!jar.exists())
+				throw new FileNotFoundException(pathsToJars[i] + " not found"); //$NON-NLS-1$
+			File indexFile = new File(folder, getBundleIndexFileName(jar));
+			if (indexFile.exists()) {
+				try {
+					new Index(new FileIndexLocation(indexFile), pathsToJars[i], true /*reuse index file*/);
+					continue; // already in the bundle, e.g. the same jar under another name
+				} catch (IOException e) {
+					// written by an incompatible version, generate it again
+				}
+			}
+			// generate a temporary file first, so that clients sharing the folder never read a partial index
+			File tempFile = File.createTempFile(indexFile.getName(), ".part", folder); //$NON-NLS-1$
+			try {
+				generateIndexForJar(pathsToJars[i], tempFile.getPath());
+				if (!tempFile.renameTo(indexFile) && !(indexFile.delete() && tempFile.renameTo(indexFile)))
+					throw new IOException("Could not write " + indexFile); //$NON-NLS-1$
+			} finally {
+				tempFile.delete();
+			}
+		}
+	}
+
 	public void generateIndexForJar(String pathToJar, String pathToIndexFile) throws IOException {
 		File f = new File(pathToJar);
 		if (!f.exists()) {
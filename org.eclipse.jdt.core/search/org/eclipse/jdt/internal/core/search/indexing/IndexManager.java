@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,7 @@ import org.eclipse.jdt.internal.compiler.util.SimpleSet;
 import org.eclipse.jdt.internal.core.*;
 import org.eclipse.jdt.internal.core.index.*;
 import org.eclipse.jdt.internal.core.search.BasicSearchEngine;
+import org.eclipse.jdt.internal.core.search.JavaSearchParticipant;
 import org.eclipse.jdt.internal.core.search.PatternSearchJob;
 import org.eclipse.jdt.internal.core.search.processing.IJob;
 import org.eclipse.jdt.internal.core.search.processing.JobManager;
@@ -72,6 +73,17 @@ public class IndexManager extends JobManager implements IIndexConstants {
 	public static final String MANAGE_PRODUCT_INDEXES_PROPERTY = "jdt.core.manageProductIndexes"; //$NON-NLS-1$
 	private static final boolean IS_MANAGING_PRODUCT_INDEXES_PROPERTY = Boolean.getBoolean(MANAGE_PRODUCT_INDEXES_PROPERTY);
 
+	/**
+	 * Name of the JVM parameter to specify the folder of an index bundle (see JavaIndexer#generateIndexBundle).
+	 * A library whose checksum matches an index of the bundle uses this index instead of being indexed.
+	 */
+	public static final String SHARED_INDEXES_PROPERTY = "jdt.search.sharedIndexes"; //$NON-NLS-1$
+	public static String SHARED_INDEXES_FOLDER = System.getProperty(SHARED_INDEXES_PROPERTY);
+	// key = path|last modified|length of a library, value = checksum of its content
+	private Map<String, String> libraryChecksums = new HashMap<String, String>();
+	// shared index files which could not be read, the libraries are indexed locally instead
+	private Set<File> unusableSharedIndexes = new HashSet<File>();
+
 	// Debug
 	public static boolean DEBUG = false;
 
@@ -201,6 +213,16 @@ private void deleteIndexFiles(SimpleSet pathsToKeep) {
 
 	for (int i = 0, l = indexesFiles.length; i < l; i++) {
 		String fileName = indexesFiles[i].getAbsolutePath();
+		int segmentIndex = fileName.lastIndexOf(Index.SEGMENT_EXT);
+		if (segmentIndex != -1) { // segments go with their index file
+			File indexFile = new File(fileName.substring(0, segmentIndex));
+			if (pathsToKeep == null || !pathsToKeep.includes(new FileIndexLocation(indexFile))) {
+				if (VERBOSE || DEBUG)
+					Util.verbose("Deleting index segment " + indexesFiles[i]); //$NON-NLS-1$
+				indexesFiles[i].delete();
+			}
+			continue;
+		}
 		if (pathsToKeep != null && pathsToKeep.includes(new FileIndexLocation(indexesFiles[i]))) continue;
 		String suffix = ".index"; //$NON-NLS-1$
 		if (fileName.regionMatches(true, fileName.length() - suffix.length(), suffix, 0, suffix.length())) {
@@ -310,7 +332,7 @@ public synchronized Index getIndex(IPath containerPath, IndexLocation indexLocat
 				// supposed to be in reuse state but error in the index file, so reindex.
 				if (VERBOSE)
 					Util.verbose("-> cannot reuse given index: "+indexLocation+" path: "+containerPathString); //$NON-NLS-1$ //$NON-NLS-2$
-				if(!IS_MANAGING_PRODUCT_INDEXES_PROPERTY) {
+				if(!IS_MANAGING_PRODUCT_INDEXES_PROPERTY || isSharedIndex(indexLocation)) { // never write into a shared index
 					this.indexLocations.put(containerPath, null);
 					indexLocation = computeIndexLocation(containerPath);
 					rebuildIndex(indexLocation, containerPath);
@@ -376,6 +398,7 @@ public Index[] getIndexes(IndexLocation[] locations, IProgressMonitor progressMo
 						if (DEBUG)
 							Util.verbose("Change in javaLikeNames - removing index file for " + containerPath ); //$NON-NLS-1$
 						indexFile.delete();
+						Index.deleteSegments(indexFile);
 					}
 					this.indexes.put(indexLocation, null);
 					rebuildIndex(indexLocation, containerPath);
@@ -502,6 +525,8 @@ public void indexDocument(SearchDocument searchDocument, SearchParticipant searc
 	try {
 		searchDocument.setIndex(index);
 		searchParticipant.indexDocument(searchDocument, indexLocation);
+		if (searchParticipant instanceof JavaSearchParticipant)
+			index.addDocument(index.containerRelativePath(searchDocument.getPath())); // indexed, even if it has no entries
 	} finally {
 		searchDocument.setIndex(null);
 	}
@@ -593,6 +618,56 @@ public void indexLibrary(IPath path, IProject requestingProject, URL indexURL, f
 		request(request);
 }
 
+/**
+ * Answers whether the given library has an index saved by a previous indexing or reused from a bundle.
+ * This index is removed when the library changes, so it can be used as is.
+ */
+synchronized boolean hasValidIndex(IPath containerPath) {
+	IndexLocation indexLocation = computeIndexLocation(containerPath);
+	Object state = getIndexStates().get(indexLocation);
+	return (state == SAVED_STATE || state == REUSE_STATE) && indexLocation.exists();
+}
+/**
+ * Answers the location of the index of the given library in the shared index bundle, or <code>null</code> if the bundle
+ * has no index for the current content of the library. The checksum of a library is only computed again when it changes.
+ */
+IndexLocation getSharedIndexLocation(IPath containerPath, File library) {
+	String folder = SHARED_INDEXES_FOLDER;
+	if (folder == null || !library.isFile()) return null;
+	String key = library.getPath() + '|' + library.lastModified() + '|' + library.length();
+	String checksum;
+	synchronized (this.libraryChecksums) {
+		checksum = this.libraryChecksums.get(key);
+	}
+	if (checksum == null) {
+		try {
+			checksum = DefaultJavaIndexer.checksum(library);
+		} catch (IOException e) {
+			return null;
+		}
+		synchronized (this.libraryChecksums) {
+			this.libraryChecksums.put(key, checksum);
+		}
+	}
+	File indexFile = new File(folder, checksum + DefaultJavaIndexer.BUNDLE_INDEX_EXTENSION);
+	synchronized (this) {
+		if (indexFile.isFile() && !this.unusableSharedIndexes.contains(indexFile)) {
+			if (VERBOSE)
+				Util.verbose("-> shared index " + indexFile + " for " + containerPath); //$NON-NLS-1$ //$NON-NLS-2$
+			return (IndexLocation) getIndexStates().getKey(new FileIndexLocation(indexFile));
+		}
+		// the library changed since it used a shared index: forget it
+		IndexLocation indexLocation = (IndexLocation) this.indexLocations.get(containerPath);
+		if (indexLocation != null && getIndexStates().get(indexLocation) == REUSE_STATE && isSharedIndex(indexLocation))
+			removeIndex(containerPath);
+	}
+	return null;
+}
+private boolean isSharedIndex(IndexLocation indexLocation) {
+	File indexFile = indexLocation.getIndexFile();
+	return SHARED_INDEXES_FOLDER != null && indexFile != null && new File(SHARED_INDEXES_FOLDER).equals(indexFile.getParentFile());
+}
+
 synchronized boolean addIndex(IPath containerPath, IndexLocation indexFile) {
 	getIndexStates().put(indexFile, REUSE_STATE);
 	this.indexLocations.put(containerPath, indexFile);
@@ -600,6 +675,8 @@ synchronized boolean addIndex(IPath containerPath, IndexLocation indexFile) {
 	if (index == null) {
 		indexFile.close();
 		this.indexLocations.put(containerPath, null);
+		if (isSharedIndex(indexFile))
+			this.unusableSharedIndexes.add(indexFile.getIndexFile());
 		return false;
 	}
 	writeIndexMapFile();
@@ -628,6 +705,15 @@ public synchronized void jobWasCancelled(IPath containerPath) {
 	}
 	updateIndexState(indexLocation, UNKNOWN_STATE);
 }
+/**
+ * The index requests of a container update the index of this container, so they run concurrently
+ * with the requests of other containers in multi-worker mode.
+ */
+protected Object getJobKey(IJob job) {
+	if (job instanceof IndexRequest)
+		return ((IndexRequest) job).containerPath;
+	return null;
+}
 /**
  * Advance to the next available job, once the current one has been completed.
  * Note: clients awaiting until the job count is zero are still waiting at this point.
@@ -751,6 +837,7 @@ public synchronized void removeIndex(IPath containerPath) {
 		if (DEBUG)
 			Util.verbose("removing index file " + indexFile); //$NON-NLS-1$
 		indexFile.delete();
+		Index.deleteSegments(indexFile);
 	}
 	this.indexes.removeKey(indexLocation);
 	if (IS_MANAGING_PRODUCT_INDEXES_PROPERTY) {
@@ -785,6 +872,8 @@ public synchronized void removeIndexPath(IPath path) {
 				if (DEBUG)
 					Util.verbose("removing index file " + indexLocation); //$NON-NLS-1$
 				indexLocation.delete();
+				if (indexLocation.getIndexFile() != null)
+					Index.deleteSegments(indexLocation.getIndexFile());
 			}
 		} else {
 			max--;
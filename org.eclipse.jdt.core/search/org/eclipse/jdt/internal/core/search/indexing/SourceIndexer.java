@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -52,6 +52,7 @@ import org.eclipse.jdt.internal.core.jdom.CompilationUnit;
 import org.eclipse.jdt.internal.core.search.matching.JavaSearchNameEnvironment;
 import org.eclipse.jdt.internal.core.search.matching.MethodPattern;
 import org.eclipse.jdt.internal.core.search.processing.JobManager;
+import org.eclipse.jdt.internal.core.util.Util;
 
 /**
  * A SourceIndexer indexes java files using a java parser. The following items are indexed:
@@ -66,6 +67,10 @@ import org.eclipse.jdt.internal.core.search.processing.JobManager;
  * - Fields;<br>
  * - Types;<br>
  * - Constructors.
+ * <p>
+ * When {@link #STREAMING} is set, the declarations and references are read from the tokens of the
+ * source by a {@link StreamingIndexer}, the parser being used only for the sources it does not handle.
+ * </p>
  */
 public class SourceIndexer extends AbstractIndexer implements ITypeRequestor, SuffixConstants {
 
@@ -77,6 +82,17 @@ public class SourceIndexer extends AbstractIndexer implements ITypeRequestor, Su
 	private CompilationUnitDeclaration cud;
 	private static final boolean DEBUG = false;
 	
+	/**
+	 * System property enabling the indexing of the sources from their tokens (see {@link StreamingIndexer}).
+	 */
+	public static final String STREAMING_PROPERTY = "jdt.search.streamingSourceIndexer"; //$NON-NLS-1$
+	public static boolean STREAMING = Boolean.getBoolean(STREAMING_PROPERTY);
+
+	// the entries reported by the streaming indexer, added to the document once it succeeded
+	private char[][] bufferedCategories;
+	private char[][] bufferedKeys;
+	private int bufferedCount = -1; // not buffering
+	
 	public SourceIndexer(SearchDocument document) {
 		super(document);
 		this.requestor = new SourceIndexerRequestor(this);
@@ -104,6 +120,8 @@ public class SourceIndexer extends AbstractIndexer implements ITypeRequestor, Su
 		}
 		if (source == null || name == null) return; // could not retrieve document info (e.g. resource was discarded)
 		this.compilationUnit = new CompilationUnit(source, name);
+		if (STREAMING && indexTokens(parser, documentPath, source))
+			return;
 		try {
 			if (parser.parseCompilationUnit(this.compilationUnit, true, null).hasFunctionalTypes())
 				this.document.requireIndexingResolvedDocument();
@@ -114,6 +132,48 @@ public class SourceIndexer extends AbstractIndexer implements ITypeRequestor, Su
 		}
 	}
 	
+	protected void addIndexEntry(char[] category, char[] key) {
+		if (this.bufferedCount < 0) {
+			super.addIndexEntry(category, key);
+			return;
+		}
+		if (this.bufferedCount == this.bufferedKeys.length) {
+			int length = this.bufferedCount * 2;
+			System.arraycopy(this.bufferedCategories, 0, this.bufferedCategories = new char[length][], 0, this.bufferedCount);
+			System.arraycopy(this.bufferedKeys, 0, this.bufferedKeys = new char[length][], 0, this.bufferedCount);
+		}
+		this.bufferedCategories[this.bufferedCount] = category;
+		this.bufferedKeys[this.bufferedCount++] = key;
+	}
+
+	/*
+	 * Indexes the source with a StreamingIndexer. Answers false if it must be indexed by the parser instead,
+	 * nothing being indexed then.
+	 */
+	private boolean indexTokens(SourceElementParser parser, String documentPath, char[] source) {
+		this.bufferedCategories = new char[64][];
+		this.bufferedKeys = new char[64][];
+		this.bufferedCount = 0;
+		boolean indexed = false;
+		try {
+			StreamingIndexer indexer = new StreamingIndexer(new SourceIndexerRequestor(this), source, this.compilationUnit.getMainTypeName(), parser.scanner.sourceLevel, parser.scanner.complianceLevel);
+			indexed = indexer.index();
+		} catch (RuntimeException e) {
+			// the constructs it does not handle are given up without exception, log it and index with the parser
+			Util.log(e, "Streaming indexer failed on " + documentPath); //$NON-NLS-1$
+		}
+		int count = this.bufferedCount;
+		this.bufferedCount = -1;
+		if (indexed) {
+			for (int i = 0; i < count; i++)
+				super.addIndexEntry(this.bufferedCategories[i], this.bufferedKeys[i]);
+		} else if (JobManager.VERBOSE) {
+			Util.verbose("-> indexing " + documentPath + " with the parser"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		this.bufferedCategories = this.bufferedKeys = null;
+		return indexed;
+	}
+
 	public void accept(IBinaryType binaryType, PackageBinding packageBinding, AccessRestriction accessRestriction) {
 		this.lookupEnvironment.createBinaryTypeFrom(binaryType, packageBinding, accessRestriction);
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -137,6 +137,7 @@ private void addDefaultConstructorIfNecessary(TypeInfo typeInfo) {
 	boolean hasConstructor = false;
 	
 	TypeDeclaration typeDeclaration = typeInfo.node;
+	if (typeDeclaration == null) return; // reported by the StreamingIndexer once the type is read
 	AbstractMethodDeclaration[] methods = typeDeclaration.methods;
 	int methodCounter = methods == null ? 0 : methods.length;
 	done : for (int i = 0; i < methodCounter; i++) {
@@ -147,13 +148,18 @@ private void addDefaultConstructorIfNecessary(TypeInfo typeInfo) {
 		}
 	}
 	
-	if (!hasConstructor) {
-		this.indexer.addDefaultConstructorDeclaration(
-				typeInfo.name,
-				this.packageName == null ? CharOperation.NO_CHAR : this.packageName,
-				typeInfo.modifiers,
-				getMoreExtraFlags(typeInfo.extraFlags));
-	}
+	if (!hasConstructor)
+		addDefaultConstructor(typeInfo);
+}
+/*
+ * Indexes the default constructor of the given type, which declares no constructor.
+ */
+void addDefaultConstructor(TypeInfo typeInfo) {
+	this.indexer.addDefaultConstructorDeclaration(
+			typeInfo.name,
+			this.packageName == null ? CharOperation.NO_CHAR : this.packageName,
+			typeInfo.modifiers,
+			getMoreExtraFlags(typeInfo.extraFlags));
 }
 /*
  * Rebuild the proper qualification for the current source type:
@@ -0,0 +1,1311 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.search.indexing;
+
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.core.compiler.InvalidInputException;
+import org.eclipse.jdt.internal.compiler.ExtraFlags;
+import org.eclipse.jdt.internal.compiler.ISourceElementRequestor;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
+import org.eclipse.jdt.internal.compiler.lookup.ExtraCompilerModifiers;
+import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
+import org.eclipse.jdt.internal.compiler.parser.JavadocTagConstants;
+import org.eclipse.jdt.internal.compiler.parser.Scanner;
+import org.eclipse.jdt.internal.compiler.parser.ScannerHelper;
+import org.eclipse.jdt.internal.compiler.parser.TerminalTokens;
+
+/**
+ * Indexes a java file from the tokens of the {@link Scanner}, without building the AST of the
+ * {@link org.eclipse.jdt.internal.compiler.SourceElementParser}.
+ * <p>
+ * A reduced grammar recognizes the declarations (types, fields, methods, constructors and initializers)
+ * and reports them to the {@link SourceIndexerRequestor} as the source element parser does, so their
+ * index keys are the same. The bodies and initializers are only scanned: an identifier is reported as a
+ * method reference when it is followed by arguments and as a name reference otherwise, an allocation as
+ * a constructor reference. This reports a few references the parser does not (e.g. local variable names,
+ * javadoc references of comments which are not attached to a declaration), which only adds potential
+ * matches the match locator rejects.
+ * </p><p>
+ * {@link #index()} answers <code>false</code> when the source uses a construct the reduced grammar does
+ * not handle, or lambda expressions and method references (their indexing needs the resolved document):
+ * the document must then be indexed by the source element parser.
+ * </p>
+ */
+public class StreamingIndexer implements TerminalTokens {
+
+	/*
+	 * Thrown when the reduced grammar does not handle the source. Shared, so it has no stack trace.
+	 */
+	private static class UnsupportedSource extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+	private static final UnsupportedSource UNSUPPORTED = new UnsupportedSource();
+
+	// EOF tokens appended after the end of the source, so that a few tokens can be looked ahead without checks
+	private static final int PADDING = 4;
+
+	/*
+	 * A type whose body is being indexed. Its constructors are reported at the end of the type, once its
+	 * extra flags are known.
+	 */
+	private static class TypeFrame {
+		ISourceElementRequestor.TypeInfo info;
+		int modifiers; // as declared, with the kind and the javadoc deprecation (see TypeDeclaration#modifiers)
+		char[] implicitSuperclassName; // called by the constructors without explicit constructor call
+		ISourceElementRequestor.MethodInfo[] constructors;
+		int constructorCount;
+
+		TypeFrame(ISourceElementRequestor.TypeInfo info, int modifiers, char[] implicitSuperclassName) {
+			this.info = info;
+			this.modifiers = modifiers;
+			this.implicitSuperclassName = implicitSuperclassName;
+		}
+
+		void addConstructor(ISourceElementRequestor.MethodInfo constructor) {
+			if (this.constructors == null)
+				this.constructors = new ISourceElementRequestor.MethodInfo[4];
+			else if (this.constructorCount == this.constructors.length)
+				System.arraycopy(this.constructors, 0, this.constructors = new ISourceElementRequestor.MethodInfo[this.constructorCount * 2], 0, this.constructorCount);
+			this.constructors[this.constructorCount++] = constructor;
+		}
+	}
+
+	private SourceIndexerRequestor requestor;
+	private char[] source;
+	private char[] mainTypeName;
+	private long sourceLevel;
+	private long complianceLevel;
+
+	// the tokens of the source, without the comments
+	private int[] kinds;
+	private int[] matches; // index of the matching parenthesis, bracket or brace
+	private char[][] identifiers;
+	private boolean[] deprecated; // whether the javadoc preceding the token has a @deprecated tag
+
+	// read by readModifiers(int)
+	private int modifiers;
+	private boolean deprecatedAnnotation;
+
+	// read by readAnnotation(int)
+	private boolean isDeprecatedAnnotation;
+
+	// read by readJavadocTag(int, int)
+	private boolean isDeprecatedTag;
+
+	// read by readParameters(int, MethodInfo)
+	private boolean isVarargs;
+
+	// the parameterized name of the type read by readType(int)
+	private char[] name = new char[64];
+	private int nameLength;
+	private int pendingGreaters; // closing the enclosing type arguments, from a '>>' or '>>>' token
+
+public StreamingIndexer(SourceIndexerRequestor requestor, char[] source, char[] mainTypeName, long sourceLevel, long complianceLevel) {
+	this.requestor = requestor;
+	this.source = source;
+	this.mainTypeName = mainTypeName;
+	this.sourceLevel = sourceLevel;
+	this.complianceLevel = complianceLevel;
+}
+/**
+ * Reports the declarations and references of the source to the requestor. Answers <code>false</code> if the
+ * source must be indexed by the source element parser instead, the entries reported so far must then be discarded.
+ */
+public boolean index() {
+	try {
+		if (!tokenize())
+			return false;
+		readCompilationUnit();
+		return true;
+	} catch (UnsupportedSource e) {
+		return false;
+	}
+}
+private void append(char c) {
+	if (this.nameLength == this.name.length)
+		System.arraycopy(this.name, 0, this.name = new char[this.nameLength * 2], 0, this.nameLength);
+	this.name[this.nameLength++] = c;
+}
+private void append(char[] chars) {
+	int length = chars.length;
+	if (this.nameLength + length > this.name.length)
+		System.arraycopy(this.name, 0, this.name = new char[(this.nameLength + length) * 2], 0, this.nameLength);
+	System.arraycopy(chars, 0, this.name, this.nameLength, length);
+	this.nameLength += length;
+}
+/*
+ * Appends the dimensions following the given token to the current type name.
+ */
+private int appendDimensions(int p) {
+	while (this.kinds[p] == TokenNameLBRACKET && this.kinds[p + 1] == TokenNameRBRACKET) {
+		append('[');
+		append(']');
+		p += 2;
+	}
+	if (this.kinds[p] == TokenNameAT)
+		throw UNSUPPORTED; // type annotation
+	return p;
+}
+/*
+ * Appends the type starting at the given token to the current type name, as TypeReference#getParameterizedTypeName()
+ * does, and reports its references.
+ */
+private int appendType(int p) {
+	char[] primitiveName = primitiveName(this.kinds[p]);
+	if (primitiveName != null) {
+		int start = this.nameLength;
+		append(primitiveName);
+		p = appendDimensions(p + 1);
+		this.requestor.acceptTypeReference(this.nameLength - start == primitiveName.length ? primitiveName : CharOperation.subarray(this.name, start, this.nameLength), 0);
+		return p;
+	}
+	while (true) {
+		expect(p, TokenNameIdentifier);
+		append(this.identifiers[p]);
+		this.requestor.acceptUnknownReference(this.identifiers[p], 0);
+		if (this.kinds[++p] == TokenNameLESS) {
+			p = appendTypeArguments(p);
+			if (this.pendingGreaters > 0)
+				return p;
+		}
+		if (this.kinds[p] != TokenNameDOT)
+			break;
+		append('.');
+		p++;
+	}
+	return appendDimensions(p);
+}
+private int appendTypeArguments(int p) {
+	append('<');
+	if (this.kinds[++p] == TokenNameGREATER) {
+		append('>');
+		return p + 1;
+	}
+	while (true) {
+		if (this.kinds[p] == TokenNameQUESTION) {
+			append(TypeConstants.WILDCARD_NAME);
+			switch (this.kinds[++p]) {
+				case TokenNameextends :
+					append(TypeConstants.WILDCARD_EXTENDS);
+					p = appendType(p + 1);
+					break;
+				case TokenNamesuper :
+					append(TypeConstants.WILDCARD_SUPER);
+					p = appendType(p + 1);
+					break;
+			}
+		} else {
+			p = appendType(p);
+		}
+		if (this.pendingGreaters > 0) {
+			this.pendingGreaters--;
+			append('>');
+			return p;
+		}
+		switch (this.kinds[p]) {
+			case TokenNameCOMMA :
+				append(',');
+				p++;
+				break;
+			case TokenNameGREATER :
+				append('>');
+				return p + 1;
+			case TokenNameRIGHT_SHIFT :
+				append('>');
+				this.pendingGreaters = 1;
+				return p + 1;
+			case TokenNameUNSIGNED_RIGHT_SHIFT :
+				append('>');
+				this.pendingGreaters = 2;
+				return p + 1;
+			default :
+				throw UNSUPPORTED;
+		}
+	}
+}
+/*
+ * Answers the number of arguments between the given parenthesis and its match.
+ */
+private int argumentCount(int leftParen) {
+	int rightParen = this.matches[leftParen];
+	if (rightParen == leftParen + 1)
+		return 0;
+	int count = 1;
+	int p = skipExpression(leftParen + 1);
+	while (p < rightParen) {
+		expect(p, TokenNameCOMMA);
+		count++;
+		p = skipExpression(p + 1);
+	}
+	return count;
+}
+private void endType(TypeFrame type) {
+	if (type.constructorCount == 0) {
+		this.requestor.addDefaultConstructor(type.info);
+		if ((type.modifiers & ClassFileConstants.AccInterface) == 0 && type.info.name.length > 0) {
+			// the parser adds a default constructor calling super() to the classes and enums
+			this.requestor.acceptConstructorReference(type.implicitSuperclassName, 0, 0);
+		}
+	} else {
+		for (int i = 0; i < type.constructorCount; i++) {
+			ISourceElementRequestor.MethodInfo constructor = type.constructors[i];
+			constructor.extraFlags = type.info.extraFlags;
+			this.requestor.enterConstructor(constructor);
+			this.requestor.exitConstructor(0);
+		}
+	}
+	this.requestor.exitType(0);
+}
+private void expect(int p, int kind) {
+	if (this.kinds[p] != kind)
+		throw UNSUPPORTED;
+}
+private char[][] identifiers(int first, int last) {
+	char[][] result = new char[(last - first) / 2 + 1][];
+	for (int i = 0, p = first; p <= last; p += 2)
+		result[i++] = this.identifiers[p];
+	return result;
+}
+/*
+ * Answers the index of the last identifier of the qualified name starting at the given identifier.
+ */
+private int lastIdentifier(int p) {
+	expect(p, TokenNameIdentifier);
+	while (this.kinds[p + 1] == TokenNameDOT && this.kinds[p + 2] == TokenNameIdentifier)
+		p += 2;
+	return p;
+}
+private static char[] primitiveName(int kind) {
+	switch (kind) {
+		case TokenNameboolean :
+			return TypeConstants.BOOLEAN;
+		case TokenNamebyte :
+			return TypeConstants.BYTE;
+		case TokenNamechar :
+			return TypeConstants.CHAR;
+		case TokenNamedouble :
+			return TypeConstants.DOUBLE;
+		case TokenNamefloat :
+			return TypeConstants.FLOAT;
+		case TokenNameint :
+			return TypeConstants.INT;
+		case TokenNamelong :
+			return TypeConstants.LONG;
+		case TokenNameshort :
+			return TypeConstants.SHORT;
+		case TokenNamevoid :
+			return TypeConstants.VOID;
+		default :
+			return null;
+	}
+}
+/*
+ * Reads the allocation starting at the given 'new' token, and the body of its anonymous type if any.
+ */
+private int readAllocation(int p) {
+	if (this.kinds[++p] == TokenNameLESS) {
+		// constructor type arguments
+		int end = skipTypeArguments(p);
+		scan(p + 1, end);
+		p = end;
+	}
+	char[] primitiveName = primitiveName(this.kinds[p]);
+	if (primitiveName != null) {
+		// array allocation, the dimensions are scanned by the caller
+		this.requestor.acceptTypeReference(primitiveName, 0);
+		return p + 1;
+	}
+	char[] typeName = null; // erasure of the allocated type
+	char[] simpleName;
+	while (true) {
+		expect(p, TokenNameIdentifier);
+		simpleName = this.identifiers[p];
+		typeName = typeName == null ? simpleName : CharOperation.concat(typeName, simpleName, '.');
+		this.requestor.acceptUnknownReference(simpleName, 0);
+		if (this.kinds[++p] == TokenNameLESS) {
+			int end = skipTypeArguments(p);
+			scan(p + 1, end);
+			p = end;
+		}
+		if (this.kinds[p] != TokenNameDOT)
+			break;
+		p++;
+	}
+	if (this.kinds[p] == TokenNameLBRACKET)
+		return p; // array allocation
+	expect(p, TokenNameLPAREN);
+	int rightParen = this.matches[p];
+	this.requestor.acceptConstructorReference(typeName, argumentCount(p), 0);
+	scan(p + 1, rightParen);
+	p = rightParen + 1;
+	if (this.kinds[p] == TokenNameLBRACE) {
+		// anonymous type, reported as the source element notifier does
+		ISourceElementRequestor.TypeInfo typeInfo = new ISourceElementRequestor.TypeInfo();
+		typeInfo.name = CharOperation.NO_CHAR;
+		typeInfo.superinterfaces = new char[][] { simpleName };
+		TypeFrame type = new TypeFrame(typeInfo, 0, TypeConstants.CharArray_JAVA_LANG_OBJECT);
+		this.requestor.enterType(typeInfo);
+		p = readTypeBody(p, type);
+		endType(type);
+	}
+	return p;
+}
+/*
+ * Reads the annotation starting at the given '@' token and reports its references.
+ */
+private int readAnnotation(int p) {
+	int first = p + 1;
+	int last = lastIdentifier(first);
+	for (int i = first; i < last; i += 2)
+		this.requestor.acceptUnknownReference(this.identifiers[i], 0);
+	char[] simpleName = this.identifiers[last];
+	this.requestor.acceptAnnotationTypeReference(simpleName, 0);
+	p = last + 1;
+	if (this.kinds[p] == TokenNameLPAREN) {
+		int rightParen = this.matches[p];
+		if (this.kinds[p + 1] == TokenNameIdentifier && this.kinds[p + 2] == TokenNameEQUAL) {
+			// member value pairs
+			int q = p + 1;
+			while (q < rightParen) {
+				expect(q, TokenNameIdentifier);
+				expect(q + 1, TokenNameEQUAL);
+				this.requestor.acceptMethodReference(this.identifiers[q], 0, 0);
+				int end = skipExpression(q + 2);
+				scan(q + 2, end);
+				q = end + 1;
+			}
+		} else if (rightParen > p + 1) {
+			// single member
+			this.requestor.acceptMethodReference(TypeConstants.VALUE, 0, 0);
+			scan(p + 1, rightParen);
+		}
+		p = rightParen + 1;
+	}
+	this.isDeprecatedAnnotation = CharOperation.equals(simpleName, TypeConstants.JAVA_LANG_DEPRECATED[2]);
+	return p;
+}
+private void readCompilationUnit() {
+	int p = readModifiers(0);
+	if (this.kinds[p] == TokenNamepackage) {
+		int last = lastIdentifier(p + 1);
+		expect(last + 1, TokenNameSEMICOLON);
+		this.requestor.packageName = CharOperation.concatWith(identifiers(p + 1, last), '.');
+		p = readModifiers(last + 2);
+	}
+	while (this.kinds[p] == TokenNameimport) {
+		p = readModifiers(readImport(p));
+	}
+	while (this.kinds[p] != TokenNameEOF) {
+		if (this.kinds[p] == TokenNameSEMICOLON)
+			p = readModifiers(p + 1);
+		else
+			p = readModifiers(readTypeDeclaration(p, null, false));
+	}
+}
+/*
+ * Reads the body of the given constructor and reports its explicit constructor call, or the implicit super() call.
+ */
+private void readConstructorBody(int leftBrace, TypeFrame type) {
+	int rightBrace = this.matches[leftBrace];
+	int p = leftBrace + 1;
+	switch (this.kinds[p]) {
+		case TokenNamethis :
+		case TokenNamesuper :
+			if (this.kinds[p + 1] == TokenNameLPAREN) {
+				char[] typeName = this.kinds[p] == TokenNamethis ? type.info.name : type.implicitSuperclassName;
+				this.requestor.acceptConstructorReference(typeName, argumentCount(p + 1), 0);
+				int rightParen = this.matches[p + 1];
+				scan(p + 2, rightParen);
+				scan(rightParen + 1, rightBrace);
+				return;
+			}
+			break;
+		case TokenNameLESS :
+			throw UNSUPPORTED; // explicit constructor call with type arguments
+	}
+	// qualified super constructor call, e.g. outer.super()
+	int end = p;
+	while (end < rightBrace && this.kinds[end] != TokenNameSEMICOLON) {
+		switch (this.kinds[end]) {
+			case TokenNameLPAREN :
+			case TokenNameLBRACKET :
+			case TokenNameLBRACE :
+				end = this.matches[end];
+		}
+		end++;
+	}
+	if (end < rightBrace && this.kinds[end - 1] == TokenNameRPAREN) {
+		int leftParen = this.matches[end - 1];
+		if (this.kinds[leftParen - 1] == TokenNamesuper && this.kinds[leftParen - 2] == TokenNameDOT) {
+			this.requestor.acceptConstructorReference(type.implicitSuperclassName, argumentCount(leftParen), 0);
+			scan(p, leftParen - 2);
+			scan(leftParen + 1, end - 1);
+			scan(end + 1, rightBrace);
+			return;
+		}
+	}
+	this.requestor.acceptConstructorReference(type.implicitSuperclassName, 0, 0);
+	scan(p, rightBrace);
+}
+/*
+ * Reads the constants of the given enum type, up to the ';' which ends them or the end of the enum body.
+ */
+private int readEnumConstants(int p, int rightBrace, TypeFrame type) {
+	char[] enumName = type.info.name;
+	while (true) {
+		if (p == rightBrace)
+			return p;
+		if (this.kinds[p] == TokenNameSEMICOLON)
+			return p + 1;
+		p = readModifiers(p);
+		if ((this.modifiers & ~ClassFileConstants.AccDeprecated) != 0)
+			throw UNSUPPORTED;
+		expect(p, TokenNameIdentifier);
+		ISourceElementRequestor.FieldInfo fieldInfo = new ISourceElementRequestor.FieldInfo();
+		fieldInfo.name = this.identifiers[p];
+		fieldInfo.type = enumName;
+		this.requestor.enterField(fieldInfo);
+		int argumentCount = 0;
+		if (this.kinds[++p] == TokenNameLPAREN) {
+			argumentCount = argumentCount(p);
+			int rightParen = this.matches[p];
+			scan(p + 1, rightParen);
+			p = rightParen + 1;
+		}
+		this.requestor.acceptConstructorReference(enumName, argumentCount, 0);
+		if (this.kinds[p] == TokenNameLBRACE) {
+			// anonymous type of the constant, reported as the source element notifier does
+			ISourceElementRequestor.TypeInfo typeInfo = new ISourceElementRequestor.TypeInfo();
+			typeInfo.name = CharOperation.NO_CHAR;
+			typeInfo.modifiers = ClassFileConstants.AccEnum;
+			typeInfo.superclass = enumName;
+			TypeFrame body = new TypeFrame(typeInfo, 0, enumName);
+			this.requestor.enterType(typeInfo);
+			p = readTypeBody(p, body);
+			endType(body);
+		}
+		this.requestor.exitField(0, 0, 0);
+		if (this.kinds[p] == TokenNameCOMMA)
+			p++;
+		else if (p != rightBrace)
+			expect(p, TokenNameSEMICOLON);
+	}
+}
+private int readExceptions(int p, ISourceElementRequestor.MethodInfo methodInfo) {
+	char[][] exceptionTypes = new char[2][];
+	int count = 0;
+	while (true) {
+		p = readType(p);
+		if (count == exceptionTypes.length)
+			System.arraycopy(exceptionTypes, 0, exceptionTypes = new char[count * 2][], 0, count);
+		exceptionTypes[count++] = CharOperation.subarray(this.name, 0, this.nameLength);
+		if (this.kinds[p] != TokenNameCOMMA)
+			break;
+		p++;
+	}
+	if (count < exceptionTypes.length)
+		System.arraycopy(exceptionTypes, 0, exceptionTypes = new char[count][], 0, count);
+	methodInfo.exceptionTypes = exceptionTypes;
+	return p;
+}
+/*
+ * Reads the import starting at the given 'import' token and reports the references the source element parser does.
+ */
+private int readImport(int p) {
+	boolean isStatic = this.kinds[++p] == TokenNamestatic;
+	if (isStatic)
+		p++;
+	int last = lastIdentifier(p);
+	boolean onDemand = this.kinds[last + 1] == TokenNameDOT && this.kinds[last + 2] == TokenNameMULTIPLY;
+	int semicolon = onDemand ? last + 3 : last + 1;
+	expect(semicolon, TokenNameSEMICOLON);
+	char[][] tokens = identifiers(p, last);
+	if (!isStatic) {
+		if (onDemand)
+			this.requestor.acceptUnknownReference(tokens, 0, 0);
+		else
+			this.requestor.acceptTypeReference(tokens, 0, 0);
+	} else if (onDemand || tokens.length == 1) {
+		this.requestor.acceptTypeReference(tokens, 0, 0);
+	} else {
+		char[] member = tokens[tokens.length - 1];
+		this.requestor.acceptFieldReference(member, 0);
+		this.requestor.acceptMethodReference(member, 0, 0);
+		this.requestor.acceptTypeReference(member, 0);
+		System.arraycopy(tokens, 0, tokens = new char[tokens.length - 1][], 0, tokens.length);
+		this.requestor.acceptTypeReference(tokens, 0, 0);
+	}
+	return semicolon + 1;
+}
+private int readInitializer(int leftBrace, int modifiers) {
+	int rightBrace = this.matches[leftBrace];
+	this.requestor.enterInitializer(0, modifiers);
+	scan(leftBrace + 1, rightBrace);
+	this.requestor.exitInitializer(0);
+	return rightBrace + 1;
+}
+/*
+ * Reads the javadoc comment between the given positions, reports the references of its tags and answers
+ * whether it has a @deprecated tag.
+ */
+private boolean readJavadoc(int start, int end) {
+	boolean deprecatedTag = false;
+	boolean lineStarted = false;
+	int i = start + 3; // after "/**"
+	end -= 2; // before "*/"
+	while (i < end) {
+		switch (this.source[i]) {
+			case '\r' :
+			case '\n' :
+				lineStarted = false;
+				i++;
+				continue;
+			case ' ' :
+			case '\t' :
+			case '\f' :
+			case '*' :
+				i++;
+				continue;
+			case '{' :
+				if (i + 1 < end && this.source[i + 1] == '@') {
+					i = readJavadocTag(i + 1, end);
+					deprecatedTag |= this.isDeprecatedTag;
+					lineStarted = true;
+					continue;
+				}
+				break;
+			case '@' :
+				if (!lineStarted) {
+					i = readJavadocTag(i, end);
+					deprecatedTag |= this.isDeprecatedTag;
+					lineStarted = true;
+					continue;
+				}
+				break;
+		}
+		lineStarted = true;
+		i++;
+	}
+	return deprecatedTag;
+}
+/*
+ * Reads the reference following a javadoc tag and reports the references the javadoc parser would.
+ */
+private int readJavadocReference(int i, int end, boolean typeOnly) {
+	char[] chars = this.source;
+	while (i < end && (ScannerHelper.isWhitespace(chars[i]) || chars[i] == '*'))
+		i++;
+	int segmentStart = i;
+	while (i < end) {
+		char c = chars[i];
+		if (c == '.') {
+			if (i > segmentStart)
+				this.requestor.acceptUnknownReference(CharOperation.subarray(chars, segmentStart, i), 0);
+			segmentStart = i + 1;
+		} else if (!ScannerHelper.isJavaIdentifierPart(c)) {
+			break;
+		}
+		i++;
+	}
+	if (i > segmentStart)
+		this.requestor.acceptUnknownReference(CharOperation.subarray(chars, segmentStart, i), 0);
+	if (typeOnly || i >= end || chars[i] != '#')
+		return i;
+	int memberStart = ++i;
+	while (i < end && ScannerHelper.isJavaIdentifierPart(chars[i]))
+		i++;
+	if (i == memberStart)
+		return i;
+	char[] member = CharOperation.subarray(chars, memberStart, i);
+	if (i == end || chars[i] != '(') {
+		this.requestor.acceptFieldReference(member, 0);
+		return i;
+	}
+	int argumentCount = 0;
+	boolean hasArgument = false;
+	while (++i < end && chars[i] != ')') {
+		char c = chars[i];
+		if (c == ',') {
+			argumentCount++;
+		} else if (ScannerHelper.isJavaIdentifierStart(c)) {
+			hasArgument = true;
+			int nameStart = i;
+			while (i + 1 < end && ScannerHelper.isJavaIdentifierPart(chars[i + 1]))
+				i++;
+			this.requestor.acceptUnknownReference(CharOperation.subarray(chars, nameStart, i + 1), 0);
+		}
+	}
+	if (hasArgument)
+		argumentCount++;
+	this.requestor.acceptMethodReference(member, argumentCount, 0);
+	this.requestor.acceptConstructorReference(member, argumentCount, 0);
+	return i;
+}
+/*
+ * Reads the javadoc tag starting at the given '@' and reports the references of @see, @link, @throws... tags.
+ */
+private int readJavadocTag(int at, int end) {
+	char[] chars = this.source;
+	int nameStart = at + 1;
+	int i = nameStart;
+	while (i < end && ScannerHelper.isJavaIdentifierPart(chars[i]))
+		i++;
+	char[] tag = CharOperation.subarray(chars, nameStart, i);
+	this.isDeprecatedTag = false;
+	if (CharOperation.equals(tag, JavadocTagConstants.TAG_DEPRECATED)) {
+		this.isDeprecatedTag = i == end || ScannerHelper.isWhitespace(chars[i]) || chars[i] == '*' || chars[i] == '}';
+	} else if (CharOperation.equals(tag, JavadocTagConstants.TAG_THROWS) || CharOperation.equals(tag, JavadocTagConstants.TAG_EXCEPTION)) {
+		i = readJavadocReference(i, end, true);
+	} else if (CharOperation.equals(tag, JavadocTagConstants.TAG_SEE)
+			|| CharOperation.equals(tag, JavadocTagConstants.TAG_LINK)
+			|| CharOperation.equals(tag, JavadocTagConstants.TAG_LINKPLAIN)
+			|| CharOperation.equals(tag, JavadocTagConstants.TAG_VALUE)) {
+		i = readJavadocReference(i, end, false);
+	}
+	return i;
+}
+/*
+ * Reads the local type whose 'class' token is given, its modifiers preceding it have already been scanned.
+ */
+private int readLocalType(int p) {
+	int start = p;
+	while (true) {
+		int previous = start - 1;
+		switch (this.kinds[previous]) {
+			case TokenNameabstract :
+			case TokenNamefinal :
+			case TokenNamestrictfp :
+				start = previous;
+				continue;
+			case TokenNamepublic :
+			case TokenNameprotected :
+			case TokenNameprivate :
+			case TokenNamestatic :
+				throw UNSUPPORTED; // modifier not allowed on a local type
+			case TokenNameRPAREN :
+				previous = this.matches[previous] - 1;
+		}
+		if (this.kinds[previous] != TokenNameIdentifier)
+			break;
+		while (this.kinds[previous - 1] == TokenNameDOT && this.kinds[previous - 2] == TokenNameIdentifier)
+			previous -= 2;
+		if (this.kinds[previous - 1] != TokenNameAT)
+			break;
+		start = previous - 1;
+	}
+	if (readModifiers(start) != p)
+		throw UNSUPPORTED;
+	return readTypeDeclaration(p, null, true);
+}
+/*
+ * Reads the method or the fields whose type starts at the given token.
+ */
+private int readMember(int p) {
+	p = readType(p);
+	char[] typeName = CharOperation.subarray(this.name, 0, this.nameLength);
+	expect(p, TokenNameIdentifier);
+	if (this.kinds[p + 1] == TokenNameLPAREN) {
+		ISourceElementRequestor.MethodInfo methodInfo = new ISourceElementRequestor.MethodInfo();
+		methodInfo.name = this.identifiers[p];
+		p = readParameters(p + 1, methodInfo);
+		if (this.kinds[p] == TokenNameLBRACKET) {
+			// dimensions of the return type after the parameters
+			this.nameLength = 0;
+			append(typeName);
+			p = appendDimensions(p);
+			typeName = CharOperation.subarray(this.name, 0, this.nameLength);
+		}
+		methodInfo.returnType = typeName;
+		if (this.kinds[p] == TokenNamethrows)
+			p = readExceptions(p + 1, methodInfo);
+		this.requestor.enterMethod(methodInfo);
+		switch (this.kinds[p]) {
+			case TokenNameLBRACE :
+				int rightBrace = this.matches[p];
+				scan(p + 1, rightBrace);
+				p = rightBrace + 1;
+				break;
+			case TokenNamedefault :
+				// default value of an annotation type member
+				int end = skipExpression(p + 1);
+				expect(end, TokenNameSEMICOLON);
+				scan(p + 1, end);
+				p = end + 1;
+				break;
+			case TokenNameSEMICOLON :
+				p++;
+				break;
+			default :
+				throw UNSUPPORTED;
+		}
+		this.requestor.exitMethod(0, null);
+		return p;
+	}
+	while (true) {
+		expect(p, TokenNameIdentifier);
+		ISourceElementRequestor.FieldInfo fieldInfo = new ISourceElementRequestor.FieldInfo();
+		fieldInfo.name = this.identifiers[p];
+		fieldInfo.type = typeName;
+		if (this.kinds[++p] == TokenNameLBRACKET) {
+			// dimensions of the declarator
+			this.nameLength = 0;
+			append(typeName);
+			p = appendDimensions(p);
+			fieldInfo.type = CharOperation.subarray(this.name, 0, this.nameLength);
+		}
+		this.requestor.enterField(fieldInfo);
+		if (this.kinds[p] == TokenNameEQUAL) {
+			int end = skipExpression(p + 1);
+			scan(p + 1, end);
+			p = end;
+		}
+		this.requestor.exitField(0, 0, 0);
+		if (this.kinds[p] != TokenNameCOMMA)
+			break;
+		p++;
+	}
+	expect(p, TokenNameSEMICOLON);
+	return p + 1;
+}
+/*
+ * Reads the modifiers and annotations starting at the given token into the modifiers and deprecatedAnnotation fields.
+ */
+private int readModifiers(int p) {
+	int modifiers = this.deprecated[p] ? ClassFileConstants.AccDeprecated : 0;
+	boolean deprecatedAnnotation = false;
+	while (true) {
+		int flag;
+		switch (this.kinds[p]) {
+			case TokenNamepublic :
+				flag = ClassFileConstants.AccPublic;
+				break;
+			case TokenNameprotected :
+				flag = ClassFileConstants.AccProtected;
+				break;
+			case TokenNameprivate :
+				flag = ClassFileConstants.AccPrivate;
+				break;
+			case TokenNamestatic :
+				flag = ClassFileConstants.AccStatic;
+				break;
+			case TokenNameabstract :
+				flag = ClassFileConstants.AccAbstract;
+				break;
+			case TokenNamefinal :
+				flag = ClassFileConstants.AccFinal;
+				break;
+			case TokenNamenative :
+				flag = ClassFileConstants.AccNative;
+				break;
+			case TokenNamesynchronized :
+				flag = ClassFileConstants.AccSynchronized;
+				break;
+			case TokenNametransient :
+				flag = ClassFileConstants.AccTransient;
+				break;
+			case TokenNamevolatile :
+				flag = ClassFileConstants.AccVolatile;
+				break;
+			case TokenNamestrictfp :
+				flag = ClassFileConstants.AccStrictfp;
+				break;
+			case TokenNamedefault :
+				// default method, its modifiers are not indexed
+				p++;
+				continue;
+			case TokenNameAT :
+				if (this.kinds[p + 1] != TokenNameinterface) {
+					p = readAnnotation(p);
+					deprecatedAnnotation |= this.isDeprecatedAnnotation;
+					continue;
+				}
+				//$FALL-THROUGH$
+			default :
+				this.modifiers = modifiers;
+				this.deprecatedAnnotation = deprecatedAnnotation;
+				return p;
+		}
+		if ((modifiers & flag) != 0)
+			throw UNSUPPORTED; // duplicate modifier
+		modifiers |= flag;
+		p++;
+	}
+}
+/*
+ * Reads the parameters starting at the given parenthesis into the given method info, the isVarargs field tells
+ * whether the last one is a variable arity parameter.
+ */
+private int readParameters(int leftParen, ISourceElementRequestor.MethodInfo methodInfo) {
+	int rightParen = this.matches[leftParen];
+	this.isVarargs = false;
+	if (rightParen == leftParen + 1)
+		return rightParen + 1;
+	char[][] parameterTypes = new char[4][];
+	char[][] parameterNames = new char[4][];
+	int count = 0;
+	int p = leftParen + 1;
+	while (true) {
+		p = readType(readModifiers(p));
+		if (this.kinds[p] == TokenNameELLIPSIS) {
+			append('[');
+			append(']');
+			this.isVarargs = true;
+			p++;
+		}
+		expect(p, TokenNameIdentifier);
+		char[] parameterName = this.identifiers[p];
+		p = appendDimensions(p + 1);
+		if (count == parameterTypes.length) {
+			System.arraycopy(parameterTypes, 0, parameterTypes = new char[count * 2][], 0, count);
+			System.arraycopy(parameterNames, 0, parameterNames = new char[count * 2][], 0, count);
+		}
+		parameterTypes[count] = CharOperation.subarray(this.name, 0, this.nameLength);
+		parameterNames[count++] = parameterName;
+		if (this.kinds[p] != TokenNameCOMMA)
+			break;
+		p++;
+	}
+	if (p != rightParen)
+		throw UNSUPPORTED;
+	if (count < parameterTypes.length) {
+		System.arraycopy(parameterTypes, 0, parameterTypes = new char[count][], 0, count);
+		System.arraycopy(parameterNames, 0, parameterNames = new char[count][], 0, count);
+	}
+	methodInfo.parameterTypes = parameterTypes;
+	methodInfo.parameterNames = parameterNames;
+	return rightParen + 1;
+}
+/*
+ * Reads the type starting at the given token, its parameterized name is then held by the name buffer.
+ */
+private int readType(int p) {
+	this.nameLength = 0;
+	this.pendingGreaters = 0;
+	p = appendType(p);
+	if (this.pendingGreaters > 0)
+		throw UNSUPPORTED;
+	return p;
+}
+/*
+ * Reads the body starting at the given brace of the given type.
+ */
+private int readTypeBody(int leftBrace, TypeFrame type) {
+	int rightBrace = this.matches[leftBrace];
+	int p = leftBrace + 1;
+	if ((type.modifiers & ClassFileConstants.AccEnum) != 0)
+		p = readEnumConstants(p, rightBrace, type);
+	while (p < rightBrace) {
+		switch (this.kinds[p]) {
+			case TokenNameSEMICOLON :
+				p++;
+				continue;
+			case TokenNameLBRACE :
+				p = readInitializer(p, 0);
+				continue;
+			case TokenNamestatic :
+				if (this.kinds[p + 1] == TokenNameLBRACE) {
+					p = readInitializer(p + 1, ClassFileConstants.AccStatic);
+					continue;
+				}
+		}
+		p = readModifiers(p);
+		int modifiers = this.modifiers;
+		boolean deprecatedAnnotation = this.deprecatedAnnotation;
+		switch (this.kinds[p]) {
+			case TokenNameclass :
+			case TokenNameinterface :
+			case TokenNameenum :
+			case TokenNameAT :
+				if ((modifiers & ClassFileConstants.AccStatic) != 0 && (modifiers & ClassFileConstants.AccPrivate) == 0)
+					type.info.extraFlags |= ExtraFlags.HasNonPrivateStaticMemberTypes;
+				p = readTypeDeclaration(p, type, false);
+				continue;
+			case TokenNameLESS :
+				// type parameters of a method or a constructor, only their references are indexed
+				p = readTypeParameters(p, null);
+				break;
+		}
+		if (this.kinds[p] == TokenNameIdentifier && this.kinds[p + 1] == TokenNameLPAREN) {
+			if (!CharOperation.equals(this.identifiers[p], type.info.name) || (type.modifiers & ClassFileConstants.AccInterface) != 0)
+				throw UNSUPPORTED; // method without return type
+			ISourceElementRequestor.MethodInfo methodInfo = new ISourceElementRequestor.MethodInfo();
+			methodInfo.isConstructor = true;
+			methodInfo.name = this.identifiers[p];
+			p = readParameters(p + 1, methodInfo);
+			modifiers &= ExtraCompilerModifiers.AccJustFlag | ClassFileConstants.AccDeprecated;
+			if (this.isVarargs)
+				modifiers |= ClassFileConstants.AccVarargs;
+			if (deprecatedAnnotation)
+				modifiers |= ClassFileConstants.AccDeprecated;
+			methodInfo.modifiers = modifiers;
+			if (this.kinds[p] == TokenNamethrows)
+				p = readExceptions(p + 1, methodInfo);
+			methodInfo.declaringPackageName = this.requestor.packageName;
+			methodInfo.declaringTypeModifiers = type.modifiers;
+			type.addConstructor(methodInfo);
+			expect(p, TokenNameLBRACE);
+			this.requestor.methodDepth++;
+			readConstructorBody(p, type);
+			this.requestor.methodDepth--;
+			p = this.matches[p] + 1;
+		} else {
+			p = readMember(p);
+		}
+	}
+	return rightBrace + 1;
+}
+/*
+ * Reads the type declaration starting at the given 'class', 'interface', 'enum' or '@' token, using the modifiers
+ * read before.
+ */
+private int readTypeDeclaration(int p, TypeFrame enclosingType, boolean isLocal) {
+	int modifiers = this.modifiers;
+	char[] implicitSuperclassName = TypeConstants.CharArray_JAVA_LANG_OBJECT;
+	switch (this.kinds[p]) {
+		case TokenNameclass :
+			break;
+		case TokenNameinterface :
+			modifiers |= ClassFileConstants.AccInterface;
+			break;
+		case TokenNameenum :
+			modifiers |= ClassFileConstants.AccEnum;
+			implicitSuperclassName = TypeConstants.CharArray_JAVA_LANG_ENUM;
+			break;
+		case TokenNameAT :
+			expect(++p, TokenNameinterface);
+			modifiers |= ClassFileConstants.AccAnnotation | ClassFileConstants.AccInterface;
+			implicitSuperclassName = TypeConstants.CharArray_JAVA_LANG_ANNOTATION_ANNOTATION;
+			break;
+		default :
+			throw UNSUPPORTED;
+	}
+	expect(++p, TokenNameIdentifier);
+	ISourceElementRequestor.TypeInfo typeInfo = new ISourceElementRequestor.TypeInfo();
+	typeInfo.name = this.identifiers[p];
+	boolean deprecated = (modifiers & ClassFileConstants.AccDeprecated) != 0 || this.deprecatedAnnotation;
+	typeInfo.modifiers = deprecated ? (modifiers & ExtraCompilerModifiers.AccJustFlag) | ClassFileConstants.AccDeprecated : modifiers & ExtraCompilerModifiers.AccJustFlag;
+	typeInfo.secondary = enclosingType == null && !isLocal && !CharOperation.equals(typeInfo.name, this.mainTypeName);
+	if (enclosingType != null)
+		typeInfo.extraFlags = ExtraFlags.IsMemberType;
+	boolean isClass = (modifiers & (ClassFileConstants.AccInterface | ClassFileConstants.AccEnum)) == 0;
+	boolean isInterface = (modifiers & ClassFileConstants.AccInterface) != 0;
+	if (this.kinds[++p] == TokenNameLESS) {
+		if (!isClass && (!isInterface || (modifiers & ClassFileConstants.AccAnnotation) != 0))
+			throw UNSUPPORTED;
+		p = readTypeParameters(p, typeInfo);
+	}
+	if (this.kinds[p] == TokenNameextends) {
+		if (isClass) {
+			p = readType(p + 1);
+			typeInfo.superclass = CharOperation.subarray(this.name, 0, this.nameLength);
+			implicitSuperclassName = typeInfo.superclass;
+		} else if (isInterface) {
+			p = readTypes(p + 1, typeInfo);
+		} else {
+			throw UNSUPPORTED;
+		}
+	}
+	if (this.kinds[p] == TokenNameimplements) {
+		if (isInterface)
+			throw UNSUPPORTED;
+		p = readTypes(p + 1, typeInfo);
+	}
+	expect(p, TokenNameLBRACE);
+	TypeFrame type = new TypeFrame(typeInfo, modifiers, implicitSuperclassName);
+	this.requestor.enterType(typeInfo);
+	p = readTypeBody(p, type);
+	endType(type);
+	return p;
+}
+/*
+ * Reads the type parameters starting at the given '<' into the given type info if any.
+ */
+private int readTypeParameters(int p, ISourceElementRequestor.TypeInfo typeInfo) {
+	ISourceElementRequestor.TypeParameterInfo[] typeParameters = new ISourceElementRequestor.TypeParameterInfo[2];
+	int count = 0;
+	do {
+		expect(++p, TokenNameIdentifier);
+		ISourceElementRequestor.TypeParameterInfo typeParameter = new ISourceElementRequestor.TypeParameterInfo();
+		typeParameter.name = this.identifiers[p];
+		typeParameter.bounds = CharOperation.NO_CHAR_CHAR;
+		if (this.kinds[++p] == TokenNameextends) {
+			this.nameLength = 0;
+			this.pendingGreaters = 0;
+			p = appendType(p + 1);
+			typeParameter.bounds = new char[][] { CharOperation.subarray(this.name, 0, this.nameLength) };
+			while (this.pendingGreaters == 0 && this.kinds[p] == TokenNameAND) {
+				this.nameLength = 0;
+				p = appendType(p + 1);
+				typeParameter.bounds = CharOperation.arrayConcat(typeParameter.bounds, CharOperation.subarray(this.name, 0, this.nameLength));
+			}
+		}
+		if (count == typeParameters.length)
+			System.arraycopy(typeParameters, 0, typeParameters = new ISourceElementRequestor.TypeParameterInfo[count * 2], 0, count);
+		typeParameters[count++] = typeParameter;
+		if (this.pendingGreaters > 0) {
+			// closed by the '>>' of the last bound
+			if (--this.pendingGreaters > 0)
+				throw UNSUPPORTED;
+			break;
+		}
+		if (this.kinds[p] != TokenNameCOMMA) {
+			expect(p++, TokenNameGREATER);
+			break;
+		}
+	} while (true);
+	if (typeInfo != null) {
+		if (count < typeParameters.length)
+			System.arraycopy(typeParameters, 0, typeParameters = new ISourceElementRequestor.TypeParameterInfo[count], 0, count);
+		typeInfo.typeParameters = typeParameters;
+	}
+	return p;
+}
+/*
+ * Reads the super interfaces starting at the given token into the given type info.
+ */
+private int readTypes(int p, ISourceElementRequestor.TypeInfo typeInfo) {
+	char[][] types = new char[2][];
+	int count = 0;
+	while (true) {
+		p = readType(p);
+		if (count == types.length)
+			System.arraycopy(types, 0, types = new char[count * 2][], 0, count);
+		types[count++] = CharOperation.subarray(this.name, 0, this.nameLength);
+		if (this.kinds[p] != TokenNameCOMMA)
+			break;
+		p++;
+	}
+	if (count < types.length)
+		System.arraycopy(types, 0, types = new char[count][], 0, count);
+	typeInfo.superinterfaces = types;
+	return p;
+}
+/*
+ * Reports the references of the statements or expressions between the given tokens, and the declarations
+ * of their local and anonymous types.
+ */
+private void scan(int p, int end) {
+	while (p < end) {
+		int kind = this.kinds[p];
+		switch (kind) {
+			case TokenNameIdentifier :
+				if (this.kinds[p + 1] == TokenNameLPAREN)
+					this.requestor.acceptMethodReference(this.identifiers[p], argumentCount(p + 1), 0);
+				else
+					this.requestor.acceptUnknownReference(this.identifiers[p], 0);
+				p++;
+				break;
+			case TokenNamenew :
+				p = readAllocation(p);
+				break;
+			case TokenNameAT :
+				if (this.kinds[p + 1] == TokenNameinterface)
+					throw UNSUPPORTED; // local annotation type
+				p = readAnnotation(p);
+				break;
+			case TokenNameclass :
+				if (this.kinds[p - 1] == TokenNameDOT)
+					p++; // class literal
+				else
+					p = readLocalType(p);
+				break;
+			case TokenNameinterface :
+			case TokenNameenum :
+				throw UNSUPPORTED; // local interface or enum
+			case TokenNameELLIPSIS :
+				throw UNSUPPORTED; // method declared in a block
+			case TokenNamethis :
+			case TokenNamesuper :
+				if (this.kinds[p + 1] == TokenNameLPAREN)
+					throw UNSUPPORTED; // misplaced explicit constructor call
+				p++;
+				break;
+			default :
+				char[] primitiveName = primitiveName(kind);
+				if (primitiveName != null) {
+					this.requestor.acceptTypeReference(primitiveName, 0);
+					if (this.kinds[p + 1] == TokenNameLBRACKET && this.kinds[p + 2] == TokenNameRBRACKET) {
+						this.nameLength = 0;
+						append(primitiveName);
+						p = appendDimensions(p + 1);
+						this.requestor.acceptTypeReference(CharOperation.subarray(this.name, 0, this.nameLength), 0);
+						break;
+					}
+				}
+				p++;
+		}
+	}
+}
+/*
+ * Answers the index of the ',', ';' or closing token which ends the expression starting at the given token.
+ */
+private int skipExpression(int p) {
+	while (true) {
+		switch (this.kinds[p]) {
+			case TokenNameLPAREN :
+			case TokenNameLBRACKET :
+			case TokenNameLBRACE :
+				p = this.matches[p] + 1;
+				break;
+			case TokenNameCOMMA :
+			case TokenNameSEMICOLON :
+			case TokenNameRPAREN :
+			case TokenNameRBRACKET :
+			case TokenNameRBRACE :
+			case TokenNameEOF :
+				return p;
+			case TokenNamenew :
+			case TokenNameinstanceof :
+				// the commas of the type arguments of the type are not argument separators
+				if (this.kinds[++p] == TokenNameLESS)
+					p = skipTypeArguments(p);
+				while (this.kinds[p] == TokenNameIdentifier) {
+					if (this.kinds[++p] == TokenNameLESS)
+						p = skipTypeArguments(p);
+					if (this.kinds[p] != TokenNameDOT)
+						break;
+					p++;
+				}
+				break;
+			case TokenNameDOT :
+				if (this.kinds[++p] == TokenNameLESS)
+					p = skipTypeArguments(p); // method type arguments
+				break;
+			default :
+				p++;
+		}
+	}
+}
+/*
+ * Answers the index of the token following the type arguments starting at the given '<'.
+ */
+private int skipTypeArguments(int p) {
+	int depth = 0;
+	while (true) {
+		switch (this.kinds[p]) {
+			case TokenNameLESS :
+				depth++;
+				break;
+			case TokenNameGREATER :
+				depth--;
+				break;
+			case TokenNameRIGHT_SHIFT :
+				depth -= 2;
+				break;
+			case TokenNameUNSIGNED_RIGHT_SHIFT :
+				depth -= 3;
+				break;
+			case TokenNameLPAREN :
+			case TokenNameLBRACKET :
+				p = this.matches[p];
+				break;
+			case TokenNameIdentifier :
+			case TokenNameDOT :
+			case TokenNameCOMMA :
+			case TokenNameQUESTION :
+			case TokenNameextends :
+			case TokenNamesuper :
+			case TokenNameAND :
+			case TokenNameAT :
+			case TokenNameEQUAL :
+				break;
+			default :
+				if (primitiveName(this.kinds[p]) == null)
+					throw UNSUPPORTED;
+		}
+		p++;
+		if (depth <= 0) {
+			if (depth < 0)
+				throw UNSUPPORTED;
+			return p;
+		}
+	}
+}
+/*
+ * Reads the tokens of the source and matches its parentheses, brackets and braces. Answers false if the
+ * source cannot be scanned or has lambda expressions or method references.
+ */
+private boolean tokenize() {
+	Scanner scanner = new Scanner(true/*comments*/, false/*whitespaces*/, false/*nls*/, this.sourceLevel, this.complianceLevel, null/*taskTags*/, null/*taskPriorities*/, true/*taskCaseSensitive*/);
+	scanner.setSource(this.source);
+	int length = this.source.length / 6 + 16;
+	this.kinds = new int[length];
+	this.matches = new int[length];
+	this.identifiers = new char[length][];
+	this.deprecated = new boolean[length];
+	int[] openings = new int[16];
+	int depth = 0;
+	int count = 0;
+	boolean deprecatedComment = false;
+	try {
+		while (true) {
+			int token = scanner.getNextToken();
+			switch (token) {
+				case TokenNameCOMMENT_JAVADOC :
+					deprecatedComment = readJavadoc(scanner.startPosition, scanner.currentPosition);
+					continue;
+				case TokenNameCOMMENT_LINE :
+				case TokenNameCOMMENT_BLOCK :
+					continue;
+				case TokenNameARROW :
+				case TokenNameCOLON_COLON :
+					return false; // functional expressions are indexed from the resolved document
+			}
+			if (count + PADDING >= length) {
+				length *= 2;
+				System.arraycopy(this.kinds, 0, this.kinds = new int[length], 0, count);
+				System.arraycopy(this.matches, 0, this.matches = new int[length], 0, count);
+				System.arraycopy(this.identifiers, 0, this.identifiers = new char[length][], 0, count);
+				System.arraycopy(this.deprecated, 0, this.deprecated = new boolean[length], 0, count);
+			}
+			this.kinds[count] = token;
+			this.deprecated[count] = deprecatedComment;
+			deprecatedComment = false;
+			switch (token) {
+				case TokenNameIdentifier :
+					this.identifiers[count] = scanner.getCurrentIdentifierSource();
+					break;
+				case TokenNameLPAREN :
+				case TokenNameLBRACKET :
+				case TokenNameLBRACE :
+					if (depth == openings.length)
+						System.arraycopy(openings, 0, openings = new int[depth * 2], 0, depth);
+					openings[depth++] = count;
+					break;
+				case TokenNameRPAREN :
+				case TokenNameRBRACKET :
+				case TokenNameRBRACE :
+					if (depth == 0)
+						return false;
+					int opening = openings[--depth];
+					int openingKind = this.kinds[opening];
+					if (token == TokenNameRPAREN ? openingKind != TokenNameLPAREN : token == TokenNameRBRACKET ? openingKind != TokenNameLBRACKET : openingKind != TokenNameLBRACE)
+						return false;
+					this.matches[opening] = count;
+					this.matches[count] = opening;
+					break;
+				case TokenNameEOF :
+					if (depth != 0)
+						return false;
+					for (int i = 1; i <= PADDING; i++)
+						this.kinds[count + i] = TokenNameEOF;
+					return true;
+			}
+			count++;
+		}
+	} catch (InvalidInputException e) {
+		return false;
+	}
+}
+}
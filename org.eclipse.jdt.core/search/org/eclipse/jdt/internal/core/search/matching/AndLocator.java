@@ -55,6 +55,12 @@ public void initializePolymorphicSearch(MatchLocator locator) {
 		this.patternLocators[i].initializePolymorphicSearch(locator);
 	}
 }
+public void initializePolymorphicSearch(MatchLocator locator, PatternLocator initializedLocator) {
+	PatternLocator[] initializedLocators = ((AndLocator) initializedLocator).patternLocators;
+	for (int i = 0, length = this.patternLocators.length; i < length; i++) {
+		this.patternLocators[i].initializePolymorphicSearch(locator, initializedLocators[i]);
+	}
+}
 public int match(Annotation node, MatchingNodeSet nodeSet) {
 	int level = IMPOSSIBLE_MATCH;
 	for (int i = 0, length = this.patternLocators.length; i < length; i++) {
@@ -21,6 +21,12 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.zip.ZipFile;
 
 import org.eclipse.core.resources.IResource;
@@ -45,6 +51,7 @@ import org.eclipse.jdt.core.search.*;
 import org.eclipse.jdt.internal.compiler.CompilationResult;
 import org.eclipse.jdt.internal.compiler.DefaultErrorHandlingPolicies;
 import org.eclipse.jdt.internal.compiler.ast.*;
+import org.eclipse.jdt.internal.compiler.classfmt.BinaryTypeCache;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
@@ -108,6 +115,19 @@ static {
 	}
 }
 
+/**
+ * Name of the JVM parameter to specify how many workers may locate the matches of a project at the same time.
+ * The default value of 1 locates all the matches on the calling thread.
+ */
+public static final String LOCATE_PARALLELISM = "jdt.search.locateParallelism"; //$NON-NLS-1$
+public static int PARALLELISM = Integer.getInteger(LOCATE_PARALLELISM, 1).intValue();
+/*
+ * Minimum number of possible matches given to a worker, so that the cost of its own
+ * lookup environment and parser is spread over enough units.
+ */
+static final int MIN_MATCHES_PER_WORKER = 50;
+private static ForkJoinPool LocatorPool; // shared by all parallel searches, created on first use
+
 // permanent state
 public SearchPattern pattern;
 public PatternLocator patternLocator;
@@ -169,6 +189,30 @@ public static class WorkingCopyDocument extends JavaSearchDocument {
 	}
 }
 
+/*
+ * Keeps the matches found by a worker of a parallel search until they can be reported in order.
+ */
+static class MatchCollector extends SearchRequestor {
+	ArrayList matches = new ArrayList();
+	public void acceptSearchMatch(SearchMatch match) {
+		this.matches.add(match);
+	}
+}
+
+/*
+ * Gives the cancellation of the search to the workers of a parallel search, without letting them
+ * report any progress to a monitor which may not be thread safe.
+ */
+static class CancelMonitor extends NullProgressMonitor {
+	IProgressMonitor monitor;
+	CancelMonitor(IProgressMonitor monitor) {
+		this.monitor = monitor;
+	}
+	public boolean isCanceled() {
+		return this.monitor != null && this.monitor.isCanceled();
+	}
+}
+
 public static class WrappedCoreException extends RuntimeException {
 	private static final long serialVersionUID = 8354329870126121212L; // backward compatible
 	public CoreException coreException;
@@ -254,7 +298,8 @@ public static ClassFileReader classFileReader(IType type) {
 			zipFile = manager.getZipFile(zipPath);
 			String classFileName = classFile.getElementName();
 			String path = Util.concatWith(pkg.names, classFileName, '/');
-			return ClassFileReader.read(zipFile, path);
+			BinaryTypeCache cache = BinaryTypeCache.getShared();
+			return cache != null ? cache.read(zipFile, path) : ClassFileReader.read(zipFile, path);
 		} finally {
 			manager.closeZipFile(zipFile);
 		}
@@ -854,7 +899,8 @@ protected IBinaryType getBinaryInfo(ClassFile classFile, IResource resource) thr
 			ZipFile zipFile = null;
 			try {
 				zipFile = ((JarPackageFragmentRoot) root).getJar();
-				info = ClassFileReader.read(zipFile, classFilePath);
+				BinaryTypeCache cache = BinaryTypeCache.getShared();
+				info = cache != null ? cache.read(zipFile, classFilePath) : ClassFileReader.read(zipFile, classFilePath);
 			} finally {
 				JavaModelManager.getJavaModelManager().closeZipFile(zipFile);
 			}
@@ -1293,14 +1339,114 @@ protected void locateMatches(JavaProject javaProject, PossibleMatchSet matchSet,
 		this.progressWorked += expected-length;
 		this.progressMonitor.worked( expected-length);
 	}
-	// locate matches (processed matches are limited to avoid problem while using VM default memory heap size)
-	for (int index = 0; index < length;) {
-		int max = Math.min(MAX_AT_ONCE, length - index);
-		locateMatches(javaProject, possibleMatches, index, max);
-		index += max;
+	if (PARALLELISM > 1 && length >= 2 * MIN_MATCHES_PER_WORKER) {
+		locateMatchesConcurrently(javaProject, possibleMatches);
+	} else {
+		// locate matches (processed matches are limited to avoid problem while using VM default memory heap size)
+		for (int index = 0; index < length;) {
+			int max = Math.min(MAX_AT_ONCE, length - index);
+			locateMatches(javaProject, possibleMatches, index, max);
+			index += max;
+		}
 	}
 	this.patternLocator.clear();
 }
+/**
+ * Locate the matches amongst the possible matches of a project using several workers.
+ * Each worker gets a contiguous slice of the possible matches, and its own lookup environment and parser.
+ * The matches of each slice are reported once all the previous slices have been reported,
+ * so the requestor gets them in the same order as with a sequential search.
+ */
+protected void locateMatchesConcurrently(final JavaProject javaProject, PossibleMatch[] possibleMatches) throws CoreException {
+	int length = possibleMatches.length;
+	int workers = Math.min(PARALLELISM, length / MIN_MATCHES_PER_WORKER);
+	int sliceLength = (length + workers - 1) / workers;
+	ForkJoinPool pool = getLocatorPool();
+	@SuppressWarnings("unchecked")
+	ForkJoinTask<MatchCollector>[] tasks = new ForkJoinTask[workers];
+	int[] sliceLengths = new int[workers];
+	for (int i = 0, start = 0; i < workers; i++, start += sliceLength) {
+		final PossibleMatch[] slice = new PossibleMatch[Math.min(sliceLength, length - start)];
+		System.arraycopy(possibleMatches, start, slice, 0, slice.length);
+		sliceLengths[i] = slice.length;
+		tasks[i] = pool.submit(new Callable<MatchCollector>() {
+			public MatchCollector call() throws CoreException {
+				return locateMatchesInWorker(javaProject, slice);
+			}
+		});
+	}
+	try {
+		for (int i = 0; i < workers; i++) {
+			ArrayList matches = waitFor(tasks[i]).matches;
+			for (int j = 0, size = matches.size(); j < size; j++)
+				this.requestor.acceptSearchMatch((SearchMatch) matches.get(j));
+			if (this.progressMonitor != null) {
+				this.progressWorked += sliceLengths[i];
+				this.progressMonitor.worked(sliceLengths[i]);
+			}
+		}
+	} finally {
+		for (int i = 0; i < workers; i++)
+			tasks[i].cancel(false);
+	}
+}
+/*
+ * Locates the matches of the given possible matches with a new locator which is confined to the current thread.
+ */
+MatchCollector locateMatchesInWorker(JavaProject javaProject, PossibleMatch[] possibleMatches) throws CoreException {
+	MatchCollector collector = new MatchCollector();
+	MatchLocator worker = new MatchLocator(this.pattern, collector, this.scope, new CancelMonitor(this.progressMonitor));
+	worker.workingCopies = this.workingCopies;
+	worker.handleFactory = new HandleFactory();
+	worker.bindings = new SimpleLookupTable();
+	worker.progressStep = 1;
+	worker.patternLocator.initializePolymorphicSearch(worker, this.patternLocator);
+	JavaModelManager manager = JavaModelManager.getJavaModelManager();
+	try {
+		manager.cacheZipFiles(worker); // zip files are cached per thread
+		int length = possibleMatches.length;
+		for (int index = 0; index < length;) {
+			int max = Math.min(MAX_AT_ONCE, length - index);
+			worker.locateMatches(javaProject, possibleMatches, index, max);
+			index += max;
+		}
+	} finally {
+		worker.patternLocator.clear(); // as locateMatches(JavaProject, PossibleMatchSet, int) does once the project is done
+		if (worker.nameEnvironment != null)
+			worker.nameEnvironment.cleanup();
+		worker.unitScope = null;
+		manager.flushZipFiles(worker);
+		worker.bindings = null;
+	}
+	return collector;
+}
+private static synchronized ForkJoinPool getLocatorPool() {
+	if (LocatorPool == null)
+		LocatorPool = new ForkJoinPool(PARALLELISM);
+	return LocatorPool;
+}
+private MatchCollector waitFor(ForkJoinTask<MatchCollector> task) throws CoreException {
+	while (true) {
+		if (this.progressMonitor != null && this.progressMonitor.isCanceled())
+			throw new OperationCanceledException();
+		try {
+			return task.get(50, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			// check for cancellation again
+		} catch (InterruptedException e) {
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof CoreException)
+				throw (CoreException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+	}
+}
 /**
  * Locate the matches in the given files and report them using the search requestor.
  */
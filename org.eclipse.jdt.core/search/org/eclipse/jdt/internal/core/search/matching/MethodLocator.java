@@ -128,6 +128,13 @@ public void initializePolymorphicSearch(MatchLocator locator) {
 		System.out.println("Time to initialize polymorphic search: "+(System.currentTimeMillis()-start)); //$NON-NLS-1$
 	}
 }
+public void initializePolymorphicSearch(MatchLocator locator, PatternLocator initializedLocator) {
+	// the super type names do not depend on the locator, so don't collect them again
+	MethodLocator methodLocator = (MethodLocator) initializedLocator;
+	this.allSuperDeclaringTypeNames = methodLocator.allSuperDeclaringTypeNames;
+	this.samePkgSuperDeclaringTypeNames = methodLocator.samePkgSuperDeclaringTypeNames;
+	this.matchLocator = locator;
+}
 /*
  * Return whether a type name is in pattern all super declaring types names.
  */
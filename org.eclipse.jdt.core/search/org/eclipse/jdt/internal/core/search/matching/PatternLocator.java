@@ -176,6 +176,13 @@ protected TypeBinding getTypeNameBinding(int index) {
 public void initializePolymorphicSearch(MatchLocator locator) {
 	// default is to do nothing
 }
+/**
+ * Initializes this search pattern for the given worker locator of a parallel search,
+ * reusing what the given locator of the same pattern computed in {@link #initializePolymorphicSearch(MatchLocator)}.
+ */
+public void initializePolymorphicSearch(MatchLocator locator, PatternLocator initializedLocator) {
+	initializePolymorphicSearch(locator);
+}
 public int match(Annotation node, MatchingNodeSet nodeSet) {
 	// each subtype should override if needed
 	return IMPOSSIBLE_MATCH;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2015 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.core.search.processing;
 
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.internal.core.util.Messages;
@@ -17,6 +20,17 @@ import org.eclipse.jdt.internal.core.util.Util;
 
 public abstract class JobManager implements Runnable {
 
+	/**
+	 * Name of the JVM parameter to specify how many threads may run the background jobs at the same time.
+	 * The default value of 1 runs the jobs one after another on the background thread.
+	 */
+	public static final String WORKERS_PROPERTY = "jdt.search.indexingWorkers"; //$NON-NLS-1$
+	public static int WORKERS = Integer.getInteger(WORKERS_PROPERTY, 1).intValue();
+
+	/* number of awaiting jobs a worker looks at to find one which may run along with the running jobs */
+	static final int MAX_LOOKAHEAD = 100;
+	private static final Object NO_KEY = new Object();
+
 	/* queue of jobs to execute */
 	protected IJob[] awaitingJobs = new IJob[10];
 	protected int jobStart = 0;
@@ -27,6 +41,20 @@ public abstract class JobManager implements Runnable {
 	protected Thread processingThread;
 	protected Job progressJob;
 
+	/* additional background threads, and the jobs which they run (multi-worker mode only) */
+	protected Thread[] workers;
+	protected int workerCount = 1;
+	private IdentityHashMap<IJob, Thread> runningJobs = new IdentityHashMap<IJob, Thread>();
+	private IdentityHashMap<IJob, Object> jobKeys = new IdentityHashMap<IJob, Object>();
+
+	/* statistics */
+	private int completedJobsCount = 0;
+	private int maxAwaitingJobsCount = 0;
+	private long busyStart = -1; // when the current sequence of jobs started, or -1 if idle
+	private int busyStartCount;
+	private int lastBusyJobsCount;
+	private long lastBusyTime;
+
 	/* counter indicating whether job execution is enabled or not, disabled if <= 0
 	    it cannot go beyond 1 */
 	private int enableCount = 1;
@@ -50,6 +78,25 @@ public abstract class JobManager implements Runnable {
 		// pretend busy in case concurrent job attempts performing before activated
 		return this.activated ? this.jobEnd - this.jobStart + 1 : 1;
 	}
+	/**
+	 * Answer the amount of jobs completed since the job manager was created.
+	 */
+	public synchronized int completedJobsCount() {
+		return this.completedJobsCount;
+	}
+	/**
+	 * Answer the largest amount of awaiting jobs since the job manager was created.
+	 */
+	public synchronized int maxAwaitingJobsCount() {
+		return this.maxAwaitingJobsCount;
+	}
+	/**
+	 * Answer the amount of jobs completed per second during the last sequence of jobs
+	 * (from the first job requested while idle until no job is awaiting), or 0 if none completed.
+	 */
+	public synchronized double throughput() {
+		return this.lastBusyTime == 0 ? this.lastBusyJobsCount : this.lastBusyJobsCount * 1000.0 / this.lastBusyTime;
+	}
 	/**
 	 * Answers the first job in the queue, or null if there is no job available
 	 * Until the job has completed, the job manager will keep answering the same job.
@@ -75,12 +122,17 @@ public abstract class JobManager implements Runnable {
 
 		try {
 			IJob currentJob;
+			IJob[] running = null;
 			// cancel current job if it belongs to the given family
 			synchronized(this){
 				currentJob = currentJob();
+				if (this.workers != null)
+					running = this.runningJobs.keySet().toArray(new IJob[this.runningJobs.size()]);
 				disable();
 			}
-			if (currentJob != null && (jobFamily == null || currentJob.belongsTo(jobFamily))) {
+			if (running != null) {
+				cancelRunningJobs(running, jobFamily);
+			} else if (currentJob != null && (jobFamily == null || currentJob.belongsTo(jobFamily))) {
 				currentJob.cancel();
 
 				// wait until current active job has finished
@@ -108,6 +160,7 @@ public abstract class JobManager implements Runnable {
 							if (VERBOSE)
 								Util.verbose("-> discarding background job  - " + currentJob); //$NON-NLS-1$
 							currentJob.cancel();
+							this.jobKeys.remove(currentJob);
 						}
 					}
 				}
@@ -120,17 +173,81 @@ public abstract class JobManager implements Runnable {
 		if (VERBOSE)
 			Util.verbose("DISCARD   DONE with background job family - " + jobFamily); //$NON-NLS-1$
 	}
+	/*
+	 * Cancels the given running jobs which belong to the given family, and waits until they have finished.
+	 */
+	private void cancelRunningJobs(IJob[] running, String jobFamily) {
+		int count = 0;
+		for (int i = 0, length = running.length; i < length; i++) {
+			if (jobFamily == null || running[i].belongsTo(jobFamily)) {
+				running[i].cancel();
+				running[count++] = running[i];
+			}
+		}
+		while (count > 0 && this.processingThread != null) {
+			synchronized (this) {
+				while (count > 0 && !this.runningJobs.containsKey(running[count - 1]))
+					count--;
+			}
+			if (count == 0) break;
+			try {
+				if (VERBOSE)
+					Util.verbose("-> waiting end of running background job - " + running[count - 1]); //$NON-NLS-1$
+				Thread.sleep(50);
+			} catch(InterruptedException e){
+				// ignore
+			}
+		}
+	}
 	public synchronized void enable() {
 		this.enableCount++;
 		if (VERBOSE)
 			Util.verbose("ENABLING  background indexing"); //$NON-NLS-1$
 		notifyAll(); // wake up the background thread if it is waiting (context must be synchronized)
 	}
+	/**
+	 * Answers the key of the data updated by the given job, e.g. the location of an index, or null
+	 * if the job may update any data.
+	 * In multi-worker mode, jobs with different keys run concurrently. A job waits for the jobs requested
+	 * before it with the same key, and a job without key waits for all the jobs requested before it and runs alone.
+	 */
+	protected Object getJobKey(IJob job) {
+		return null;
+	}
 	protected synchronized boolean isJobWaiting(IJob request) {
 		for (int i = this.jobEnd; i > this.jobStart; i--) // don't check job at jobStart, as it may have already started
-			if (request.equals(this.awaitingJobs[i])) return true;
+			if (request.equals(this.awaitingJobs[i]) && !this.runningJobs.containsKey(this.awaitingJobs[i])) return true;
 		return false;
 	}
+	/*
+	 * Remove the given job from the queue once it has been completed by a worker (multi-worker mode only).
+	 */
+	private synchronized void jobCompleted(IJob job) {
+		this.runningJobs.remove(job);
+		this.jobKeys.remove(job);
+		this.executing = !this.runningJobs.isEmpty();
+		if (this.jobStart <= this.jobEnd && this.awaitingJobs[this.jobStart] == job) {
+			moveToNextJob();
+		} else {
+			for (int i = this.jobStart + 1; i <= this.jobEnd; i++) {
+				if (this.awaitingJobs[i] == job) {
+					System.arraycopy(this.awaitingJobs, i + 1, this.awaitingJobs, i, this.jobEnd - i);
+					this.awaitingJobs[this.jobEnd--] = null;
+					break;
+				}
+			}
+		}
+		recordJobEnd();
+		notifyAll(); // wake up the workers waiting for this job to complete
+	}
+	private Object jobKey(IJob job) {
+		Object key = this.jobKeys.get(job);
+		if (key == null) {
+			key = getJobKey(job);
+			this.jobKeys.put(job, key == null ? NO_KEY : key);
+		}
+		return key == NO_KEY ? null : key;
+	}
 	/**
 	 * Advance to the next available job, once the current one has been completed.
 	 * Note: clients awaiting until the job count is zero are still waiting at this point.
@@ -146,6 +263,33 @@ public abstract class JobManager implements Runnable {
 			}
 		}
 	}
+	/*
+	 * Answers the first awaiting job which may run along with the running jobs, and marks it as running
+	 * (multi-worker mode only). See getJobKey(IJob).
+	 */
+	private IJob nextJob() {
+		if (this.enableCount <= 0 || this.runningJobs.size() >= this.workerCount)
+			return null;
+		HashSet<Object> busyKeys = null;
+		for (int i = this.jobStart, end = Math.min(this.jobEnd, this.jobStart + MAX_LOOKAHEAD - 1); i <= end; i++) {
+			IJob job = this.awaitingJobs[i];
+			Object key = jobKey(job);
+			boolean isRunning = this.runningJobs.containsKey(job);
+			if (key == null) {
+				if (isRunning || i > this.jobStart || !this.runningJobs.isEmpty())
+					return null; // runs alone, after the jobs requested before it
+			} else if (isRunning || (busyKeys != null && busyKeys.contains(key))) {
+				if (busyKeys == null)
+					busyKeys = new HashSet<Object>();
+				busyKeys.add(key);
+				continue;
+			}
+			this.runningJobs.put(job, Thread.currentThread());
+			this.executing = true;
+			return job;
+		}
+		return null;
+	}
 	/**
 	 * When idle, give chance to do something
 	 */
@@ -215,8 +359,10 @@ public abstract class JobManager implements Runnable {
 							Thread t = this.processingThread;
 							int originalPriority = t == null ? -1 : t.getPriority();
 							try {
-								if (t != null)
+								if (t != null) {
 									t.setPriority(Thread.currentThread().getPriority());
+									setWorkersPriority(Thread.currentThread().getPriority());
+								}
 								synchronized(this) {
 									this.awaitingClients++;
 								}
@@ -265,8 +411,10 @@ public abstract class JobManager implements Runnable {
 								synchronized(this) {
 									this.awaitingClients--;
 								}
-								if (t != null && originalPriority > -1 && t.isAlive())
+								if (t != null && originalPriority > -1 && t.isAlive()) {
 									t.setPriority(originalPriority);
+									setWorkersPriority(originalPriority);
+								}
 							}
 						} finally {
 							if (subProgress != null)
@@ -304,6 +452,9 @@ public abstract class JobManager implements Runnable {
 			this.jobStart = 0;
 		}
 		this.awaitingJobs[this.jobEnd] = job;
+		int awaitingJobsCount = this.jobEnd - this.jobStart + 1;
+		if (awaitingJobsCount > this.maxAwaitingJobsCount)
+			this.maxAwaitingJobsCount = awaitingJobsCount;
 		if (VERBOSE) {
 			Util.verbose("REQUEST   background job - " + job); //$NON-NLS-1$
 			Util.verbose("AWAITING JOBS count: " + awaitingJobsCount()); //$NON-NLS-1$
@@ -321,6 +472,7 @@ public abstract class JobManager implements Runnable {
 			discardJobs(null); // discard all jobs
 		} else {
 			/* initiate background processing */
+			this.workerCount = Math.max(1, WORKERS);
 			this.processingThread = new Thread(this, processName());
 			this.processingThread.setDaemon(true);
 			// less prioritary by default, priority is raised if clients are actively waiting on it
@@ -331,6 +483,125 @@ public abstract class JobManager implements Runnable {
 			this.processingThread.start();
 		}
 	}
+	class ProgressJob extends Job {
+		ProgressJob(String name) {
+			super(name);
+		}
+		protected IStatus run(IProgressMonitor monitor) {
+			IJob job = currentJob();
+			while (!monitor.isCanceled() && job != null) {
+				 String taskName = new StringBuffer(Messages.jobmanager_indexing)
+					.append(Messages.bind(Messages.jobmanager_filesToIndex, job.getJobFamily(), Integer.toString(awaitingJobsCount())))
+					.toString();
+				monitor.subTask(taskName);
+				setName(taskName);
+				try {
+					Thread.sleep(500);
+				} catch (InterruptedException e) {
+					// ignore
+				}
+				job = currentJob();
+			}
+			return Status.OK_STATUS;
+		}
+	}
+	/*
+	 * Loop of a background thread in multi-worker mode, running the jobs which don't conflict with
+	 * the running ones. Only the main worker (the processing thread) is notified of the idle time.
+	 */
+	void processJobs(boolean isMainWorker) {
+		long idlingStart = -1;
+		while (this.processingThread != null) {
+			try {
+				IJob job;
+				boolean isIdle = false;
+				synchronized (this) {
+					// handle shutdown case when notifyAll came before the wait but after the while loop was entered
+					if (this.processingThread == null) continue;
+
+					if ((job = nextJob()) == null) {
+						isIdle = currentJob() == null;
+						if (isIdle) {
+							if (this.progressJob != null) {
+								this.progressJob.cancel();
+								this.progressJob = null;
+							}
+							if (isMainWorker) {
+								if (idlingStart < 0)
+									idlingStart = System.currentTimeMillis();
+								else
+									notifyIdle(System.currentTimeMillis() - idlingStart);
+							}
+						} else {
+							idlingStart = -1;
+						}
+						this.wait(); // wait until a new job is posted, a running job is completed or the processing is reenabled
+					} else {
+						idlingStart = -1;
+						recordJobStart();
+						if (this.progressJob == null) {
+							this.progressJob = new ProgressJob(Messages.bind(Messages.jobmanager_indexing, "", "")); //$NON-NLS-1$ //$NON-NLS-2$
+							this.progressJob.setPriority(Job.LONG);
+							this.progressJob.setSystem(true);
+							this.progressJob.schedule();
+						}
+					}
+				}
+				if (job == null) {
+					if (isIdle && isMainWorker) {
+						notifyIdle(System.currentTimeMillis() - idlingStart);
+						// just woke up, delay before processing any new jobs, allow some time for the active thread to finish
+						Thread.sleep(500);
+					}
+					continue;
+				}
+				if (VERBOSE) {
+					Util.verbose(awaitingJobsCount() + " awaiting jobs"); //$NON-NLS-1$
+					Util.verbose("STARTING background job - " + job); //$NON-NLS-1$
+				}
+				Throwable crash = null;
+				try {
+					/*boolean status = */job.execute(null);
+				} catch (RuntimeException e) {
+					crash = e;
+				} catch (Error e) {
+					if (e instanceof ThreadDeath) throw e;
+					crash = e;
+				} finally {
+					if (VERBOSE)
+						Util.verbose("FINISHED background job - " + job); //$NON-NLS-1$
+					jobCompleted(job);
+				}
+				if (crash != null && this.processingThread != null) { // if not shutting down
+					// log exception
+					Util.log(crash, "Background Indexer Crash Recovery"); //$NON-NLS-1$
+
+					// keep job manager alive, with no waiting jobs, some indexes will be inconsistent
+					discardJobs(null);
+				}
+				if (this.awaitingClients == 0)
+					Thread.sleep(50);
+			} catch (InterruptedException e) { // background indexing was interrupted
+			}
+		}
+	}
+	private synchronized void recordJobStart() {
+		if (this.busyStart < 0) {
+			this.busyStart = System.currentTimeMillis();
+			this.busyStartCount = this.completedJobsCount;
+		}
+	}
+	private synchronized void recordJobEnd() {
+		this.completedJobsCount++;
+		if (this.jobStart > this.jobEnd && this.runningJobs.isEmpty() && this.busyStart >= 0) {
+			this.lastBusyTime = System.currentTimeMillis() - this.busyStart;
+			this.lastBusyJobsCount = this.completedJobsCount - this.busyStartCount;
+			this.busyStart = -1;
+			if (VERBOSE)
+				Util.verbose("-> " + this.lastBusyJobsCount + " background jobs done in " + this.lastBusyTime + "ms (" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ (int) throughput() + " jobs/s, max awaiting jobs: " + this.maxAwaitingJobsCount + ')'); //$NON-NLS-1$
+		}
+	}
 	/**
 	 * Infinite loop performing resource indexing
 	 */
@@ -339,29 +610,12 @@ public abstract class JobManager implements Runnable {
 		long idlingStart = -1;
 		activateProcessing();
 		try {
-			class ProgressJob extends Job {
-				ProgressJob(String name) {
-					super(name);
-				}
-				protected IStatus run(IProgressMonitor monitor) {
-					IJob job = currentJob();
-					while (!monitor.isCanceled() && job != null) {
-						 String taskName = new StringBuffer(Messages.jobmanager_indexing)
-							.append(Messages.bind(Messages.jobmanager_filesToIndex, job.getJobFamily(), Integer.toString(awaitingJobsCount())))
-							.toString();
-						monitor.subTask(taskName);
-						setName(taskName);
-						try {
-							Thread.sleep(500);
-						} catch (InterruptedException e) {
-							// ignore
-						}
-						job = currentJob();
-					}
-					return Status.OK_STATUS;
-				}
-			}
 			this.progressJob = null;
+			if (this.workerCount > 1) {
+				startWorkers();
+				processJobs(true);
+				return;
+			}
 			while (this.processingThread != null) {
 				try {
 					IJob job;
@@ -396,6 +650,7 @@ public abstract class JobManager implements Runnable {
 					}
 					try {
 						this.executing = true;
+						recordJobStart();
 						if (this.progressJob == null) {
 							this.progressJob = new ProgressJob(Messages.bind(Messages.jobmanager_indexing, "", "")); //$NON-NLS-1$ //$NON-NLS-2$
 							this.progressJob.setPriority(Job.LONG);
@@ -409,6 +664,7 @@ public abstract class JobManager implements Runnable {
 						if (VERBOSE)
 							Util.verbose("FINISHED background job - " + job); //$NON-NLS-1$
 						moveToNextJob();
+						recordJobEnd();
 						if (this.awaitingClients == 0)
 							Thread.sleep(50);
 					}
@@ -439,6 +695,33 @@ public abstract class JobManager implements Runnable {
 			throw e;
 		}
 	}
+	/*
+	 * Starts the additional background threads of the multi-worker mode.
+	 */
+	private void startWorkers() {
+		Thread[] threads = new Thread[this.workerCount - 1];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					processJobs(false);
+				}
+			}, processName() + " #" + (i + 2)); //$NON-NLS-1$
+			threads[i].setDaemon(true);
+			threads[i].setPriority(Thread.currentThread().getPriority());
+			threads[i].setContextClassLoader(this.getClass().getClassLoader());
+		}
+		this.workers = threads;
+		for (int i = 0; i < threads.length; i++)
+			threads[i].start();
+	}
+	private void setWorkersPriority(int priority) {
+		Thread[] threads = this.workers;
+		if (threads == null) return;
+		for (int i = 0; i < threads.length; i++) {
+			if (threads[i].isAlive())
+				threads[i].setPriority(priority);
+		}
+	}
 	/**
 	 * Stop background processing, and wait until the current job is completed before returning
 	 */
@@ -458,6 +741,12 @@ public abstract class JobManager implements Runnable {
 				}
 				// in case processing thread is handling a job
 				thread.join();
+				Thread[] threads = this.workers;
+				if (threads != null) {
+					for (int i = 0; i < threads.length; i++)
+						threads[i].join();
+					this.workers = null;
+				}
 			}
 			Job job = this.progressJob;
 			if (job != null) {
@@ -473,6 +762,9 @@ public abstract class JobManager implements Runnable {
 		buffer.append("Enable count:").append(this.enableCount).append('\n'); //$NON-NLS-1$
 		int numJobs = this.jobEnd - this.jobStart + 1;
 		buffer.append("Jobs in queue:").append(numJobs).append('\n'); //$NON-NLS-1$
+		buffer.append("Running jobs:").append(this.runningJobs.size()).append(" (workers: ").append(this.workerCount).append(")\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		buffer.append("Completed jobs:").append(this.completedJobsCount).append(", max jobs in queue:").append(this.maxAwaitingJobsCount) //$NON-NLS-1$ //$NON-NLS-2$
+			.append(", last throughput:").append((int) throughput()).append(" jobs/s\n"); //$NON-NLS-1$ //$NON-NLS-2$
 		for (int i = 0; i < numJobs && i < 15; i++) {
 			buffer.append(i).append(" - job["+i+"]: ").append(this.awaitingJobs[this.jobStart+i]).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
 		}